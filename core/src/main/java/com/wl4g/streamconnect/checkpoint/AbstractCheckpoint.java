@@ -19,11 +19,15 @@ package com.wl4g.streamconnect.checkpoint;
 
 import com.wl4g.streamconnect.config.StreamConnectConfiguration;
 import com.wl4g.streamconnect.framework.NamedStreamConnectSpi;
+import com.wl4g.streamconnect.meter.MeterHandles;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.ApplicationEventPublisher;
 
+import javax.validation.constraints.Null;
+import java.util.List;
+
 import static java.util.Objects.requireNonNull;
 
 /**
@@ -51,5 +55,13 @@ public abstract class AbstractCheckpoint
         return getConfig().getEventPublisher();
     }
 
+    /**
+     * Creates the meter handles for the fixed tags, e.g: per channel reader/writer, which should be
+     * created once and held by the reader/writer.
+     */
+    protected MeterHandles newMeterHandles(@Null List<String> tags, @Null String... additionalTags) {
+        return new MeterHandles(getConfig().getMeter(), tags, additionalTags);
+    }
+
 }
 
@@ -17,15 +17,19 @@
 
 package com.wl4g.streamconnect.checkpoint;
 
+import com.wl4g.infra.common.lang.Assert2;
+import com.wl4g.streamconnect.checkpoint.serialize.JsonPointSerde;
 import com.wl4g.streamconnect.config.ChannelInfo;
 import com.wl4g.streamconnect.config.StreamConnectConfiguration.ConnectorConfig;
 import com.wl4g.streamconnect.coordinator.CachingChannelRegistry;
 import com.wl4g.streamconnect.framework.IStreamConnectSpi;
+import com.wl4g.streamconnect.framework.StreamConnectSpiFactory;
 import com.wl4g.streamconnect.meter.StreamConnectMeter.MetricsName;
 import com.wl4g.streamconnect.stream.AbstractStream.MessageRecord;
 import com.wl4g.streamconnect.stream.process.ProcessStream.ChannelRecord;
 import com.wl4g.streamconnect.stream.sink.SinkStream;
 import lombok.AllArgsConstructor;
+import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -38,7 +42,12 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+
+import static java.util.Objects.requireNonNull;
 
 /**
  * The {@link ICheckpoint}
@@ -63,7 +72,18 @@ public interface ICheckpoint extends IStreamConnectSpi {
     @SuperBuilder
     @NoArgsConstructor
     abstract class CheckpointConfig {
+        /**
+         * The serialization format of the point records, see: {@link PointSerde}
+         */
+        private @Builder.Default String pointFormat = JsonPointSerde.TYPE_NAME;
+
         public void validate() {
+            Assert2.hasTextOf(pointFormat, "pointFormat");
+            obtainPointSerde();
+        }
+
+        public PointSerde obtainPointSerde() {
+            return StreamConnectSpiFactory.get(PointSerde.class, pointFormat);
         }
     }
 
@@ -77,6 +97,32 @@ public interface ICheckpoint extends IStreamConnectSpi {
         private Future<?> future;
         private int retryTimes;
 
+        /**
+         * Register the write completion callback. If the future is a {@link CompletableFuture} (e.g:
+         * completed by the producer callback), it's invoked on completion, otherwise the future is
+         * waited for on the caller thread (e.g: the immediately completed memory futures).
+         */
+        public void whenComplete(@NotNull BiConsumer<Object, Throwable> action) {
+            requireNonNull(action, "action must not be null");
+            if (future instanceof CompletableFuture) {
+                ((CompletableFuture<?>) future).whenComplete(action);
+                return;
+            }
+            Object result = null;
+            Throwable error = null;
+            try {
+                result = future.get();
+            } catch (ExecutionException ex) {
+                error = ex.getCause();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                error = ex;
+            } catch (Throwable ex) {
+                error = ex;
+            }
+            action.accept(result, error);
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) {
@@ -154,6 +200,18 @@ public interface ICheckpoint extends IStreamConnectSpi {
             throw new UnsupportedOperationException();
         }
 
+        /**
+         * Variant of {@link #preferAutoAcknowledge(Collection)}, for the readers that track the completions of
+         * all the records (e.g: by the partition offsets watermarks), the given up are forced to be completed.
+         *
+         * @param sentResults    the completed sent results
+         * @param givenUpResults the given up sent results (e.g: retries exhausted)
+         */
+        default void preferAutoAcknowledge(Collection<SinkStream.SinkResult> sentResults,
+                                           Collection<SinkStream.SinkResult> givenUpResults) {
+            preferAutoAcknowledge(sentResults);
+        }
+
         default void addAcknowledgeCountMeter(MetricsName metrics,
                                               Collection<SinkStream.SinkResult> sinkResults) {
             throw new UnsupportedOperationException();
@@ -169,7 +227,6 @@ public interface ICheckpoint extends IStreamConnectSpi {
                                        Runnable ack);
     }
 
-    // TODO add support custom avro/protobuf serialization
     // --- Checkpoint serialization. ---
 
     interface PointSerializer<T> {
@@ -196,4 +253,12 @@ public interface ICheckpoint extends IStreamConnectSpi {
         T deserialize(String topic, Map<String, T> headers, byte[] data);
     }
 
+    /**
+     * The pluggable serialization format SPI of the point records, which type name is tagged to the
+     * header {@link com.wl4g.streamconnect.stream.AbstractStream#KEY_FORMAT} of each point record, so that
+     * the reader can select the deserializer for each record.
+     */
+    interface PointSerde extends IStreamConnectSpi, PointSerializer<Object>, PointDeserializer<Object> {
+    }
+
 }
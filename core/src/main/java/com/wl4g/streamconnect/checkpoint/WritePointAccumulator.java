@@ -0,0 +1,89 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.checkpoint;
+
+import com.wl4g.infra.common.lang.Assert2;
+import com.wl4g.streamconnect.checkpoint.ICheckpoint.WritePointResult;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The {@link WritePointAccumulator}, lock-free per-batch accumulator of the write point results, which
+ * is fed by the write completion callbacks (from producer I/O or retry scheduler threads), and the batch
+ * listener thread parks on it until every write point of this batch has been settled, i.e. completed or
+ * given up (e.g: retries exhausted). If the listener gives up waiting (e.g: timeout, the batch will be
+ * re-consumed), the accumulator is cancelled, so that the pending retries are no longer re-written.
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+public class WritePointAccumulator {
+    private final Queue<WritePointResult> completed = new ConcurrentLinkedQueue<>();
+    private final Queue<WritePointResult> givenUp = new ConcurrentLinkedQueue<>();
+    private final CountDownLatch pending;
+    private volatile boolean cancelled;
+
+    public WritePointAccumulator(int size) {
+        Assert2.isTrueOf(size >= 0, "size >= 0");
+        this.pending = new CountDownLatch(size);
+    }
+
+    public void complete(WritePointResult result) {
+        completed.offer(requireNonNull(result, "result must not be null"));
+        pending.countDown();
+    }
+
+    public void giveUp(WritePointResult result) {
+        givenUp.offer(requireNonNull(result, "result must not be null"));
+        pending.countDown();
+    }
+
+    public void await() throws InterruptedException {
+        pending.await();
+    }
+
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return pending.await(timeout, unit);
+    }
+
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public long getPendingCount() {
+        return pending.getCount();
+    }
+
+    public Queue<WritePointResult> getCompleted() {
+        return completed;
+    }
+
+    public Queue<WritePointResult> getGivenUp() {
+        return givenUp;
+    }
+
+}
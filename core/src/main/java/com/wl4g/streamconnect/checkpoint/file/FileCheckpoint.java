@@ -0,0 +1,443 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.checkpoint.file;
+
+import com.wl4g.infra.common.lang.Assert2;
+import com.wl4g.streamconnect.checkpoint.AbstractCheckpoint;
+import com.wl4g.streamconnect.checkpoint.file.PointLogSegment.LogEntry;
+import com.wl4g.streamconnect.checkpoint.serialize.JsonPointSerde;
+import com.wl4g.streamconnect.config.ChannelInfo;
+import com.wl4g.streamconnect.config.ChannelInfo.CheckpointSpec;
+import com.wl4g.streamconnect.config.StreamConnectConfiguration.ConnectorConfig;
+import com.wl4g.streamconnect.coordinator.CachingChannelRegistry;
+import com.wl4g.streamconnect.exception.StreamConnectException;
+import com.wl4g.streamconnect.framework.StreamConnectSpiFactory;
+import com.wl4g.streamconnect.meter.MeterHandles;
+import com.wl4g.streamconnect.meter.StreamConnectMeter.MetricsName;
+import com.wl4g.streamconnect.meter.StreamConnectMeter.MetricsTag;
+import com.wl4g.streamconnect.stream.AbstractStream.RawMessageRecord;
+import com.wl4g.streamconnect.stream.process.ProcessStream.ChannelRecord;
+import com.wl4g.streamconnect.stream.sink.SinkStream;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.SuperBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.wl4g.streamconnect.stream.AbstractStream.KEY_CHANNEL;
+import static com.wl4g.streamconnect.stream.AbstractStream.KEY_FORMAT;
+import static com.wl4g.streamconnect.stream.AbstractStream.KEY_SEQUENCE;
+import static com.wl4g.streamconnect.stream.AbstractStream.KEY_TENANT;
+import static java.lang.String.format;
+import static java.lang.String.valueOf;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The {@link FileCheckpoint}, the local checkpoint based on the segmented memory-mapped append-only
+ * {@link PointLog} of each channel, the writes are group committed by the flusher (one fsync per interval,
+ * pending bytes threshold or batch flush), and the reader tails the durable records of the log, and the
+ * acknowledged offset is persisted to a small offset file.
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+@Getter
+@Setter
+@Slf4j
+public class FileCheckpoint extends AbstractCheckpoint {
+    public static final String TYPE_NAME = "FILE_CHECKPOINT";
+
+    private FileCheckpointConfig checkpointConfig;
+    private final Map<String, PointLog> pointLogs = new ConcurrentHashMap<>();
+    private Thread flusher;
+
+    @Override
+    public synchronized void init() {
+        getCheckpointConfig().validate();
+        if (isNull(flusher)) {
+            this.flusher = new Thread(this::runFlusher, getClass().getSimpleName().concat("-flusher-").concat(getName()));
+            this.flusher.setDaemon(true);
+            this.flusher.start();
+        }
+    }
+
+    @Override
+    public String getType() {
+        return TYPE_NAME;
+    }
+
+    @Override
+    public PointWriter createWriter(@NotNull ConnectorConfig connectorConfig,
+                                    @NotNull ChannelInfo channel,
+                                    @NotNull CachingChannelRegistry registry) {
+        requireNonNull(connectorConfig, "connectorConfig must not be null");
+        requireNonNull(channel, "channel must not be null");
+
+        return new PointWriter() {
+            private final PointSerde pointSerde = getCheckpointConfig().obtainPointSerde();
+            private final byte[] pointFormat = pointSerde.getType().getBytes(StandardCharsets.UTF_8);
+            private PointLog pointLog;
+
+            @Override
+            public synchronized void stop(long timeoutMs, boolean force) {
+                if (nonNull(pointLog)) {
+                    if (!force) {
+                        pointLog.sync();
+                    }
+                    releasePointLog(connectorConfig, channel);
+                    this.pointLog = null;
+                }
+            }
+
+            @Override
+            public WritePointResult writeAsync(ConnectorConfig connectorConfig,
+                                               ChannelRecord record,
+                                               int retryTimes) {
+                final PointLog pointLog = obtainPointLog();
+                // Forward the original bytes if the record value has not been mapped, avoid to re-serialize.
+                final byte[] rawValue = pointSerde instanceof JsonPointSerde
+                        ? RawMessageRecord.getUnchangedRawValue(record.getRecord()) : null;
+                final byte[] value = nonNull(rawValue) ? rawValue
+                        : pointSerde.serialize(channel.getId(), null, record.getRecord().getValue());
+
+                if (log.isDebugEnabled()) {
+                    log.debug("{} :: {} :: Writing to point record : {}", connectorConfig.getName(),
+                            channel.getId(), record.getRecord().getKey());
+                }
+                // Notice: Completed by the group fsync of flusher or batch flush.
+                return new WritePointResult(record, pointLog, pointLog.append(record.getRecord().getKey(),
+                        record.getRecord().getTimestamp(), pointFormat, value), retryTimes);
+            }
+
+            @Override
+            public void flush(Collection<WritePointResult> results) {
+                // Group commit the whole batch with one fsync.
+                obtainPointLog().sync();
+            }
+
+            private synchronized PointLog obtainPointLog() {
+                if (isNull(pointLog)) {
+                    this.pointLog = FileCheckpoint.this.obtainPointLog(connectorConfig, channel);
+                }
+                return pointLog;
+            }
+        };
+    }
+
+    @Override
+    public PointReader createReader(@NotNull ConnectorConfig connectorConfig,
+                                    @NotNull ChannelInfo channel,
+                                    @NotNull ReadPointListener listener) {
+        requireNonNull(connectorConfig, "connectorConfig must not be null");
+        requireNonNull(channel, "channel must not be null");
+        requireNonNull(listener, "listener must not be null");
+
+        return new PointReader() {
+            private final MeterHandles readMeterHandles = newMeterHandles(null,
+                    MetricsTag.CONNECTOR, connectorConfig.getName(), MetricsTag.CHANNEL, channel.getId());
+            private final MeterHandles ackMeterHandles = newMeterHandles(null,
+                    MetricsTag.CHECKPOINT, getName(), MetricsTag.CHANNEL, valueOf(channel.getId()));
+            private final Map<String, Map<String, Object>> metadataCache = new HashMap<>(4);
+            private PointLog pointLog;
+            private Thread worker;
+            private volatile boolean running;
+            private volatile boolean paused;
+
+            @Override
+            public synchronized void start() {
+                if (nonNull(worker)) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("{} :: {} :: Skip to start checkpoint reader, because it has been started.",
+                                connectorConfig.getName(), channel.getId());
+                    }
+                    return;
+                }
+                listener.setReader(this);
+                this.pointLog = obtainPointLog(connectorConfig, channel);
+                this.running = true;
+                this.worker = connectorConfig.getProcessConfig().getExecutionMode().newThread(this::tail,
+                        FileCheckpoint.class.getSimpleName().concat("-reader-").concat(channel.getId()));
+                this.worker.start();
+            }
+
+            @Override
+            public synchronized boolean stop(long timeout, boolean force) throws Exception {
+                if (isNull(worker)) {
+                    return true;
+                }
+                this.running = false;
+                // Notice: Don't interrupt the worker, which may be closing the ack file channel.
+                worker.join(force ? 1L : Math.max(1L, timeout));
+                final boolean stopped = !worker.isAlive();
+                releasePointLog(connectorConfig, channel);
+                this.worker = null;
+                return stopped;
+            }
+
+            @Override
+            public void pause() {
+                this.paused = true;
+            }
+
+            @Override
+            public void resume() {
+                this.paused = false;
+            }
+
+            @Override
+            public boolean isRunning() {
+                return running && !paused;
+            }
+
+            @Override
+            public int getSubTaskCount() {
+                return 1;
+            }
+
+            @Override
+            public void preferAutoAcknowledge(Collection<SinkStream.SinkResult> sentResults) {
+                // Find the maximum offset that increments consecutively from the acknowledged offset.
+                final long[] offsets = sentResults.stream()
+                        .mapToLong(sr -> ((FilePointRecord) sr.getRecord()).getOffset())
+                        .sorted()
+                        .toArray();
+                long nextOffset = Math.max(pointLog.getAckedOffset(), pointLog.getLogStartOffset());
+                for (long offset : offsets) {
+                    if (offset == nextOffset) {
+                        ++nextOffset;
+                    } else if (offset > nextOffset) {
+                        break;
+                    }
+                }
+                final long acknowledgeTimingBegin = System.nanoTime();
+                try {
+                    pointLog.commitAckedOffset(nextOffset);
+                } finally {
+                    ackMeterHandles.tagged(MetricsTag.ACK_KIND, MetricsTag.ACK_KIND_VALUE_COMMIT)
+                            .recordNanos(MetricsName.acknowledge_time, acknowledgeTimingBegin);
+                }
+            }
+
+            @Override
+            public void addAcknowledgeCountMeter(MetricsName metrics,
+                                                 Collection<SinkStream.SinkResult> sinkResults) {
+                ackMeterHandles.increment(metrics);
+            }
+
+            private void tail() {
+                final FileCheckpointConfig config = getCheckpointConfig();
+                long position = Math.max(pointLog.getAckedOffset(), pointLog.getLogStartOffset());
+                if (log.isInfoEnabled()) {
+                    log.info("{} :: {} :: Tailing point log from offset {}", connectorConfig.getName(),
+                            channel.getId(), position);
+                }
+                while (running) {
+                    try {
+                        if (paused) {
+                            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(config.getReadPollIntervalMs()));
+                            continue;
+                        }
+                        final List<LogEntry> entries = pointLog.read(position, config.getReadMaxRecords());
+                        if (entries.isEmpty()) {
+                            pointLog.awaitDurable(position, config.getReadPollIntervalMs());
+                            continue;
+                        }
+                        final long nextPosition = entries.get(entries.size() - 1).getOffset() + 1;
+                        onEntries(entries, nextPosition);
+                        position = nextPosition;
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    } catch (Throwable ex) {
+                        log.error(format("%s :: %s :: Failed to tail point log from offset %s",
+                                connectorConfig.getName(), channel.getId(), position), ex);
+                        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(config.getReadPollIntervalMs()));
+                    }
+                }
+            }
+
+            private void onEntries(List<LogEntry> entries, long nextPosition) {
+                final List<FilePointRecord> records = new ArrayList<>(entries.size());
+                for (LogEntry entry : entries) {
+                    records.add(new FilePointRecord(entry, obtainPointSerde(entry.getFormat()),
+                            metadataCache.computeIfAbsent(entry.getFormat(), this::buildMetadata)));
+                }
+                final Runnable ack = () -> pointLog.commitAckedOffset(nextPosition);
+                final long readTimingBegin = System.nanoTime();
+                try {
+                    readMeterHandles.increment(MetricsName.checkpoint_read_success);
+
+                    listener.onMessage(records, ack);
+                } catch (Throwable ex) {
+                    log.error(format("%s :: %s :: Failed to read point records of offsets [%s, %s)",
+                            connectorConfig.getName(), channel.getId(), entries.get(0).getOffset(), nextPosition), ex);
+
+                    readMeterHandles.increment(MetricsName.checkpoint_read_failure);
+
+                    // Commit directly if no quality of service is required.
+                    connectorConfig.getQos().acknowledgeIfFail(connectorConfig, ex, ack);
+                } finally {
+                    readMeterHandles.recordNanos(MetricsName.checkpoint_read_time, readTimingBegin);
+                }
+            }
+
+            private Map<String, Object> buildMetadata(String format) {
+                final Map<String, Object> metadata = new HashMap<>(4);
+                metadata.put(KEY_TENANT, channel.getTenantId());
+                metadata.put(KEY_CHANNEL, channel.getId());
+                metadata.put(KEY_SEQUENCE, valueOf(channel.getSettingsSpec().getPolicySpec().isSequence()));
+                metadata.put(KEY_FORMAT, format);
+                return unmodifiableMap(metadata);
+            }
+        };
+    }
+
+    PointLog obtainPointLog(ConnectorConfig connectorConfig, ChannelInfo channel) {
+        final CheckpointSpec checkpointSpec = channel.getSettingsSpec().getCheckpointSpec();
+        return pointLogs.compute(getPointLogName(connectorConfig, channel), (name, pointLog) -> {
+            if (isNull(pointLog)) {
+                final FileCheckpointConfig config = getCheckpointConfig();
+                pointLog = new PointLog(name,
+                        new File(new File(config.getDirectory(), connectorConfig.getName()), channel.getId()),
+                        config.getSegmentBytes(),
+                        config.getIndexIntervalBytes(),
+                        config.getFsyncPendingBytes(),
+                        this::requestSync);
+            }
+            if (nonNull(checkpointSpec)) {
+                pointLog.updateRetention(checkpointSpec.getRetentionTime(), checkpointSpec.getRetentionBytes());
+            }
+            pointLog.retain();
+            return pointLog;
+        });
+    }
+
+    void releasePointLog(ConnectorConfig connectorConfig, ChannelInfo channel) {
+        pointLogs.computeIfPresent(getPointLogName(connectorConfig, channel), (name, pointLog) -> {
+            if (!pointLog.release()) {
+                return pointLog;
+            }
+            try {
+                pointLog.close();
+            } catch (Throwable ex) {
+                log.error(format("%s :: Failed to close point log.", name), ex);
+            }
+            return null;
+        });
+    }
+
+    private void requestSync() {
+        final Thread flusher = this.flusher;
+        if (nonNull(flusher)) {
+            LockSupport.unpark(flusher);
+        }
+    }
+
+    private void runFlusher() {
+        long lastRetentionTime = System.currentTimeMillis();
+        while (!Thread.currentThread().isInterrupted()) {
+            for (PointLog pointLog : pointLogs.values()) {
+                try {
+                    pointLog.sync();
+                } catch (Throwable ex) {
+                    log.error(format("%s :: Failed to sync point log.", pointLog.getName()), ex);
+                }
+            }
+            final long now = System.currentTimeMillis();
+            if (now - lastRetentionTime >= getCheckpointConfig().getRetentionCheckIntervalMs()) {
+                lastRetentionTime = now;
+                for (PointLog pointLog : pointLogs.values()) {
+                    try {
+                        pointLog.applyRetention(now);
+                    } catch (Throwable ex) {
+                        log.error(format("%s :: Failed to apply retention of point log.", pointLog.getName()), ex);
+                    }
+                }
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(getCheckpointConfig().getFsyncIntervalMs()));
+        }
+    }
+
+    static String getPointLogName(ConnectorConfig connectorConfig, ChannelInfo channel) {
+        return connectorConfig.getName().concat("/").concat(channel.getId());
+    }
+
+    static PointSerde obtainPointSerde(String format) {
+        try {
+            return StreamConnectSpiFactory.get(PointSerde.class, format);
+        } catch (Throwable ex) {
+            throw new StreamConnectException(format("Unsupported point format %s", format), ex);
+        }
+    }
+
+    @Getter
+    @Setter
+    @SuperBuilder
+    @NoArgsConstructor
+    public static class FileCheckpointConfig extends CheckpointConfig {
+        @Builder.Default
+        private @NotBlank String directory = new File(System.getProperty("java.io.tmpdir"),
+                "streamconnect-checkpoint").getAbsolutePath();
+        @Builder.Default
+        private @Min(1) int segmentBytes = 64 * 1024 * 1024;
+        @Builder.Default
+        private @Min(1) int indexIntervalBytes = 4096;
+        @Builder.Default
+        private @Min(1) long fsyncIntervalMs = 200L;
+        @Builder.Default
+        private @Min(1) long fsyncPendingBytes = 1024 * 1024L;
+        @Builder.Default
+        private @Min(1) long retentionCheckIntervalMs = 60 * 1000L;
+        @Builder.Default
+        private @Min(1) int readMaxRecords = 500;
+        @Builder.Default
+        private @Min(1) long readPollIntervalMs = 1000L;
+
+        @Override
+        public void validate() {
+            super.validate();
+            Assert2.hasTextOf(directory, "directory");
+            Assert2.isTrueOf(segmentBytes >= 1024, "segmentBytes >= 1024");
+            Assert2.isTrueOf(indexIntervalBytes > 0, "indexIntervalBytes > 0");
+            Assert2.isTrueOf(fsyncIntervalMs > 0, "fsyncIntervalMs > 0");
+            Assert2.isTrueOf(fsyncPendingBytes > 0, "fsyncPendingBytes > 0");
+            Assert2.isTrueOf(retentionCheckIntervalMs > 0, "retentionCheckIntervalMs > 0");
+            Assert2.isTrueOf(readMaxRecords > 0, "readMaxRecords > 0");
+            Assert2.isTrueOf(readPollIntervalMs > 0, "readPollIntervalMs > 0");
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.checkpoint.file;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.wl4g.streamconnect.checkpoint.ICheckpoint.PointSerde;
+import com.wl4g.streamconnect.checkpoint.file.PointLogSegment.LogEntry;
+import com.wl4g.streamconnect.checkpoint.serialize.JsonPointSerde;
+import com.wl4g.streamconnect.stream.AbstractStream.RawMessageRecord;
+import com.wl4g.streamconnect.util.json.JsonStreamingUtil;
+
+import javax.validation.constraints.NotNull;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The {@link FilePointRecord}, the point record read from the {@link PointLog}, the JSON value is kept as
+ * the original bytes and materialized lazily, and the binary formats are decoded by the point serde.
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+public class FilePointRecord implements RawMessageRecord<String, Object> {
+    private final LogEntry entry;
+    private final PointSerde pointSerde;
+    private final Map<String, Object> metadata;
+    private volatile Object _value;
+    private volatile Entry<String, String> _rawTextField;
+
+    public FilePointRecord(@NotNull LogEntry entry,
+                           @NotNull PointSerde pointSerde,
+                           Map<String, Object> metadata) {
+        this.entry = requireNonNull(entry, "entry must not be null");
+        this.pointSerde = requireNonNull(pointSerde, "pointSerde must not be null");
+        this.metadata = metadata;
+    }
+
+    @Override
+    public Map<String, Object> getMetadata() {
+        return metadata;
+    }
+
+    @Override
+    public String getKey() {
+        return entry.getKey();
+    }
+
+    @Override
+    public Object getValue() {
+        if (isNull(_value) && nonNull(entry.getValue())) {
+            synchronized (this) {
+                if (isNull(_value)) {
+                    _value = isJson() ? JsonStreamingUtil.readTree(entry.getValue())
+                            : pointSerde.deserialize(null, null, entry.getValue());
+                }
+            }
+        }
+        return _value;
+    }
+
+    @Override
+    public byte[] getRawValue() {
+        // The non JSON bytes could not be forwarded as the original value.
+        return isJson() ? entry.getValue() : null;
+    }
+
+    @Override
+    public boolean isValueMaterialized() {
+        return nonNull(_value) || isNull(entry.getValue());
+    }
+
+    @Override
+    public String getRawTextField(String fieldName) {
+        final Entry<String, String> rawTextField = this._rawTextField;
+        if (nonNull(rawTextField) && rawTextField.getKey().equals(fieldName)) {
+            return rawTextField.getValue();
+        }
+        final String value;
+        if (isJson()) {
+            value = JsonStreamingUtil.readTopLevelTextField(entry.getValue(), fieldName);
+        } else {
+            final Object node = getValue();
+            value = node instanceof JsonNode && nonNull(((JsonNode) node).get(fieldName))
+                    ? ((JsonNode) node).get(fieldName).textValue() : null;
+        }
+        this._rawTextField = new SimpleImmutableEntry<>(fieldName, value);
+        return value;
+    }
+
+    @Override
+    public long getTimestamp() {
+        return entry.getTimestamp();
+    }
+
+    public long getOffset() {
+        return entry.getOffset();
+    }
+
+    public long getAppendTime() {
+        return entry.getAppendTime();
+    }
+
+    public String getFormat() {
+        return entry.getFormat();
+    }
+
+    private boolean isJson() {
+        return pointSerde instanceof JsonPointSerde;
+    }
+
+}
@@ -0,0 +1,440 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.checkpoint.file;
+
+import com.wl4g.infra.common.lang.Assert2;
+import com.wl4g.streamconnect.checkpoint.file.PointLogSegment.LogEntry;
+import com.wl4g.streamconnect.exception.StreamConnectException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.validation.constraints.NotNull;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+import static java.lang.String.format;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The {@link PointLog}, the segmented append-only point log of a channel, which appends are group
+ * committed, i.e. the appended records are durable and visible to the readers after the next
+ * {@link #sync()} (by the flusher interval, the pending bytes threshold or the writer batch flush),
+ * and all the pending appends of this period are completed by only one fsync.
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+@Slf4j
+public class PointLog implements Closeable {
+    public static final String ACK_OFFSET_FILE = "ack.offset";
+    public static final int ACK_OFFSET_BYTES = 8 + 4;
+
+    private final @Getter String name;
+    private final @Getter File directory;
+    private final int segmentBytes;
+    private final int indexIntervalBytes;
+    private final long fsyncPendingBytes;
+    private final Runnable syncRequester;
+    private final @Getter ConcurrentNavigableMap<Long, PointLogSegment> segments = new ConcurrentSkipListMap<>();
+    private final AtomicInteger refCount = new AtomicInteger(0);
+    private final Object syncLock = new Object();
+    private final Object ackLock = new Object();
+    private final FileChannel ackChannel;
+    private final ByteBuffer ackBuffer = ByteBuffer.allocate(ACK_OFFSET_BYTES);
+
+    // Guarded by this.
+    private PointLogSegment activeSegment;
+    private long nextOffset;
+    private long pendingBytes;
+    private List<PendingAppend> pendingAppends = new ArrayList<>();
+    private final Set<PointLogSegment> dirtySegments = new LinkedHashSet<>();
+    private boolean closed;
+
+    private volatile @Getter long durableOffset;
+    private volatile @Getter long ackedOffset = -1L;
+    private volatile @Getter long retentionTime = Long.MAX_VALUE;
+    private volatile @Getter long retentionBytes = Long.MAX_VALUE;
+
+    public PointLog(@NotNull String name,
+                    @NotNull File directory,
+                    int segmentBytes,
+                    int indexIntervalBytes,
+                    long fsyncPendingBytes,
+                    @NotNull Runnable syncRequester) {
+        this.name = requireNonNull(name, "name must not be null");
+        this.directory = requireNonNull(directory, "directory must not be null");
+        this.syncRequester = requireNonNull(syncRequester, "syncRequester must not be null");
+        Assert2.isTrueOf(segmentBytes > 0, "segmentBytes > 0");
+        Assert2.isTrueOf(indexIntervalBytes > 0, "indexIntervalBytes > 0");
+        Assert2.isTrueOf(fsyncPendingBytes > 0, "fsyncPendingBytes > 0");
+        this.segmentBytes = segmentBytes;
+        this.indexIntervalBytes = indexIntervalBytes;
+        this.fsyncPendingBytes = fsyncPendingBytes;
+
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new StreamConnectException(format("Unable to create point log directory %s", directory));
+        }
+        final File[] logFiles = directory.listFiles((dir, fileName) -> fileName.endsWith(PointLogSegment.LOG_FILE_SUFFIX));
+        final List<Long> baseOffsets = new ArrayList<>();
+        for (File logFile : isNull(logFiles) ? new File[0] : logFiles) {
+            final String fileName = logFile.getName();
+            baseOffsets.add(Long.parseLong(fileName.substring(0, fileName.length() - PointLogSegment.LOG_FILE_SUFFIX.length())));
+        }
+        Collections.sort(baseOffsets);
+        for (Long baseOffset : baseOffsets) {
+            final PointLogSegment segment = PointLogSegment.open(directory, baseOffset, segmentBytes, indexIntervalBytes);
+            final Map.Entry<Long, PointLogSegment> last = segments.lastEntry();
+            if (nonNull(last) && last.getValue().getNextOffset() != baseOffset) {
+                log.warn("{} :: Discontinuous point log segment {} after the next offset {}", name, baseOffset,
+                        last.getValue().getNextOffset());
+            }
+            segments.put(baseOffset, segment);
+        }
+        if (segments.isEmpty()) {
+            segments.put(0L, PointLogSegment.open(directory, 0L, segmentBytes, indexIntervalBytes));
+        }
+        this.activeSegment = segments.lastEntry().getValue();
+        this.nextOffset = activeSegment.getNextOffset();
+        // The recovered records are considered to be durable.
+        this.durableOffset = nextOffset;
+
+        try {
+            this.ackChannel = FileChannel.open(new File(directory, ACK_OFFSET_FILE).toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.ackedOffset = loadAckedOffset();
+        } catch (IOException ex) {
+            throw new StreamConnectException(format("Failed to open the acknowledge offset file of %s", directory), ex);
+        }
+        if (log.isInfoEnabled()) {
+            log.info("{} :: Opened point log with segments: {}, log start offset: {}, next offset: {}, acked offset: {}",
+                    name, segments.size(), getLogStartOffset(), nextOffset, ackedOffset);
+        }
+    }
+
+    public CompletableFuture<Long> append(String key,
+                                          long timestamp,
+                                          @NotNull byte[] format,
+                                          byte[] value) {
+        requireNonNull(format, "format must not be null");
+        final byte[] keyBytes = isNull(key) ? null : key.getBytes(StandardCharsets.UTF_8);
+        if (nonNull(keyBytes) && keyBytes.length > Short.MAX_VALUE) {
+            throw new StreamConnectException(format("%s :: The point key is too large, %s bytes", name, keyBytes.length));
+        }
+        Assert2.isTrueOf(format.length <= Byte.MAX_VALUE, "format.length <= 127");
+
+        final CompletableFuture<Long> future = new CompletableFuture<>();
+        final boolean requestSync;
+        synchronized (this) {
+            if (closed) {
+                throw new StreamConnectException(format("%s :: The point log has been closed.", name));
+            }
+            final long offset = nextOffset;
+            final long appendTime = System.currentTimeMillis();
+            try {
+                if (!activeSegment.append(offset, timestamp, appendTime, keyBytes, format, value)) {
+                    roll(PointLogSegment.recordBytes(keyBytes, format, value) + 4);
+                    if (!activeSegment.append(offset, timestamp, appendTime, keyBytes, format, value)) {
+                        throw new StreamConnectException(format("%s :: Unable to append point record of offset %s",
+                                name, offset));
+                    }
+                }
+            } catch (IOException ex) {
+                throw new StreamConnectException(format("%s :: Failed to append point record of offset %s",
+                        name, offset), ex);
+            }
+            this.nextOffset = offset + 1;
+            this.pendingBytes += PointLogSegment.recordBytes(keyBytes, format, value);
+            pendingAppends.add(new PendingAppend(offset, future));
+            dirtySegments.add(activeSegment);
+            requestSync = pendingBytes >= fsyncPendingBytes;
+        }
+        if (requestSync) {
+            syncRequester.run();
+        }
+        return future;
+    }
+
+    /**
+     * Group commit all the pending appends with one fsync, and then publish the durable offset to readers.
+     */
+    public void sync() {
+        synchronized (syncLock) {
+            final List<PendingAppend> appends;
+            final List<PointLogSegment> flushing;
+            final long syncOffset;
+            synchronized (this) {
+                if (dirtySegments.isEmpty() && pendingAppends.isEmpty()) {
+                    return;
+                }
+                appends = this.pendingAppends;
+                flushing = new ArrayList<>(dirtySegments);
+                syncOffset = this.nextOffset;
+                this.pendingAppends = new ArrayList<>();
+                this.pendingBytes = 0L;
+                dirtySegments.clear();
+            }
+            try {
+                for (PointLogSegment segment : flushing) {
+                    segment.flush();
+                }
+            } catch (Throwable ex) {
+                log.error(format("%s :: Failed to sync point log.", name), ex);
+                synchronized (this) {
+                    dirtySegments.addAll(flushing);
+                }
+                appends.forEach(pa -> pa.getFuture().completeExceptionally(ex));
+                return;
+            }
+            this.durableOffset = syncOffset;
+            synchronized (this) {
+                notifyAll();
+            }
+            appends.forEach(pa -> pa.getFuture().complete(pa.getOffset()));
+        }
+    }
+
+    /**
+     * Read the durable records from the offset (inclusive), if the offset has been deleted by the
+     * retention, it's read from the log start offset.
+     */
+    public List<LogEntry> read(long fromOffset, int maxRecords) {
+        final long until = this.durableOffset;
+        long offset = Math.max(fromOffset, getLogStartOffset());
+        if (offset >= until || maxRecords <= 0) {
+            return Collections.emptyList();
+        }
+        final List<LogEntry> entries = new ArrayList<>(Math.min(maxRecords, (int) Math.min(until - offset, 1024)));
+        Map.Entry<Long, PointLogSegment> entry = segments.floorEntry(offset);
+        while (nonNull(entry) && offset < until && entries.size() < maxRecords) {
+            offset = entry.getValue().read(offset, until, maxRecords - entries.size(), entries);
+            entry = segments.higherEntry(entry.getKey());
+            if (nonNull(entry)) {
+                offset = Math.max(offset, entry.getKey());
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Wait for the records after the offset to be durable, or timeout.
+     */
+    public void awaitDurable(long offset, long timeoutMs) throws InterruptedException {
+        synchronized (this) {
+            if (durableOffset <= offset && !closed) {
+                wait(timeoutMs);
+            }
+        }
+    }
+
+    public long getLogStartOffset() {
+        return segments.firstKey();
+    }
+
+    public long getLogEndOffset() {
+        synchronized (this) {
+            return nextOffset;
+        }
+    }
+
+    public long getSizeInBytes() {
+        long total = 0L;
+        for (PointLogSegment segment : segments.values()) {
+            total += segment.getSize();
+        }
+        return total;
+    }
+
+    public void updateRetention(long retentionTime, long retentionBytes) {
+        Assert2.isTrueOf(retentionTime > 0, "retentionTime > 0");
+        Assert2.isTrueOf(retentionBytes > 0, "retentionBytes > 0");
+        this.retentionTime = retentionTime;
+        this.retentionBytes = retentionBytes;
+    }
+
+    /**
+     * Delete the oldest durable segments which expired by the retention time, or exceeded by the retention bytes.
+     *
+     * @return the count of deleted segments.
+     */
+    public int applyRetention(long now) {
+        final List<PointLogSegment> deletes = new ArrayList<>();
+        synchronized (this) {
+            if (closed) {
+                return 0;
+            }
+            // Roll the expired active segment, so that it can be deleted too.
+            if (activeSegment.getSize() > 0 && now - activeSegment.getMaxAppendTime() > retentionTime
+                    && activeSegment.getNextOffset() <= durableOffset) {
+                roll(segmentBytes);
+            }
+            long totalBytes = getSizeInBytes();
+            for (PointLogSegment segment : segments.values()) {
+                if (segment == activeSegment || segment.getNextOffset() > durableOffset) {
+                    break;
+                }
+                final boolean expired = now - segment.getMaxAppendTime() > retentionTime;
+                if (!expired && totalBytes <= retentionBytes) {
+                    break;
+                }
+                segments.remove(segment.getBaseOffset());
+                totalBytes -= segment.getSize();
+                deletes.add(segment);
+            }
+        }
+        for (PointLogSegment segment : deletes) {
+            try {
+                segment.delete();
+                if (log.isInfoEnabled()) {
+                    log.info("{} :: Deleted point log segment {} by retention, next offset: {}",
+                            name, segment.getLogFile(), segment.getNextOffset());
+                }
+            } catch (IOException ex) {
+                log.error(format("%s :: Failed to delete point log segment %s", name, segment.getLogFile()), ex);
+            }
+        }
+        return deletes.size();
+    }
+
+    /**
+     * Persist the next offset to read (i.e. all the records before it have been acknowledged).
+     */
+    public void commitAckedOffset(long offset) {
+        synchronized (ackLock) {
+            if (offset <= ackedOffset) {
+                return;
+            }
+            final CRC32 crc = new CRC32();
+            ackBuffer.clear();
+            ackBuffer.putLong(offset);
+            crc.update(ackBuffer.array(), 0, 8);
+            ackBuffer.putInt((int) crc.getValue());
+            ackBuffer.flip();
+            try {
+                // Notice: The small record in a single sector, and the torn write is detected by the crc.
+                while (ackBuffer.hasRemaining()) {
+                    ackChannel.write(ackBuffer, ackBuffer.position());
+                }
+                ackChannel.force(false);
+            } catch (IOException ex) {
+                throw new StreamConnectException(format("%s :: Failed to commit acknowledge offset %s", name, offset), ex);
+            }
+            this.ackedOffset = offset;
+        }
+    }
+
+    public int retain() {
+        return refCount.incrementAndGet();
+    }
+
+    /**
+     * @return true if it's no longer referenced.
+     */
+    public boolean release() {
+        return refCount.decrementAndGet() <= 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        sync();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            this.closed = true;
+            notifyAll();
+        }
+        try {
+            for (PointLogSegment segment : segments.values()) {
+                segment.close();
+            }
+        } finally {
+            ackChannel.close();
+        }
+        if (log.isInfoEnabled()) {
+            log.info("{} :: Closed point log, next offset: {}, acked offset: {}", name, nextOffset, ackedOffset);
+        }
+    }
+
+    private long loadAckedOffset() throws IOException {
+        if (ackChannel.size() < ACK_OFFSET_BYTES) {
+            return -1L;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(ACK_OFFSET_BYTES);
+        while (buffer.hasRemaining()) {
+            if (ackChannel.read(buffer, buffer.position()) < 0) {
+                return -1L;
+            }
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, 8);
+        if ((int) crc.getValue() != buffer.getInt(8)) {
+            log.warn("{} :: Ignored the corrupted acknowledge offset file.", name);
+            return -1L;
+        }
+        return buffer.getLong(0);
+    }
+
+    // Guarded by this.
+    private void roll(int minCapacity) {
+        // The empty active segment is replaced by the larger one with the same base offset.
+        if (activeSegment.getSize() == 0 && activeSegment.getBaseOffset() == nextOffset) {
+            segments.remove(activeSegment.getBaseOffset());
+            dirtySegments.remove(activeSegment);
+            try {
+                activeSegment.delete();
+            } catch (IOException ex) {
+                throw new StreamConnectException(format("%s :: Failed to delete empty point log segment %s",
+                        name, activeSegment.getLogFile()), ex);
+            }
+        }
+        final PointLogSegment segment = PointLogSegment.open(directory, nextOffset,
+                Math.max(segmentBytes, minCapacity), indexIntervalBytes);
+        segments.put(segment.getBaseOffset(), segment);
+        this.activeSegment = segment;
+        if (log.isInfoEnabled()) {
+            log.info("{} :: Rolled new point log segment {}", name, segment.getLogFile());
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    static class PendingAppend {
+        private final long offset;
+        private final CompletableFuture<Long> future;
+    }
+
+}
@@ -0,0 +1,452 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.checkpoint.file;
+
+import com.wl4g.streamconnect.exception.StreamConnectException;
+import com.wl4g.streamconnect.util.MappedBufferUtil;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+import static java.lang.String.format;
+import static java.util.Objects.isNull;
+
+/**
+ * The {@link PointLogSegment}, the memory-mapped append-only segment of the {@link PointLog}, named by the
+ * base offset, with a sparse offset index file used to lookup the read position of an offset.
+ * <p>
+ * The record layout: size(int) | crc(int) | offset(long) | timestamp(long) | appendTime(long) |
+ * keyLength(short) | key | formatLength(byte) | format | valueLength(int) | value, and a zero size marks
+ * the end of the segment. The index entry layout: relativeOffset(int) | position(int) | appendTime(long).
+ * </p>
+ * <p>
+ * The mapped buffer is unmapped explicitly after the segment is closed and the in-flight readers are done,
+ * instead of being held until GC, which could be long after the segments are deleted by the retention.
+ * </p>
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+public class PointLogSegment implements Closeable {
+    public static final String LOG_FILE_SUFFIX = ".log";
+    public static final String INDEX_FILE_SUFFIX = ".index";
+    public static final int RECORD_HEADER_BYTES = 4 + 4;
+    public static final int RECORD_BODY_FIXED_BYTES = 8 + 8 + 8 + 2 + 1 + 4;
+    public static final int INDEX_ENTRY_BYTES = 4 + 4 + 8;
+
+    private final @Getter long baseOffset;
+    private final @Getter File logFile;
+    private final @Getter File indexFile;
+    private final @Getter int capacity;
+    private final int indexIntervalBytes;
+    private final FileChannel indexChannel;
+    private final MappedByteBuffer logBuffer;
+    // Notice: Only be used by the appending thread (guarded by the log).
+    private final ByteBuffer writeBuffer;
+    private final ByteBuffer indexEntryBuffer = ByteBuffer.allocate(INDEX_ENTRY_BYTES);
+    private final CRC32 writeCrc = new CRC32();
+    // The references of the mapped buffer, i.e. the in-flight readers and the owner released on close.
+    private final AtomicInteger refCount = new AtomicInteger(1);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    private volatile @Getter int size;
+    private volatile @Getter long nextOffset;
+    private volatile @Getter long maxAppendTime;
+
+    // The in-memory sparse index, guarded by this.
+    private int[] indexOffsets = new int[64];
+    private int[] indexPositions = new int[64];
+    private int indexCount;
+    private int bytesSinceLastIndex;
+
+    private PointLogSegment(File directory,
+                            long baseOffset,
+                            int capacity,
+                            int indexIntervalBytes) throws IOException {
+        this.baseOffset = baseOffset;
+        this.logFile = new File(directory, fileName(baseOffset, LOG_FILE_SUFFIX));
+        this.indexFile = new File(directory, fileName(baseOffset, INDEX_FILE_SUFFIX));
+        this.indexIntervalBytes = indexIntervalBytes;
+
+        try (RandomAccessFile raf = new RandomAccessFile(logFile, "rw")) {
+            // Pre-allocate the new segment, the existing segment is mapped with its original size.
+            if (raf.length() <= 0) {
+                raf.setLength(capacity);
+            }
+            this.capacity = (int) raf.length();
+            // Notice: The mapping remains valid after the file is closed.
+            this.logBuffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, this.capacity);
+        }
+        this.writeBuffer = logBuffer.duplicate();
+        this.indexChannel = new RandomAccessFile(indexFile, "rw").getChannel();
+        this.nextOffset = baseOffset;
+    }
+
+    public static PointLogSegment open(File directory,
+                                       long baseOffset,
+                                       int capacity,
+                                       int indexIntervalBytes) {
+        try {
+            final PointLogSegment segment = new PointLogSegment(directory, baseOffset, capacity, indexIntervalBytes);
+            segment.recover();
+            return segment;
+        } catch (IOException ex) {
+            throw new StreamConnectException(format("Failed to open point log segment %s of %s",
+                    baseOffset, directory), ex);
+        }
+    }
+
+    public static String fileName(long baseOffset, String suffix) {
+        return format("%020d%s", baseOffset, suffix);
+    }
+
+    public static int recordBytes(byte[] key, byte[] format, byte[] value) {
+        return RECORD_HEADER_BYTES + RECORD_BODY_FIXED_BYTES
+                + (isNull(key) ? 0 : key.length)
+                + format.length
+                + (isNull(value) ? 0 : value.length);
+    }
+
+    /**
+     * Append the record at the end of segment, must be called by only one thread at a time.
+     *
+     * @return false if the remaining capacity is not enough.
+     */
+    public boolean append(long offset,
+                          long timestamp,
+                          long appendTime,
+                          byte[] key,
+                          byte[] format,
+                          byte[] value) throws IOException {
+        final int position = this.size;
+        final int recordBytes = recordBytes(key, format, value);
+        if ((long) position + recordBytes > capacity) {
+            return false;
+        }
+        final int bodyBytes = recordBytes - RECORD_HEADER_BYTES;
+        writeBuffer.clear();
+        writeBuffer.position(position + RECORD_HEADER_BYTES);
+        writeBuffer.putLong(offset);
+        writeBuffer.putLong(timestamp);
+        writeBuffer.putLong(appendTime);
+        if (isNull(key)) {
+            writeBuffer.putShort((short) -1);
+        } else {
+            writeBuffer.putShort((short) key.length);
+            writeBuffer.put(key);
+        }
+        writeBuffer.put((byte) format.length);
+        writeBuffer.put(format);
+        if (isNull(value)) {
+            writeBuffer.putInt(-1);
+        } else {
+            writeBuffer.putInt(value.length);
+            writeBuffer.put(value);
+        }
+        writeBuffer.flip();
+        writeBuffer.position(position + RECORD_HEADER_BYTES);
+        writeCrc.reset();
+        writeCrc.update(writeBuffer);
+
+        // Keep the end marker after this record, and then write the size header at last.
+        if ((long) position + recordBytes + 4 <= capacity) {
+            logBuffer.putInt(position + recordBytes, 0);
+        }
+        logBuffer.putInt(position + 4, (int) writeCrc.getValue());
+        logBuffer.putInt(position, bodyBytes);
+
+        maybeAppendIndex(offset, position, appendTime, recordBytes);
+        this.maxAppendTime = Math.max(maxAppendTime, appendTime);
+        this.nextOffset = offset + 1;
+        this.size = position + recordBytes;
+        return true;
+    }
+
+    /**
+     * Read the records of range [fromOffset, untilOffset) into the entries.
+     *
+     * @return the next offset to read, or the from offset if the segment has been closed (e.g: deleted by
+     * the retention).
+     */
+    public long read(long fromOffset,
+                     long untilOffset,
+                     int maxRecords,
+                     List<LogEntry> entries) {
+        if (!retain()) {
+            return fromOffset;
+        }
+        try {
+            final long until = Math.min(untilOffset, nextOffset);
+            final ByteBuffer buffer = logBuffer.duplicate();
+            long offset;
+            int position;
+            synchronized (this) {
+                final long target = Math.max(Math.min(fromOffset, until), baseOffset);
+                final int i = floorIndex((int) (target - baseOffset));
+                offset = i < 0 ? baseOffset : baseOffset + indexOffsets[i];
+                position = i < 0 ? 0 : indexPositions[i];
+            }
+            int count = 0;
+            // Notice: The offsets are consecutive, so the record is never be touched before it's readable.
+            while (offset < until && count < maxRecords) {
+                final int bodyBytes = buffer.getInt(position);
+                if (offset >= fromOffset) {
+                    entries.add(decode(buffer, position));
+                    ++count;
+                }
+                position += RECORD_HEADER_BYTES + bodyBytes;
+                ++offset;
+            }
+            return offset;
+        } finally {
+            release();
+        }
+    }
+
+    public void flush() throws IOException {
+        if (!retain()) {
+            return;
+        }
+        try {
+            logBuffer.force();
+            indexChannel.force(false);
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            indexChannel.close();
+        } finally {
+            // Notice: The mapped buffer is unmapped after the in-flight readers are done.
+            release();
+        }
+    }
+
+    public void delete() throws IOException {
+        close();
+        if (!logFile.delete() && logFile.exists()) {
+            throw new IOException(format("Unable to delete log file %s", logFile));
+        }
+        if (!indexFile.delete() && indexFile.exists()) {
+            throw new IOException(format("Unable to delete index file %s", indexFile));
+        }
+    }
+
+    /**
+     * Recover the segment from the last valid index entry, truncate the invalid index entries and the
+     * partially written records (e.g: crashed before fsync).
+     */
+    private void recover() throws IOException {
+        final int entries = (int) (indexChannel.size() / INDEX_ENTRY_BYTES);
+        final ByteBuffer indexBuffer = ByteBuffer.allocate(entries * INDEX_ENTRY_BYTES);
+        while (indexBuffer.hasRemaining()) {
+            if (indexChannel.read(indexBuffer, indexBuffer.position()) < 0) {
+                break;
+            }
+        }
+        indexBuffer.flip();
+
+        int validEntries = 0;
+        long lastEntryAppendTime = 0L;
+        int[] offsets = new int[Math.max(entries, 64)];
+        int[] positions = new int[Math.max(entries, 64)];
+        for (int i = 0; i < entries; i++) {
+            offsets[i] = indexBuffer.getInt();
+            positions[i] = indexBuffer.getInt();
+            indexBuffer.getLong();
+        }
+        for (int i = entries - 1; i >= 0; i--) {
+            if (isValidRecord(positions[i], baseOffset + offsets[i])) {
+                validEntries = i + 1;
+                lastEntryAppendTime = logBuffer.getLong(positions[i] + RECORD_HEADER_BYTES + 16);
+                break;
+            }
+        }
+        indexChannel.truncate((long) validEntries * INDEX_ENTRY_BYTES);
+        synchronized (this) {
+            this.indexOffsets = offsets;
+            this.indexPositions = positions;
+            this.indexCount = validEntries;
+        }
+
+        long offset = validEntries > 0 ? baseOffset + offsets[validEntries - 1] : baseOffset;
+        int position = validEntries > 0 ? positions[validEntries - 1] : 0;
+        long appendTime = lastEntryAppendTime;
+        while (isValidRecord(position, offset)) {
+            final int recordBytes = RECORD_HEADER_BYTES + logBuffer.getInt(position);
+            final long recordAppendTime = logBuffer.getLong(position + RECORD_HEADER_BYTES + 16);
+            // Re-index the tail records after the last valid index entry.
+            if (validEntries > 0 && offset == baseOffset + offsets[validEntries - 1]) {
+                this.bytesSinceLastIndex = recordBytes;
+            } else {
+                maybeAppendIndex(offset, position, recordAppendTime, recordBytes);
+            }
+            appendTime = Math.max(appendTime, recordAppendTime);
+            position += recordBytes;
+            ++offset;
+        }
+        if ((long) position + 4 <= capacity) {
+            logBuffer.putInt(position, 0);
+        }
+        this.size = position;
+        this.nextOffset = offset;
+        this.maxAppendTime = appendTime > 0 ? appendTime : logFile.lastModified();
+    }
+
+    private boolean retain() {
+        for (; ; ) {
+            final int refs = refCount.get();
+            if (refs <= 0) {
+                return false;
+            }
+            if (refCount.compareAndSet(refs, refs + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void release() {
+        if (refCount.decrementAndGet() == 0) {
+            MappedBufferUtil.unmap(logBuffer);
+        }
+    }
+
+    private boolean isValidRecord(int position, long expectedOffset) {
+        if (position < 0 || (long) position + RECORD_HEADER_BYTES + RECORD_BODY_FIXED_BYTES > capacity) {
+            return false;
+        }
+        final int bodyBytes = logBuffer.getInt(position);
+        if (bodyBytes < RECORD_BODY_FIXED_BYTES || (long) position + RECORD_HEADER_BYTES + bodyBytes > capacity) {
+            return false;
+        }
+        if (logBuffer.getLong(position + RECORD_HEADER_BYTES) != expectedOffset) {
+            return false;
+        }
+        final ByteBuffer body = logBuffer.duplicate();
+        body.limit(position + RECORD_HEADER_BYTES + bodyBytes);
+        body.position(position + RECORD_HEADER_BYTES);
+        final CRC32 crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue() == logBuffer.getInt(position + 4);
+    }
+
+    private void maybeAppendIndex(long offset,
+                                  int position,
+                                  long appendTime,
+                                  int recordBytes) throws IOException {
+        // Always index the first record, so that the max append time could be recovered from index.
+        if (indexCount > 0 && bytesSinceLastIndex < indexIntervalBytes) {
+            bytesSinceLastIndex += recordBytes;
+            return;
+        }
+        indexEntryBuffer.clear();
+        indexEntryBuffer.putInt((int) (offset - baseOffset));
+        indexEntryBuffer.putInt(position);
+        indexEntryBuffer.putLong(appendTime);
+        indexEntryBuffer.flip();
+        final long indexPosition = (long) indexCount * INDEX_ENTRY_BYTES;
+        while (indexEntryBuffer.hasRemaining()) {
+            indexChannel.write(indexEntryBuffer, indexPosition + indexEntryBuffer.position());
+        }
+        synchronized (this) {
+            if (indexCount == indexOffsets.length) {
+                this.indexOffsets = Arrays.copyOf(indexOffsets, indexCount << 1);
+                this.indexPositions = Arrays.copyOf(indexPositions, indexCount << 1);
+            }
+            indexOffsets[indexCount] = (int) (offset - baseOffset);
+            indexPositions[indexCount] = position;
+            ++indexCount;
+        }
+        this.bytesSinceLastIndex = recordBytes;
+    }
+
+    /**
+     * Binary search the last index entry which relative offset less than or equal to the target.
+     */
+    private int floorIndex(int relativeOffset) {
+        int low = 0;
+        int high = indexCount - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (indexOffsets[mid] <= relativeOffset) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    private static LogEntry decode(ByteBuffer buffer, int position) {
+        buffer.clear();
+        buffer.position(position + RECORD_HEADER_BYTES);
+        final long offset = buffer.getLong();
+        final long timestamp = buffer.getLong();
+        final long appendTime = buffer.getLong();
+        final short keyLength = buffer.getShort();
+        String key = null;
+        if (keyLength >= 0) {
+            final byte[] keyBytes = new byte[keyLength];
+            buffer.get(keyBytes);
+            key = new String(keyBytes, StandardCharsets.UTF_8);
+        }
+        final byte[] formatBytes = new byte[buffer.get()];
+        buffer.get(formatBytes);
+        final int valueLength = buffer.getInt();
+        byte[] value = null;
+        if (valueLength >= 0) {
+            value = new byte[valueLength];
+            buffer.get(value);
+        }
+        return new LogEntry(offset, timestamp, appendTime, key,
+                new String(formatBytes, StandardCharsets.UTF_8), value);
+    }
+
+    @Getter
+    @ToString(exclude = "value")
+    @AllArgsConstructor
+    public static class LogEntry {
+        private final long offset;
+        private final long timestamp;
+        private final long appendTime;
+        private final String key;
+        private final String format;
+        private final byte[] value;
+    }
+
+}
@@ -19,11 +19,14 @@ package com.wl4g.streamconnect.checkpoint.memory;
 
 import com.wl4g.infra.common.lang.Assert2;
 import com.wl4g.streamconnect.checkpoint.AbstractCheckpoint;
+import com.wl4g.streamconnect.checkpoint.memory.PointRingBuffer.WaitStrategy;
 import com.wl4g.streamconnect.config.ChannelInfo;
 import com.wl4g.streamconnect.config.StreamConnectConfiguration.ConnectorConfig;
 import com.wl4g.streamconnect.coordinator.CachingChannelRegistry;
 import com.wl4g.streamconnect.exception.StreamConnectException;
-import com.wl4g.streamconnect.meter.StreamConnectMeter;
+import com.wl4g.streamconnect.meter.MeterHandles;
+import com.wl4g.streamconnect.meter.StreamConnectMeter.MetricsName;
+import com.wl4g.streamconnect.meter.StreamConnectMeter.MetricsTag;
 import com.wl4g.streamconnect.stream.AbstractStream.MessageRecord;
 import com.wl4g.streamconnect.stream.process.ProcessStream.ChannelRecord;
 import com.wl4g.streamconnect.stream.sink.SinkStream;
@@ -32,35 +35,45 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.experimental.SuperBuilder;
+import lombok.extern.slf4j.Slf4j;
 
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.Objects;
-import java.util.Queue;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.lang.String.format;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Objects.requireNonNull;
 
 /**
- * The {@link MemoryCheckpoint}
+ * The {@link MemoryCheckpoint}, the low latency in-process checkpoint, the point records of each channel
+ * are published to the bounded lock-free {@link PointRingBuffer} of the channel, and the reader drains them
+ * in batches. The writers are blocked (i.e. the back pressure) if the ring buffer is full, until the
+ * offer timeout. Notice: The point records are not durable, i.e. lost on restart.
  *
  * @author James Wong
  * @since v1.0
  **/
 @Getter
 @Setter
+@Slf4j
 public class MemoryCheckpoint extends AbstractCheckpoint {
     public static final String TYPE_NAME = "MEMORY_CHECKPOINT";
 
     private MemoryCheckpointConfig checkpointConfig;
-    private Queue<MessageRecord<String, Object>> bufferQueue;
+    private final Map<String, PointRingBuffer<MessageRecord<String, Object>>> ringBuffers = new ConcurrentHashMap<>();
 
     @Override
     public void init() {
-        // TODO support other queue?
-        this.bufferQueue = new LinkedBlockingQueue<>(getCheckpointConfig().getBufferQueueCapacity());
+        getCheckpointConfig().validate();
     }
 
     @Override
@@ -72,23 +85,24 @@ public class MemoryCheckpoint extends AbstractCheckpoint {
     public PointWriter createWriter(@NotNull ConnectorConfig connectorConfig,
                                     @NotNull ChannelInfo channel,
                                     @NotNull CachingChannelRegistry registry) {
+        requireNonNull(connectorConfig, "connectorConfig must not be null");
+        requireNonNull(channel, "channel must not be null");
+
+        final PointRingBuffer<MessageRecord<String, Object>> ringBuffer = obtainRingBuffer(connectorConfig, channel);
+        final long offerTimeoutMs = getCheckpointConfig().getOfferTimeoutMs();
         return new PointWriter() {
             @Override
             public void stop(long timeoutMs, boolean force) {
-                if (force) {
-                    bufferQueue.clear();
-                }
             }
 
             @Override
             public WritePointResult writeAsync(ConnectorConfig connectorConfig,
                                                ChannelRecord record,
                                                int retryTimes) {
-                Future<?> future = FUTURE_FAILURE;
-                if (bufferQueue.offer(record.getRecord())) {
-                    future = FUTURE_SUCCESS;
-                }
-                return new WritePointResult(record, bufferQueue, future, retryTimes);
+                // Notice: Blocking if the ring buffer is full, i.e. the back pressure of the reader.
+                final Future<?> future = ringBuffer.offer(record.getRecord(), offerTimeoutMs, TimeUnit.MILLISECONDS)
+                        ? FUTURE_SUCCESS : FUTURE_FAILURE;
+                return new WritePointResult(record, ringBuffer, future, retryTimes);
             }
 
             @Override
@@ -101,29 +115,64 @@ public class MemoryCheckpoint extends AbstractCheckpoint {
     public PointReader createReader(@NotNull ConnectorConfig connectorConfig,
                                     @NotNull ChannelInfo channel,
                                     @NotNull ReadPointListener listener) {
+        requireNonNull(connectorConfig, "connectorConfig must not be null");
+        requireNonNull(channel, "channel must not be null");
+        requireNonNull(listener, "listener must not be null");
+
+        final PointRingBuffer<MessageRecord<String, Object>> ringBuffer = obtainRingBuffer(connectorConfig, channel);
         return new PointReader() {
+            private final MeterHandles readMeterHandles = newMeterHandles(null,
+                    MetricsTag.CONNECTOR, connectorConfig.getName(), MetricsTag.CHANNEL, channel.getId());
             private Thread worker;
+            private volatile boolean running;
+            private volatile boolean paused;
 
-            @SuppressWarnings("unchecked")
             @Override
             public synchronized void start() {
-                if (Objects.isNull(worker)) {
-                    this.worker = new Thread(() -> {
-                        while (!worker.isInterrupted()) {
-                            final MessageRecord<String, Object> record = bufferQueue.poll();
-                            listener.onMessage((List<? extends MessageRecord<String, Object>>) record, DEFAULT_ACKNOWLEDGE);
-                        }
-                    }, getClass().getSimpleName().concat("-reader-").concat(channel.getId()));
-                    this.worker.start();
+                if (nonNull(worker)) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("{} :: {} :: Skip to start checkpoint reader, because it has been started.",
+                                connectorConfig.getName(), channel.getId());
+                    }
+                    return;
                 }
+                listener.setReader(this);
+                this.running = true;
+                this.worker = connectorConfig.getProcessConfig().getExecutionMode().newThread(this::drain,
+                        MemoryCheckpoint.class.getSimpleName().concat("-reader-").concat(channel.getId()));
+                this.worker.start();
             }
 
             @Override
-            public boolean stop(long timeout, boolean force) {
-                if (worker.isInterrupted()) {
-                    worker.interrupt();
+            public synchronized boolean stop(long timeout, boolean force) throws Exception {
+                if (isNull(worker)) {
+                    return true;
                 }
-                return worker.isInterrupted();
+                this.running = false;
+                worker.join(force ? 1L : Math.max(1L, timeout));
+                final boolean stopped = !worker.isAlive();
+                this.worker = null;
+                return stopped;
+            }
+
+            @Override
+            public void pause() {
+                this.paused = true;
+            }
+
+            @Override
+            public void resume() {
+                this.paused = false;
+            }
+
+            @Override
+            public boolean isRunning() {
+                return running && !paused;
+            }
+
+            @Override
+            public int getSubTaskCount() {
+                return 1;
             }
 
             @Override
@@ -132,24 +181,76 @@ public class MemoryCheckpoint extends AbstractCheckpoint {
             }
 
             @Override
-            public void addAcknowledgeCountMeter(StreamConnectMeter.MetricsName metrics,
+            public void addAcknowledgeCountMeter(MetricsName metrics,
                                                  Collection<SinkStream.SinkResult> sinkResults) {
                 // ignore
             }
+
+            private void drain() {
+                final MemoryCheckpointConfig config = getCheckpointConfig();
+                while (running) {
+                    if (paused) {
+                        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(config.getReadPollIntervalMs()));
+                        continue;
+                    }
+                    if (!ringBuffer.awaitAvailable(config.getReadPollIntervalMs(), TimeUnit.MILLISECONDS)) {
+                        continue;
+                    }
+                    final List<MessageRecord<String, Object>> records = new ArrayList<>(Math.min(
+                            ringBuffer.size(), config.getReadBatchSize()));
+                    ringBuffer.drainTo(records, config.getReadBatchSize());
+                    try {
+                        readMeterHandles.increment(MetricsName.checkpoint_read_success);
+
+                        listener.onMessage(records, DEFAULT_ACKNOWLEDGE);
+                    } catch (Throwable ex) {
+                        log.error(format("%s :: %s :: Failed to read point records of batch %s",
+                                connectorConfig.getName(), channel.getId(), records.size()), ex);
+
+                        readMeterHandles.increment(MetricsName.checkpoint_read_failure);
+                    }
+                }
+            }
         };
     }
 
+    PointRingBuffer<MessageRecord<String, Object>> obtainRingBuffer(ConnectorConfig connectorConfig,
+                                                                    ChannelInfo channel) {
+        return ringBuffers.computeIfAbsent(connectorConfig.getName().concat("/").concat(channel.getId()),
+                name -> new PointRingBuffer<>(getCheckpointConfig().getBufferQueueCapacity(),
+                        getCheckpointConfig().getWaitStrategy()));
+    }
+
     @Getter
     @Setter
     @SuperBuilder
     @NoArgsConstructor
     public static class MemoryCheckpointConfig extends CheckpointConfig {
+        /**
+         * The ring buffer capacity of each channel, which is rounded up to the power of 2.
+         */
         @Builder.Default
         private @Min(0) int bufferQueueCapacity = 1024;
+        @Builder.Default
+        private @Min(1) int readBatchSize = 500;
+        @Builder.Default
+        private @NotNull WaitStrategy waitStrategy = WaitStrategy.BLOCKING;
+        /**
+         * The max blocking time of writing if the ring buffer is full, the write is failed after timeout.
+         */
+        @Builder.Default
+        private @Min(0) long offerTimeoutMs = 1000L;
+        @Builder.Default
+        private @Min(1) long readPollIntervalMs = 100L;
 
         @Override
         public void validate() {
+            super.validate();
             Assert2.isTrueOf(bufferQueueCapacity > 0, "bufferQueueCapacity > 0");
+            Assert2.isTrueOf(readBatchSize > 0, "readBatchSize > 0");
+            Assert2.notNullOf(waitStrategy, "waitStrategy");
+            Assert2.isTrueOf(offerTimeoutMs >= 0, "offerTimeoutMs >= 0");
+            Assert2.isTrueOf(readPollIntervalMs > 0, "readPollIntervalMs > 0");
         }
     }
 
@@ -203,7 +304,7 @@ public class MemoryCheckpoint extends AbstractCheckpoint {
 
         @Override
         public Object get(long timeout, TimeUnit unit) {
-            return null;
+            return get();
         }
     };
 
@@ -0,0 +1,270 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.checkpoint.memory;
+
+import com.wl4g.infra.common.lang.Assert2;
+
+import javax.validation.constraints.NotNull;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.util.Objects.nonNull;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The {@link PointRingBuffer}, the bounded lock-free multi-producer single-consumer ring buffer (Disruptor
+ * style) with the preallocated slots, the producers claim the sequences by CAS and publish the slots by the
+ * availability flags of each lap, and the single consumer drains the published slots in batches.
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+public class PointRingBuffer<E> {
+    private final int capacity;
+    private final int mask;
+    private final int indexShift;
+    private final Slot<E>[] slots;
+    private final AtomicIntegerArray availability;
+    private final WaitStrategy waitStrategy;
+
+    // The next sequence to be claimed by the producers.
+    private final PaddedSequence producerSequence = new PaddedSequence(0L);
+    // The next sequence to be consumed, i.e. the count of consumed slots.
+    private final PaddedSequence consumerSequence = new PaddedSequence(0L);
+    private volatile long cachedConsumerSequence;
+    private volatile Thread waitingConsumer;
+
+    @SuppressWarnings("unchecked")
+    public PointRingBuffer(int capacity, @NotNull WaitStrategy waitStrategy) {
+        Assert2.isTrueOf(capacity > 0 && capacity <= (1 << 30), "capacity > 0 && capacity <= 2^30");
+        this.capacity = ceilingPowerOfTwo(capacity);
+        this.mask = this.capacity - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(this.capacity);
+        this.waitStrategy = requireNonNull(waitStrategy, "waitStrategy must not be null");
+        this.slots = new Slot[this.capacity];
+        this.availability = new AtomicIntegerArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            slots[i] = new Slot<>();
+            availability.set(i, -1);
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    public int size() {
+        return (int) Math.max(0L, producerSequence.get() - consumerSequence.get());
+    }
+
+    /**
+     * Try to publish the element without waiting.
+     *
+     * @return false if the ring buffer is full.
+     */
+    public boolean tryOffer(@NotNull E element) {
+        requireNonNull(element, "element must not be null");
+        final long sequence = tryClaim();
+        if (sequence < 0) {
+            return false;
+        }
+        publish(sequence, element);
+        return true;
+    }
+
+    /**
+     * Publish the element, the producer waits by the wait strategy if the ring buffer is full (i.e.
+     * the back pressure of the consumer).
+     *
+     * @return false if the ring buffer is still full after timeout.
+     */
+    public boolean offer(@NotNull E element, long timeout, @NotNull TimeUnit unit) {
+        requireNonNull(element, "element must not be null");
+        long sequence = tryClaim();
+        if (sequence < 0) {
+            final long deadline = System.nanoTime() + unit.toNanos(timeout);
+            int idles = 0;
+            while ((sequence = tryClaim()) < 0) {
+                if (System.nanoTime() - deadline >= 0L || Thread.currentThread().isInterrupted()) {
+                    return false;
+                }
+                waitStrategy.idle(++idles);
+            }
+        }
+        publish(sequence, element);
+        return true;
+    }
+
+    /**
+     * Drain the published elements in order, only be called by the single consumer thread.
+     *
+     * @return the count of drained elements.
+     */
+    public int drainTo(@NotNull List<? super E> target, int maxElements) {
+        final long start = consumerSequence.get();
+        long sequence = start;
+        final long limit = start + maxElements;
+        while (sequence < limit) {
+            final int index = (int) sequence & mask;
+            if (availability.get(index) != (int) (sequence >>> indexShift)) {
+                break;
+            }
+            final Slot<E> slot = slots[index];
+            target.add(slot.element);
+            slot.element = null;
+            ++sequence;
+        }
+        if (sequence != start) {
+            // Release the slots to producers.
+            consumerSequence.lazySet(sequence);
+        }
+        return (int) (sequence - start);
+    }
+
+    /**
+     * Wait for the next element to be published, only be called by the single consumer thread.
+     *
+     * @return true if there is available element.
+     */
+    public boolean awaitAvailable(long timeout, @NotNull TimeUnit unit) {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int idles = 0;
+        while (!isAvailable()) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0L || Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            if (waitStrategy == WaitStrategy.BLOCKING) {
+                this.waitingConsumer = Thread.currentThread();
+                try {
+                    // Re-check after registered, the producer unparks it on publishing.
+                    if (!isAvailable()) {
+                        LockSupport.parkNanos(this, remaining);
+                    }
+                } finally {
+                    this.waitingConsumer = null;
+                }
+            } else {
+                waitStrategy.idle(++idles);
+            }
+        }
+        return true;
+    }
+
+    private boolean isAvailable() {
+        final long sequence = consumerSequence.get();
+        return availability.get((int) sequence & mask) == (int) (sequence >>> indexShift);
+    }
+
+    private long tryClaim() {
+        long current;
+        do {
+            current = producerSequence.get();
+            final long wrapPoint = current - capacity;
+            if (wrapPoint >= cachedConsumerSequence) {
+                final long consumed = consumerSequence.get();
+                this.cachedConsumerSequence = consumed;
+                if (wrapPoint >= consumed) {
+                    return -1L;
+                }
+            }
+        } while (!producerSequence.compareAndSet(current, current + 1));
+        return current;
+    }
+
+    private void publish(long sequence, E element) {
+        final int index = (int) sequence & mask;
+        slots[index].element = element;
+        // Notice: The ordered write of the availability flag publishes the element to the consumer.
+        if (waitStrategy != WaitStrategy.BLOCKING) {
+            availability.lazySet(index, (int) (sequence >>> indexShift));
+            return;
+        }
+        // The volatile write is required for the StoreLoad ordering against the read of the waiting consumer,
+        // which pairs with the registering then re-checking of the consumer, otherwise the wakeup may be missed.
+        availability.set(index, (int) (sequence >>> indexShift));
+        final Thread consumer = waitingConsumer;
+        if (nonNull(consumer)) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    static int ceilingPowerOfTwo(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    public enum WaitStrategy {
+        /**
+         * The consumer parks until the producer publishes, and the producers park briefly if full,
+         * which is the lowest CPU usage.
+         */
+        BLOCKING {
+            @Override
+            void idle(int idles) {
+                LockSupport.parkNanos(idles < 100 ? 1_000L : 100_000L);
+            }
+        },
+
+        /**
+         * Spin and then yield the CPU to the other threads, the balance of latency and CPU usage.
+         */
+        YIELDING {
+            @Override
+            void idle(int idles) {
+                if (idles > 100) {
+                    Thread.yield();
+                }
+            }
+        },
+
+        /**
+         * Busy spin, the lowest latency, but burns a core for each waiting thread.
+         */
+        BUSY_SPIN {
+            @Override
+            void idle(int idles) {
+            }
+        };
+
+        abstract void idle(int idles);
+    }
+
+    static final class Slot<E> {
+        E element;
+    }
+
+    /**
+     * The padded sequence, avoid the false sharing of producer and consumer sequences.
+     */
+    @SuppressWarnings("unused")
+    static final class PaddedSequence extends AtomicLong {
+        private long p1, p2, p3, p4, p5, p6, p7;
+
+        PaddedSequence(long initialValue) {
+            super(initialValue);
+        }
+    }
+
+}
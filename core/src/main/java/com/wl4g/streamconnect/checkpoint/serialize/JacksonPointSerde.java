@@ -0,0 +1,80 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.checkpoint.serialize;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wl4g.streamconnect.checkpoint.ICheckpoint.PointSerde;
+import com.wl4g.streamconnect.exception.StreamConnectException;
+import com.wl4g.streamconnect.util.json.JsonStreamingUtil;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static java.util.Objects.isNull;
+
+/**
+ * The {@link JacksonPointSerde}, the base of jackson data format serialization of the point records,
+ * the record value is serialized as the {@link JsonNode} tree.
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+public abstract class JacksonPointSerde implements PointSerde {
+
+    protected abstract ObjectMapper getMapper();
+
+    @Override
+    public byte[] serialize(String topic, Map<String, Object> headers, Object data) {
+        if (isNull(data)) {
+            return null;
+        }
+        try {
+            return getMapper().writeValueAsBytes(toJsonNode(data));
+        } catch (IOException ex) {
+            throw new StreamConnectException(String.format("Failed to serialize point record with %s of topic: %s",
+                    getType(), topic), ex);
+        }
+    }
+
+    @Override
+    public Object deserialize(String topic, Map<String, Object> headers, byte[] data) {
+        if (isNull(data)) {
+            return null;
+        }
+        try {
+            return getMapper().readTree(data);
+        } catch (IOException ex) {
+            throw new StreamConnectException(String.format("Failed to deserialize point record with %s of topic: %s",
+                    getType(), topic), ex);
+        }
+    }
+
+    public static JsonNode toJsonNode(Object data) {
+        if (data instanceof JsonNode) {
+            return (JsonNode) data;
+        } else if (data instanceof byte[]) {
+            return JsonStreamingUtil.readTree((byte[]) data);
+        } else if (data instanceof String) {
+            return JsonStreamingUtil.readTree(((String) data).getBytes(StandardCharsets.UTF_8));
+        }
+        return JsonPointSerde.MAPPER.valueToTree(data);
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.checkpoint.serialize;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static java.util.Objects.isNull;
+
+/**
+ * The {@link JsonPointSerde}, the default text JSON format, which is compatible with the point records
+ * written without format header.
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+public class JsonPointSerde extends JacksonPointSerde {
+    public static final String TYPE_NAME = "JSON";
+
+    static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Override
+    public String getType() {
+        return TYPE_NAME;
+    }
+
+    @Override
+    protected ObjectMapper getMapper() {
+        return MAPPER;
+    }
+
+    @Override
+    public byte[] serialize(String topic, Map<String, Object> headers, Object data) {
+        if (isNull(data)) {
+            return null;
+        } else if (data instanceof byte[]) {
+            return (byte[]) data;
+        } else if (data instanceof String) {
+            return ((String) data).getBytes(StandardCharsets.UTF_8);
+        } else if (!(data instanceof JsonNode)) {
+            return data.toString().getBytes(StandardCharsets.UTF_8);
+        }
+        return super.serialize(topic, headers, data);
+    }
+
+}
@@ -0,0 +1,48 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.checkpoint.serialize;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+
+/**
+ * The {@link SmilePointSerde}, the binary JSON format of jackson, the repeated field names and short
+ * string values are back-referenced, which is usually much smaller and faster than the text JSON.
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+public class SmilePointSerde extends JacksonPointSerde {
+    public static final String TYPE_NAME = "SMILE";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper(SmileFactory.builder()
+            .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+            .build());
+
+    @Override
+    public String getType() {
+        return TYPE_NAME;
+    }
+
+    @Override
+    protected ObjectMapper getMapper() {
+        return MAPPER;
+    }
+
+}
@@ -27,6 +27,7 @@ import com.wl4g.streamconnect.coordinator.IStreamConnectCoordinator;
 import com.wl4g.streamconnect.framework.IStreamConnectSpi;
 import com.wl4g.streamconnect.meter.StreamConnectMeter;
 import com.wl4g.streamconnect.stream.AbstractStream;
+import com.wl4g.streamconnect.stream.AbstractStream.RawMessageRecord;
 import com.wl4g.streamconnect.stream.source.SourceStream.SourceStreamConfig;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -76,6 +77,15 @@ public interface IStreamConnectConfigurator {
         return false;
     }
 
+    /**
+     * Whether the channels of record can be matched by the tenant inverted index of registry (i.e. one hash
+     * lookup per record), it's equivalent to the default {@link #matchChannelRecord}, so the implementations
+     * that customized the {@link #matchChannelRecord} should return false to fallback to match each channel.
+     */
+    default boolean isTenantIndexMatchable() {
+        return true;
+    }
+
     // ----- Configurator provider. -----
 
     @Getter
@@ -90,6 +100,10 @@ public interface IStreamConnectConfigurator {
     static String getTenantIdForRecord(@NotNull ChannelInfo channel,
                                        @NotNull MessageRecord<String, Object> record) {
         requireNonNull(channel, "channel must not be null");
+        return getTenantIdForRecord(record);
+    }
+
+    static String getTenantIdForRecord(@NotNull MessageRecord<String, Object> record) {
         requireNonNull(record, "record must not be null");
 
         // Notice: By default, the $$tenant field of the source message match, which should be customized
@@ -101,6 +115,11 @@ public interface IStreamConnectConfigurator {
                 return tenantId;
             }
         }
+        if (record instanceof RawMessageRecord && !((RawMessageRecord<String, Object>) record).isValueMaterialized()) {
+            // Fallback match to record raw value by streaming parse, avoid to materialize the value tree.
+            final String tenantId = ((RawMessageRecord<String, Object>) record).getRawTextField(KEY_TENANT);
+            return isNotBlank(tenantId) ? tenantId : null;
+        }
         if (nonNull(record.getValue())) {
             // Fallback match to record value.
             if (record.getValue() instanceof ObjectNode) {
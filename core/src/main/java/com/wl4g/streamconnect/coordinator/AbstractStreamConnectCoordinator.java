@@ -184,8 +184,7 @@ public abstract class AbstractStreamConnectCoordinator implements IStreamConnect
                 log.info("Re-balanced channels of connector: {}, sharding: {}, {}, assigned channels: {}",
                         connector.getName(), sharding, assignedChannels.size(), assignedChannels);
             }
-            registry.unAssign(connector.getName());
-            registry.assign(connector.getName(), assignedChannels);
+            registry.reassign(connector.getName(), assignedChannels);
         });
     }
 
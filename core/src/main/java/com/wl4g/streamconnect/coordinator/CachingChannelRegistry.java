@@ -19,32 +19,60 @@ package com.wl4g.streamconnect.coordinator;
 
 import com.wl4g.infra.common.lang.Assert2;
 import com.wl4g.streamconnect.config.ChannelInfo;
+import com.wl4g.streamconnect.config.ChannelInfo.RuleSpec;
 import com.wl4g.streamconnect.config.StreamConnectConfiguration;
+import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
 
 import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Null;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static com.wl4g.infra.common.collection.CollectionUtils2.safeList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.unmodifiableList;
 import static java.util.Collections.unmodifiableMap;
+import static java.util.Objects.isNull;
+import static java.util.Objects.requireNonNull;
+import static org.apache.commons.lang3.StringUtils.isBlank;
 import static java.util.stream.Collectors.toMap;
 
 /**
- * The {@link CachingChannelRegistry}
+ * The {@link CachingChannelRegistry}, every change of the assigned channels of a connector increments
+ * its version and publishes a {@link ChannelsChangedEvent} to the registered listeners, so that the
+ * derived state (e.g: the compiled filters/mappers) can be rebuilt off the hot path.
  *
  * @author James Wong
  * @since v1.0
  **/
+@Slf4j
 public class CachingChannelRegistry {
 
     private final @Getter StreamConnectConfiguration config;
     private final Map<String, Map<String, ChannelInfo>> registry;
+    /**
+     * The tenant to channels inverted index of each connector, it's rebuilt (copy-on-write) whenever
+     * the assignments are changed, so that matching a record costs only one hash lookup.
+     */
+    private final Map<String, Map<String, List<ChannelInfo>>> tenantIndexes;
+    private final Map<String, Long> versions;
+    private final Map<String, List<ChannelsChangedListener>> listeners;
 
     public CachingChannelRegistry(StreamConnectConfiguration config) {
         this.config = Assert2.notNullOf(config, "config");
         this.registry = new ConcurrentHashMap<>(2);
+        this.tenantIndexes = new ConcurrentHashMap<>(2);
+        this.versions = new ConcurrentHashMap<>(2);
+        this.listeners = new ConcurrentHashMap<>(2);
     }
 
     public Map<String, Map<String, ChannelInfo>> getRegistry() {
@@ -64,29 +92,106 @@ public class CachingChannelRegistry {
         return obtainConnector(connectorName).values();
     }
 
-    public void assign(@NotBlank String connectorName, Collection<ChannelInfo> channels) {
+    /**
+     * Gets the tenant to channels inverted index of the assigned channels (i.e. the channels whose
+     * policy rules granted to the tenant).
+     *
+     * @param connectorName connector name.
+     * @return tenantId -> channels, never null.
+     */
+    public Map<String, List<ChannelInfo>> getTenantIndex(@NotBlank String connectorName) {
+        Assert2.hasTextOf(connectorName, "connectorName");
+        return tenantIndexes.getOrDefault(connectorName, emptyMap());
+    }
+
+    public List<ChannelInfo> getTenantChannels(@NotBlank String connectorName,
+                                               @Null String tenantId) {
+        if (isBlank(tenantId)) {
+            return emptyList();
+        }
+        return getTenantIndex(connectorName).getOrDefault(tenantId, emptyList());
+    }
+
+    /**
+     * Gets the version of the assigned channels of connector, which is incremented on every change.
+     *
+     * @param connectorName connector name.
+     * @return the version, 0 means never assigned.
+     */
+    public long getVersion(@NotBlank String connectorName) {
+        Assert2.hasTextOf(connectorName, "connectorName");
+        return versions.getOrDefault(connectorName, 0L);
+    }
+
+    /**
+     * Register the listener of the assigned channels changes of connector, and the current assigned
+     * channels will be published to it immediately.
+     *
+     * @param connectorName connector name.
+     * @param listener      the changed listener.
+     */
+    public synchronized void addChangedListener(@NotBlank String connectorName,
+                                                @NotNull ChannelsChangedListener listener) {
+        Assert2.hasTextOf(connectorName, "connectorName");
+        requireNonNull(listener, "listener must not be null");
+        listeners.computeIfAbsent(connectorName, k -> new CopyOnWriteArrayList<>()).add(listener);
+        listener.onChanged(new ChannelsChangedEvent(connectorName, getVersion(connectorName),
+                unmodifiableList(new ArrayList<>(obtainConnector(connectorName).values()))));
+    }
+
+    public synchronized void removeChangedListener(@NotBlank String connectorName,
+                                                   @NotNull ChannelsChangedListener listener) {
+        Assert2.hasTextOf(connectorName, "connectorName");
+        safeList(listeners.get(connectorName)).remove(listener);
+    }
+
+    public synchronized void assign(@NotBlank String connectorName, Collection<ChannelInfo> channels) {
         obtainConnector(connectorName).putAll(safeList(channels)
                 .stream()
                 .map(ChannelInfo::validate)
                 .collect(toMap(ChannelInfo::getId, s -> s)));
+        onChanged(connectorName);
     }
 
-    public void unAssign(@NotBlank String connectorName) {
+    /**
+     * Replace all the assigned channels of connector at once, e.g: re-balancing, so that only one
+     * change is published instead of the unAssign and assign.
+     *
+     * @param connectorName connector name.
+     * @param channels      the new assigned channels.
+     */
+    public synchronized void reassign(@NotBlank String connectorName, Collection<ChannelInfo> channels) {
+        Assert2.hasTextOf(connectorName, "connectorName");
+        final Map<String, ChannelInfo> newChannels = new ConcurrentHashMap<>(16);
+        newChannels.putAll(safeList(channels)
+                .stream()
+                .map(ChannelInfo::validate)
+                .collect(toMap(ChannelInfo::getId, s -> s)));
+        registry.put(connectorName, newChannels);
+        onChanged(connectorName);
+    }
+
+    public synchronized void unAssign(@NotBlank String connectorName) {
         Assert2.hasTextOf(connectorName, "connectorName");
         registry.remove(connectorName);
+        onChanged(connectorName);
     }
 
-    public void unAssign(@NotBlank String connectorName, @NotBlank String channelId) {
+    public synchronized void unAssign(@NotBlank String connectorName, @NotBlank String channelId) {
         Assert2.hasTextOf(channelId, "channelId");
         obtainConnector(connectorName).remove(channelId);
+        onChanged(connectorName);
     }
 
-    public void clear(@NotBlank String connectorName) {
+    public synchronized void clear(@NotBlank String connectorName) {
         obtainConnector(connectorName).clear();
+        onChanged(connectorName);
     }
 
-    public void clear() {
+    public synchronized void clear() {
+        final List<String> connectorNames = new ArrayList<>(registry.keySet());
         registry.clear();
+        connectorNames.forEach(this::onChanged);
     }
 
     public int size(@NotBlank String connectorName) {
@@ -97,9 +202,69 @@ public class CachingChannelRegistry {
         return registry.size();
     }
 
+    private void onChanged(@NotBlank String connectorName) {
+        final List<ChannelInfo> channels = unmodifiableList(new ArrayList<>(obtainConnector(connectorName).values()));
+        tenantIndexes.put(connectorName, buildTenantIndex(channels));
+        final long version = versions.merge(connectorName, 1L, Long::sum);
+
+        final ChannelsChangedEvent event = new ChannelsChangedEvent(connectorName, version, channels);
+        for (ChannelsChangedListener listener : safeList(listeners.get(connectorName))) {
+            try {
+                listener.onChanged(event);
+            } catch (Throwable ex) {
+                log.error(String.format("%s :: Failed to publish channels changed of version %s to %s",
+                        connectorName, version, listener), ex);
+            }
+        }
+    }
+
+    /**
+     * Build the immutable tenant to channels inverted index.
+     *
+     * @param channels the assigned channels.
+     * @return tenantId -> channels
+     */
+    public static Map<String, List<ChannelInfo>> buildTenantIndex(@NotNull Collection<ChannelInfo> channels) {
+        final Map<String, List<ChannelInfo>> tenantIndex = new HashMap<>();
+        for (ChannelInfo channel : safeList(channels)) {
+            if (isNull(channel.getSettingsSpec()) || isNull(channel.getSettingsSpec().getPolicySpec())) {
+                continue;
+            }
+            for (RuleSpec rule : safeList(channel.getSettingsSpec().getPolicySpec().getRules())) {
+                if (isBlank(rule.getTenantId())) {
+                    continue;
+                }
+                final List<ChannelInfo> tenantChannels = tenantIndex.computeIfAbsent(rule.getTenantId(),
+                        tenantId -> new ArrayList<>(2));
+                // Multiple rules of a channel may granted to the same tenant.
+                if (!tenantChannels.contains(channel)) {
+                    tenantChannels.add(channel);
+                }
+            }
+        }
+        tenantIndex.replaceAll((tenantId, tenantChannels) -> unmodifiableList(tenantChannels));
+        return unmodifiableMap(tenantIndex);
+    }
+
     private Map<String, ChannelInfo> obtainConnector(@NotBlank String connectorName) {
         Assert2.hasTextOf(connectorName, "connectorName");
         return registry.computeIfAbsent(connectorName, k -> new ConcurrentHashMap<>(16));
     }
 
+    /**
+     * The assigned channels changed event of connector.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class ChannelsChangedEvent {
+        private final String connectorName;
+        private final long version;
+        private final List<ChannelInfo> channels;
+    }
+
+    @FunctionalInterface
+    public interface ChannelsChangedListener {
+        void onChanged(ChannelsChangedEvent event);
+    }
+
 }
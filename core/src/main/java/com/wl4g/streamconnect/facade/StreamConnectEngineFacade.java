@@ -55,6 +55,11 @@ public class StreamConnectEngineFacade {
         return engineBootstrap.registerConnector(connectorConfig);
     }
 
+    public boolean unregisterConnector(@NotBlank String connectorName,
+                                       long perStreamTimeout) {
+        return engineBootstrap.unregisterConnector(connectorName, perStreamTimeout);
+    }
+
     public @NotNull Map<String, Boolean> startSources(@NotBlank String connectorName,
                                                       String... sourceNames) {
         return getRequiredConnectorBootstrap(connectorName).startSources(sourceNames);
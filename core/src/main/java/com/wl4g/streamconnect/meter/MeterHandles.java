@@ -0,0 +1,131 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.meter;
+
+import com.wl4g.streamconnect.meter.StreamConnectMeter.MetricsName;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Null;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static com.wl4g.infra.common.collection.CollectionUtils2.safeList;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The {@link MeterHandles}, the pre-resolved meter handles of a fixed tags (e.g: per stream or per channel),
+ * each counter/timer is resolved from the registry only once (on first use) and then cached by the ordinal
+ * of {@link MetricsName}, so that the hot paths (per batch or per record) only increment/record without any
+ * allocations, instead of publishing the {@link MeterEventHandler} events (which resolves the meter by name
+ * and tags each time, and is dispatched synchronously by the spring event multicaster).
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+public class MeterHandles {
+    private final StreamConnectMeter meter;
+    private final String[] tags;
+    private final AtomicReferenceArray<Counter> counters;
+    private final AtomicReferenceArray<Timer> timers;
+    private final Map<String, Map<String, MeterHandles>> children = new ConcurrentHashMap<>(2);
+
+    public MeterHandles(@NotNull StreamConnectMeter meter,
+                        @Null List<String> tags,
+                        @Null String... additionalTags) {
+        this(meter, concat(safeList(tags).toArray(new String[0]), additionalTags));
+    }
+
+    private MeterHandles(StreamConnectMeter meter, String[] tags) {
+        this.meter = requireNonNull(meter, "meter must not be null");
+        this.tags = tags;
+        this.counters = new AtomicReferenceArray<>(MetricsName.values().length);
+        this.timers = new AtomicReferenceArray<>(MetricsName.values().length);
+    }
+
+    public List<String> getTags() {
+        return Arrays.asList(tags);
+    }
+
+    public Counter counter(@NotNull MetricsName metrics) {
+        Counter counter = counters.get(metrics.ordinal());
+        if (isNull(counter)) {
+            // The registry returns the same meter of the same id, so the racing resolves are harmless.
+            counter = meter.counter(metrics.getName(), metrics.getHelp(), tags);
+            counters.lazySet(metrics.ordinal(), counter);
+        }
+        return counter;
+    }
+
+    public Timer timer(@NotNull MetricsName metrics) {
+        return timer(metrics, StreamConnectMeter.DEFAULT_PERCENTILES);
+    }
+
+    /**
+     * Gets the cached timer, the percentiles only take effect on the first resolving of the metrics.
+     */
+    public Timer timer(@NotNull MetricsName metrics, @NotNull double[] percentiles) {
+        Timer timer = timers.get(metrics.ordinal());
+        if (isNull(timer)) {
+            timer = meter.timer(metrics.getName(), metrics.getHelp(), percentiles, tags);
+            timers.lazySet(metrics.ordinal(), timer);
+        }
+        return timer;
+    }
+
+    public void increment(@NotNull MetricsName metrics) {
+        counter(metrics).increment();
+    }
+
+    public void recordNanos(@NotNull MetricsName metrics, long beginNanoTime) {
+        timer(metrics).record(System.nanoTime() - beginNanoTime, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the cached child handles with the additional tag, e.g: {@link StreamConnectMeter.MetricsTag#ACK_KIND}.
+     */
+    public MeterHandles tagged(@NotBlank String key, @NotBlank String value) {
+        final Map<String, MeterHandles> values = children.get(key);
+        if (nonNull(values)) {
+            final MeterHandles handles = values.get(value);
+            if (nonNull(handles)) {
+                return handles;
+            }
+        }
+        return children.computeIfAbsent(key, k -> new ConcurrentHashMap<>(4))
+                .computeIfAbsent(value, v -> new MeterHandles(meter, concat(tags, key, v)));
+    }
+
+    static String[] concat(String[] tags, String... additionalTags) {
+        if (isNull(additionalTags) || additionalTags.length == 0) {
+            return tags;
+        }
+        final String[] merged = Arrays.copyOf(tags, tags.length + additionalTags.length);
+        System.arraycopy(additionalTags, 0, merged, tags.length, additionalTags.length);
+        return merged;
+    }
+
+}
@@ -0,0 +1,175 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.meter;
+
+import com.wl4g.streamconnect.meter.StreamConnectMeter.MetricsName;
+import com.wl4g.streamconnect.meter.StreamConnectMeter.MetricsTag;
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Null;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The {@link StageLatencyRecorder}, records the per-record latency of each pipeline stage into the
+ * {@link MetricsName#stage_latency} timers (tagged by {@link MetricsTag#STAGE}, and optionally by
+ * {@link MetricsTag#CHANNEL}), which are exported with the {@link StreamConnectMeter#HIGH_RESOLUTION_PERCENTILES}
+ * (i.e. up to p99.9). The percentiles of the timers are computed by the HdrHistogram recorders of micrometer,
+ * the recording is lock-free and allocation-free, so it can be called per record on the hot paths.
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+public class StageLatencyRecorder {
+    private static final Stage[] STAGES = Stage.values();
+
+    private final TracingMode mode;
+    private final MeterHandles handles;
+    private final Timer[] connectorTimers;
+    private final Map<String, Timer[]> channelTimers = new ConcurrentHashMap<>(16);
+
+    public StageLatencyRecorder(@NotNull TracingMode mode,
+                                @NotNull MeterHandles handles) {
+        this.mode = requireNonNull(mode, "mode must not be null");
+        this.handles = requireNonNull(handles, "handles must not be null");
+        this.connectorTimers = mode == TracingMode.NONE ? new Timer[0] : buildTimers(handles);
+    }
+
+    public boolean isEnabled() {
+        return mode != TracingMode.NONE;
+    }
+
+    public void recordNanos(@NotNull Stage stage,
+                            @Null String channelId,
+                            long latencyNanos) {
+        if (mode == TracingMode.NONE) {
+            return;
+        }
+        obtainTimers(channelId)[stage.ordinal()].record(Math.max(0L, latencyNanos), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the latency since the begin of {@link System#nanoTime()}, e.g: the stage of the same process.
+     */
+    public void recordSince(@NotNull Stage stage,
+                            @Null String channelId,
+                            long beginNanoTime) {
+        if (mode == TracingMode.NONE) {
+            return;
+        }
+        recordNanos(stage, channelId, System.nanoTime() - beginNanoTime);
+    }
+
+    /**
+     * Records the latency since the epoch timestamp of the record (e.g: the kafka record timestamp), which
+     * is only milliseconds resolution and is subject to the clock skew between the hosts.
+     */
+    public void recordSinceTimestamp(@NotNull Stage stage,
+                                     @Null String channelId,
+                                     long timestampMs) {
+        if (mode == TracingMode.NONE || timestampMs <= 0) {
+            return;
+        }
+        recordNanos(stage, channelId, TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - timestampMs));
+    }
+
+    private Timer[] obtainTimers(String channelId) {
+        if (mode != TracingMode.CHANNEL || isNull(channelId)) {
+            return connectorTimers;
+        }
+        final Timer[] timers = channelTimers.get(channelId);
+        if (nonNull(timers)) {
+            return timers;
+        }
+        return channelTimers.computeIfAbsent(channelId,
+                id -> buildTimers(handles.tagged(MetricsTag.CHANNEL, id)));
+    }
+
+    private static Timer[] buildTimers(MeterHandles handles) {
+        final Timer[] timers = new Timer[STAGES.length];
+        for (Stage stage : STAGES) {
+            timers[stage.ordinal()] = handles.tagged(MetricsTag.STAGE, stage.getName())
+                    .timer(MetricsName.stage_latency, StreamConnectMeter.HIGH_RESOLUTION_PERCENTILES);
+        }
+        return timers;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public enum Stage {
+        /**
+         * Since the record timestamp (e.g: produced to the source kafka) until polled by the source stream.
+         */
+        SOURCE_POLL("source_poll"),
+        /**
+         * Since the polled batch began to be processed until the record matched to the channel.
+         */
+        MATCH("match"),
+        /**
+         * The elapsed of the filters of the channel record.
+         */
+        FILTER("filter"),
+        /**
+         * The elapsed of the mappers of the channel record.
+         */
+        MAP("map"),
+        /**
+         * Since the channel record submitted to the checkpoint until written completed.
+         */
+        CHECKPOINT_WRITE("checkpoint_write"),
+        /**
+         * Since the record timestamp (e.g: produced to the source kafka) until read from the checkpoint.
+         */
+        CHECKPOINT_READ("checkpoint_read"),
+        /**
+         * Since the batch read from the checkpoint until the record sent to the sink completed (including retries).
+         */
+        SINK_ACK("sink_ack"),
+        /**
+         * Since the record timestamp (e.g: produced to the source kafka) until the record sent to the sink completed.
+         */
+        END_TO_END("end_to_end");
+
+        private final String name;
+    }
+
+    public enum TracingMode {
+        /**
+         * Disable the per-record latency tracing.
+         */
+        NONE,
+        /**
+         * The per-record latency tracing of each stage per connector.
+         */
+        CONNECTOR,
+        /**
+         * The per-record latency tracing of each stage per connector and channel, note that the histograms
+         * of each channel costs the memory, which should be enabled only for the limited channels.
+         */
+        CHANNEL
+    }
+
+}
@@ -76,6 +76,18 @@ public class StreamConnectMeter extends PrometheusMeterFacade {
 
         sink_time("sink_time", "The stats of sink time latency"),
 
+        stage_latency("stage_latency", "The stats of per-record latency of each pipeline stage"),
+
+        source_backlog_records("source_backlog_records", "The stats of source records dispatched but not yet settled"),
+
+        source_paused_partitions("source_paused_partitions", "The stats of source partitions paused by backpressure"),
+
+        process_queued_tasks("process_queued_tasks", "The stats of process executors queued tasks"),
+
+        producer_inflight("producer_inflight", "The stats of producer in-flight records (sent but not completed)"),
+
+        producer_buffer_available_bytes("producer_buffer_available_bytes", "The stats of producer buffer memory available bytes"),
+
         connector_total("connector_total", "The stats of connectors total count"),
 
         coordinator_sharding_channels_total("coordinator_sharding_channels_total", "The stats of sharding channels total count"),
@@ -95,6 +107,8 @@ public class StreamConnectMeter extends PrometheusMeterFacade {
         public static final String QOS = "qos";
         public static final String CHECKPOINT = "checkpoint";
         public static final String CHANNEL = "channel";
+        public static final String PRODUCER = "producer";
+        public static final String STAGE = "stage";
         public static final String ACK_KIND = "ackKind";
         public static final String ACK_KIND_VALUE_COMMIT = "commit";
         public static final String ACK_KIND_VALUE_SEND = "send";
@@ -102,4 +116,6 @@ public class StreamConnectMeter extends PrometheusMeterFacade {
 
     public static final double[] DEFAULT_PERCENTILES = new double[] {0.5, 0.9, 0.95};
 
+    public static final double[] HIGH_RESOLUTION_PERCENTILES = new double[] {0.5, 0.9, 0.95, 0.99, 0.999};
+
 }
\ No newline at end of file
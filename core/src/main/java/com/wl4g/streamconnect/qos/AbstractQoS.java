@@ -54,6 +54,12 @@ public abstract class AbstractQoS extends NamedStreamConnectSpi implements IQoS
         }
     }
 
+    @Override
+    public long getRetryIntervalMs(ConnectorConfig connectorConfig,
+                                   int retryTimes) {
+        return getSleepTime(connectorConfig, retryTimes);
+    }
+
     protected void doSleep(final long intervalMs) throws InterruptedException {
         // see:https://github.com/openjdk/jdk/blob/jdk8-b120/hotspot/src/share/vm/runtime/thread.cpp#L1249
         Thread.sleep(intervalMs);
@@ -17,6 +17,7 @@
 
 package com.wl4g.streamconnect.qos;
 
+import com.wl4g.infra.common.lang.Assert2;
 import com.wl4g.streamconnect.config.StreamConnectConfiguration.ConnectorConfig;
 import lombok.Getter;
 import lombok.Setter;
@@ -33,11 +34,22 @@ public class AlwaysAttemptsQoS extends AbstractQoS {
 
     public static final String TYPE_NAME = "ALWAYS_ATTEMPTS_QOS";
 
+    private long retryBackoffMs = 200;
+    private long retryMaxBackoffMs = 60 * 1000;
+    private double retryBackoffMultiplier = 1.5d;
+
     @Override
     public String getType() {
         return TYPE_NAME;
     }
 
+    @Override
+    public void validate() {
+        super.validate();
+        Assert2.isTrueOf(retryBackoffMs > 0, "retryBackoffMs > 0");
+        Assert2.isTrueOf(retryMaxBackoffMs > 0, "retryMaxBackoffMs > 0");
+    }
+
     @Override
     public boolean supportRetry(ConnectorConfig connectorConfig) {
         return true;
@@ -20,6 +20,8 @@ package com.wl4g.streamconnect.qos;
 import com.wl4g.streamconnect.config.StreamConnectConfiguration.ConnectorConfig;
 import com.wl4g.streamconnect.framework.IStreamConnectSpi;
 
+import java.util.concurrent.Executor;
+
 /**
  * The {@link IQoS}
  *
@@ -37,6 +39,50 @@ public interface IQoS extends IStreamConnectSpi {
                      int retryTimes,
                      Runnable call);
 
+    /**
+     * The backoff interval before the retry of times, which is used by the scheduled retry, defaults no backoff.
+     */
+    default long getRetryIntervalMs(ConnectorConfig connectorConfig,
+                                    int retryTimes) {
+        return 0L;
+    }
+
+    /**
+     * Non-blocking variant of {@link #retryIfFail(ConnectorConfig, int, Runnable)}, the call is scheduled
+     * to be run after the retry backoff rather than sleeping on the caller thread. Notice: The call is run on
+     * the shared retry timer thread, so it must never block, otherwise see:
+     * {@link #scheduleRetryIfFail(ConnectorConfig, int, Executor, Runnable)}
+     *
+     * @return true if the retry has been scheduled, otherwise false (i.e. can't retry any more).
+     */
+    default boolean scheduleRetryIfFail(ConnectorConfig connectorConfig,
+                                        int retryTimes,
+                                        Runnable call) {
+        if (!canRetry(connectorConfig, retryTimes)) {
+            return false;
+        }
+        RetryScheduler.schedule(retryTimes, getRetryIntervalMs(connectorConfig, retryTimes), call);
+        return true;
+    }
+
+    /**
+     * Variant of {@link #scheduleRetryIfFail(ConnectorConfig, int, Runnable)}, the retry timer only hands off
+     * the call to the executor (e.g: of the owning stream) after the retry backoff, which is suitable for the
+     * calls that may block (e.g: re-write or re-send).
+     *
+     * @return true if the retry has been scheduled, otherwise false (i.e. can't retry any more).
+     */
+    default boolean scheduleRetryIfFail(ConnectorConfig connectorConfig,
+                                        int retryTimes,
+                                        Executor executor,
+                                        Runnable call) {
+        if (!canRetry(connectorConfig, retryTimes)) {
+            return false;
+        }
+        RetryScheduler.schedule(retryTimes, getRetryIntervalMs(connectorConfig, retryTimes), executor, call);
+        return true;
+    }
+
     default boolean supportPreferAcknowledge(ConnectorConfig connectorConfig) {
         return false;
     }
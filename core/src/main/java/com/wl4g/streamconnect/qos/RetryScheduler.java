@@ -0,0 +1,96 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.qos;
+
+import com.wl4g.streamconnect.util.concurrent.NamedThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link RetryScheduler}, the shared retry timer of the {@link IQoS#scheduleRetryIfFail}, the scheduled
+ * calls must never block (e.g: non-blocking re-submit, or hand off to the executor of the owning stream),
+ * so a single daemon thread is sufficient.
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+@Slf4j
+final class RetryScheduler {
+    private static final ScheduledThreadPoolExecutor INSTANCE;
+
+    static {
+        final NamedThreadFactory threadFactory = new NamedThreadFactory("qos-retry-scheduler");
+        INSTANCE = new ScheduledThreadPoolExecutor(1, r -> {
+            final Thread t = threadFactory.newThread(r);
+            t.setDaemon(true);
+            return t;
+        });
+        INSTANCE.setRemoveOnCancelPolicy(true);
+    }
+
+    private RetryScheduler() {
+    }
+
+    static void schedule(int retryTimes,
+                         long intervalMs,
+                         Runnable call) {
+        if (log.isDebugEnabled()) {
+            log.debug("Scheduling retry of times: {}, intervalMs: {}", retryTimes, intervalMs);
+        }
+        INSTANCE.schedule(wrap(retryTimes, intervalMs, call), Math.max(intervalMs, 0L), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Schedule the call to be handed off to the executor after the interval, so that the blocking calls
+     * are run on the executor of the owning stream, and never stall the retries of the others.
+     */
+    static void schedule(int retryTimes,
+                         long intervalMs,
+                         Executor executor,
+                         Runnable call) {
+        if (log.isDebugEnabled()) {
+            log.debug("Scheduling retry of times: {}, intervalMs: {} to {}", retryTimes, intervalMs, executor);
+        }
+        final Runnable task = wrap(retryTimes, intervalMs, call);
+        INSTANCE.schedule(() -> {
+            try {
+                executor.execute(task);
+            } catch (Throwable ex) { // e.g: The executor has been shutdown.
+                log.error(String.format("Failed to hand off scheduled retry of times: %s, intervalMs : %s to %s",
+                        retryTimes, intervalMs, executor), ex);
+            }
+        }, Math.max(intervalMs, 0L), TimeUnit.MILLISECONDS);
+    }
+
+    private static Runnable wrap(int retryTimes,
+                                 long intervalMs,
+                                 Runnable call) {
+        return () -> {
+            try {
+                call.run();
+            } catch (Throwable ex) {
+                log.error(String.format("Failed to do scheduled retry of times: %s, intervalMs : %s",
+                        retryTimes, intervalMs), ex);
+            }
+        };
+    }
+
+}
@@ -23,6 +23,8 @@ import com.wl4g.streamconnect.config.StreamConnectConfiguration.ConnectorConfig;
 import com.wl4g.streamconnect.config.configurator.IStreamConnectConfigurator;
 import com.wl4g.streamconnect.coordinator.CachingChannelRegistry;
 import com.wl4g.streamconnect.framework.NamedStreamConnectSpi;
+import com.wl4g.streamconnect.meter.MeterHandles;
+import com.wl4g.streamconnect.meter.StageLatencyRecorder;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -44,6 +46,7 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import static java.lang.System.getenv;
 import static java.util.Collections.emptyList;
+import static java.util.Objects.isNull;
 import static java.util.Objects.requireNonNull;
 
 /**
@@ -56,6 +59,8 @@ import static java.util.Objects.requireNonNull;
 @Slf4j
 public abstract class AbstractStream implements Closeable {
     private final StreamContext context;
+    private volatile MeterHandles meterHandles;
+    private volatile StageLatencyRecorder stageLatencyRecorder;
 
     public AbstractStream(@NotNull final StreamContext context) {
         this.context = requireNonNull(context, "context must not be null");
@@ -70,6 +75,38 @@ public abstract class AbstractStream implements Closeable {
         return emptyList();
     }
 
+    /**
+     * Gets the cached meter handles of {@link #getBasedMeterTags()}, resolved on first use, because the
+     * based meter tags of the subclasses are usually not initialized yet in the constructor.
+     */
+    public MeterHandles getMeterHandles() {
+        MeterHandles handles = this.meterHandles;
+        if (isNull(handles)) {
+            synchronized (this) {
+                handles = this.meterHandles;
+                if (isNull(handles)) {
+                    this.meterHandles = handles = new MeterHandles(getContext().getConfig().getMeter(),
+                            getBasedMeterTags());
+                }
+            }
+        }
+        return handles;
+    }
+
+    public StageLatencyRecorder getStageLatencyRecorder() {
+        StageLatencyRecorder recorder = this.stageLatencyRecorder;
+        if (isNull(recorder)) {
+            synchronized (this) {
+                recorder = this.stageLatencyRecorder;
+                if (isNull(recorder)) {
+                    this.stageLatencyRecorder = recorder = new StageLatencyRecorder(
+                            getConnectorConfig().getProcessConfig().getLatencyTracing(), getMeterHandles());
+                }
+            }
+        }
+        return recorder;
+    }
+
     protected IStreamConnectConfigurator getConfigurator() {
         return getContext().getConfig().getConfigurator();
     }
@@ -160,7 +197,50 @@ public abstract class AbstractStream implements Closeable {
         MessageRecord<K, V> getOriginal();
     }
 
+    /**
+     * The message record that keeps the original bytes of value, the value tree is materialized lazily
+     * only when required (e.g: by filters or mappers), so the unmatched records are passed through without
+     * any tree allocation.
+     */
+    public interface RawMessageRecord<K, V> extends MessageRecord<K, V> {
+        byte[] getRawValue();
+
+        boolean isValueMaterialized();
+
+        /**
+         * Gets the top level text field of the value, without materializing the value tree.
+         */
+        String getRawTextField(String fieldName);
+
+        /**
+         * Gets the original bytes of the record value if it has not been changed by the mappers, so that
+         * can be forwarded unchanged (e.g: write to checkpoint).
+         *
+         * @param record the processed record.
+         * @return the original bytes, or null if changed or not available.
+         */
+        @SuppressWarnings("unchecked")
+        static byte[] getUnchangedRawValue(MessageRecord<?, ?> record) {
+            MessageRecord<?, ?> current = record;
+            while (current instanceof DelegateMessageRecord) {
+                final MessageRecord<?, ?> original = ((DelegateMessageRecord<Object, Object>) current).getOriginal();
+                final Object value = current.getValue();
+                // The unmaterialized value could not have been mapped from.
+                if (original instanceof RawMessageRecord && !((RawMessageRecord<?, ?>) original).isValueMaterialized()) {
+                    return null;
+                }
+                if (value != original.getValue()) {
+                    return null;
+                }
+                current = original;
+            }
+            return current instanceof RawMessageRecord ? ((RawMessageRecord<?, ?>) current).getRawValue() : null;
+        }
+    }
+
     public static final String KEY_TENANT = getenv().getOrDefault("STREAM_TENANT_ID", "$$tenant");
     public static final String KEY_CHANNEL = getenv().getOrDefault("STREAM_CHANNEL_ID", "$$channel");
     public static final String KEY_SEQUENCE = getenv().getOrDefault("STREAM_IS_SEQUENCE", "$$sequence");
+    public static final String KEY_FORMAT = getenv().getOrDefault("STREAM_POINT_FORMAT", "$$format");
+    public static final String KEY_TIMESTAMP = getenv().getOrDefault("STREAM_SOURCE_TIMESTAMP", "$$timestamp");
 }
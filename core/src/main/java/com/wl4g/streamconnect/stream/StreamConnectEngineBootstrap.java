@@ -17,10 +17,12 @@
 
 package com.wl4g.streamconnect.stream;
 
+import com.wl4g.infra.common.lang.Assert2;
 import com.wl4g.streamconnect.config.ChannelInfo;
 import com.wl4g.streamconnect.config.StreamConnectConfiguration;
 import com.wl4g.streamconnect.config.StreamConnectConfiguration.ConnectorConfig;
 import com.wl4g.streamconnect.coordinator.CachingChannelRegistry;
+import com.wl4g.streamconnect.coordinator.CachingChannelRegistry.ChannelsChangedListener;
 import com.wl4g.streamconnect.coordinator.IStreamConnectCoordinator;
 import com.wl4g.streamconnect.framework.StreamConnectSpiFactory;
 import com.wl4g.streamconnect.meter.StreamConnectMeter.MetricsName;
@@ -43,6 +45,7 @@ import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 import org.springframework.core.env.Environment;
 
+import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import java.io.Closeable;
 import java.util.LinkedList;
@@ -60,6 +63,8 @@ import static com.wl4g.infra.common.lang.Assert2.notNullOf;
 import static com.wl4g.streamconnect.stream.AbstractStream.BaseStreamConfig.getStreamProviderTypeName;
 import static java.util.Collections.singletonList;
 import static java.util.Collections.unmodifiableMap;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toMap;
 import static org.apache.commons.lang3.StringUtils.equalsAny;
@@ -79,6 +84,7 @@ public class StreamConnectEngineBootstrap extends Collector implements Applicati
     private final StreamConnectConfiguration config;
     private final CachingChannelRegistry registry;
     private final Map<String, StreamConnectorBootstrap> connectorRegistry;
+    private final Map<String, ChannelsChangedListener> processChainListeners = new ConcurrentHashMap<>();
     private final IStreamConnectCoordinator coordinator;
 
     public StreamConnectEngineBootstrap(@NotNull Environment environment,
@@ -112,6 +118,8 @@ public class StreamConnectEngineBootstrap extends Collector implements Applicati
                 log.info("Stopped to connector: {}", connectorName);
             } catch (Throwable ex) {
                 log.error("Failed to stop connector: {}", connectorName, ex);
+            } finally {
+                unregisterProcessChainListener(connectorName);
             }
         });
         this.coordinator.close();
@@ -211,6 +219,10 @@ public class StreamConnectEngineBootstrap extends Collector implements Applicati
                 log.info("Registering to connector {} => {} ...", connectorName, connectorConfig);
             }
 
+            // Rebuild the process chain whenever the assigned channels changed (off the hot path), which
+            // must be registered before the source streams started.
+            registerProcessChainListener(connectorConfig);
+
             final StreamContext context = new StreamContext(environment,
                     config, connectorConfig, registry, this);
 
@@ -232,6 +244,54 @@ public class StreamConnectEngineBootstrap extends Collector implements Applicati
         });
     }
 
+    /**
+     * Unregister the connector, and the source and sink streams of it will be stopped.
+     *
+     * @param connectorName    connector name.
+     * @param perStreamTimeout the timeout of stopping per source or sink stream.
+     * @return true if unregistered, otherwise false (i.e. not found or some streams failed to stop).
+     */
+    public boolean unregisterConnector(@NotBlank String connectorName,
+                                       long perStreamTimeout) {
+        Assert2.hasTextOf(connectorName, "connectorName");
+        final StreamConnectorBootstrap connectorBootstrap = connectorRegistry.get(connectorName);
+        if (isNull(connectorBootstrap)) {
+            return false;
+        }
+        if (log.isInfoEnabled()) {
+            log.info("Unregistering to connector: {}", connectorName);
+        }
+        final boolean stopped = connectorBootstrap.stopSources(perStreamTimeout).values().stream().allMatch(r -> r)
+                & connectorBootstrap.stopSinks(perStreamTimeout).values().stream().allMatch(r -> r);
+        if (!stopped) {
+            log.warn("Unable to unregister connector: {}, some of the source or sink streams failed to stop.",
+                    connectorName);
+            return false;
+        }
+        unregisterProcessChainListener(connectorName);
+        connectorRegistry.remove(connectorName);
+        if (log.isInfoEnabled()) {
+            log.info("Unregistered to connector: {}", connectorName);
+        }
+        return true;
+    }
+
+    private void registerProcessChainListener(ConnectorConfig connectorConfig) {
+        final ChannelsChangedListener listener = connectorConfig.getProcessChain()::onChannelsChanged;
+        final ChannelsChangedListener oldListener = processChainListeners.put(connectorConfig.getName(), listener);
+        if (nonNull(oldListener)) {
+            registry.removeChangedListener(connectorConfig.getName(), oldListener);
+        }
+        registry.addChangedListener(connectorConfig.getName(), listener);
+    }
+
+    private void unregisterProcessChainListener(String connectorName) {
+        final ChannelsChangedListener listener = processChainListeners.remove(connectorName);
+        if (nonNull(listener)) {
+            registry.removeChangedListener(connectorName, listener);
+        }
+    }
+
     public StreamBootstrap<? extends SourceStream> createConnectorSource(
             StreamContext context,
             SourceStreamConfig sourceStreamConfig) {
@@ -18,6 +18,9 @@
 package com.wl4g.streamconnect.stream.process;
 
 import com.wl4g.streamconnect.config.ChannelInfo;
+import com.wl4g.streamconnect.coordinator.CachingChannelRegistry.ChannelsChangedEvent;
+import com.wl4g.streamconnect.meter.StageLatencyRecorder;
+import com.wl4g.streamconnect.meter.StageLatencyRecorder.Stage;
 import com.wl4g.streamconnect.stream.AbstractStream.MessageRecord;
 import com.wl4g.streamconnect.stream.process.filter.IProcessFilter;
 import com.wl4g.streamconnect.stream.process.map.IProcessMapper;
@@ -25,9 +28,11 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 
 import javax.annotation.concurrent.ThreadSafe;
+import javax.validation.constraints.Null;
 import java.util.Collection;
 
 import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 
 /**
  * The {@link ComplexProcessChain}
@@ -40,11 +45,26 @@ import static java.util.Objects.isNull;
 public class ComplexProcessChain {
 
     private final ComplexProcessHandler[] processes;
+    private volatile long mergedVersion = -1L;
 
     public ComplexProcessChain(ComplexProcessHandler[] processes) {
         this.processes = isNull(processes) ? new ComplexProcessHandler[0] : processes;
     }
 
+    /**
+     * Merge the changed channels conditions to all handlers, the stale or duplicate (e.g: the chain is
+     * listened by multiple registrations) versions are ignored.
+     *
+     * @param event the assigned channels changed event.
+     */
+    public synchronized void onChannelsChanged(ChannelsChangedEvent event) {
+        if (event.getVersion() <= mergedVersion) {
+            return;
+        }
+        updateMergeConditions(event.getChannels());
+        this.mergedVersion = event.getVersion();
+    }
+
     public void updateMergeConditions(Collection<ChannelInfo> channels) {
         for (ComplexProcessHandler handler : processes) {
             handler.updateMergeConditions(channels);
@@ -53,15 +73,40 @@ public class ComplexProcessChain {
 
     public ComplexProcessResult process(ChannelInfo channel,
                                         MessageRecord<String, Object> record) {
+        return process(channel, record, null);
+    }
+
+    /**
+     * Process the record of the channel, and records the elapsed of the filters and mappers respectively
+     * if the latency tracing is enabled.
+     */
+    public ComplexProcessResult process(ChannelInfo channel,
+                                        MessageRecord<String, Object> record,
+                                        @Null StageLatencyRecorder recorder) {
+        final boolean tracing = nonNull(recorder) && recorder.isEnabled();
+        long filterNanos = 0L, mapNanos = 0L;
         boolean lastMatched = false;
         for (ComplexProcessHandler handler : processes) {
+            final long begin = tracing ? System.nanoTime() : 0L;
             if (handler instanceof IProcessFilter) {
                 lastMatched = ((IProcessFilter) handler).doFilter(channel, record);
+                if (tracing) {
+                    filterNanos += System.nanoTime() - begin;
+                }
                 if (!lastMatched) {
                     break;
                 }
             } else if (handler instanceof IProcessMapper) {
                 record = ((IProcessMapper) handler).doMap(channel, record);
+                if (tracing) {
+                    mapNanos += System.nanoTime() - begin;
+                }
+            }
+        }
+        if (tracing) {
+            recorder.recordNanos(Stage.FILTER, channel.getId(), filterNanos);
+            if (lastMatched) {
+                recorder.recordNanos(Stage.MAP, channel.getId(), mapNanos);
             }
         }
         return new ComplexProcessResult(lastMatched, record);
@@ -19,7 +19,6 @@ package com.wl4g.streamconnect.stream.process;
 
 import com.wl4g.streamconnect.config.ChannelInfo;
 import com.wl4g.streamconnect.framework.NamedStreamConnectSpi;
-import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
@@ -27,7 +26,9 @@ import lombok.extern.slf4j.Slf4j;
 import java.util.Collection;
 
 /**
- * The {@link ComplexProcessHandler}
+ * The {@link ComplexProcessHandler}, the merge conditions are triggered by the assigned channels
+ * changed of registry (see: {@link ComplexProcessChain#onChannelsChanged}), so the implementations
+ * should rebuild only the changed channels state.
  *
  * @author James Wong
  * @since v1.0
@@ -36,20 +37,10 @@ import java.util.Collection;
 @Setter
 @Slf4j
 public abstract class ComplexProcessHandler extends NamedStreamConnectSpi {
-    private long mergeConditionsDelay = 30_000L;
-
-    @Getter(AccessLevel.NONE)
-    @Setter(AccessLevel.NONE)
-    private transient long _lastUpdateTime = 0L;
 
     public synchronized void updateMergeConditions(Collection<ChannelInfo> channels) {
-        if (Math.abs(System.nanoTime()) - _lastUpdateTime > getMergeConditionsDelay()) {
-            log.trace(":: {} :: Updating to merge channel conditions ...", getName());
-            _lastUpdateTime = System.nanoTime();
-            doUpdateMergeConditions(channels);
-        } else {
-            log.debug(":: {} :: Skip update merge channel conditions.", getName());
-        }
+        log.trace(":: {} :: Updating to merge channel conditions ...", getName());
+        doUpdateMergeConditions(channels);
     }
 
     protected abstract void doUpdateMergeConditions(Collection<ChannelInfo> channels);
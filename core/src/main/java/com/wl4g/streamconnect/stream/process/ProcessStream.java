@@ -25,16 +25,18 @@ import com.wl4g.streamconnect.config.ChannelInfo;
 import com.wl4g.streamconnect.config.StreamConnectConfiguration.ConnectorConfig;
 import com.wl4g.streamconnect.config.configurator.IStreamConnectConfigurator;
 import com.wl4g.streamconnect.exception.GiveUpRetryProcessException;
-import com.wl4g.streamconnect.meter.MeterEventHandler.CountMeterEvent;
-import com.wl4g.streamconnect.meter.MeterEventHandler.TimingMeterEvent;
-import com.wl4g.streamconnect.meter.StreamConnectMeter;
+import com.wl4g.streamconnect.exception.StreamConnectException;
+import com.wl4g.streamconnect.meter.StageLatencyRecorder;
+import com.wl4g.streamconnect.meter.StageLatencyRecorder.Stage;
+import com.wl4g.streamconnect.meter.StageLatencyRecorder.TracingMode;
 import com.wl4g.streamconnect.meter.StreamConnectMeter.MetricsName;
 import com.wl4g.streamconnect.stream.AbstractStream;
 import com.wl4g.streamconnect.stream.process.ComplexProcessChain.ComplexProcessResult;
 import com.wl4g.streamconnect.stream.source.SourceStream;
 import com.wl4g.streamconnect.util.Assignments;
 import com.wl4g.streamconnect.util.concurrent.BlockAbortPolicy;
-import com.wl4g.streamconnect.util.concurrent.NamedThreadFactory;
+import com.wl4g.streamconnect.util.concurrent.ExecutionMode;
+import com.wl4g.streamconnect.util.concurrent.KeyAffineExecutor;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -46,30 +48,29 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 
 import javax.validation.constraints.NotNull;
-import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Queue;
-import java.util.concurrent.Callable;
-import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 import static com.wl4g.infra.common.collection.CollectionUtils2.safeList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static java.util.Collections.synchronizedList;
+import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.groupingBy;
-import static java.util.stream.Collectors.toCollection;
 import static java.util.stream.Collectors.toList;
 
 /**
@@ -83,6 +84,7 @@ public class ProcessStream extends AbstractStream {
     private final SourceStream sourceStream;
     private final ThreadPoolExecutor sharedNonSequenceExecutor;
     private final List<ThreadPoolExecutor> isolationSequenceExecutors;
+    private final KeyAffineExecutor keyAffineSequenceExecutor;
     private final Map<String, PointWriter> channelPointWriters = new ConcurrentHashMap<>();
 
     public ProcessStream(@NotNull final StreamContext context,
@@ -92,32 +94,59 @@ public class ProcessStream extends AbstractStream {
 
         // Create the shared filterProvider single executor.
         final ProcessStreamConfig processConfig = getConnectorConfig().getProcessConfig();
-        this.sharedNonSequenceExecutor = new ThreadPoolExecutor(processConfig.getSharedExecutorThreadPoolSize(),
+        final ExecutionMode executionMode = processConfig.getExecutionMode().resolve();
+        this.sharedNonSequenceExecutor = newProcessExecutor(executionMode,
                 processConfig.getSharedExecutorThreadPoolSize(),
-                0L, TimeUnit.MILLISECONDS,
-                new LinkedBlockingQueue<>(processConfig.getSharedExecutorQueueSize()),
-                new NamedThreadFactory("processStream-sharedNonSeq-"),
-                new BlockAbortPolicy());
-        if (processConfig.isExecutorWarmUp()) {
-            this.sharedNonSequenceExecutor.prestartAllCoreThreads();
-        }
+                processConfig.getSharedExecutorQueueSize(),
+                "processStream-sharedNonSeq", processConfig.isExecutorWarmUp());
 
         // Create the sequence filterProvider executors.
         this.isolationSequenceExecutors = synchronizedList(new ArrayList<>(processConfig
                 .getSequenceExecutorsMaxCountLimit()));
-        for (int i = 0; i < processConfig.getSequenceExecutorsMaxCountLimit(); i++) {
-            final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1,
-                    0L, TimeUnit.MILLISECONDS,
-                    new LinkedBlockingQueue<>(processConfig.getSequenceExecutorsPerQueueSize()),
-                    new NamedThreadFactory("processStream-isolationSeq-"),
-                    new BlockAbortPolicy());
-            if (processConfig.isExecutorWarmUp()) {
-                executor.prestartAllCoreThreads();
+        if (processConfig.getSequenceScheduling() == SequenceScheduling.KEY_AFFINE) {
+            // The per-key mailboxes over the small work-stealing pool, bounded by the same total queue size.
+            final int capacity = processConfig.getSequenceExecutorsMaxCountLimit()
+                    * processConfig.getSequenceExecutorsPerQueueSize();
+            if (executionMode == ExecutionMode.VIRTUAL) {
+                final ThreadPoolExecutor workers = newProcessExecutor(executionMode,
+                        processConfig.getSequenceWorkerThreads(), Integer.MAX_VALUE,
+                        "processStream-keyAffineSeq", false);
+                this.keyAffineSequenceExecutor = new KeyAffineExecutor(workers, capacity,
+                        KeyAffineExecutor.DEFAULT_THROUGHPUT);
+            } else {
+                this.keyAffineSequenceExecutor = new KeyAffineExecutor("processStream-keyAffineSeq",
+                        processConfig.getSequenceWorkerThreads(), capacity);
+            }
+        } else {
+            this.keyAffineSequenceExecutor = null;
+            for (int i = 0; i < processConfig.getSequenceExecutorsMaxCountLimit(); i++) {
+                this.isolationSequenceExecutors.add(newProcessExecutor(executionMode, 1,
+                        processConfig.getSequenceExecutorsPerQueueSize(),
+                        "processStream-isolationSeq", processConfig.isExecutorWarmUp()));
             }
-            this.isolationSequenceExecutors.add(executor);
         }
     }
 
+    private static ThreadPoolExecutor newProcessExecutor(ExecutionMode executionMode,
+                                                         int poolSize,
+                                                         int queueSize,
+                                                         String prefix,
+                                                         boolean warmUp) {
+        final boolean virtual = executionMode == ExecutionMode.VIRTUAL;
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize,
+                virtual ? 60_000L : 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueSize),
+                executionMode.newThreadFactory(prefix),
+                new BlockAbortPolicy());
+        if (virtual) {
+            // The pool size is only the concurrency limit, the idle virtual threads are not retained.
+            executor.allowCoreThreadTimeOut(true);
+        } else if (warmUp) {
+            executor.prestartAllCoreThreads();
+        }
+        return executor;
+    }
+
     @Override
     public String getDescription() {
         return String.format("%s(%s)", super.getDescription(),
@@ -152,12 +181,34 @@ public class ProcessStream extends AbstractStream {
                 }
             }
         });
+        if (nonNull(keyAffineSequenceExecutor)) {
+            try {
+                log.info("{} :: Closing key affine filter executor {}...", getConnectorConfig().getName(),
+                        keyAffineSequenceExecutor);
+                keyAffineSequenceExecutor.close();
+                log.info("{} :: Closed key affine filter executor.", getConnectorConfig().getName());
+            } catch (Throwable ex) {
+                log.error(String.format("%s :: Failed to close key affine filter executor %s.",
+                        getConnectorConfig().getName(), keyAffineSequenceExecutor), ex);
+            }
+        }
     }
 
     public Queue<WritePointResult> process(List<? extends MessageRecord<String, Object>> records) {
         return doParallelProcessAndSavepoint(records);
     }
 
+    /**
+     * Records the latency of the write point completed, called by the completion callbacks of source stream.
+     */
+    public void recordWritePointLatency(@NotNull WritePointResult result) {
+        final ChannelRecord cr = result.getRecord();
+        if (cr.getWriteBeginNanoTime() != 0L) {
+            getStageLatencyRecorder().recordSince(Stage.CHECKPOINT_WRITE, cr.getChannel().getId(),
+                    cr.getWriteBeginNanoTime());
+        }
+    }
+
     private Queue<WritePointResult> doParallelProcessAndSavepoint(
             List<? extends MessageRecord<String, Object>> records) {
 
@@ -165,70 +216,33 @@ public class ProcessStream extends AbstractStream {
         final ComplexProcessChain chain = getConnectorConfig().getProcessChain();
 
         // Match wrap to channel records.
-        final List<ChannelRecord> channelRecords = matchToChannelRecords(chain, records);
+        final long matchTimingBegin = System.nanoTime();
+        final List<ChannelRecord> channelRecords = matchToChannelRecords(records);
+        final StageLatencyRecorder recorder = getStageLatencyRecorder();
+        if (recorder.isEnabled()) {
+            for (ChannelRecord cr : channelRecords) {
+                recorder.recordSince(Stage.MATCH, cr.getChannel().getId(), matchTimingBegin);
+            }
+        }
 
         // Add timing process metrics.
         // The benefit of not using lamda records is better use of arthas for troubleshooting during operation.
         final long processTimingBegin = System.nanoTime();
 
         // Execute custom filters in parallel them to different send executor queues.
-        final Queue<ProcessResult> processResults = safeList(channelRecords).stream()
-                .map(cr -> new ProcessResult(cr, determineProcessExecutor(cr)
-                        .submit(buildProcessTask(cr, chain)), 1))
-                .collect(toCollection(ConcurrentLinkedQueue::new));
-
-        // Wait for all parallel processed results to be completed.
+        // Notice: Each record is counted down by its process task only after it has been finally settled
+        // (processed and written, given up or retries exhausted), so that the listener thread can park on
+        // the latch instead of spin-polling the futures.
         final Queue<WritePointResult> writePointResults = new ConcurrentLinkedQueue<>();
-        while (!processResults.isEmpty()) {
-            final ProcessResult pr = processResults.poll();
-            // Notice: is done is not necessarily successful, both exception and cancellation will be done.
-            if (pr.getFuture().isDone()) {
-                ProcessMetadata pm = null;
-                try {
-                    pm = pr.getFuture().get();
-
-                    getEventPublisher().publishEvent(new CountMeterEvent(
-                            MetricsName.process_records_success,
-                            getBasedMeterTags()));
-                } catch (InterruptedException | CancellationException | ExecutionException ex) {
-                    log.error("{} :: Unable to get process result.", getConnectorConfig().getName(), ex);
-
-                    getEventPublisher().publishEvent(new CountMeterEvent(
-                            MetricsName.process_records_failure,
-                            getBasedMeterTags()));
-
-                    if (ex instanceof ExecutionException) {
-                        final Throwable reason = ExceptionUtils.getRootCause(ex);
-                        if (reason instanceof GiveUpRetryProcessException) { // User need giveUp retry
-                            log.warn("{} :: User ask to give up re-trying again process. fr : {}, reason : {}",
-                                    getConnectorConfig().getName(), pr, reason.getMessage());
-                        } else {
-                            getConnectorConfig().getQos().retryIfFail(getConnectorConfig(),
-                                    pr.getRetryTimes(), () -> {
-                                        if (log.isDebugEnabled()) {
-                                            log.debug("{} :: Retry to process. pr : {}", getConnectorConfig().getName(), pr);
-                                        }
-                                        enqueueProcessExecutor(chain, pr, processResults);
-                                    });
-                        }
-                    }
-                }
-                if (nonNull(pm) && pm.isMatched()) {
-                    // Send to processed topic and add sent future If necessary.
-                    // Replace to mapped record(eg: data permission processing).
-                    pr.getRecord().setRecord(pm.getRecord());
-                    final PointWriter pointWriter = obtainChannelPointWriter(pr.getRecord().getChannel());
-                    writePointResults.offer(pointWriter.writeAsync(getConnectorConfig(), pr.getRecord(), 1));
-                }
-            }
-            Thread.yield(); // May give up the CPU
+        final CountDownLatch batchCompletion = new CountDownLatch(channelRecords.size());
+        for (List<ChannelRecord> run : groupToProcessRuns(channelRecords)) {
+            new ProcessTask(chain, run, writePointResults, batchCompletion).submit();
         }
 
-        getEventPublisher().publishEvent(new TimingMeterEvent(
-                MetricsName.process_records_time,
-                StreamConnectMeter.DEFAULT_PERCENTILES,
-                Duration.ofNanos(System.nanoTime() - processTimingBegin),
-                getBasedMeterTags()));
+        // Wait for all parallel processed results to be completed.
+        awaitBatchCompletion(batchCompletion);
+
+        getMeterHandles().recordNanos(MetricsName.process_records_time, processTimingBegin);
 
         // Flush to all records in this batch are committed.
         flushWritePoints(writePointResults);
@@ -239,16 +253,33 @@ public class ProcessStream extends AbstractStream {
         return writePointResults;
     }
 
-    private List<ChannelRecord> matchToChannelRecords(ComplexProcessChain chain,
-                                                      List<? extends MessageRecord<String, Object>> records) {
+    private List<ChannelRecord> matchToChannelRecords(List<? extends MessageRecord<String, Object>> records) {
+        // Notice: The channel conditions of the chain handlers are no longer merged per batch, but rebuilt
+        // by the registry assigned channels changed event, see: StreamConnectEngineBootstrap.
+        if (getConfigurator().isTenantIndexMatchable()) {
+            return doIndexMatchToChannelRecords(getRegistry().getTenantIndex(getConnectorConfig().getName()), records);
+        }
         final Collection<ChannelInfo> assignedChannels = getRegistry().getAssignedChannels(getConnectorConfig().getName());
+        return doMatchToChannelRecords(getConfigurator(), getConnectorConfig(), assignedChannels, records);
+    }
 
-        // Merge subscription server configurations and update to filters.
-        // Notice: According to the consumption processing model design, it is necessary to share getConnectorConfig().getName()
-        // consumption for unified processing, So here, all channel processing rules should be merged.
-        chain.updateMergeConditions(assignedChannels);
+    @VisibleForTesting
+    static List<ChannelRecord> doIndexMatchToChannelRecords(@NotNull Map<String, List<ChannelInfo>> tenantIndex,
+                                                            @NotNull List<? extends MessageRecord<String, Object>> records) {
+        requireNonNull(tenantIndex, "tenantIndex must not be null");
+        requireNonNull(records, "records must not be null");
 
-        return doMatchToChannelRecords(getConfigurator(), getConnectorConfig(), assignedChannels, records);
+        final List<ChannelRecord> channelRecords = new ArrayList<>(records.size());
+        for (MessageRecord<String, Object> record : records) {
+            final String tenantId = IStreamConnectConfigurator.getTenantIdForRecord(record);
+            if (isNull(tenantId)) {
+                continue;
+            }
+            for (ChannelInfo channel : tenantIndex.getOrDefault(tenantId, emptyList())) {
+                channelRecords.add(new ChannelRecord(channel, record));
+            }
+        }
+        return channelRecords;
     }
 
     @VisibleForTesting
@@ -269,40 +300,64 @@ public class ProcessStream extends AbstractStream {
                 .collect(toList());
     }
 
-    private void enqueueProcessExecutor(ComplexProcessChain chain,
-                                        ProcessResult pr,
-                                        Queue<ProcessResult> prsQueue) {
-        if (log.isInfoEnabled()) {
-            log.info("{} :: Re-enqueue and retry processing. pr : {}", getConnectorConfig().getName(), pr);
+    /**
+     * Group the records of the same key of each sequence channel into a run (in order), and the others
+     * (i.e. the non sequence channels) are processed individually.
+     */
+    @VisibleForTesting
+    static Collection<List<ChannelRecord>> groupToProcessRuns(@NotNull List<ChannelRecord> channelRecords) {
+        requireNonNull(channelRecords, "channelRecords must not be null");
+        final Map<String, List<ChannelRecord>> runs = new LinkedHashMap<>();
+        for (int i = 0; i < channelRecords.size(); i++) {
+            final ChannelRecord cr = channelRecords.get(i);
+            if (cr.getChannel().getSettingsSpec().getPolicySpec().isSequence()) {
+                runs.computeIfAbsent(cr.getChannel().getId() + "@" + cr.getRecord().getKey(),
+                        runKey -> new ArrayList<>(4)).add(cr);
+            } else {
+                runs.put(String.valueOf(i), singletonList(cr));
+            }
+        }
+        return runs.values();
+    }
+
+    private void awaitBatchCompletion(CountDownLatch batchCompletion) {
+        try {
+            batchCompletion.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new StreamConnectException(String.format("%s :: Interrupted while waiting for process " +
+                    "batch completion, remaining : %s", getConnectorConfig().getName(), batchCompletion.getCount()), ex);
         }
-        final ChannelRecord cr = pr.getRecord();
-        prsQueue.offer(new ProcessResult(pr.getRecord(),
-                determineProcessExecutor(pr.getRecord()).submit(buildProcessTask(cr, chain)),
-                pr.getRetryTimes() + 1));
     }
 
-    private Callable<ProcessMetadata> buildProcessTask(ChannelRecord cr,
-                                                       ComplexProcessChain chain) {
-        return () -> {
-            final ComplexProcessResult result = chain.process(cr.getChannel(), cr.getRecord());
-            return new ProcessMetadata(result.isMatched(), result.getRecord());
-        };
+    /**
+     * Submit the task without blocking, e.g: on the shared retry timer thread, which must never block.
+     *
+     * @return true if the task has been submitted, or false if the executor is full.
+     */
+    private static boolean tryExecute(Executor executor, Runnable task) {
+        if (executor instanceof KeyAffineExecutor.KeyExecutor) {
+            return ((KeyAffineExecutor.KeyExecutor) executor).tryExecute(task);
+        }
+        return BlockAbortPolicy.tryExecute((ThreadPoolExecutor) executor, task);
     }
 
-    private ThreadPoolExecutor determineProcessExecutor(ChannelRecord record) {
+    private Executor determineProcessExecutor(ChannelRecord record) {
         final ChannelInfo channel = record.getChannel();
         final String key = record.getRecord().getKey();
         return determineTaskExecutor(channel.getId(), channel.getSettingsSpec().getPolicySpec().isSequence(), key);
     }
 
-    private ThreadPoolExecutor determineTaskExecutor(String channelId,
-                                                     boolean isSequence,
-                                                     String key) {
-        ThreadPoolExecutor executor = this.sharedNonSequenceExecutor;
-        if (isSequence) {
+    private Executor determineTaskExecutor(String channelId,
+                                           boolean isSequence,
+                                           String key) {
+        Executor executor = this.sharedNonSequenceExecutor;
+        if (isSequence && nonNull(keyAffineSequenceExecutor)) {
+            executor = keyAffineSequenceExecutor.forKey(key);
+        } else if (isSequence) {
             //final String key = String.valueOf(channel.getId());
             final int index = Assignments.assign(key, isolationSequenceExecutors.size());
-            executor = isolationSequenceExecutors.get((int) index);
+            executor = isolationSequenceExecutors.get(index);
             if (log.isDebugEnabled()) {
                 log.debug("{} :: {} :: determined isolation sequence executor index : {}",
                         getConnectorConfig().getName(), channelId, index);
@@ -311,6 +366,23 @@ public class ProcessStream extends AbstractStream {
         return executor;
     }
 
+    /**
+     * The number of process tasks queued but not yet started, of the shared and all the isolation executors,
+     * or the pending tasks of the key affine executor.
+     */
+    public int getQueuedTaskCount() {
+        int count = sharedNonSequenceExecutor.getQueue().size();
+        if (nonNull(keyAffineSequenceExecutor)) {
+            count += keyAffineSequenceExecutor.getPendingCount();
+        }
+        synchronized (isolationSequenceExecutors) {
+            for (ThreadPoolExecutor executor : isolationSequenceExecutors) {
+                count += executor.getQueue().size();
+            }
+        }
+        return count;
+    }
+
     public PointWriter obtainChannelPointWriter(@NotNull ChannelInfo channel) {
         requireNonNull(channel, "channel");
         return channelPointWriters.computeIfAbsent(channel.getId(), channelId -> {
@@ -336,22 +408,47 @@ public class ProcessStream extends AbstractStream {
         private @Builder.Default int sequenceExecutorsMaxCountLimit = 100;
         private @Builder.Default int sequenceExecutorsPerQueueSize = 100;
         private @Builder.Default boolean executorWarmUp = true;
+        private @Builder.Default SequenceScheduling sequenceScheduling = SequenceScheduling.ISOLATION;
+        private @Builder.Default int sequenceWorkerThreads = Runtime.getRuntime().availableProcessors() * 2;
+        private @Builder.Default TracingMode latencyTracing = TracingMode.CONNECTOR;
+        private @Builder.Default ExecutionMode executionMode = ExecutionMode.PLATFORM;
 
         public void validate() {
             Assert2.isTrueOf(sharedExecutorThreadPoolSize > 0, "sharedExecutorThreadPoolSize > 0");
             Assert2.isTrueOf(sharedExecutorQueueSize > 0, "sharedExecutorQueueSize > 0");
             Assert2.isTrueOf(sequenceExecutorsMaxCountLimit > 0, "sequenceExecutorsMaxCountLimit > 0");
             Assert2.isTrueOf(sequenceExecutorsPerQueueSize > 0, "sequenceExecutorsPerQueueSize > 0");
+            Assert2.notNullOf(latencyTracing, "latencyTracing");
+            Assert2.notNullOf(sequenceScheduling, "sequenceScheduling");
+            Assert2.isTrueOf(sequenceWorkerThreads > 0, "sequenceWorkerThreads > 0");
+            Assert2.notNullOf(executionMode, "executionMode");
         }
     }
 
+    public enum SequenceScheduling {
+        /**
+         * The key is fixed assigned to one of the single thread isolation executors.
+         */
+        ISOLATION,
+
+        /**
+         * The per-key FIFO mailboxes multiplexed over the work-stealing pool of sequence worker threads.
+         */
+        KEY_AFFINE
+    }
+
     @Getter
     @Setter
-    @AllArgsConstructor
     @ToString
     public static class ChannelRecord {
         private ChannelInfo channel;
         private MessageRecord<String, Object> record;
+        private long writeBeginNanoTime;
+
+        public ChannelRecord(ChannelInfo channel, MessageRecord<String, Object> record) {
+            this.channel = channel;
+            this.record = record;
+        }
 
         @Override
         public boolean equals(Object o) {
@@ -371,14 +468,144 @@ public class ProcessStream extends AbstractStream {
         }
     }
 
-    @Getter
-    @Setter
-    @AllArgsConstructor
-    @ToString
-    static class ProcessResult {
-        private ChannelRecord record;
-        private Future<ProcessMetadata> future;
-        private int retryTimes;
+    /**
+     * The process task of a run of records, which settles the records one by one in order, i.e. processing
+     * and writing the checkpoint on the determined executor thread (isolation or key affine executor for the
+     * sequence channel). If failed, the task is re-submitted to the same executor after the QoS backoff by the
+     * retry timer, instead of sleeping on the executor thread, so that the other keys of the executor are not
+     * stalled, and the later records of the same key still wait for the retried record. Notice: The retry timer
+     * never blocks on the full executor, the re-submit is re-scheduled instead.
+     */
+    private final class ProcessTask implements Runnable {
+        private final ComplexProcessChain chain;
+        private final List<ChannelRecord> records;
+        private final Queue<WritePointResult> writePointResults;
+        private final CountDownLatch batchCompletion;
+        private final Executor executor;
+        private int index;
+        private int retryTimes = 1;
+        private ProcessMetadata processed; // The processed of the current record, so as to retry the writing only.
+
+        private ProcessTask(ComplexProcessChain chain,
+                            List<ChannelRecord> records,
+                            Queue<WritePointResult> writePointResults,
+                            CountDownLatch batchCompletion) {
+            this.chain = chain;
+            this.records = records;
+            this.writePointResults = writePointResults;
+            this.batchCompletion = batchCompletion;
+            this.executor = determineProcessExecutor(records.get(0));
+        }
+
+        private void submit() {
+            try {
+                executor.execute(this);
+            } catch (Throwable ex) { // e.g: The executor has been shutdown.
+                abandon(ex);
+            }
+        }
+
+        /**
+         * Re-submit on the retry timer thread, which is re-scheduled if the executor is full, instead of blocking.
+         */
+        private void resubmit(int retryTimes) {
+            final boolean submitted;
+            try {
+                submitted = tryExecute(executor, this);
+            } catch (Throwable ex) { // e.g: The executor has been shutdown.
+                abandon(ex);
+                return;
+            }
+            if (submitted) {
+                return;
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("{} :: Re-scheduling retry process of the executor full. retryTimes : {}",
+                        getConnectorConfig().getName(), retryTimes);
+            }
+            if (!getConnectorConfig().getQos().scheduleRetryIfFail(getConnectorConfig(), retryTimes,
+                    () -> resubmit(retryTimes))) {
+                // Rarely, e.g: The QoS has been changed since the retry scheduled.
+                submit();
+            }
+        }
+
+        private void abandon(Throwable ex) {
+            log.error("{} :: Unable to submit process task. records : {}", getConnectorConfig().getName(),
+                    records.subList(index, records.size()), ex);
+            for (; index < records.size(); index++) {
+                batchCompletion.countDown();
+            }
+        }
+
+        @Override
+        public void run() {
+            while (index < records.size()) {
+                if (!settle(records.get(index))) {
+                    return; // The retry has been scheduled.
+                }
+                this.index++;
+                this.retryTimes = 1;
+                this.processed = null;
+                batchCompletion.countDown();
+            }
+        }
+
+        /**
+         * @return true if the record has been settled, or false if the retry has been scheduled.
+         */
+        private boolean settle(ChannelRecord cr) {
+            try {
+                if (isNull(processed)) {
+                    final ComplexProcessResult result = chain.process(cr.getChannel(), cr.getRecord(),
+                            getStageLatencyRecorder());
+                    getMeterHandles().increment(MetricsName.process_records_success);
+                    this.processed = new ProcessMetadata(result.isMatched(), result.getRecord());
+                }
+                if (processed.isMatched()) {
+                    // Send to processed topic and add sent future If necessary.
+                    // Replace to mapped record(eg: data permission processing).
+                    cr.setRecord(processed.getRecord());
+                    final PointWriter pointWriter = obtainChannelPointWriter(cr.getChannel());
+                    cr.setWriteBeginNanoTime(System.nanoTime());
+                    writePointResults.offer(pointWriter.writeAsync(getConnectorConfig(), cr, 1));
+                }
+                return true;
+            } catch (Throwable ex) {
+                final boolean writing = nonNull(processed);
+                log.error("{} :: Unable to {} record. cr : {}, retryTimes : {}", getConnectorConfig().getName(),
+                        writing ? "write" : "process", cr, retryTimes, ex);
+
+                getMeterHandles().increment(writing ? MetricsName.checkpoint_write_failure
+                        : MetricsName.process_records_failure);
+
+                // e.g: User need giveUp retry, or the malformed record value could not be read.
+                final int giveUpIndex = ExceptionUtils.indexOfType(ex, GiveUpRetryProcessException.class);
+                if (giveUpIndex >= 0) {
+                    log.warn("{} :: Give up re-trying again process. cr : {}, reason : {}",
+                            getConnectorConfig().getName(), cr, ExceptionUtils.getThrowables(ex)[giveUpIndex].getMessage());
+                    return true;
+                }
+                final int _retryTimes = retryTimes++;
+                try {
+                    if (getConnectorConfig().getQos().scheduleRetryIfFail(getConnectorConfig(), _retryTimes, () -> {
+                        if (log.isDebugEnabled()) {
+                            log.debug("{} :: Retry to process. cr : {}, retryTimes : {}",
+                                    getConnectorConfig().getName(), cr, _retryTimes);
+                        }
+                        resubmit(_retryTimes);
+                    })) {
+                        return false;
+                    }
+                } catch (Throwable th) {
+                    log.error(String.format("%s :: Unable to schedule retry process. cr : %s",
+                            getConnectorConfig().getName(), cr), th);
+                }
+                log.warn("{} :: Give up to process record of retries exhausted. cr : {}, retryTimes : {}",
+                        getConnectorConfig().getName(), cr, _retryTimes);
+                return true;
+            }
+        }
     }
 
     @Getter
@@ -19,26 +19,35 @@ package com.wl4g.streamconnect.stream.process.filter;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.wl4g.streamconnect.config.ChannelInfo;
+import com.wl4g.streamconnect.config.ChannelInfo.RuleSpec;
 import com.wl4g.streamconnect.stream.AbstractStream.MessageRecord;
 import com.wl4g.streamconnect.util.expression.ExpressionOperator;
+import com.wl4g.streamconnect.util.expression.ExpressionOperator.CompiledOperator;
 import com.wl4g.streamconnect.util.expression.ExpressionOperator.LogicalOperator;
 import com.wl4g.streamconnect.util.expression.ExpressionOperator.LogicalType;
 import com.wl4g.streamconnect.util.expression.ExpressionOperator.OperatorType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import static com.wl4g.infra.common.collection.CollectionUtils2.safeList;
 import static com.wl4g.infra.common.serialize.JacksonUtils.parseJSON;
-import static java.util.Objects.requireNonNull;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 
 /**
  * The standard filter, support data permission filtering based on aviator
- * expression record.
+ * expression record. The conditions are compiled per channel and cached by
+ * the channel ID and the version of its rules, so that each record is only
+ * evaluated against the operator of the channel it has been matched to.
  *
  * @author James Wong
  * @since v1.0
@@ -48,7 +57,7 @@ public class StandardExprProcessFilter extends AbstractProcessFilter {
 
     public static final String TYPE_NAME = "STANDARD_EXPR_FILTER";
 
-    private ExpressionOperator operator;
+    private final Map<String, ChannelOperator> channelOperators = new ConcurrentHashMap<>(16);
 
     @Override
     public String getType() {
@@ -57,45 +66,83 @@ public class StandardExprProcessFilter extends AbstractProcessFilter {
 
     @Override
     protected void doUpdateMergeConditions(Collection<ChannelInfo> channels) {
-        final LogicalOperator rootOperator = new LogicalOperator();
-        rootOperator.setName("__ROOT_OPERATOR__");
-        rootOperator.setType(OperatorType.LOGICAL.name());
-        rootOperator.setLogical(LogicalType.OR);
-
-        // Merge to all channel filter conditions.
-        final List<ExpressionOperator> subConditions = safeList(channels)
+        final Map<String, ChannelInfo> newChannels = safeList(channels)
                 .stream()
-                .flatMap(s ->
-                        // Merge multiple conditions for each channel (granted policies, may is cross tenant)
-                        safeList(s.getSettingsSpec().getPolicySpec().getRules())
-                                .stream()
-                                .map(sga -> {
-                                    if (StringUtils.isBlank(sga.getRecordFilter())) {
-                                        throw new IllegalArgumentException(String.format("Could not match expression filter " +
-                                                "named '%s' was found from the channel '%s' properties", getName(), s.getId()));
-                                    }
-                                    return parseJSON(sga.getRecordFilter(), ExpressionOperator.class);
-                                })
-                                .filter(Objects::nonNull))
-                .collect(Collectors.toList());
+                .collect(Collectors.toMap(StandardExprProcessFilter::getChannelKey, c -> c, (c1, c2) -> c2));
 
-        rootOperator.setSubConditions(subConditions);
+        // Evict the operators of the unassigned channels.
+        channelOperators.keySet().removeIf(channelKey -> !newChannels.containsKey(channelKey));
 
-        this.operator = rootOperator;
+        // Recompile only the operators of the new or changed channels.
+        newChannels.forEach((channelKey, channel) -> {
+            final List<String> version = getRulesVersion(channel);
+            final ChannelOperator existing = channelOperators.get(channelKey);
+            if (isNull(existing) || !existing.getVersion().equals(version)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("{} :: {} :: Compiling the channel filter operator ...", getName(), channel.getId());
+                }
+                channelOperators.put(channelKey, compileChannelOperator(channel, version));
+            }
+        });
     }
 
     @Override
     public boolean doFilter(ChannelInfo channel,
                             MessageRecord<String, Object> record) {
-        requireNonNull(operator, String.format("%s :: %s :: The configuration of the standard expression match operator has not been injected !",
-                getName(), channel.getId()));
         if (record.getValue() instanceof JsonNode) {
-            // TODO BUG，不同channel的rules会混乱:: 要么改为 operatorMap，要么每个channel对应一个operator（最好把Configurator#matchToChannelRecord合并到此，即每个channel对应一个chain对象）
-            return operator.apply((JsonNode) record.getValue());
+            ChannelOperator channelOperator = channelOperators.get(getChannelKey(channel));
+            if (isNull(channelOperator)) {
+                // The channel has been assigned but not yet merged, e.g: the merge conditions delayed.
+                channelOperator = channelOperators.computeIfAbsent(getChannelKey(channel),
+                        channelKey -> compileChannelOperator(channel, getRulesVersion(channel)));
+            }
+            return channelOperator.getOperator().test((JsonNode) record.getValue());
         } else {
             throw new UnsupportedOperationException(String.format("%s :: %s :: The type of the record value is not supported!",
                     getName(), channel.getId()));
         }
     }
 
+    private ChannelOperator compileChannelOperator(ChannelInfo channel, List<String> version) {
+        final LogicalOperator rootOperator = new LogicalOperator();
+        rootOperator.setName("__CHANNEL_OPERATOR__");
+        rootOperator.setType(OperatorType.LOGICAL.name());
+        rootOperator.setLogical(LogicalType.OR);
+
+        // Merge multiple conditions of the channel (granted policies, may is cross tenant)
+        final List<ExpressionOperator> subConditions = version
+                .stream()
+                .map(recordFilter -> {
+                    if (StringUtils.isBlank(recordFilter)) {
+                        throw new IllegalArgumentException(String.format("Could not match expression filter " +
+                                "named '%s' was found from the channel '%s' properties", getName(), channel.getId()));
+                    }
+                    return parseJSON(recordFilter, ExpressionOperator.class);
+                })
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        rootOperator.setSubConditions(subConditions);
+
+        return new ChannelOperator(version, rootOperator.compile());
+    }
+
+    static String getChannelKey(ChannelInfo channel) {
+        // The channel ID is required by validation, but it may be absent when created directly.
+        return nonNull(channel.getId()) ? channel.getId() : "";
+    }
+
+    static List<String> getRulesVersion(ChannelInfo channel) {
+        return safeList(channel.getSettingsSpec().getPolicySpec().getRules())
+                .stream()
+                .map(RuleSpec::getRecordFilter)
+                .collect(Collectors.toList());
+    }
+
+    @Getter
+    @AllArgsConstructor
+    static class ChannelOperator {
+        private final List<String> version;
+        private final CompiledOperator operator;
+    }
+
 }
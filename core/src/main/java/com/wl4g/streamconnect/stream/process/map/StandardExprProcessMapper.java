@@ -65,7 +65,13 @@ public class StandardExprProcessMapper extends AbstractProcessMapper {
     private JQConfig jqConfig = new JQConfig();
 
     @JsonIgnore
-    private transient Map<String, Map<String, JsonQuery>> cachedJQs = new ConcurrentHashMap<>(16);
+    private transient volatile Map<String, Map<String, JsonQuery>> cachedJQs = new ConcurrentHashMap<>(16);
+
+    /**
+     * The field filter expressions of the compiled JQs (i.e. the version), channelId -> tenantId -> expr.
+     */
+    @JsonIgnore
+    private transient volatile Map<String, Map<String, String>> cachedJQExprs = new ConcurrentHashMap<>(16);
 
     @JsonIgnore
     private transient final ThreadLocal<Scope> scopeLocal = ThreadLocal.withInitial(() -> {
@@ -88,25 +94,38 @@ public class StandardExprProcessMapper extends AbstractProcessMapper {
 
     @Override
     protected void doUpdateMergeConditions(Collection<ChannelInfo> channels) {
-        final Map<String, Map<String, JsonQuery>> newJQs = safeList(channels)
+        final Map<String, Map<String, String>> newExprs = safeList(channels)
                 .stream()
                 .collect(toMap(ChannelInfo::getId,
                         s -> safeList(s.getSettingsSpec().getPolicySpec().getRules())
                                 .stream()
                                 .filter(p -> isNotBlank(p.getFieldFilter()))
-                                .collect(toMap(RuleSpec::getTenantId,
-                                        p -> {
-                                            try {
-                                                return JsonQuery.compile(p.getFieldFilter());
-                                            } catch (Throwable ex) {
-                                                throw new StreamConnectException(String.format("Failed to compile JQ expr : %s",
-                                                        p.getFieldFilter()), ex);
-                                            }
-                                        }))));
-
-        Map<String, Map<String, JsonQuery>> oldJQs = this.cachedJQs;
+                                .collect(toMap(RuleSpec::getTenantId, RuleSpec::getFieldFilter))));
+
+        // Recompile only the JQs of the new or changed channels.
+        final Map<String, Map<String, JsonQuery>> oldJQs = this.cachedJQs;
+        final Map<String, Map<String, String>> oldExprs = this.cachedJQExprs;
+        final Map<String, Map<String, JsonQuery>> newJQs = new ConcurrentHashMap<>(Math.max(16, newExprs.size()));
+        newExprs.forEach((channelId, exprs) -> {
+            final Map<String, JsonQuery> existing = oldJQs.get(channelId);
+            if (nonNull(existing) && exprs.equals(oldExprs.get(channelId))) {
+                newJQs.put(channelId, existing);
+            } else {
+                newJQs.put(channelId, exprs.entrySet()
+                        .stream()
+                        .collect(toMap(Map.Entry::getKey, e -> {
+                            try {
+                                return JsonQuery.compile(e.getValue());
+                            } catch (Throwable ex) {
+                                throw new StreamConnectException(String.format("Failed to compile JQ expr : %s",
+                                        e.getValue()), ex);
+                            }
+                        })));
+            }
+        });
+
         this.cachedJQs = newJQs;
-        oldJQs = null;
+        this.cachedJQExprs = newExprs;
     }
 
     @Override
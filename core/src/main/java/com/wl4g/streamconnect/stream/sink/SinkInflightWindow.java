@@ -0,0 +1,241 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.stream.sink;
+
+import com.wl4g.infra.common.lang.Assert2;
+import com.wl4g.streamconnect.util.concurrent.NamedThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The {@link SinkInflightWindow}, the bounded in-flight window of the sink records of a channel. The read batches
+ * are registered in order, each sink record holds a slot of the window until it has been settled by its completion
+ * callback (i.e. completed, or given up after the retries scheduled by QoS), and the settled batches are acknowledged
+ * strictly in order of reading on the acknowledge executor as the watermark advances, so that the reader thread can
+ * go on to poll the next batch while the previous batches are still in flight, and is only blocked when the window
+ * is full (i.e. back pressure).
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+@Slf4j
+public class SinkInflightWindow<T> {
+    private final int capacity;
+    private final Semaphore permits;
+    private final Executor acknowledgeExecutor;
+    // Guarded by itself, the batches in order of reading, the head is the watermark.
+    private final Deque<InflightBatch> batches = new ArrayDeque<>();
+    private final AtomicInteger acknowledgeSignals = new AtomicInteger(0);
+
+    public SinkInflightWindow(@Min(1) int capacity) {
+        this(capacity, AcknowledgeExecutor.INSTANCE);
+    }
+
+    public SinkInflightWindow(@Min(1) int capacity,
+                              @NotNull Executor acknowledgeExecutor) {
+        Assert2.isTrueOf(capacity > 0, "capacity > 0");
+        this.capacity = capacity;
+        this.permits = new Semaphore(capacity);
+        this.acknowledgeExecutor = requireNonNull(acknowledgeExecutor, "acknowledgeExecutor must not be null");
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getInflightCount() {
+        return capacity - permits.availablePermits();
+    }
+
+    public int getPendingBatchCount() {
+        synchronized (batches) {
+            return batches.size();
+        }
+    }
+
+    /**
+     * Begin the batch of reading, the {@code onSettled} is invoked after this batch and all the earlier batches
+     * have been settled, in order of beginning.
+     */
+    public InflightBatch begin(@Min(0) int size,
+                               @NotNull Consumer<InflightBatch> onSettled) {
+        Assert2.isTrueOf(size >= 0, "size >= 0");
+        final InflightBatch batch = new InflightBatch(size, requireNonNull(onSettled, "onSettled must not be null"));
+        synchronized (batches) {
+            batches.addLast(batch);
+        }
+        if (size == 0) {
+            signalAcknowledge();
+        }
+        return batch;
+    }
+
+    /**
+     * Acquire the slots of records to be sent, blocking while the window is full.
+     */
+    public void acquire(@Min(1) int slots) throws InterruptedException {
+        Assert2.isTrueOf(slots > 0 && slots <= capacity, "slots > 0 && slots <= capacity");
+        permits.acquire(slots);
+    }
+
+    /**
+     * Wait for all the begun batches to be settled and acknowledged.
+     *
+     * @return true if all settled, otherwise false (i.e. timeout).
+     */
+    public boolean awaitSettled(long timeout, @NotNull TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (batches) {
+            while (!batches.isEmpty()) {
+                final long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMs <= 0) {
+                    return false;
+                }
+                batches.wait(remainingMs);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Ensure only one acknowledging drain runs at a time (per window), and the signals arrived while
+     * draining are coalesced into another drain loop.
+     */
+    private void signalAcknowledge() {
+        if (acknowledgeSignals.getAndIncrement() == 0) {
+            acknowledgeExecutor.execute(this::drainSettled);
+        }
+    }
+
+    private void drainSettled() {
+        int missed = 1;
+        for (; ; ) {
+            for (; ; ) {
+                final InflightBatch head;
+                synchronized (batches) {
+                    head = batches.peekFirst();
+                    if (isNull(head) || !head.isSettled()) {
+                        break;
+                    }
+                    batches.pollFirst();
+                }
+                try {
+                    head.onSettled.accept(head);
+                } catch (Throwable ex) {
+                    log.error("Failed to acknowledge settled sink batch.", ex);
+                } finally {
+                    synchronized (batches) {
+                        batches.notifyAll();
+                    }
+                }
+            }
+            missed = acknowledgeSignals.addAndGet(-missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+
+    public class InflightBatch {
+        private final AtomicInteger pending;
+        private final Consumer<InflightBatch> onSettled;
+        private final Queue<T> completed = new ConcurrentLinkedQueue<>();
+        private final Queue<T> givenUp = new ConcurrentLinkedQueue<>();
+
+        private InflightBatch(int size, Consumer<InflightBatch> onSettled) {
+            this.pending = new AtomicInteger(size);
+            this.onSettled = onSettled;
+        }
+
+        public void complete(@NotNull T result) {
+            completed.offer(requireNonNull(result, "result must not be null"));
+            settleOne();
+        }
+
+        public void giveUp(@NotNull T result) {
+            givenUp.offer(requireNonNull(result, "result must not be null"));
+            settleOne();
+        }
+
+        /**
+         * Abandon the records that failed to be sent before acquiring slots (e.g: interrupted), they are
+         * settled as given up without releasing the slots.
+         */
+        public void abandon(@Min(0) int unsent) {
+            Assert2.isTrueOf(unsent >= 0, "unsent >= 0");
+            if (unsent > 0 && pending.addAndGet(-unsent) <= 0) {
+                signalAcknowledge();
+            }
+        }
+
+        public boolean isSettled() {
+            return pending.get() <= 0;
+        }
+
+        public Queue<T> getCompleted() {
+            return completed;
+        }
+
+        public Queue<T> getGivenUp() {
+            return givenUp;
+        }
+
+        private void settleOne() {
+            permits.release();
+            if (pending.decrementAndGet() == 0) {
+                signalAcknowledge();
+            }
+        }
+    }
+
+    /**
+     * The shared acknowledge executor of all windows, the acknowledging of each window is serial.
+     */
+    static final class AcknowledgeExecutor {
+        static final ThreadPoolExecutor INSTANCE;
+
+        static {
+            final int poolSize = Math.max(2, Runtime.getRuntime().availableProcessors());
+            final NamedThreadFactory threadFactory = new NamedThreadFactory("sinkStream-acknowledger");
+            INSTANCE = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), r -> {
+                final Thread t = threadFactory.newThread(r);
+                t.setDaemon(true);
+                return t;
+            });
+            INSTANCE.allowCoreThreadTimeOut(true);
+        }
+    }
+
+}
@@ -17,17 +17,22 @@
 
 package com.wl4g.streamconnect.stream.sink;
 
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.wl4g.infra.common.lang.Assert2;
 import com.wl4g.streamconnect.checkpoint.ICheckpoint;
 import com.wl4g.streamconnect.config.ChannelInfo;
+import com.wl4g.streamconnect.exception.StreamConnectException;
 import com.wl4g.streamconnect.framework.NamedStreamConnectSpi;
-import com.wl4g.streamconnect.meter.MeterEventHandler.CountMeterEvent;
-import com.wl4g.streamconnect.meter.MeterEventHandler.TimingMeterEvent;
+import com.wl4g.streamconnect.meter.StageLatencyRecorder;
+import com.wl4g.streamconnect.meter.StageLatencyRecorder.Stage;
 import com.wl4g.streamconnect.meter.StreamConnectMeter.MetricsName;
 import com.wl4g.streamconnect.meter.StreamConnectMeter.MetricsTag;
 import com.wl4g.streamconnect.stream.AbstractStream;
 import com.wl4g.streamconnect.stream.StreamConnectEngineBootstrap.StreamBootstrap;
+import com.wl4g.streamconnect.util.concurrent.NamedThreadFactory;
 import lombok.AllArgsConstructor;
+import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -38,19 +43,24 @@ import lombok.extern.slf4j.Slf4j;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import java.time.Duration;
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Queue;
-import java.util.Set;
 import java.util.concurrent.CancellationException;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
 import static com.wl4g.infra.common.collection.CollectionUtils2.safeList;
-import static com.wl4g.streamconnect.meter.StreamConnectMeter.DEFAULT_PERCENTILES;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 import static java.util.Objects.requireNonNull;
-import static java.util.stream.Collectors.toCollection;
 
 /**
  * The {@link SinkStream}
@@ -61,8 +71,12 @@ import static java.util.stream.Collectors.toCollection;
 @Getter
 @Slf4j
 public abstract class SinkStream extends AbstractStream {
+    public static final Duration DEFAULT_CLOSE_SETTLED_TIMEOUT = Duration.ofSeconds(30);
+
     private final ChannelInfo channel;
     private final ICheckpoint.PointReader pointReader;
+    private volatile SinkInflightWindow<SinkResult> inflightWindow;
+    private volatile ThreadPoolExecutor retryExecutor;
 
     public SinkStream(@NotNull final StreamContext context,
                       @NotNull final ChannelInfo channel) {
@@ -85,11 +99,79 @@ public abstract class SinkStream extends AbstractStream {
     @Override
     public void close() {
         this.pointReader.close();
+        // Wait for the in-flight sinks to be settled before the sink producers are closed.
+        final SinkInflightWindow<SinkResult> window = this.inflightWindow;
+        if (nonNull(window)) {
+            try {
+                if (!window.awaitSettled(DEFAULT_CLOSE_SETTLED_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                    log.warn("{} :: {} :: Timeout waiting for the in-flight sinks to be settled, remaining : {}",
+                            getConnectorConfig().getName(), channel.getId(), window.getInflightCount());
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        final ThreadPoolExecutor executor = this.retryExecutor;
+        if (nonNull(executor)) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * The window is created lazily, because the sink stream config is not yet available in this constructor.
+     */
+    protected SinkInflightWindow<SinkResult> obtainInflightWindow() {
+        SinkInflightWindow<SinkResult> window = this.inflightWindow;
+        if (isNull(window)) {
+            synchronized (this) {
+                window = this.inflightWindow;
+                if (isNull(window)) {
+                    this.inflightWindow = window = new SinkInflightWindow<>(getSinkStreamConfig().getMaxInflightRecords());
+                }
+            }
+        }
+        return window;
+    }
+
+    /**
+     * The executor of the sink retries and the waiting for the plain futures, because the sinks may block (e.g:
+     * the producer is full of buffer), which must not run on the shared QoS retry timer or the callback threads.
+     */
+    protected ThreadPoolExecutor obtainRetryExecutor() {
+        ThreadPoolExecutor executor = this.retryExecutor;
+        if (isNull(executor)) {
+            synchronized (this) {
+                executor = this.retryExecutor;
+                if (isNull(executor)) {
+                    final int parallelism = getSinkStreamConfig().getParallelism();
+                    executor = new ThreadPoolExecutor(parallelism, parallelism, 60_000L, TimeUnit.MILLISECONDS,
+                            new LinkedBlockingQueue<>(), // Bounded by the in-flight window.
+                            new NamedThreadFactory("sinkStream-retry"));
+                    executor.allowCoreThreadTimeOut(true);
+                    this.retryExecutor = executor;
+                }
+            }
+        }
+        return executor;
     }
 
     protected abstract SinkResult doSink(MessageRecord<String, Object> processedRecord,
                                          int retryTimes);
 
+    /**
+     * Sink the batch of records, the sinks supported batch send (e.g: RocketMQ, JDBC) should override it. The
+     * results must correspond one to one to the records in the same order, so that the partial failures can be
+     * retried per record by {@link #doSink}. By default, fall back to sink record by record.
+     */
+    protected List<SinkResult> doSinkBatch(List<? extends MessageRecord<String, Object>> processedRecords,
+                                           int retryTimes) {
+        final List<SinkResult> results = new ArrayList<>(processedRecords.size());
+        for (MessageRecord<String, Object> record : processedRecords) {
+            results.add(doSink(record, retryTimes));
+        }
+        return results;
+    }
+
     @Getter
     @Setter
     @SuperBuilder
@@ -97,11 +179,13 @@ public abstract class SinkStream extends AbstractStream {
     @NoArgsConstructor
     public static abstract class SinkStreamConfig extends BaseStreamConfig {
         private @NotBlank String qos; // Only valid for sink write to remote.
+        private @Builder.Default int maxInflightRecords = 10_000; // The in-flight sink records limit per channel.
 
         @Override
         public void validate() {
             super.validate();
             Assert2.hasTextOf(qos, "qos");
+            Assert2.isTrueOf(maxInflightRecords > 0, "maxInflightRecords > 0");
         }
     }
 
@@ -114,6 +198,43 @@ public abstract class SinkStream extends AbstractStream {
         private MessageRecord<String, Object> record;
         private Future<?> future;
         private int retryTimes;
+
+        /**
+         * Register the sink completion callback. If the future is a {@link CompletableFuture} or
+         * {@link ListenableFuture} (e.g: completed by the producer callback), it's invoked on completion,
+         * otherwise the plain future is waited for on the async executor instead of the caller thread.
+         */
+        public void whenComplete(@NotNull BiConsumer<Object, Throwable> action,
+                                 @NotNull Executor asyncExecutor) {
+            requireNonNull(action, "action must not be null");
+            requireNonNull(asyncExecutor, "asyncExecutor must not be null");
+            if (future instanceof CompletableFuture) {
+                ((CompletableFuture<?>) future).whenComplete((result, ex) -> action.accept(result,
+                        ex instanceof CompletionException && nonNull(ex.getCause()) ? ex.getCause() : ex));
+            } else if (future instanceof ListenableFuture) {
+                ((ListenableFuture<?>) future).addListener(() -> getAndAccept(action), MoreExecutors.directExecutor());
+            } else if (future.isDone()) {
+                getAndAccept(action);
+            } else {
+                asyncExecutor.execute(() -> getAndAccept(action));
+            }
+        }
+
+        private void getAndAccept(BiConsumer<Object, Throwable> action) {
+            Object result = null;
+            Throwable error = null;
+            try {
+                result = future.get();
+            } catch (ExecutionException ex) {
+                error = ex.getCause();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                error = ex;
+            } catch (Throwable ex) {
+                error = ex;
+            }
+            action.accept(result, error);
+        }
     }
 
     class AcknowledgeSinkListener extends ICheckpoint.ReadPointListener {
@@ -123,118 +244,145 @@ public abstract class SinkStream extends AbstractStream {
             if (log.isDebugEnabled()) {
                 log.debug("Read to checkpoint records : {}, channel : {}", records, channel);
             }
-            final Queue<SinkResult> sinkResults = safeList(records)
-                    .stream()
-                    .map(record -> doSink(record, 1))
-                    .collect(toCollection(ConcurrentLinkedQueue::new));
-
-            if (getConnectorConfig().getQos().supportRetry(getConnectorConfig())) {
-                final Set<SinkResult> sentResults = new HashSet<>(sinkResults.size());
-                while (!sinkResults.isEmpty()) {
-                    final SinkResult sr = sinkResults.poll();
-                    // Notice: is done is not necessarily successful, both exception and
-                    // cancellation will be done.
-                    if (sr.getFuture().isDone()) {
-                        Object rm;
-                        try {
-                            rm = sr.getFuture().get();
-                            sentResults.add(sr);
-                            if (log.isDebugEnabled()) {
-                                log.debug("{} :: {} :: Sink record metadata : {}", getConnectorConfig().getName(),
-                                        channel.getId(), rm);
-                            }
-                            getEventPublisher().publishEvent(new CountMeterEvent(
-                                    MetricsName.sink_records_success,
-                                    getBasedMeterTags()));
-                        } catch (InterruptedException | CancellationException | ExecutionException ex) {
-                            log.error("{} :: {} :: Unable not to getting sink result.",
-                                    getConnectorConfig().getName(), channel.getId(), ex);
-
-                            getEventPublisher().publishEvent(new CountMeterEvent(
-                                    MetricsName.sink_records_failure,
-                                    getBasedMeterTags()));
-
-                            if (ex instanceof ExecutionException) {
-                                getConnectorConfig().getQos().retryIfFail(getConnectorConfig(),
-                                        sr.getRetryTimes(), () -> {
-                                            if (log.isDebugEnabled()) {
-                                                log.debug("{} :: Retrying to sink : {}", getConnectorConfig().getName(), sr);
-                                            }
-                                            sinkResults.offer(doSink(sr.getRecord(), sr.getRetryTimes() + 1));
-                                        });
-                            }
-                        }
-                    }
-                    Thread.yield(); // May give up the CPU
+            final List<? extends MessageRecord<String, Object>> batch = safeList(records);
+            final SinkInflightWindow<SinkResult> window = obtainInflightWindow();
+            final long readNanoTime = System.nanoTime();
+            final StageLatencyRecorder recorder = getStageLatencyRecorder();
+            if (recorder.isEnabled()) {
+                for (MessageRecord<String, Object> record : batch) {
+                    recorder.recordSinceTimestamp(Stage.CHECKPOINT_READ, channel.getId(), record.getTimestamp());
                 }
+            }
 
-                // e.g: According to the records of each partition, only submit the part of
-                // this batch that has been successively successful from the earliest.
-                if (getConnectorConfig().getQos().supportPreferAcknowledge(getConnectorConfig())) {
-                    getPointReader().preferAutoAcknowledge(sentResults);
-                } else {
-                    // After the maximum retries, there may still be records of processing failures.
-                    // At this time, the ack commit is forced and the failures are ignored.
-                    final long acknowledgeTimingBegin = System.nanoTime();
-                    try {
-                        if (log.isDebugEnabled()) {
-                            log.debug("{} :: {} :: Batch sent acknowledging ...",
-                                    getConnectorConfig().getName(),
-                                    channel.getId());
-                        }
-                        ack.run();
-                        if (log.isInfoEnabled()) {
-                            log.info("{} :: {} :: Sent acknowledged.", getConnectorConfig().getName(),
-                                    channel.getId());
-                        }
-                        getPointReader().addAcknowledgeCountMeter(MetricsName.acknowledge_success,
-                                sentResults);
-                    } catch (Throwable ex) {
-                        log.error(String.format("%s :: Failed to sent success acknowledge.",
-                                channel.getId()), ex);
-                        getPointReader().addAcknowledgeCountMeter(MetricsName.acknowledge_failure,
-                                sentResults);
-                    } finally {
-                        getEventPublisher().publishEvent(new TimingMeterEvent(
-                                MetricsName.acknowledge_time,
-                                DEFAULT_PERCENTILES,
-                                Duration.ofNanos(System.nanoTime() - acknowledgeTimingBegin),
-                                getBasedMeterTags(),
-                                MetricsTag.ACK_KIND,
-                                MetricsTag.ACK_KIND_VALUE_COMMIT));
+            // Notice: The sink results are settled by the completion callbacks (e.g: producer I/O thread), the
+            // failed sinks are handed off by the QoS retry timer to the retry executor and re-sent, and the batch
+            // is acknowledged in order of reading when the watermark advances over it, so that this reader thread
+            // can go on polling the next batch and is only blocked while the in-flight window is full.
+            final SinkInflightWindow<SinkResult>.InflightBatch inflightBatch = window.begin(batch.size(),
+                    settled -> acknowledgeSettled(settled, ack));
+            int sent = 0;
+            try {
+                while (sent < batch.size()) {
+                    final List<? extends MessageRecord<String, Object>> chunk = batch.subList(sent,
+                            Math.min(batch.size(), sent + window.getCapacity()));
+                    window.acquire(chunk.size());
+                    for (SinkResult sr : doSinkBatchSafely(chunk)) {
+                        trackSinkResult(sr, inflightBatch, readNanoTime);
                     }
+                    sent += chunk.size();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                inflightBatch.abandon(batch.size() - sent);
+                throw new StreamConnectException(String.format("%s :: %s :: Interrupted while waiting for sink " +
+                        "in-flight window, unsent : %s", getConnectorConfig().getName(), channel.getId(),
+                        batch.size() - sent), ex);
+            }
+        }
+
+        private List<SinkResult> doSinkBatchSafely(List<? extends MessageRecord<String, Object>> chunk) {
+            try {
+                final List<SinkResult> results = doSinkBatch(chunk, 1);
+                Assert2.isTrueOf(results.size() == chunk.size(), "results.size() == records.size()");
+                return results;
+            } catch (Throwable ex) {
+                log.error(String.format("%s :: %s :: Failed to sink batch of %s records.",
+                        getConnectorConfig().getName(), channel.getId(), chunk.size()), ex);
+                // Settles each record of this chunk by the retries (if supported).
+                final List<SinkResult> results = new ArrayList<>(chunk.size());
+                for (MessageRecord<String, Object> record : chunk) {
+                    final CompletableFuture<Object> future = new CompletableFuture<>();
+                    future.completeExceptionally(ex);
+                    results.add(new SinkResult(record, future, 1));
                 }
+                return results;
             }
-            // If retry is not supported, it means that the SLA requirements
-            // are low and data losses are allowed and commit it directly.
-            else {
-                final long acknowledgeTimingBegin = System.nanoTime();
-                try {
+        }
+
+        private void trackSinkResult(SinkResult sr,
+                                     SinkInflightWindow<SinkResult>.InflightBatch inflightBatch,
+                                     long readNanoTime) {
+            final ThreadPoolExecutor retryExecutor = obtainRetryExecutor();
+            sr.whenComplete((rm, ex) -> {
+                if (isNull(ex)) {
                     if (log.isDebugEnabled()) {
-                        log.debug("{} :: {} :: Batch regardless of success or failure force acknowledging ...",
-                                getConnectorConfig().getName(), channel.getId());
+                        log.debug("{} :: {} :: Sink record metadata : {}", getConnectorConfig().getName(),
+                                channel.getId(), rm);
                     }
-                    ack.run();
-                    if (log.isInfoEnabled()) {
-                        log.info("{} :: {} :: Force sent to acknowledged.", getConnectorConfig().getName(),
-                                channel.getId());
+                    getMeterHandles().increment(MetricsName.sink_records_success);
+                    final StageLatencyRecorder recorder = getStageLatencyRecorder();
+                    if (recorder.isEnabled()) {
+                        recorder.recordSince(Stage.SINK_ACK, channel.getId(), readNanoTime);
+                        recorder.recordSinceTimestamp(Stage.END_TO_END, channel.getId(), sr.getRecord().getTimestamp());
                     }
-                    getPointReader().addAcknowledgeCountMeter(MetricsName.acknowledge_success,
-                            sinkResults);
-                } catch (Throwable ex) {
-                    log.error(String.format("%s :: %s :: Failed to sent force acknowledge for %s",
-                            getConnectorConfig().getName(), channel.getId(), ack), ex);
-                    getPointReader().addAcknowledgeCountMeter(MetricsName.acknowledge_failure,
-                            sinkResults);
-                } finally {
-                    getEventPublisher().publishEvent(new TimingMeterEvent(
-                            MetricsName.acknowledge_time,
-                            DEFAULT_PERCENTILES,
-                            Duration.ofNanos(System.nanoTime() - acknowledgeTimingBegin),
-                            getBasedMeterTags(),
-                            MetricsTag.ACK_KIND,
-                            MetricsTag.ACK_KIND_VALUE_COMMIT));
+                    inflightBatch.complete(sr);
+                    return;
+                }
+                log.error("{} :: {} :: Unable not to getting sink result.",
+                        getConnectorConfig().getName(), channel.getId(), ex);
+
+                getMeterHandles().increment(MetricsName.sink_records_failure);
+
+                // If retry is not supported, it means that the SLA requirements are low and data losses are allowed.
+                if (ex instanceof CancellationException || ex instanceof InterruptedException
+                        || !getConnectorConfig().getQos().supportRetry(getConnectorConfig())) {
+                    inflightBatch.giveUp(sr);
+                    return;
+                }
+                // Notice: The timer only hands off the retry, because the sink may block (e.g: the producer is full).
+                final boolean scheduled = getConnectorConfig().getQos().scheduleRetryIfFail(getConnectorConfig(),
+                        sr.getRetryTimes(), retryExecutor, () -> {
+                            if (log.isDebugEnabled()) {
+                                log.debug("{} :: Retrying to sink : {}", getConnectorConfig().getName(), sr);
+                            }
+                            try {
+                                trackSinkResult(doSink(sr.getRecord(), sr.getRetryTimes() + 1), inflightBatch,
+                                        readNanoTime);
+                            } catch (Throwable th) {
+                                log.error(String.format("%s :: %s :: Failed to retry sink : %s",
+                                        getConnectorConfig().getName(), channel.getId(), sr), th);
+                                inflightBatch.giveUp(sr);
+                            }
+                        });
+                if (!scheduled) {
+                    inflightBatch.giveUp(sr);
+                }
+            }, retryExecutor);
+        }
+
+        private void acknowledgeSettled(SinkInflightWindow<SinkResult>.InflightBatch settled,
+                                        Runnable ack) {
+            final Queue<SinkResult> sentResults = settled.getCompleted();
+            // e.g: According to the records of each partition, only submit the part of
+            // this batch that has been successively successful from the earliest.
+            if (getConnectorConfig().getQos().supportRetry(getConnectorConfig())
+                    && getConnectorConfig().getQos().supportPreferAcknowledge(getConnectorConfig())) {
+                getPointReader().preferAutoAcknowledge(sentResults, settled.getGivenUp());
+                return;
+            }
+            // After the maximum retries (or if retry is not supported), there may still be records of
+            // processing failures. At this time, the ack commit is forced and the failures are ignored.
+            final long acknowledgeTimingBegin = System.nanoTime();
+            try {
+                if (log.isDebugEnabled()) {
+                    log.debug("{} :: {} :: Batch sent acknowledging ...", getConnectorConfig().getName(),
+                            channel.getId());
+                }
+                ack.run();
+                if (log.isInfoEnabled()) {
+                    log.info("{} :: {} :: Sent acknowledged.", getConnectorConfig().getName(),
+                            channel.getId());
                 }
+                getPointReader().addAcknowledgeCountMeter(MetricsName.acknowledge_success,
+                        sentResults);
+            } catch (Throwable ex) {
+                log.error(String.format("%s :: %s :: Failed to sent success acknowledge.",
+                        getConnectorConfig().getName(), channel.getId()), ex);
+                getPointReader().addAcknowledgeCountMeter(MetricsName.acknowledge_failure,
+                        sentResults);
+            } finally {
+                getMeterHandles().tagged(MetricsTag.ACK_KIND, MetricsTag.ACK_KIND_VALUE_COMMIT)
+                        .recordNanos(MetricsName.acknowledge_time, acknowledgeTimingBegin);
             }
         }
     }
@@ -19,18 +19,29 @@ package com.wl4g.streamconnect.util;
 
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
-import static com.wl4g.streamconnect.util.Crc32Util.compute;
-import static java.lang.Math.abs;
+import static com.wl4g.streamconnect.util.FastHash.jumpConsistentHash;
+import static com.wl4g.streamconnect.util.FastHash.mix64;
 import static java.util.Objects.isNull;
 
 /**
- * The {@link Assignments}
+ * The {@link Assignments}, the key is hashed allocation-free and assigned by the jump consistent hashing,
+ * so that only the minimal keys are moved when the parallelism changes.
+ * <p>
+ * Notice: The {@link String#hashCode()} is cached of the string, which is usually hashed repeatedly for
+ * the same record key (e.g: the mailbox and the producer determined), and the jump consistent hash of
+ * the buckets are precomputed per parallelism, so that the assignment is only one table lookup.
  *
  * @author James Wong
  * @since v1.0
  **/
 public abstract class Assignments {
+    static final int BUCKET_BITS = 16;
+    static final int MAX_CACHED_PARALLELISM = 1024;
+    private static final AtomicReferenceArray<char[]> BUCKET_SLOTS =
+            new AtomicReferenceArray<>(MAX_CACHED_PARALLELISM + 1);
+
     public static int assign(@NotBlank String key, @Min(1) int parallelism) {
         if (isNull(key) || key.isEmpty()) {
             throw new IllegalArgumentException(String.format("Key must not be empty, but actual: %s", key));
@@ -39,7 +50,23 @@ public abstract class Assignments {
             throw new IllegalArgumentException(String.format("Must be parallelism <= 0, but actual: %s",
                     parallelism));
         }
-        final long crcValue = abs(compute(key));
-        return (int) abs(crcValue % parallelism);
+        final long hash = mix64(key.hashCode());
+        if (parallelism > MAX_CACHED_PARALLELISM) {
+            return jumpConsistentHash(hash, parallelism);
+        }
+        return obtainBucketSlots(parallelism)[(int) (hash >>> (Long.SIZE - BUCKET_BITS))];
+    }
+
+    private static char[] obtainBucketSlots(int parallelism) {
+        char[] slots = BUCKET_SLOTS.get(parallelism);
+        if (isNull(slots)) {
+            // Notice: The racing computes are the same, so it doesn't matter which is cached.
+            slots = new char[1 << BUCKET_BITS];
+            for (int bucket = 0; bucket < slots.length; bucket++) {
+                slots[bucket] = (char) jumpConsistentHash(mix64(bucket), parallelism);
+            }
+            BUCKET_SLOTS.set(parallelism, slots);
+        }
+        return slots;
     }
 }
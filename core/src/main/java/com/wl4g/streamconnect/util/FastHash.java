@@ -0,0 +1,62 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.util;
+
+import javax.validation.constraints.Min;
+
+/**
+ * The {@link FastHash}, the allocation-free non-cryptographic hashing, i.e. the murmur3 finalizer mixing
+ * and the jump consistent hashing, which only moves the minimal keys to the new slot when the slots count
+ * changes.
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+public abstract class FastHash {
+    /**
+     * The jump consistent hash, see: https://arxiv.org/abs/1406.2294
+     *
+     * @return the slot in [0, slots)
+     */
+    public static int jumpConsistentHash(long key, @Min(1) int slots) {
+        if (slots <= 0) {
+            throw new IllegalArgumentException(String.format("Must be slots > 0, but actual: %s", slots));
+        }
+        long b = -1L;
+        long j = 0L;
+        while (j < slots) {
+            b = j;
+            key = key * 2862933555777941757L + 1L;
+            j = (long) ((b + 1L) * ((double) (1L << 31) / (double) ((key >>> 33) + 1L)));
+        }
+        return (int) b;
+    }
+
+    /**
+     * The murmur3 finalizer, e.g: to scramble the {@link String#hashCode()} which is cached of the string.
+     */
+    public static long mix64(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+}
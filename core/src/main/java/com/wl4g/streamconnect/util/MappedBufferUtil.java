@@ -0,0 +1,91 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * The {@link MappedBufferUtil}, unmap the direct (e.g: memory-mapped) buffer explicitly instead of waiting for
+ * GC, i.e. the cleaner of buffer via reflection on Java 8, or the {@code sun.misc.Unsafe#invokeCleaner} on 9+.
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+@Slf4j
+public abstract class MappedBufferUtil {
+    private static final Unmapper UNMAPPER = createUnmapper();
+
+    /**
+     * Unmap the buffer, which must never be accessed after that (including its duplicates), otherwise the JVM
+     * may crash.
+     *
+     * @return false if not supported, and then the buffer is released by GC.
+     */
+    public static boolean unmap(ByteBuffer buffer) {
+        if (isNull(buffer) || !buffer.isDirect() || isNull(UNMAPPER)) {
+            return false;
+        }
+        try {
+            UNMAPPER.unmap(buffer);
+            return true;
+        } catch (Throwable ex) {
+            log.warn("Failed to unmap the buffer, it will be released by GC. reason : {}", ex.toString());
+            return false;
+        }
+    }
+
+    private static Unmapper createUnmapper() {
+        try {
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            try {
+                // Java 9+
+                final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                final Object unsafe = theUnsafe.get(null);
+                return buffer -> invokeCleaner.invoke(unsafe, buffer);
+            } catch (NoSuchMethodException ex) {
+                // Java 8
+                final Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+                final Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+                return buffer -> {
+                    final Object bufferCleaner = cleaner.invoke(buffer);
+                    if (nonNull(bufferCleaner)) {
+                        clean.invoke(bufferCleaner);
+                    }
+                };
+            }
+        } catch (Throwable ex) {
+            log.warn("Unsupported to unmap the buffer explicitly, it will be released by GC. reason : {}", ex.toString());
+            return null;
+        }
+    }
+
+    @FunctionalInterface
+    interface Unmapper {
+        void unmap(ByteBuffer buffer) throws Throwable;
+    }
+
+}
@@ -39,4 +39,22 @@ public class BlockAbortPolicy implements RejectedExecutionHandler {
                     "Rejected to task %s with %s", r, e));
         }
     }
+
+    /**
+     * Non-blocking variant of the {@link ThreadPoolExecutor#execute} with this policy, the task is queued only
+     * if the queue is not full, e.g: for the callers that must never block (such as the shared retry timer).
+     *
+     * @return true if the task has been queued, or false if the queue is full.
+     */
+    public static boolean tryExecute(ThreadPoolExecutor e, Runnable r) {
+        if (e.isShutdown()) {
+            throw new RejectedExecutionException(String.format("Rejected to task %s with %s", r, e));
+        }
+        if (!e.getQueue().offer(r)) {
+            return false;
+        }
+        // Start a worker if necessary, e.g: the idle core threads have been timed out (of the virtual threads).
+        e.prestartCoreThread();
+        return true;
+    }
 }
@@ -0,0 +1,139 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.util.concurrent;
+
+import com.wl4g.infra.common.lang.Assert2;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The {@link ExecutionMode}, the threads of the process tasks and the blocking checkpoint read (sink) workers.
+ * <p>
+ * Notice: The build is still targeted to JDK 8, so the virtual threads (JDK 21+) are created by the reflection,
+ * and it's fallback to the platform threads if the running JVM is not supported.
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+@Slf4j
+public enum ExecutionMode {
+
+    /**
+     * The pool sizes are the count of the platform threads.
+     */
+    PLATFORM,
+
+    /**
+     * The pool sizes are the concurrency limits of the virtual threads, which are only created on demand.
+     */
+    VIRTUAL;
+
+    /**
+     * Resolve to the actual mode of the running JVM.
+     */
+    public ExecutionMode resolve() {
+        if (this == VIRTUAL && !isVirtualThreadSupported()) {
+            if (VirtualThreadHolder.FALLBACK_WARNED.compareAndSet(false, true)) {
+                log.warn("The virtual threads are not supported of the running JVM '{}', fallback to platform threads.",
+                        System.getProperty("java.version"));
+            }
+            return PLATFORM;
+        }
+        return this;
+    }
+
+    /**
+     * Create the thread factory of the resolved mode, the threads are named by '{prefix}-{n}' in both modes,
+     * which is the same as the {@link NamedThreadFactory}.
+     */
+    public ThreadFactory newThreadFactory(@NotBlank String prefix) {
+        Assert2.hasTextOf(prefix, "prefix");
+        if (resolve() == VIRTUAL) {
+            return VirtualThreadHolder.newThreadFactory(prefix);
+        }
+        return new NamedThreadFactory(prefix);
+    }
+
+    public Thread newThread(@NotNull Runnable task, @NotBlank String name) {
+        requireNonNull(task, "task must not be null");
+        Assert2.hasTextOf(name, "name");
+        if (resolve() == VIRTUAL) {
+            final Thread t = VirtualThreadHolder.newThreadFactory(name).newThread(task);
+            t.setName(name);
+            return t;
+        }
+        return new Thread(task, name);
+    }
+
+    public static boolean isVirtualThreadSupported() {
+        return nonNull(VirtualThreadHolder.OF_VIRTUAL);
+    }
+
+    /**
+     * The reflective bridge of {@code Thread.ofVirtual().name(prefix, start).factory()}
+     */
+    static final class VirtualThreadHolder {
+        static final Method OF_VIRTUAL;
+        static final Method NAME;
+        static final Method FACTORY;
+        static final AtomicBoolean FALLBACK_WARNED = new AtomicBoolean(false);
+
+        static {
+            Method ofVirtual = null, name = null, factory = null;
+            try {
+                final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+                ofVirtual = Thread.class.getMethod("ofVirtual");
+                name = builderClass.getMethod("name", String.class, long.class);
+                factory = builderClass.getMethod("factory");
+                // e.g: The preview feature of JDK 19/20 is not enabled.
+                ((ThreadFactory) factory.invoke(ofVirtual.invoke(null))).newThread(() -> {
+                });
+            } catch (Throwable ex) {
+                ofVirtual = null;
+                if (log.isDebugEnabled()) {
+                    log.debug("The virtual threads are not available. - {}", ex.toString());
+                }
+            }
+            OF_VIRTUAL = ofVirtual;
+            NAME = name;
+            FACTORY = factory;
+        }
+
+        static ThreadFactory newThreadFactory(String prefix) {
+            if (isNull(OF_VIRTUAL)) {
+                throw new UnsupportedOperationException("The virtual threads are not supported");
+            }
+            try {
+                return (ThreadFactory) FACTORY.invoke(NAME.invoke(OF_VIRTUAL.invoke(null), prefix + "-", 1L));
+            } catch (Exception ex) {
+                throw new IllegalStateException(String.format("Failed to create virtual thread factory of '%s'",
+                        prefix), ex);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,286 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.util.concurrent;
+
+import com.wl4g.infra.common.lang.Assert2;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.io.Closeable;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The {@link KeyAffineExecutor}, the tasks of the same key are queued into a FIFO mailbox and executed
+ * one by one in order, while the mailboxes of different keys are multiplexed over a small work-stealing
+ * pool, so that the idle workers pick up the mailboxes of other keys instead of being pinned by the
+ * hot keys (as the fixed key to single thread executor assignment).
+ * <p>
+ * Notice: The mailbox is created on the first task of the key and removed once it's drained, and the
+ * pending tasks are bounded by the capacity, the submitter is blocked when full, just like the
+ * {@link BlockAbortPolicy}.
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+@Slf4j
+public class KeyAffineExecutor implements Closeable {
+    public static final int DEFAULT_THROUGHPUT = 64;
+
+    private final Map<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final ExecutorService workers;
+    private final Semaphore permits;
+    private final @Getter int capacity;
+    private final @Getter int throughput;
+
+    public KeyAffineExecutor(@NotBlank String prefix,
+                             @Min(1) int parallelism,
+                             @Min(1) int capacity) {
+        this(prefix, parallelism, capacity, DEFAULT_THROUGHPUT);
+    }
+
+    /**
+     * @param prefix      the worker thread name prefix.
+     * @param parallelism the workers of the work-stealing pool.
+     * @param capacity    the max pending tasks of all the mailboxes.
+     * @param throughput  the max tasks executed of a mailbox per scheduling, for fairness between keys.
+     */
+    public KeyAffineExecutor(@NotBlank String prefix,
+                             @Min(1) int parallelism,
+                             @Min(1) int capacity,
+                             @Min(1) int throughput) {
+        this(newWorkStealingPool(prefix, parallelism), capacity, throughput);
+    }
+
+    /**
+     * @param workers    the workers that the mailboxes are scheduled to, e.g: the virtual threads.
+     * @param capacity   the max pending tasks of all the mailboxes.
+     * @param throughput the max tasks executed of a mailbox per scheduling, for fairness between keys.
+     */
+    public KeyAffineExecutor(@NotNull ExecutorService workers,
+                             @Min(1) int capacity,
+                             @Min(1) int throughput) {
+        Assert2.isTrueOf(capacity > 0, "capacity > 0");
+        Assert2.isTrueOf(throughput > 0, "throughput > 0");
+        this.workers = requireNonNull(workers, "workers must not be null");
+        this.permits = new Semaphore(capacity);
+        this.capacity = capacity;
+        this.throughput = throughput;
+    }
+
+    /**
+     * Execute the task after all the previously submitted tasks of the same key.
+     */
+    public void execute(@NotBlank String key, @NotNull Runnable task) {
+        Assert2.hasTextOf(key, "key");
+        requireNonNull(task, "task must not be null");
+        if (workers.isShutdown()) {
+            throw new RejectedExecutionException(String.format("Rejected to task %s with %s", task, this));
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException(String.format("Rejected to task %s with %s", task, this));
+        }
+        enqueue(key, task);
+    }
+
+    /**
+     * Non-blocking variant of {@link #execute(String, Runnable)}, e.g: for the callers that must never block.
+     *
+     * @return true if the task has been queued, or false if the pending tasks have reached the capacity.
+     */
+    public boolean tryExecute(@NotBlank String key, @NotNull Runnable task) {
+        Assert2.hasTextOf(key, "key");
+        requireNonNull(task, "task must not be null");
+        if (workers.isShutdown()) {
+            throw new RejectedExecutionException(String.format("Rejected to task %s with %s", task, this));
+        }
+        if (!permits.tryAcquire()) {
+            return false;
+        }
+        enqueue(key, task);
+        return true;
+    }
+
+    /**
+     * Obtain the executor view of the key, e.g: for {@link java.util.concurrent.CompletableFuture#supplyAsync}
+     */
+    public KeyExecutor forKey(@NotBlank String key) {
+        return new KeyExecutor(key);
+    }
+
+    /**
+     * The number of the pending (queued or running) tasks of all the mailboxes.
+     */
+    public int getPendingCount() {
+        return capacity - permits.availablePermits();
+    }
+
+    public int getMailboxCount() {
+        return mailboxes.size();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return workers.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public void close() {
+        workers.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s(workers=%s, mailboxes=%s, available=%s)", getClass().getSimpleName(),
+                workers, mailboxes.size(), permits.availablePermits());
+    }
+
+    private void enqueue(String key, Runnable task) {
+        final Mailbox[] scheduling = new Mailbox[1];
+        mailboxes.compute(key, (k, mailbox) -> {
+            if (isNull(mailbox)) {
+                mailbox = new Mailbox(k);
+            }
+            mailbox.tasks.offer(task);
+            if (!mailbox.scheduled) {
+                mailbox.scheduled = true;
+                scheduling[0] = mailbox;
+            }
+            return mailbox;
+        });
+        if (!isNull(scheduling[0])) {
+            try {
+                workers.execute(scheduling[0]);
+            } catch (RejectedExecutionException ex) { // e.g: The workers have been shutdown.
+                abort(scheduling[0]);
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Drop the queued tasks of the mailbox which could not be scheduled, and release their permits, so that
+     * the submitters are not blocked by the permits of the tasks that will never be executed.
+     */
+    private void abort(Mailbox mailbox) {
+        final int[] dropped = new int[1];
+        mailboxes.compute(mailbox.key, (k, current) -> {
+            while (!isNull(mailbox.tasks.poll())) {
+                permits.release();
+                ++dropped[0];
+            }
+            mailbox.scheduled = false;
+            return current == mailbox ? null : current;
+        });
+        log.warn("Dropped the {} queued tasks of key '{}', because the mailbox could not be scheduled to {}",
+                dropped[0], mailbox.key, workers);
+    }
+
+    private static ForkJoinPool newWorkStealingPool(String prefix, int parallelism) {
+        Assert2.hasTextOf(prefix, "prefix");
+        Assert2.isTrueOf(parallelism > 0, "parallelism > 0");
+        final AtomicInteger threads = new AtomicInteger(1);
+        return new ForkJoinPool(parallelism, p -> {
+            final ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName(prefix + "-" + threads.getAndIncrement());
+            return t;
+        }, (t, ex) -> log.error(String.format("Uncaught exception of key affine worker %s", t), ex),
+                true); // FIFO async mode for the event-style tasks that are never joined.
+    }
+
+    /**
+     * The executor view of a key.
+     */
+    public final class KeyExecutor implements Executor {
+        private final String key;
+
+        private KeyExecutor(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void execute(@NotNull Runnable task) {
+            KeyAffineExecutor.this.execute(key, task);
+        }
+
+        public boolean tryExecute(@NotNull Runnable task) {
+            return KeyAffineExecutor.this.tryExecute(key, task);
+        }
+    }
+
+    private class Mailbox implements Runnable {
+        private final String key;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private boolean scheduled; // Guarded by the compute of mailboxes.
+
+        private Mailbox(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < throughput; i++) {
+                final Runnable task = tasks.poll();
+                if (isNull(task)) {
+                    break;
+                }
+                try {
+                    task.run();
+                } catch (Throwable ex) {
+                    log.error(String.format("Failed to execute task of key '%s'", key), ex);
+                } finally {
+                    permits.release();
+                }
+            }
+            // Removed if drained, otherwise re-scheduled to the tail, so as to fair with the other keys.
+            final Mailbox remaining = mailboxes.compute(key, (k, mailbox) -> {
+                if (tasks.isEmpty()) {
+                    scheduled = false;
+                    return null;
+                }
+                return mailbox;
+            });
+            if (!isNull(remaining)) {
+                try {
+                    workers.execute(this);
+                } catch (RejectedExecutionException ex) { // e.g: The workers have been shutdown.
+                    abort(this);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.util.concurrent;
+
+import com.wl4g.infra.common.lang.Assert2;
+import lombok.Getter;
+
+import javax.validation.constraints.NotNull;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The {@link WatermarkBackpressure}, the queue depth aware flow control with hysteresis, which
+ * invokes the pauser once the backlog reaches the high watermark, and the resumer only after the
+ * backlog has fallen back to the low watermark, so as not to flap on the boundary.
+ * <p>
+ * Notice: The backlog is acquired by the producing thread (e.g: kafka listener thread) and released
+ * by the settling threads, the transitions are serialized, and the callbacks must be non-blocking.
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+public class WatermarkBackpressure {
+    private final @Getter long highWatermark;
+    private final @Getter long lowWatermark;
+    private final Runnable pauser;
+    private final Runnable resumer;
+    private final AtomicLong backlog = new AtomicLong();
+    private volatile @Getter boolean paused;
+
+    public WatermarkBackpressure(long highWatermark,
+                                 long lowWatermark,
+                                 @NotNull Runnable pauser,
+                                 @NotNull Runnable resumer) {
+        Assert2.isTrueOf(highWatermark > 0, "highWatermark > 0");
+        Assert2.isTrueOf(lowWatermark >= 0 && lowWatermark < highWatermark, "0 <= lowWatermark < highWatermark");
+        this.highWatermark = highWatermark;
+        this.lowWatermark = lowWatermark;
+        this.pauser = requireNonNull(pauser, "pauser must not be null");
+        this.resumer = requireNonNull(resumer, "resumer must not be null");
+    }
+
+    /**
+     * Add the backlog, e.g: the records dispatched. If it's already paused, the pauser is re-invoked,
+     * e.g: to pause the partitions newly assigned after rebalanced.
+     *
+     * @return true if it's paused after acquired.
+     */
+    public boolean acquire(long permits) {
+        Assert2.isTrueOf(permits >= 0, "permits >= 0");
+        final long current = backlog.addAndGet(permits);
+        // Fast path without lock, the paused flag must be read after the backlog updated.
+        if (!paused && current < highWatermark) {
+            return false;
+        }
+        synchronized (this) {
+            if (!settle() && paused) {
+                pauser.run();
+            }
+            return paused;
+        }
+    }
+
+    /**
+     * Subtract the backlog, e.g: the records settled.
+     */
+    public void release(long permits) {
+        Assert2.isTrueOf(permits >= 0, "permits >= 0");
+        final long current = backlog.addAndGet(-permits);
+        if (!paused || current > lowWatermark) {
+            return;
+        }
+        synchronized (this) {
+            settle();
+        }
+    }
+
+    public long getBacklog() {
+        return backlog.get();
+    }
+
+    /**
+     * Re-check until stable, since the backlog may be changed concurrently during the transition.
+     *
+     * @return true if the pauser has been invoked.
+     */
+    private boolean settle() {
+        boolean pauserInvoked = false;
+        for (; ; ) {
+            final long backlog = this.backlog.get();
+            if (!paused && backlog >= highWatermark) {
+                paused = true;
+                pauser.run();
+                pauserInvoked = true;
+            } else if (paused && backlog <= lowWatermark) {
+                paused = false;
+                resumer.run();
+                pauserInvoked = false;
+            } else {
+                return pauserInvoked;
+            }
+        }
+    }
+
+}
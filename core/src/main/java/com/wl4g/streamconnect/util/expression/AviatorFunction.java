@@ -20,13 +20,14 @@ package com.wl4g.streamconnect.util.expression;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonPointer;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.googlecode.aviator.AviatorEvaluator;
 import com.googlecode.aviator.Expression;
 import com.googlecode.aviator.exception.CompileExpressionErrorException;
 import com.googlecode.aviator.exception.ExpressionSyntaxErrorException;
 import com.wl4g.infra.common.collection.CollectionUtils2;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
@@ -53,7 +54,14 @@ import static org.apache.commons.lang3.StringUtils.*;
 @Getter
 public class AviatorFunction implements Function<JsonNode, Boolean> {
     private final String expression;
-    private @JsonIgnore Expression compiledExpression;
+    private @JsonIgnore volatile Expression compiledExpression;
+    @Getter(AccessLevel.NONE)
+    private @JsonIgnore VariableAccessor[] variableAccessors;
+    /**
+     * The reused variables environment of each evaluating thread, to avoid allocating per record.
+     */
+    @Getter(AccessLevel.NONE)
+    private final @JsonIgnore transient ThreadLocal<Map<String, Object>> variablesHolder = ThreadLocal.withInitial(HashMap::new);
 
     @JsonCreator
     public AviatorFunction(@JsonProperty("expression") String expression) {
@@ -70,8 +78,13 @@ public class AviatorFunction implements Function<JsonNode, Boolean> {
         if (isNull(compiledExpression)) {
             synchronized (this) {
                 if (isNull(compiledExpression)) {
-                    this.compiledExpression =
+                    final Expression compiled =
                             notNullOf(AviatorEvaluator.compile(expression, false), "compiledExpression");
+                    this.variableAccessors = CollectionUtils2.safeList(compiled.getVariableFullNames())
+                            .stream()
+                            .map(VariableAccessor::compile)
+                            .toArray(VariableAccessor[]::new);
+                    this.compiledExpression = compiled;
                 }
             }
         }
@@ -80,25 +93,32 @@ public class AviatorFunction implements Function<JsonNode, Boolean> {
 
     @Override
     public Boolean apply(JsonNode record) {
-        final List<String> variableNames = getCompiledExpression().getVariableFullNames();
-        if (CollectionUtils2.isEmpty(variableNames)) {
+        return test(record);
+    }
+
+    public boolean test(JsonNode record) {
+        final Expression compiled = getCompiledExpression();
+        final VariableAccessor[] accessors = variableAccessors;
+        if (accessors.length == 0) {
             return true;
         }
 
-        final Map<String, Object> variables = new HashMap<>();
-        for (String variableName : variableNames) {
-            final Object value = extractWithExprPath(record, ".".concat(variableName));
-            if (nonNull(value)) {
-                variables.put(variableName, value);
-            } else {
-                final String errmsg = format("Unable to get path expr value '%s' from event: %s",
-                        variableName, record);
-                log.warn(errmsg);
-                // throw new IllegalArgumentException(errmsg);
+        final Map<String, Object> variables = variablesHolder.get();
+        try {
+            for (VariableAccessor accessor : accessors) {
+                final Object value = accessor.extract(record);
+                if (nonNull(value)) {
+                    variables.put(accessor.name, value);
+                } else if (log.isWarnEnabled()) {
+                    log.warn(format("Unable to get path expr value '%s' from event: %s", accessor.name, record));
+                    // throw new IllegalArgumentException(errmsg);
+                }
             }
+            return (Boolean) compiled.execute(variables);
+        } finally {
+            // Release the references of record values.
+            variables.clear();
         }
-
-        return (Boolean) getCompiledExpression().execute(variables);
     }
 
     public static void checkExpression(String expression) {
@@ -110,60 +130,85 @@ public class AviatorFunction implements Function<JsonNode, Boolean> {
         }
     }
 
-    private static Object extractWithExprPath(@NotNull JsonNode record, @NotBlank String jqExpr) {
-        hasTextOf(jqExpr, "jqExpr");
-        if (!startsWith(jqExpr, ".")) {
-            throw new IllegalArgumentException(format("Invalid the jq expr '%s', must start with '.'", jqExpr));
+    /**
+     * The precompiled accessor of the expression variable, the variable path (e.g: 'u.wealth.money',
+     * 'u.tags[0]') is parsed only once into the {@link JsonPointer} and array index.
+     */
+    static final class VariableAccessor {
+        final String name;
+        final JsonPointer pointer;
+        final int arrayIndex;
+
+        VariableAccessor(String name, JsonPointer pointer, int arrayIndex) {
+            this.name = name;
+            this.pointer = pointer;
+            this.arrayIndex = arrayIndex;
         }
 
-        String expr = replaceChars(jqExpr, ".", "/");
-        int arrayIndex = -1;
-        final int start = expr.indexOf("[");
-        final int end = expr.indexOf("]");
-        if (start >= 0 && start < end) {
-            arrayIndex = Integer.parseInt(expr.substring(start + 1, end));
-            expr = expr.substring(0, start);
+        static VariableAccessor compile(@NotBlank String variableName) {
+            hasTextOf(variableName, "variableName");
+            String expr = replaceChars(".".concat(variableName), ".", "/");
+            int arrayIndex = -1;
+            final int start = expr.indexOf("[");
+            final int end = expr.indexOf("]");
+            if (start >= 0 && start < end) {
+                arrayIndex = Integer.parseInt(expr.substring(start + 1, end));
+                expr = expr.substring(0, start);
+            }
+            return new VariableAccessor(variableName, JsonPointer.compile(expr), arrayIndex);
         }
 
-        final JsonNode value = record.at(expr);
-        if (Objects.nonNull(value) && value.isArray()) {
-            if (arrayIndex >= 0) {
-                final JsonNode arrayValue = ((ArrayNode) value).get(arrayIndex);
+        Object extract(@NotNull JsonNode record) {
+            final JsonNode value = record.at(pointer);
+            if (arrayIndex >= 0 && value.isArray()) {
+                final JsonNode arrayValue = value.get(arrayIndex);
                 return nonNull(arrayValue) ? convertValue(arrayValue) : null;
-            } else {
-                return convertValue(value);
             }
+            return convertValue(value);
         }
-        return convertValue(value);
     }
 
-    private static Object convertValue(JsonNode value) {
-        if (value.isMissingNode()) {
-            return null;
-        } else if (value.isTextual()) {
-            return value.textValue();
-        } else if (value.isShort()) {
-            return value.shortValue();
-        } else if (value.isInt()) {
-            return value.intValue();
-        } else if (value.isLong()) {
-            return value.longValue();
-        } else if (value.isBigInteger()) {
-            return value.bigIntegerValue();
-        } else if (value.isBigDecimal()) {
-            return value.decimalValue();
-        } else if (value.isBoolean()) {
-            return value.booleanValue();
-        } else if (value.isArray()) {
-            final List<Object> array = new ArrayList<>(value.size());
-            value.forEach(array::add);
-            return array.toArray();
-        } else if (value.isObject()) {
-            final Map<String, JsonNode> map = new HashMap<>(value.size());
-            value.fieldNames().forEachRemaining(fieldName -> map.put(fieldName, value.get(fieldName)));
-            return map;
+    /**
+     * Convert to the typed value of aviator, the integral numbers are converted directly to {@link Long}
+     * and the floating numbers to {@link Double} (the aviator internal number types), to avoid the
+     * intermediate boxing and widening per evaluation.
+     */
+    static Object convertValue(JsonNode value) {
+        switch (value.getNodeType()) {
+            case MISSING:
+                return null;
+            case STRING:
+                return value.textValue();
+            case BOOLEAN:
+                return value.booleanValue() ? Boolean.TRUE : Boolean.FALSE;
+            case NUMBER:
+                switch (value.numberType()) {
+                    case INT:
+                    case LONG:
+                        return value.longValue();
+                    case FLOAT:
+                    case DOUBLE:
+                        return value.doubleValue();
+                    case BIG_INTEGER:
+                        return value.bigIntegerValue();
+                    case BIG_DECIMAL:
+                        return value.decimalValue();
+                    default:
+                        return value.numberValue();
+                }
+            case ARRAY:
+                final Object[] array = new Object[value.size()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = value.get(i);
+                }
+                return array;
+            case OBJECT:
+                final Map<String, JsonNode> map = new HashMap<>(value.size());
+                value.fields().forEachRemaining(field -> map.put(field.getKey(), field.getValue()));
+                return map;
+            default:
+                return value;
         }
-        return value;
     }
 
-}
\ No newline at end of file
+}
@@ -34,6 +34,7 @@ import lombok.experimental.SuperBuilder;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.function.BiFunction;
 import java.util.function.Function;
@@ -41,6 +42,7 @@ import java.util.function.Function;
 import static com.wl4g.infra.common.collection.CollectionUtils2.safeList;
 import static com.wl4g.infra.common.lang.Assert2.hasTextOf;
 import static com.wl4g.infra.common.lang.Assert2.notNullOf;
+import static java.util.Arrays.asList;
 
 /**
  * The {@link ChannelInfo}
@@ -68,6 +70,20 @@ public abstract class ExpressionOperator implements Function<JsonNode, Boolean>
         OperatorType.of(type);
     }
 
+    /**
+     * Compile this operator tree into the flat and short-circuiting evaluator, the validation is
+     * performed only once here, and the evaluation no longer validates, streams or allocates per record.
+     * Notice: The compiled evaluator is a snapshot, it must be re-compiled after this tree is modified.
+     *
+     * @return compiled evaluator.
+     */
+    public abstract CompiledOperator compile();
+
+    @FunctionalInterface
+    public interface CompiledOperator {
+        boolean test(JsonNode record);
+    }
+
     @Getter
     @AllArgsConstructor
     public enum OperatorType {
@@ -119,6 +135,89 @@ public abstract class ExpressionOperator implements Function<JsonNode, Boolean>
             notNullOf(logical, "logical");
             safeList(subConditions).forEach(ExpressionOperator::validate);
         }
+
+        @Override
+        public CompiledOperator compile() {
+            validate();
+            final List<CompiledOperator> operands = new ArrayList<>(safeList(subConditions).size());
+            for (ExpressionOperator sub : safeList(subConditions)) {
+                final CompiledOperator compiledSub = sub.compile();
+                // Flatten the nested same logical operands, e.g: AND(a, AND(b, c)) => AND(a, b, c)
+                if ((logical == LogicalType.AND && compiledSub instanceof AllMatchOperator)
+                        || (logical == LogicalType.OR && compiledSub instanceof AnyMatchOperator)) {
+                    operands.addAll(asList(((MultiOperandOperator) compiledSub).operands));
+                } else {
+                    operands.add(compiledSub);
+                }
+            }
+            final CompiledOperator[] operandArray = operands.toArray(new CompiledOperator[0]);
+            switch (logical) {
+                case AND:
+                    return operandArray.length == 1 ? operandArray[0] : new AllMatchOperator(operandArray);
+                case OR:
+                    return operandArray.length == 1 ? operandArray[0] : new AnyMatchOperator(operandArray);
+                case NOT:
+                    return new NoneMatchOperator(operandArray);
+                default:
+                    throw new Error(String.format("Unsupported logical type '%s'", logical));
+            }
+        }
+    }
+
+    static abstract class MultiOperandOperator implements CompiledOperator {
+        final CompiledOperator[] operands;
+
+        MultiOperandOperator(CompiledOperator[] operands) {
+            this.operands = operands;
+        }
+    }
+
+    static final class AllMatchOperator extends MultiOperandOperator {
+        AllMatchOperator(CompiledOperator[] operands) {
+            super(operands);
+        }
+
+        @Override
+        public boolean test(JsonNode record) {
+            for (CompiledOperator operand : operands) {
+                if (!operand.test(record)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    static final class AnyMatchOperator extends MultiOperandOperator {
+        AnyMatchOperator(CompiledOperator[] operands) {
+            super(operands);
+        }
+
+        @Override
+        public boolean test(JsonNode record) {
+            for (CompiledOperator operand : operands) {
+                if (operand.test(record)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    static final class NoneMatchOperator extends MultiOperandOperator {
+        NoneMatchOperator(CompiledOperator[] operands) {
+            super(operands);
+        }
+
+        @Override
+        public boolean test(JsonNode record) {
+            for (CompiledOperator operand : operands) {
+                if (operand.test(record)) {
+                    return false;
+                }
+            }
+            return true;
+        }
     }
 
     @Getter
@@ -152,6 +251,14 @@ public abstract class ExpressionOperator implements Function<JsonNode, Boolean>
             super.validate();
             notNullOf(fn, "aviatorFunction");
         }
+
+        @Override
+        public CompiledOperator compile() {
+            validate();
+            final AviatorFunction compiledFn = fn;
+            compiledFn.getCompiledExpression(); // Eager compiling.
+            return compiledFn::test;
+        }
     }
 
 }
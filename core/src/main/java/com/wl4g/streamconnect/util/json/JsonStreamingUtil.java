@@ -0,0 +1,97 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.util.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wl4g.infra.common.lang.Assert2;
+import com.wl4g.streamconnect.exception.GiveUpRetryProcessException;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.Null;
+import java.io.IOException;
+
+import static java.util.Objects.isNull;
+
+/**
+ * The {@link JsonStreamingUtil}, reads the JSON bytes by the streaming parser, so as to avoid the
+ * decoding to string and the full tree allocation, when only a few top level fields are required.
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+public abstract class JsonStreamingUtil {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final JsonFactory FACTORY = MAPPER.getFactory();
+
+    /**
+     * Read the text value of the top level field, the nested objects/arrays are skipped without parsing
+     * their values.
+     *
+     * @param data      the JSON bytes (UTF-8/16/32 auto-detected).
+     * @param fieldName the top level field name.
+     * @return the text value, or null if absent, not text or the data is not a (valid) JSON object, so that
+     * the malformed records are treated as not matched instead of failing (and retrying) the whole batch.
+     */
+    public static String readTopLevelTextField(@Null byte[] data,
+                                               @NotBlank String fieldName) {
+        Assert2.hasTextOf(fieldName, "fieldName");
+        if (isNull(data) || data.length == 0) {
+            return null;
+        }
+        try (JsonParser parser = FACTORY.createParser(data)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                final boolean matched = fieldName.equals(parser.getCurrentName());
+                token = parser.nextToken();
+                if (matched) {
+                    return token == JsonToken.VALUE_STRING ? parser.getText() : null;
+                }
+                parser.skipChildren();
+            }
+            return null;
+        } catch (IOException ex) { // e.g: JsonParseException
+            return null;
+        }
+    }
+
+    /**
+     * Read the JSON bytes to tree.
+     *
+     * @param data the JSON bytes (UTF-8/16/32 auto-detected).
+     * @return the tree, or null if the data is null.
+     * @throws GiveUpRetryProcessException if the data is malformed, since it could never be succeeded by retrying.
+     */
+    public static JsonNode readTree(@Null byte[] data) {
+        if (isNull(data)) {
+            return null;
+        }
+        try {
+            return MAPPER.readTree(data);
+        } catch (IOException ex) {
+            throw new GiveUpRetryProcessException("Failed to read the malformed JSON bytes to tree", ex);
+        }
+    }
+
+}
@@ -0,0 +1,196 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.checkpoint.file;
+
+import com.wl4g.streamconnect.checkpoint.file.PointLogSegment.LogEntry;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The {@link PointLogTests}
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+public class PointLogTests {
+
+    static final byte[] FORMAT = "JSON".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void testAppendVisibleAfterGroupSync() throws Exception {
+        final File directory = Files.createTempDirectory("test-point-log").toFile();
+        try (PointLog pointLog = openPointLog(directory, 64 * 1024)) {
+            final List<CompletableFuture<Long>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                futures.add(pointLog.append("k" + i, 1000L + i, FORMAT, value(i)));
+            }
+            // Not durable and invisible before the group sync.
+            Assertions.assertTrue(pointLog.read(0L, 100).isEmpty());
+            Assertions.assertFalse(futures.get(0).isDone());
+
+            pointLog.sync();
+            for (int i = 0; i < 10; i++) {
+                Assertions.assertEquals(i, futures.get(i).get().longValue());
+            }
+            final List<LogEntry> entries = pointLog.read(3L, 100);
+            Assertions.assertEquals(7, entries.size());
+            Assertions.assertEquals(3L, entries.get(0).getOffset());
+            Assertions.assertEquals("k3", entries.get(0).getKey());
+            Assertions.assertEquals(1003L, entries.get(0).getTimestamp());
+            Assertions.assertEquals("JSON", entries.get(0).getFormat());
+            Assertions.assertArrayEquals(value(3), entries.get(0).getValue());
+        }
+    }
+
+    @Test
+    public void testRollSegmentsAndRecover() throws Exception {
+        final File directory = Files.createTempDirectory("test-point-log").toFile();
+        try (PointLog pointLog = openPointLog(directory, 2048)) {
+            for (int i = 0; i < 200; i++) {
+                pointLog.append(null, i, FORMAT, value(i));
+            }
+            pointLog.sync();
+            Assertions.assertTrue(pointLog.getSegments().size() > 1);
+        }
+        try (PointLog pointLog = openPointLog(directory, 2048)) {
+            Assertions.assertEquals(200L, pointLog.getLogEndOffset());
+            Assertions.assertEquals(200L, pointLog.getDurableOffset());
+
+            // Lookup by the sparse index across the segments.
+            final List<LogEntry> entries = pointLog.read(150L, 30);
+            Assertions.assertEquals(30, entries.size());
+            for (int i = 0; i < 30; i++) {
+                Assertions.assertEquals(150L + i, entries.get(i).getOffset());
+                Assertions.assertNull(entries.get(i).getKey());
+                Assertions.assertArrayEquals(value(150 + i), entries.get(i).getValue());
+            }
+            pointLog.append("k200", 200L, FORMAT, value(200));
+            pointLog.sync();
+            Assertions.assertEquals(200L, pointLog.read(200L, 10).get(0).getOffset());
+        }
+    }
+
+    @Test
+    public void testReadAfterSegmentClosed() throws Exception {
+        final File directory = Files.createTempDirectory("test-point-log").toFile();
+        final PointLogSegment segment = PointLogSegment.open(directory, 0L, 64 * 1024, 1024);
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertTrue(segment.append(i, 1000L + i, 1000L + i, null, FORMAT, value(i)));
+        }
+        final List<LogEntry> entries = new ArrayList<>();
+        Assertions.assertEquals(3L, segment.read(0L, 3L, 10, entries));
+        Assertions.assertEquals(3, entries.size());
+
+        // The mapped buffer has been unmapped, which is never touched by the readers after closed.
+        segment.delete();
+        entries.clear();
+        Assertions.assertEquals(1L, segment.read(1L, 3L, 10, entries));
+        Assertions.assertTrue(entries.isEmpty());
+        segment.flush();
+        segment.close();
+        Assertions.assertFalse(segment.getLogFile().exists());
+    }
+
+    @Test
+    public void testRecoverTruncatesTornRecord() throws Exception {
+        final File directory = Files.createTempDirectory("test-point-log").toFile();
+        int tailPosition;
+        try (PointLog pointLog = openPointLog(directory, 64 * 1024)) {
+            for (int i = 0; i < 5; i++) {
+                pointLog.append("k" + i, i, FORMAT, value(i));
+            }
+            pointLog.sync();
+            tailPosition = pointLog.getSegments().lastEntry().getValue().getSize();
+        }
+        // Simulate the partially written record after the last durable record.
+        try (RandomAccessFile raf = new RandomAccessFile(new File(directory,
+                PointLogSegment.fileName(0L, PointLogSegment.LOG_FILE_SUFFIX)), "rw")) {
+            raf.seek(tailPosition);
+            raf.writeInt(100);
+            raf.writeInt(12345);
+            raf.writeLong(5L);
+        }
+        try (PointLog pointLog = openPointLog(directory, 64 * 1024)) {
+            Assertions.assertEquals(5L, pointLog.getLogEndOffset());
+            Assertions.assertEquals(5, pointLog.read(0L, 100).size());
+
+            pointLog.append("k5", 5L, FORMAT, value(5));
+            pointLog.sync();
+            Assertions.assertArrayEquals(value(5), pointLog.read(5L, 1).get(0).getValue());
+        }
+    }
+
+    @Test
+    public void testRetentionByBytesAndTime() throws Exception {
+        final File directory = Files.createTempDirectory("test-point-log").toFile();
+        try (PointLog pointLog = openPointLog(directory, 2048)) {
+            for (int i = 0; i < 200; i++) {
+                pointLog.append(null, i, FORMAT, value(i));
+            }
+            pointLog.sync();
+            final int segments = pointLog.getSegments().size();
+
+            pointLog.updateRetention(Long.MAX_VALUE, 4096L);
+            Assertions.assertTrue(pointLog.applyRetention(System.currentTimeMillis()) > 0);
+            Assertions.assertTrue(pointLog.getSegments().size() < segments);
+            Assertions.assertTrue(pointLog.getLogStartOffset() > 0L);
+            Assertions.assertTrue(pointLog.getSizeInBytes() <= 4096L);
+            // The deleted offsets are read from the log start offset.
+            Assertions.assertEquals(pointLog.getLogStartOffset(), pointLog.read(0L, 1).get(0).getOffset());
+
+            pointLog.updateRetention(1L, Long.MAX_VALUE);
+            pointLog.applyRetention(System.currentTimeMillis() + 1000L);
+            Assertions.assertEquals(1, pointLog.getSegments().size());
+            Assertions.assertEquals(200L, pointLog.getLogStartOffset());
+            Assertions.assertTrue(pointLog.read(0L, 100).isEmpty());
+        }
+    }
+
+    @Test
+    public void testCommitAckedOffset() throws Exception {
+        final File directory = Files.createTempDirectory("test-point-log").toFile();
+        try (PointLog pointLog = openPointLog(directory, 64 * 1024)) {
+            Assertions.assertEquals(-1L, pointLog.getAckedOffset());
+            pointLog.commitAckedOffset(10L);
+            // Ignored the stale acknowledgement.
+            pointLog.commitAckedOffset(5L);
+            Assertions.assertEquals(10L, pointLog.getAckedOffset());
+        }
+        try (PointLog pointLog = openPointLog(directory, 64 * 1024)) {
+            Assertions.assertEquals(10L, pointLog.getAckedOffset());
+        }
+    }
+
+    static PointLog openPointLog(File directory, int segmentBytes) {
+        return new PointLog("test-point-log", directory, segmentBytes, 256, Long.MAX_VALUE, () -> {
+        });
+    }
+
+    static byte[] value(int i) {
+        return ("{\"$$tenant\":\"t1001\",\"id\":" + i + ",\"name\":\"test-point\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.checkpoint.memory;
+
+import com.wl4g.streamconnect.checkpoint.memory.PointRingBuffer.WaitStrategy;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link PointRingBufferTests}
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+public class PointRingBufferTests {
+
+    @Test
+    public void testDrainInBatches() {
+        final PointRingBuffer<Integer> ringBuffer = new PointRingBuffer<>(10, WaitStrategy.BLOCKING);
+        Assertions.assertEquals(16, ringBuffer.getCapacity());
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertTrue(ringBuffer.tryOffer(i));
+        }
+        final List<Integer> batch = new ArrayList<>();
+        Assertions.assertEquals(4, ringBuffer.drainTo(batch, 4));
+        Assertions.assertEquals(6, ringBuffer.drainTo(batch, 100));
+        Assertions.assertEquals(0, ringBuffer.drainTo(batch, 100));
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertEquals(i, batch.get(i).intValue());
+        }
+        Assertions.assertFalse(ringBuffer.awaitAvailable(10L, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testBackPressureIfFull() throws Exception {
+        final PointRingBuffer<Integer> ringBuffer = new PointRingBuffer<>(4, WaitStrategy.BLOCKING);
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertTrue(ringBuffer.tryOffer(i));
+        }
+        Assertions.assertFalse(ringBuffer.tryOffer(4));
+        Assertions.assertFalse(ringBuffer.offer(4, 20L, TimeUnit.MILLISECONDS));
+
+        // The blocked producer continues after the consumer drained.
+        final CountDownLatch offered = new CountDownLatch(1);
+        final Thread producer = new Thread(() -> {
+            if (ringBuffer.offer(4, 10_000L, TimeUnit.MILLISECONDS)) {
+                offered.countDown();
+            }
+        });
+        producer.start();
+        Assertions.assertFalse(offered.await(50L, TimeUnit.MILLISECONDS));
+        Assertions.assertEquals(1, ringBuffer.drainTo(new ArrayList<>(), 1));
+        Assertions.assertTrue(offered.await(10L, TimeUnit.SECONDS));
+        Assertions.assertEquals(4, ringBuffer.size());
+    }
+
+    @Test
+    public void testMultiProducersSingleConsumer() throws Exception {
+        // Notice: The busy spin strategy is excluded, which is too slow on the single core machine.
+        for (WaitStrategy waitStrategy : new WaitStrategy[]{WaitStrategy.BLOCKING, WaitStrategy.YIELDING}) {
+            final int producers = 4;
+            final int perProducer = 50_000;
+            final PointRingBuffer<long[]> ringBuffer = new PointRingBuffer<>(256, waitStrategy);
+            final List<Thread> threads = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                final int producer = p;
+                threads.add(new Thread(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        Assertions.assertTrue(ringBuffer.offer(new long[]{producer, i}, 10_000L, TimeUnit.MILLISECONDS));
+                    }
+                }));
+            }
+            threads.forEach(Thread::start);
+
+            // The elements of each producer are consumed in the publishing order.
+            final long[] expected = new long[producers];
+            final List<long[]> batch = new ArrayList<>();
+            int consumed = 0;
+            while (consumed < producers * perProducer) {
+                Assertions.assertTrue(ringBuffer.awaitAvailable(10_000L, TimeUnit.MILLISECONDS));
+                ringBuffer.drainTo(batch, 100);
+                for (long[] element : batch) {
+                    Assertions.assertEquals(expected[(int) element[0]]++, element[1]);
+                }
+                consumed += batch.size();
+                batch.clear();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            Assertions.assertEquals(0, ringBuffer.size());
+        }
+    }
+
+}
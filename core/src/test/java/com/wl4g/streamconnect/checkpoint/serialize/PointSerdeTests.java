@@ -0,0 +1,70 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.checkpoint.serialize;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.wl4g.streamconnect.checkpoint.ICheckpoint.PointSerde;
+import com.wl4g.streamconnect.framework.StreamConnectSpiFactory;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.nio.charset.StandardCharsets;
+
+import static com.wl4g.infra.common.serialize.JacksonUtils.parseToNode;
+
+/**
+ * The {@link PointSerdeTests}
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+public class PointSerdeTests {
+
+    static final String TEST_JSON = "{\"$$tenant\":\"t1001\",\"name\":\"Mary\",\"age\":18,\"score\":99.5,\"vip\":true," +
+            "\"address\":{\"city\":\"New York\",\"zipcode\":null},\"tags\":[\"a\",\"b\",1]}";
+
+    @Test
+    public void testJacksonPointSerdeRoundTrip() {
+        final JsonNode node = parseToNode(TEST_JSON);
+        for (String format : new String[]{JsonPointSerde.TYPE_NAME, SmilePointSerde.TYPE_NAME, CborPointSerde.TYPE_NAME}) {
+            final PointSerde serde = StreamConnectSpiFactory.get(PointSerde.class, format);
+            final byte[] data = serde.serialize("test-topic", null, node);
+            Assertions.assertTrue(data.length > 0);
+            Assertions.assertEquals(node, serde.deserialize("test-topic", null, data));
+        }
+    }
+
+    @Test
+    public void testJsonPointSerdeForwardBytes() {
+        final byte[] raw = TEST_JSON.getBytes(StandardCharsets.UTF_8);
+        final PointSerde serde = new JsonPointSerde();
+
+        Assertions.assertSame(raw, serde.serialize("test-topic", null, raw));
+        Assertions.assertArrayEquals(raw, serde.serialize("test-topic", null, TEST_JSON));
+    }
+
+    @Test
+    public void testSmilePointSerdeSmallerThanJson() {
+        final JsonNode node = parseToNode(TEST_JSON);
+        final int jsonSize = new JsonPointSerde().serialize("test-topic", null, node).length;
+        final int smileSize = new SmilePointSerde().serialize("test-topic", null, node).length;
+
+        Assertions.assertTrue(smileSize < jsonSize);
+    }
+
+}
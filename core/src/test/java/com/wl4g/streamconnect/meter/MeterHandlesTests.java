@@ -0,0 +1,66 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.meter;
+
+import com.wl4g.streamconnect.meter.StreamConnectMeter.MetricsName;
+import com.wl4g.streamconnect.meter.StreamConnectMeter.MetricsTag;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.util.Arrays;
+
+/**
+ * The {@link MeterHandlesTests}
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+public class MeterHandlesTests {
+
+    @Test
+    public void testCachedHandlesAndTagged() {
+        final StreamConnectMeter meter = new StreamConnectMeter(
+                new PrometheusMeterRegistry(PrometheusConfig.DEFAULT), "testApp", 12345);
+        final MeterHandles handles = new MeterHandles(meter,
+                Arrays.asList(MetricsTag.CONNECTOR, "test_connector"), MetricsTag.CHANNEL, "c1001");
+        Assertions.assertEquals(Arrays.asList(MetricsTag.CONNECTOR, "test_connector", MetricsTag.CHANNEL, "c1001"),
+                handles.getTags());
+
+        handles.increment(MetricsName.sink_records_success);
+        handles.increment(MetricsName.sink_records_success);
+        Assertions.assertSame(handles.counter(MetricsName.sink_records_success),
+                handles.counter(MetricsName.sink_records_success));
+        Assertions.assertEquals(2d, handles.counter(MetricsName.sink_records_success).count());
+
+        // The same meter of the same name and tags with the event handler.
+        new MeterEventHandler(meter).onCountMeterEvent(new MeterEventHandler.CountMeterEvent(
+                MetricsName.sink_records_success, handles.getTags()));
+        Assertions.assertEquals(3d, handles.counter(MetricsName.sink_records_success).count());
+
+        final MeterHandles tagged = handles.tagged(MetricsTag.ACK_KIND, MetricsTag.ACK_KIND_VALUE_COMMIT);
+        Assertions.assertSame(tagged, handles.tagged(MetricsTag.ACK_KIND, MetricsTag.ACK_KIND_VALUE_COMMIT));
+        Assertions.assertNotSame(tagged, handles.tagged(MetricsTag.ACK_KIND, MetricsTag.ACK_KIND_VALUE_SEND));
+
+        tagged.recordNanos(MetricsName.acknowledge_time, System.nanoTime());
+        Assertions.assertEquals(1L, tagged.timer(MetricsName.acknowledge_time).count());
+        Assertions.assertEquals(0L, handles.timer(MetricsName.acknowledge_time).count());
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.meter;
+
+import com.wl4g.streamconnect.meter.StageLatencyRecorder.Stage;
+import com.wl4g.streamconnect.meter.StageLatencyRecorder.TracingMode;
+import com.wl4g.streamconnect.meter.StreamConnectMeter.MetricsName;
+import com.wl4g.streamconnect.meter.StreamConnectMeter.MetricsTag;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * The {@link StageLatencyRecorderTests}
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+public class StageLatencyRecorderTests {
+
+    static MeterHandles newMeterHandles() {
+        final StreamConnectMeter meter = new StreamConnectMeter(
+                new PrometheusMeterRegistry(PrometheusConfig.DEFAULT), "testApp", 12345);
+        return new MeterHandles(meter, singletonList(MetricsTag.CONNECTOR), "test_connector");
+    }
+
+    static Timer getStageTimer(MeterHandles handles, Stage stage) {
+        return handles.tagged(MetricsTag.STAGE, stage.getName()).timer(MetricsName.stage_latency);
+    }
+
+    @Test
+    public void testDisabledTracing() {
+        final MeterHandles handles = newMeterHandles();
+        final StageLatencyRecorder recorder = new StageLatencyRecorder(TracingMode.NONE, handles);
+        Assertions.assertFalse(recorder.isEnabled());
+
+        recorder.recordNanos(Stage.FILTER, "c1001", 1000L);
+        Assertions.assertEquals(0L, getStageTimer(handles, Stage.FILTER).count());
+    }
+
+    @Test
+    public void testConnectorTracing() {
+        final MeterHandles handles = newMeterHandles();
+        final StageLatencyRecorder recorder = new StageLatencyRecorder(TracingMode.CONNECTOR, handles);
+
+        recorder.recordNanos(Stage.FILTER, "c1001", TimeUnit.MILLISECONDS.toNanos(3));
+        recorder.recordNanos(Stage.FILTER, "c1002", TimeUnit.MILLISECONDS.toNanos(5));
+        recorder.recordSinceTimestamp(Stage.END_TO_END, "c1001", System.currentTimeMillis() - 2000L);
+        // The invalid timestamp is ignored.
+        recorder.recordSinceTimestamp(Stage.END_TO_END, "c1001", -1L);
+
+        final Timer filterTimer = getStageTimer(handles, Stage.FILTER);
+        Assertions.assertEquals(2L, filterTimer.count());
+        Assertions.assertEquals(8d, filterTimer.totalTime(TimeUnit.MILLISECONDS), 0.001d);
+
+        final Timer endToEndTimer = getStageTimer(handles, Stage.END_TO_END);
+        Assertions.assertEquals(1L, endToEndTimer.count());
+        Assertions.assertTrue(endToEndTimer.max(TimeUnit.MILLISECONDS) >= 2000d);
+        Assertions.assertEquals(0L, getStageTimer(handles, Stage.MAP).count());
+    }
+
+    @Test
+    public void testChannelTracing() {
+        final MeterHandles handles = newMeterHandles();
+        final StageLatencyRecorder recorder = new StageLatencyRecorder(TracingMode.CHANNEL, handles);
+
+        recorder.recordNanos(Stage.SINK_ACK, "c1001", 1000L);
+        recorder.recordNanos(Stage.SINK_ACK, "c1001", 1000L);
+        recorder.recordNanos(Stage.SINK_ACK, "c1002", 1000L);
+        // The stages without channel (e.g: source poll) are recorded per connector.
+        recorder.recordNanos(Stage.SOURCE_POLL, null, 1000L);
+
+        Assertions.assertEquals(2L, getStageTimer(handles.tagged(MetricsTag.CHANNEL, "c1001"), Stage.SINK_ACK).count());
+        Assertions.assertEquals(1L, getStageTimer(handles.tagged(MetricsTag.CHANNEL, "c1002"), Stage.SINK_ACK).count());
+        Assertions.assertEquals(0L, getStageTimer(handles, Stage.SINK_ACK).count());
+        Assertions.assertEquals(1L, getStageTimer(handles, Stage.SOURCE_POLL).count());
+    }
+
+}
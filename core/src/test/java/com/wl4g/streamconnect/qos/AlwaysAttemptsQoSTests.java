@@ -0,0 +1,149 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.qos;
+
+import com.wl4g.streamconnect.config.StreamConnectConfiguration.ConnectorConfig;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link AlwaysAttemptsQoSTests}
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+public class AlwaysAttemptsQoSTests {
+
+    @Test
+    public void testScheduleRetryIfFail() throws Exception {
+        final AlwaysAttemptsQoS qos = new AlwaysAttemptsQoS();
+        qos.setRetryBackoffMs(50);
+        qos.setRetryMaxBackoffMs(100);
+        qos.setRetryBackoffMultiplier(1.0d);
+
+        final ConnectorConfig connectorConfig = ConnectorConfig
+                .builder()
+                .enable(true)
+                .name("connector_1")
+                .build();
+
+        Assertions.assertEquals(50L, qos.getRetryIntervalMs(connectorConfig, 1));
+        // Should be limited by the max backoff.
+        Assertions.assertEquals(100L, qos.getRetryIntervalMs(connectorConfig, Integer.MAX_VALUE));
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final long begin = System.currentTimeMillis();
+        Assertions.assertTrue(qos.scheduleRetryIfFail(connectorConfig, 1024, latch::countDown));
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(System.currentTimeMillis() - begin >= 100);
+    }
+
+    @Test
+    public void testDefaultScheduleRetryIfFailNonBlocking() throws Exception {
+        final ConnectorConfig connectorConfig = ConnectorConfig
+                .builder()
+                .enable(true)
+                .name("connector_1")
+                .build();
+
+        // The custom QoS only implemented the blocking retry.
+        final IQoS qos = new IQoS() {
+            @Override
+            public String getType() {
+                return "TEST_QOS";
+            }
+
+            @Override
+            public boolean supportRetry(ConnectorConfig connectorConfig) {
+                return true;
+            }
+
+            @Override
+            public boolean canRetry(ConnectorConfig connectorConfig, int retryTimes) {
+                return retryTimes <= 1;
+            }
+
+            @Override
+            public void retryIfFail(ConnectorConfig connectorConfig, int retryTimes, Runnable call) {
+                throw new IllegalStateException("Should not be here");
+            }
+        };
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Thread caller = Thread.currentThread();
+        final Thread[] runner = new Thread[1];
+        Assertions.assertTrue(qos.scheduleRetryIfFail(connectorConfig, 1, () -> {
+            runner[0] = Thread.currentThread();
+            latch.countDown();
+        }));
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assertions.assertNotSame(caller, runner[0]);
+
+        Assertions.assertFalse(qos.scheduleRetryIfFail(connectorConfig, 2, () -> {
+            throw new IllegalStateException("Should not be here");
+        }));
+    }
+
+    @Test
+    public void testScheduleRetryIfFailHandOffToExecutor() throws Exception {
+        final AlwaysAttemptsQoS qos = new AlwaysAttemptsQoS();
+        qos.setRetryBackoffMs(10);
+        qos.setRetryMaxBackoffMs(10);
+        qos.setRetryBackoffMultiplier(1.0d);
+
+        final ConnectorConfig connectorConfig = ConnectorConfig
+                .builder()
+                .enable(true)
+                .name("connector_1")
+                .build();
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "test-retry"));
+        try {
+            // The blocking retry should not stall the other retries of the shared timer.
+            final CountDownLatch blocking = new CountDownLatch(1);
+            Assertions.assertTrue(qos.scheduleRetryIfFail(connectorConfig, 1, executor, () -> {
+                try {
+                    blocking.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            final CountDownLatch latch = new CountDownLatch(1);
+            Assertions.assertTrue(qos.scheduleRetryIfFail(connectorConfig, 1, latch::countDown));
+            Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+            final CountDownLatch handOff = new CountDownLatch(1);
+            final String[] runner = new String[1];
+            blocking.countDown();
+            Assertions.assertTrue(qos.scheduleRetryIfFail(connectorConfig, 1, executor, () -> {
+                runner[0] = Thread.currentThread().getName();
+                handOff.countDown();
+            }));
+            Assertions.assertTrue(handOff.await(5, TimeUnit.SECONDS));
+            Assertions.assertEquals("test-retry", runner[0]);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -28,6 +28,8 @@ import org.junit.jupiter.api.Assertions;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -82,6 +84,35 @@ public class AtMostAttemptsQoSTests {
         Assertions.assertTrue(isValid);
     }
 
+    @Test
+    public void testScheduleRetryIfFail() throws Exception {
+        final AtMostAttemptsQoS qos = new AtMostAttemptsQoS();
+        qos.setRetries(2);
+        qos.setRetryBackoffMs(100);
+        qos.setRetryMaxBackoffMs(10_000);
+        qos.setRetryBackoffMultiplier(1.0d);
+
+        final ConnectorConfig connectorConfig = ConnectorConfig
+                .builder()
+                .enable(true)
+                .name("connector_1")
+                .build();
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final long begin = System.currentTimeMillis();
+        Assertions.assertTrue(qos.scheduleRetryIfFail(connectorConfig, 1, latch::countDown));
+        // Should not be blocked by the retry backoff.
+        Assertions.assertTrue(System.currentTimeMillis() - begin < 100);
+
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(System.currentTimeMillis() - begin >= 100);
+
+        // Exhausted retries should not be scheduled.
+        Assertions.assertFalse(qos.scheduleRetryIfFail(connectorConfig, 3, () -> {
+            throw new IllegalStateException("Should not be here");
+        }));
+    }
+
     // private static RetryTemplate createRetryTemplate() throws Throwable {
     //     final RetryPolicy policy = new MaxAttemptsRetryPolicy(3);
     //     RetryTemplate retryTemplate = new RetryTemplate();
@@ -22,6 +22,7 @@ import com.wl4g.streamconnect.config.ChannelInfo;
 import com.wl4g.streamconnect.config.ChannelInfo.PolicySpec;
 import com.wl4g.streamconnect.config.ChannelInfo.RuleSpec;
 import com.wl4g.streamconnect.config.ChannelInfo.SettingsSpec;
+import com.wl4g.streamconnect.coordinator.CachingChannelRegistry.ChannelsChangedEvent;
 import com.wl4g.streamconnect.stream.AbstractStream.MessageRecord;
 import com.wl4g.streamconnect.stream.process.ComplexProcessChain.ComplexProcessResult;
 import com.wl4g.streamconnect.stream.process.filter.StandardExprProcessFilter;
@@ -30,7 +31,10 @@ import org.junit.Test;
 import org.junit.jupiter.api.Assertions;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.wl4g.infra.common.serialize.JacksonUtils.parseToNode;
 import static java.util.Collections.singletonList;
@@ -184,4 +188,76 @@ public class ComplexProcessChainTests {
         Assertions.assertFalse(mapperTracing.contains(3));
     }
 
+    @Test
+    public void testComplexProcessChainPerChannelFilter() {
+        final ChannelInfo channel1 = buildRuleChannel("c1", "{\"type\":\"RELATION\",\"name\":\"testCondition1\",\"fn\":{\"expression\":\"age == 18\"}}");
+        final ChannelInfo channel2 = buildRuleChannel("c2", "{\"type\":\"RELATION\",\"name\":\"testCondition2\",\"fn\":{\"expression\":\"age > 18\"}}");
+
+        final StandardExprProcessFilter filter = new StandardExprProcessFilter();
+        filter.setName("filter1");
+        filter.updateMergeConditions(Arrays.asList(channel1, channel2));
+
+        final ComplexProcessChain mockChain = new ComplexProcessChain(new ComplexProcessHandler[] {filter});
+        final ObjectNode mockValue = (ObjectNode) parseToNode("{\"name\":\"Mary\",\"age\":18}");
+        final MessageRecord<String, Object> record = new MessageRecord<String, Object>() {
+            @Override
+            public String getKey() {
+                return null;
+            }
+
+            @Override
+            public Object getValue() {
+                return mockValue;
+            }
+
+            @Override
+            public long getTimestamp() {
+                return 0;
+            }
+        };
+
+        // Only the rules of the matched channel should be evaluated.
+        Assertions.assertTrue(mockChain.process(channel1, record).isMatched());
+        Assertions.assertFalse(mockChain.process(channel2, record).isMatched());
+    }
+
+    @Test
+    public void testComplexProcessChainOnChannelsChanged() {
+        final AtomicInteger mergedCount = new AtomicInteger(0);
+        final NoOpProcessMapper mapper = new NoOpProcessMapper() {
+            @Override
+            protected void doUpdateMergeConditions(Collection<ChannelInfo> channels) {
+                mergedCount.incrementAndGet();
+            }
+        };
+        mapper.setName("mapper1");
+
+        final ComplexProcessChain mockChain = new ComplexProcessChain(new ComplexProcessHandler[] {mapper});
+        final List<ChannelInfo> channels = singletonList(buildRuleChannel("c1", "{}"));
+
+        mockChain.onChannelsChanged(new ChannelsChangedEvent("connector1", 1L, channels));
+        mockChain.onChannelsChanged(new ChannelsChangedEvent("connector1", 1L, channels)); // duplicate
+        mockChain.onChannelsChanged(new ChannelsChangedEvent("connector1", 3L, channels));
+        mockChain.onChannelsChanged(new ChannelsChangedEvent("connector1", 2L, channels)); // stale
+
+        Assertions.assertEquals(2, mergedCount.get());
+        Assertions.assertEquals(3L, mockChain.getMergedVersion());
+    }
+
+    private static ChannelInfo buildRuleChannel(String channelId, String recordFilter) {
+        return ChannelInfo
+                .builder()
+                .id(channelId)
+                .settingsSpec(SettingsSpec.builder().policySpec(PolicySpec.builder()
+                                .rules(singletonList(RuleSpec
+                                        .builder()
+                                        .recordFilter(recordFilter)
+                                        .build()))
+                                .build())
+                        .checkpointSpec(null)
+                        .sinkSpec(null)
+                        .build())
+                .build();
+    }
+
 }
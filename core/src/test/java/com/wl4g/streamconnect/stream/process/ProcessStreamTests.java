@@ -222,4 +222,54 @@ public class ProcessStreamTests {
         Assertions.assertEquals(6, mockChannelRecords.size());
     }
 
+    @Test
+    public void testProcessStreamDoIndexMatchToChannelRecords() {
+        List<MessageRecord<String, Object>> mockRecords = new ArrayList<>();
+        mockRecords.add(buildMockMessageRecord("10001", "t1001"));
+        mockRecords.add(buildMockMessageRecord("10002", "t1001"));
+        mockRecords.add(buildMockMessageRecord("10003", "t1002"));
+        mockRecords.add(buildMockMessageRecord("10004", "t1003"));
+        mockRecords.add(buildMockMessageRecord("10005", "t1004"));
+
+        List<ChannelInfo> mockAssignedChannels = new ArrayList<>();
+        mockAssignedChannels.add(buildMockChannelInfo("c1001", "t1001", singletonList("t1001")));
+        mockAssignedChannels.add(buildMockChannelInfo("c1002", "t1002", asList("t1001", "t1002", "t1002")));
+        mockAssignedChannels.add(buildMockChannelInfo("c1003", "t1003", singletonList("t1003")));
+
+        Map<String, List<ChannelInfo>> mockTenantIndex = CachingChannelRegistry.buildTenantIndex(mockAssignedChannels);
+        Assertions.assertEquals(3, mockTenantIndex.size());
+        Assertions.assertEquals(2, mockTenantIndex.get("t1001").size());
+        Assertions.assertEquals(1, mockTenantIndex.get("t1002").size());
+
+        List<ChannelRecord> mockChannelRecords = ProcessStream.doIndexMatchToChannelRecords(
+                mockTenantIndex, mockRecords);
+
+        Assertions.assertEquals(6, mockChannelRecords.size());
+    }
+
+    @Test
+    public void testGroupToProcessRuns() {
+        final ChannelInfo sequenceChannel = buildMockChannelInfo("c1001", "t1001", singletonList("t1001"));
+        sequenceChannel.getSettingsSpec().getPolicySpec().setSequence(true);
+        final ChannelInfo nonSequenceChannel = buildMockChannelInfo("c1002", "t1002", singletonList("t1001"));
+
+        final List<ChannelRecord> channelRecords = new ArrayList<>();
+        channelRecords.add(new ChannelRecord(sequenceChannel, buildMockMessageRecord("k1", "t1001")));
+        channelRecords.add(new ChannelRecord(nonSequenceChannel, buildMockMessageRecord("k1", "t1001")));
+        channelRecords.add(new ChannelRecord(sequenceChannel, buildMockMessageRecord("k2", "t1001")));
+        channelRecords.add(new ChannelRecord(sequenceChannel, buildMockMessageRecord("k1", "t1001")));
+        channelRecords.add(new ChannelRecord(nonSequenceChannel, buildMockMessageRecord("k1", "t1001")));
+
+        final List<List<ChannelRecord>> runs = new ArrayList<>(ProcessStream.groupToProcessRuns(channelRecords));
+
+        // The records of the same key of sequence channel are in one run and kept in order.
+        Assertions.assertEquals(4, runs.size());
+        Assertions.assertEquals(2, runs.get(0).size());
+        Assertions.assertSame(channelRecords.get(0), runs.get(0).get(0));
+        Assertions.assertSame(channelRecords.get(3), runs.get(0).get(1));
+        Assertions.assertSame(channelRecords.get(1), runs.get(1).get(0));
+        Assertions.assertSame(channelRecords.get(2), runs.get(2).get(0));
+        Assertions.assertSame(channelRecords.get(4), runs.get(3).get(0));
+    }
+
 }
@@ -0,0 +1,112 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.stream.sink;
+
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link SinkInflightWindowTests}
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+public class SinkInflightWindowTests {
+
+    @Test
+    public void testAcknowledgeInOrderOfBegin() throws Exception {
+        final SinkInflightWindow<String> window = new SinkInflightWindow<>(10, Runnable::run);
+        final List<String> acknowledged = Collections.synchronizedList(new ArrayList<>());
+
+        window.acquire(2);
+        final SinkInflightWindow<String>.InflightBatch batch1 = window.begin(2, b -> acknowledged.add("b1"));
+        window.acquire(1);
+        final SinkInflightWindow<String>.InflightBatch batch2 = window.begin(1, b -> acknowledged.add("b2"));
+        Assertions.assertEquals(3, window.getInflightCount());
+
+        // The later batch is settled first, but the watermark is held by the earlier one.
+        batch2.complete("r3");
+        Assertions.assertTrue(acknowledged.isEmpty());
+        batch1.complete("r1");
+        Assertions.assertTrue(acknowledged.isEmpty());
+        batch1.giveUp("r2");
+
+        Assertions.assertEquals(Arrays.asList("b1", "b2"), acknowledged);
+        Assertions.assertEquals(1, batch1.getCompleted().size());
+        Assertions.assertEquals(1, batch1.getGivenUp().size());
+        Assertions.assertEquals(0, window.getInflightCount());
+        Assertions.assertEquals(0, window.getPendingBatchCount());
+        Assertions.assertTrue(window.awaitSettled(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testBlockingWhileWindowFull() throws Exception {
+        final SinkInflightWindow<String> window = new SinkInflightWindow<>(2, Runnable::run);
+        final SinkInflightWindow<String>.InflightBatch batch = window.begin(3, b -> {
+        });
+        window.acquire(2);
+
+        final CountDownLatch acquired = new CountDownLatch(1);
+        final Thread reader = new Thread(() -> {
+            try {
+                window.acquire(1);
+                acquired.countDown();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        reader.start();
+        Assertions.assertFalse(acquired.await(200, TimeUnit.MILLISECONDS));
+
+        batch.complete("r1");
+        Assertions.assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        reader.join();
+        Assertions.assertFalse(window.awaitSettled(50, TimeUnit.MILLISECONDS));
+
+        batch.complete("r2");
+        batch.complete("r3");
+        Assertions.assertTrue(window.awaitSettled(1, TimeUnit.SECONDS));
+        Assertions.assertEquals(0, window.getInflightCount());
+    }
+
+    @Test
+    public void testEmptyAndAbandonedBatch() throws Exception {
+        final SinkInflightWindow<String> window = new SinkInflightWindow<>(4, Runnable::run);
+        final List<String> acknowledged = Collections.synchronizedList(new ArrayList<>());
+
+        window.acquire(1);
+        final SinkInflightWindow<String>.InflightBatch batch1 = window.begin(3, b -> acknowledged.add("b1"));
+        window.begin(0, b -> acknowledged.add("b2"));
+        Assertions.assertTrue(acknowledged.isEmpty());
+
+        // Only one record was sent, the others are abandoned (e.g: interrupted).
+        batch1.abandon(2);
+        Assertions.assertTrue(acknowledged.isEmpty());
+        batch1.complete("r1");
+        Assertions.assertEquals(Arrays.asList("b1", "b2"), acknowledged);
+        Assertions.assertEquals(0, window.getInflightCount());
+    }
+
+}
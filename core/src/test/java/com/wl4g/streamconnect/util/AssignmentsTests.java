@@ -18,6 +18,7 @@
 package com.wl4g.streamconnect.util;
 
 import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -60,4 +61,31 @@ public class AssignmentsTests {
                         out.println("Assigned Index: " + value + ", Count: " + count));
     }
 
+    @Test
+    public void testMinimalMovedWhenParallelismIncreased() {
+        final int keys = 100_000;
+        for (int parallelism = 1; parallelism < 16; parallelism++) {
+            int moved = 0;
+            final int[] counts = new int[parallelism + 1];
+            for (int i = 0; i < keys; i++) {
+                final String key = "key-" + i;
+                final int before = Assignments.assign(key, parallelism);
+                final int after = Assignments.assign(key, parallelism + 1);
+                Assertions.assertTrue(after >= 0 && after <= parallelism);
+                if (before != after) {
+                    // Only moved to the new slot.
+                    Assertions.assertEquals(parallelism, after);
+                    moved++;
+                }
+                counts[after]++;
+            }
+            // Expected to move about 1/(n+1) of the keys, and evenly distributed.
+            final double expected = (double) keys / (parallelism + 1);
+            Assertions.assertTrue(Math.abs(moved - expected) < expected * 0.1, "moved: " + moved);
+            for (int count : counts) {
+                Assertions.assertTrue(Math.abs(count - expected) < expected * 0.1, "count: " + count);
+            }
+        }
+    }
+
 }
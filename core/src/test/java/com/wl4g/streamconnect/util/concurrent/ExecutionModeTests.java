@@ -0,0 +1,56 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.util.concurrent;
+
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The {@link ExecutionModeTests}
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+public class ExecutionModeTests {
+
+    @Test
+    public void testResolveVirtualOrFallback() {
+        final ExecutionMode resolved = ExecutionMode.VIRTUAL.resolve();
+        Assertions.assertEquals(ExecutionMode.isVirtualThreadSupported() ? ExecutionMode.VIRTUAL
+                : ExecutionMode.PLATFORM, resolved);
+        Assertions.assertEquals(ExecutionMode.PLATFORM, ExecutionMode.PLATFORM.resolve());
+    }
+
+    @Test
+    public void testNewThreadWithName() throws Exception {
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            final AtomicReference<String> executed = new AtomicReference<>();
+            final Thread t = mode.newThread(() -> executed.set(Thread.currentThread().getName()), "test-reader-c1001");
+            t.start();
+            t.join(10_000L);
+            Assertions.assertEquals("test-reader-c1001", executed.get());
+
+            final Thread t2 = mode.newThreadFactory("test-process").newThread(() -> {
+            });
+            Assertions.assertTrue(t2.getName().startsWith("test-process-"));
+        }
+    }
+
+}
@@ -0,0 +1,162 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.util.concurrent;
+
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The {@link KeyAffineExecutorTests}
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+public class KeyAffineExecutorTests {
+
+    @Test
+    public void testOrderedPerKey() throws Exception {
+        final KeyAffineExecutor executor = new KeyAffineExecutor("test-keyAffine", 4, 1000, 8);
+        final int keys = 16;
+        final int tasksPerKey = 500;
+        final Map<String, List<Integer>> executed = new ConcurrentHashMap<>();
+        final Map<String, AtomicInteger> running = new ConcurrentHashMap<>();
+        final AtomicInteger concurrentViolations = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(keys * tasksPerKey);
+        for (int i = 0; i < tasksPerKey; i++) {
+            for (int k = 0; k < keys; k++) {
+                final String key = "k" + k;
+                final int seq = i;
+                executor.execute(key, () -> {
+                    if (running.computeIfAbsent(key, _k -> new AtomicInteger()).incrementAndGet() > 1) {
+                        concurrentViolations.incrementAndGet();
+                    }
+                    executed.computeIfAbsent(key, _k -> Collections.synchronizedList(new ArrayList<>())).add(seq);
+                    running.get(key).decrementAndGet();
+                    latch.countDown();
+                });
+            }
+        }
+        Assertions.assertTrue(latch.await(30, TimeUnit.SECONDS));
+        Assertions.assertEquals(0, concurrentViolations.get());
+        for (List<Integer> seqs : executed.values()) {
+            for (int i = 0; i < tasksPerKey; i++) {
+                Assertions.assertEquals(i, (int) seqs.get(i));
+            }
+        }
+        executor.close();
+        Assertions.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        Assertions.assertEquals(0, executor.getMailboxCount());
+        Assertions.assertEquals(0, executor.getPendingCount());
+    }
+
+    @Test
+    public void testHotKeyNotPinOtherKeys() throws Exception {
+        final KeyAffineExecutor executor = new KeyAffineExecutor("test-keyAffine", 2, 1000);
+        final CountDownLatch hotBlocking = new CountDownLatch(1);
+        executor.execute("hot", () -> {
+            try {
+                hotBlocking.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        // The other keys are still executed by the idle worker, while the hot key is blocking.
+        final CountDownLatch others = new CountDownLatch(100);
+        for (int i = 0; i < 100; i++) {
+            executor.execute("k" + i, others::countDown);
+        }
+        Assertions.assertTrue(others.await(10, TimeUnit.SECONDS));
+        hotBlocking.countDown();
+        executor.close();
+    }
+
+    @Test
+    public void testRejectedReleasePermits() throws Exception {
+        // The single worker without queue, so the mailbox re-scheduling by itself is rejected.
+        final ThreadPoolExecutor workers = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new SynchronousQueue<>());
+        final KeyAffineExecutor executor = new KeyAffineExecutor(workers, 10, 1);
+        final CountDownLatch blocking = new CountDownLatch(1);
+        final AtomicInteger executed = new AtomicInteger();
+        executor.execute("k1", () -> {
+            try {
+                blocking.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            executed.incrementAndGet();
+        });
+        executor.execute("k1", executed::incrementAndGet);
+        // The other key is rejected by the busy worker.
+        Assertions.assertThrows(RejectedExecutionException.class, () -> executor.execute("k2", executed::incrementAndGet));
+        Assertions.assertEquals(2, executor.getPendingCount());
+        Assertions.assertEquals(1, executor.getMailboxCount());
+
+        // The queued task of the rejected re-scheduling is dropped.
+        blocking.countDown();
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (executor.getPendingCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10L);
+        }
+        Assertions.assertEquals(0, executor.getPendingCount());
+        Assertions.assertEquals(0, executor.getMailboxCount());
+        Assertions.assertEquals(1, executed.get());
+        executor.close();
+    }
+
+    @Test
+    public void testTryExecuteNonBlockingWhenFull() throws Exception {
+        final KeyAffineExecutor executor = new KeyAffineExecutor("test-keyAffine", 1, 2);
+        final CountDownLatch blocking = new CountDownLatch(1);
+        final CountDownLatch executed = new CountDownLatch(3);
+        Assertions.assertTrue(executor.forKey("k1").tryExecute(() -> {
+            try {
+                blocking.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            executed.countDown();
+        }));
+        Assertions.assertTrue(executor.tryExecute("k2", executed::countDown));
+        // The capacity has been reached, should not block.
+        Assertions.assertFalse(executor.tryExecute("k3", executed::countDown));
+        Assertions.assertEquals(2, executor.getPendingCount());
+
+        blocking.countDown();
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (executor.getPendingCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10L);
+        }
+        Assertions.assertTrue(executor.tryExecute("k3", executed::countDown));
+        Assertions.assertTrue(executed.await(10, TimeUnit.SECONDS));
+        executor.close();
+    }
+
+}
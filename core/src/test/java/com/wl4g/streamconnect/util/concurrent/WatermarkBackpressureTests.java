@@ -0,0 +1,99 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.util.concurrent;
+
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The {@link WatermarkBackpressureTests}
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+public class WatermarkBackpressureTests {
+
+    @Test
+    public void testPauseAndResumeWithHysteresis() {
+        final AtomicInteger pauses = new AtomicInteger();
+        final AtomicInteger resumes = new AtomicInteger();
+        final WatermarkBackpressure backpressure = new WatermarkBackpressure(100, 40,
+                pauses::incrementAndGet, resumes::incrementAndGet);
+
+        Assertions.assertFalse(backpressure.acquire(60));
+        Assertions.assertTrue(backpressure.acquire(60));
+        Assertions.assertEquals(1, pauses.get());
+
+        // Re-invoked the pauser while paused, e.g: the newly assigned partitions.
+        Assertions.assertTrue(backpressure.acquire(10));
+        Assertions.assertEquals(2, pauses.get());
+
+        // Still paused between the low and high watermarks.
+        backpressure.release(60);
+        Assertions.assertTrue(backpressure.isPaused());
+        Assertions.assertEquals(0, resumes.get());
+
+        backpressure.release(30);
+        Assertions.assertFalse(backpressure.isPaused());
+        Assertions.assertEquals(1, resumes.get());
+        Assertions.assertEquals(40, backpressure.getBacklog());
+
+        // Not paused again until the high watermark reached.
+        Assertions.assertFalse(backpressure.acquire(59));
+        Assertions.assertTrue(backpressure.acquire(1));
+        Assertions.assertEquals(3, pauses.get());
+    }
+
+    @Test
+    public void testConcurrentAcquireAndReleaseSettled() throws Exception {
+        final AtomicInteger pauses = new AtomicInteger();
+        final AtomicInteger resumes = new AtomicInteger();
+        final WatermarkBackpressure backpressure = new WatermarkBackpressure(50, 10,
+                pauses::incrementAndGet, resumes::incrementAndGet);
+
+        final int threads = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch latch = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                try {
+                    for (int i = 0; i < 10_000; i++) {
+                        backpressure.acquire(7);
+                        backpressure.release(7);
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        Assertions.assertTrue(latch.await(30, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        // Never stuck in paused after all the backlog settled.
+        Assertions.assertEquals(0, backpressure.getBacklog());
+        Assertions.assertFalse(backpressure.isPaused());
+        Assertions.assertTrue(pauses.get() >= resumes.get());
+    }
+
+}
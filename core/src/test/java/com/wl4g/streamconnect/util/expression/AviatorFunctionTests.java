@@ -34,4 +34,25 @@ public class AviatorFunctionTests {
                 new AviatorFunction("a == 1").apply(JacksonUtils.parseToNode("{\"a\":1,\"b\":2}")));
     }
 
+    @Test
+    public void testNestedPathExpression() {
+        final AviatorFunction fn = new AviatorFunction("u.age >= 25 && u.level == 'vip' && u.score > 9.5");
+        Assertions.assertTrue(fn.test(JacksonUtils.parseToNode(
+                "{\"u\":{\"age\":25,\"level\":\"vip\",\"score\":9.8}}")));
+        // The precompiled accessors should be reused with other records.
+        Assertions.assertFalse(fn.test(JacksonUtils.parseToNode(
+                "{\"u\":{\"age\":25,\"level\":\"normal\",\"score\":9.8}}")));
+        Assertions.assertFalse(fn.test(JacksonUtils.parseToNode(
+                "{\"u\":{\"age\":18,\"level\":\"vip\",\"score\":9.8}}")));
+    }
+
+    @Test
+    public void testConvertValue() {
+        Assertions.assertEquals(1L, AviatorFunction.convertValue(JacksonUtils.parseToNode("{\"a\":1}").get("a")));
+        Assertions.assertEquals(1.5d, AviatorFunction.convertValue(JacksonUtils.parseToNode("{\"a\":1.5}").get("a")));
+        Assertions.assertEquals("x", AviatorFunction.convertValue(JacksonUtils.parseToNode("{\"a\":\"x\"}").get("a")));
+        Assertions.assertEquals(Boolean.TRUE, AviatorFunction.convertValue(JacksonUtils.parseToNode("{\"a\":true}").get("a")));
+        Assertions.assertNull(AviatorFunction.convertValue(JacksonUtils.parseToNode("{\"a\":1}").path("b")));
+    }
+
 }
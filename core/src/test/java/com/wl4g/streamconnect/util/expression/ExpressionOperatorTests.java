@@ -88,12 +88,49 @@ public class ExpressionOperatorTests {
 
         condition5.setLogical(ExpressionOperator.LogicalType.AND);
         Assertions.assertTrue(condition5.apply(parseToNode("{\"a\":1,\"b\":2,\"u\":{\"wealth\":{\"money\":500000},\"age\":25,\"country\":\"US\"}}")));
+        Assertions.assertTrue(condition5.compile().test(parseToNode("{\"a\":1,\"b\":2,\"u\":{\"wealth\":{\"money\":500000},\"age\":25,\"country\":\"US\"}}")));
 
         condition5.setLogical(ExpressionOperator.LogicalType.OR);
         Assertions.assertTrue(condition5.apply(parseToNode("{\"a\":1,\"b\":2,\"u\":{\"wealth\":{\"money\":499999},\"age\":25,\"country\":\"CN\"}}")));
+        Assertions.assertTrue(condition5.compile().test(parseToNode("{\"a\":1,\"b\":2,\"u\":{\"wealth\":{\"money\":499999},\"age\":25,\"country\":\"CN\"}}")));
 
         condition5.setLogical(ExpressionOperator.LogicalType.AND);
         Assertions.assertFalse(condition5.apply(parseToNode("{\"a\":1,\"b\":2,\"u\":{\"wealth\":{\"money\":499999},\"age\":25,\"country\":\"JP\"}}")));
+        Assertions.assertFalse(condition5.compile().test(parseToNode("{\"a\":1,\"b\":2,\"u\":{\"wealth\":{\"money\":499999},\"age\":25,\"country\":\"JP\"}}")));
+    }
+
+    @Test
+    public void testCompiledLogicalOperator() {
+        ExpressionOperator.RelationOperator condition1 = new ExpressionOperator.RelationOperator();
+        condition1.setName("testCondition1");
+        condition1.setType(ExpressionOperator.OperatorType.RELATION.name());
+        condition1.setFn(new AviatorFunction("a >= 1"));
+
+        ExpressionOperator.RelationOperator condition2 = new ExpressionOperator.RelationOperator();
+        condition2.setName("testCondition2");
+        condition2.setType(ExpressionOperator.OperatorType.RELATION.name());
+        condition2.setFn(new AviatorFunction("b <= 2"));
+
+        ExpressionOperator.LogicalOperator condition3 = new ExpressionOperator.LogicalOperator();
+        condition3.setName("testCondition3");
+        condition3.setType(ExpressionOperator.OperatorType.LOGICAL.name());
+        condition3.setLogical(ExpressionOperator.LogicalType.AND);
+        condition3.setSubConditions(Arrays.asList(condition1, condition2));
+
+        ExpressionOperator.LogicalOperator condition4 = new ExpressionOperator.LogicalOperator();
+        condition4.setName("testCondition4");
+        condition4.setType(ExpressionOperator.OperatorType.LOGICAL.name());
+        condition4.setLogical(ExpressionOperator.LogicalType.NOT);
+        condition4.setSubConditions(Arrays.asList(condition3));
+
+        final ExpressionOperator.CompiledOperator compiled3 = condition3.compile();
+        final ExpressionOperator.CompiledOperator compiled4 = condition4.compile();
+        for (String json : Arrays.asList("{\"a\":1,\"b\":2}", "{\"a\":0,\"b\":2}", "{\"a\":1,\"b\":3}")) {
+            Assertions.assertEquals(condition3.apply(parseToNode(json)), compiled3.test(parseToNode(json)));
+            Assertions.assertEquals(condition4.apply(parseToNode(json)), compiled4.test(parseToNode(json)));
+        }
+        Assertions.assertTrue(compiled3.test(parseToNode("{\"a\":1,\"b\":2}")));
+        Assertions.assertFalse(compiled4.test(parseToNode("{\"a\":1,\"b\":2}")));
     }
 
     @Test
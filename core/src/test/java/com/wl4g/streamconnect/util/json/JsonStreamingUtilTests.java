@@ -0,0 +1,68 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.util.json;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.wl4g.streamconnect.exception.GiveUpRetryProcessException;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The {@link JsonStreamingUtilTests}
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+public class JsonStreamingUtilTests {
+
+    @Test
+    public void testReadTopLevelTextField() {
+        final byte[] data = ("{\"address\":{\"$$tenant\":\"nested\",\"tags\":[\"a\",{\"$$tenant\":\"nested2\"}]}," +
+                "\"age\":18,\"$$tenant\":\"t1001\",\"name\":\"Mary\"}").getBytes(StandardCharsets.UTF_8);
+
+        Assertions.assertEquals("t1001", JsonStreamingUtil.readTopLevelTextField(data, "$$tenant"));
+        Assertions.assertEquals("Mary", JsonStreamingUtil.readTopLevelTextField(data, "name"));
+        Assertions.assertNull(JsonStreamingUtil.readTopLevelTextField(data, "age")); // not text
+        Assertions.assertNull(JsonStreamingUtil.readTopLevelTextField(data, "city")); // nested only
+        Assertions.assertNull(JsonStreamingUtil.readTopLevelTextField("[1,2]".getBytes(StandardCharsets.UTF_8), "name"));
+        Assertions.assertNull(JsonStreamingUtil.readTopLevelTextField(new byte[0], "name"));
+    }
+
+    @Test
+    public void testReadTree() {
+        final JsonNode node = JsonStreamingUtil.readTree("{\"name\":\"Mary\",\"age\":18}".getBytes(StandardCharsets.UTF_8));
+
+        Assertions.assertEquals("Mary", node.get("name").textValue());
+        Assertions.assertEquals(18, node.get("age").intValue());
+        Assertions.assertNull(JsonStreamingUtil.readTree(null));
+    }
+
+    @Test
+    public void testReadMalformed() {
+        final byte[] malformed = "{\"name\":\"Mary\",\"$$tenant\":t1001".getBytes(StandardCharsets.UTF_8);
+
+        // The malformed should be treated as not matched.
+        Assertions.assertNull(JsonStreamingUtil.readTopLevelTextField(malformed, "$$tenant"));
+        Assertions.assertNull(JsonStreamingUtil.readTopLevelTextField("not json".getBytes(StandardCharsets.UTF_8), "name"));
+        // Should be given up directly without retrying.
+        Assertions.assertThrows(GiveUpRetryProcessException.class, () -> JsonStreamingUtil.readTree(malformed));
+    }
+
+}
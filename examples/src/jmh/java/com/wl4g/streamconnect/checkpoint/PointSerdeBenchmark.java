@@ -0,0 +1,81 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.checkpoint;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.wl4g.streamconnect.checkpoint.ICheckpoint.PointSerde;
+import com.wl4g.streamconnect.framework.StreamConnectSpiFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.wl4g.infra.common.serialize.JacksonUtils.parseToNode;
+
+/**
+ * The {@link PointSerdeBenchmark}, compares the payload size and the serialize/deserialize throughput
+ * of the checkpoint point formats. The payload size is reported by the auxiliary counter (bytes per op).
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+@State(Scope.Benchmark)
+@Threads(1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PointSerdeBenchmark {
+
+    static final String BENCHMARK_JSON = "{\"$$tenant\":\"t1001\",\"id\":\"8f2c1a7e-5b1d-4c0e-9a51-3e7f0d6b2c11\"," +
+            "\"deviceId\":\"dev-000123\",\"timestamp\":1690000000000,\"temperature\":26.5,\"humidity\":61.2," +
+            "\"online\":true,\"location\":{\"lat\":22.543096,\"lng\":114.057865,\"city\":\"Shenzhen\"}," +
+            "\"readings\":[{\"name\":\"voltage\",\"value\":220.1},{\"name\":\"current\",\"value\":1.35}," +
+            "{\"name\":\"power\",\"value\":297.1}],\"tags\":[\"indoor\",\"floor-3\",\"zone-b\"]}";
+
+    @Param({"JSON", "SMILE", "CBOR", "AVRO"})
+    private String format;
+
+    private PointSerde serde;
+    private JsonNode value;
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.serde = StreamConnectSpiFactory.get(PointSerde.class, format);
+        this.value = parseToNode(BENCHMARK_JSON);
+        this.payload = serde.serialize("benchmark", null, value);
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class PayloadCounters {
+        public long payloadBytes;
+    }
+
+    @Benchmark
+    public void measureSerialize(Blackhole bh, PayloadCounters counters) {
+        final byte[] data = serde.serialize("benchmark", null, value);
+        counters.payloadBytes = data.length;
+        bh.consume(data);
+    }
+
+    @Benchmark
+    public void measureDeserialize(Blackhole bh) {
+        bh.consume(serde.deserialize("benchmark", null, payload));
+    }
+
+}
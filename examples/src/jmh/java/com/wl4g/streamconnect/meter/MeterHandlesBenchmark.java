@@ -0,0 +1,98 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.meter;
+
+import com.wl4g.streamconnect.meter.MeterEventHandler.CountMeterEvent;
+import com.wl4g.streamconnect.meter.MeterEventHandler.TimingMeterEvent;
+import com.wl4g.streamconnect.meter.StreamConnectMeter.MetricsName;
+import com.wl4g.streamconnect.meter.StreamConnectMeter.MetricsTag;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link MeterHandlesBenchmark}, compares the per-record overhead of the meter events published
+ * via the spring event multicaster (i.e. {@link MeterEventHandler}) with the cached {@link MeterHandles}
+ * (e.g: -prof gc, for the allocations per operation).
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+@State(Scope.Benchmark)
+@Threads(4)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MeterHandlesBenchmark {
+
+    private AnnotationConfigApplicationContext context;
+    private List<String> basedTags;
+    private MeterHandles handles;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final StreamConnectMeter meter = new StreamConnectMeter(
+                new PrometheusMeterRegistry(PrometheusConfig.DEFAULT), "benchmark", 0);
+        this.context = new AnnotationConfigApplicationContext();
+        this.context.registerBean(MeterEventHandler.class, () -> new MeterEventHandler(meter));
+        this.context.refresh();
+
+        this.basedTags = Arrays.asList(MetricsTag.CONNECTOR, "benchmark_connector",
+                MetricsTag.TOPIC, "benchmark_topic", MetricsTag.GROUP_ID, "benchmark_group");
+        this.handles = new MeterHandles(meter, basedTags);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void measureCountEvent() {
+        context.publishEvent(new CountMeterEvent(MetricsName.sink_records_success, basedTags));
+    }
+
+    @Benchmark
+    public void measureCountHandle() {
+        handles.increment(MetricsName.sink_records_success);
+    }
+
+    @Benchmark
+    public void measureTimingEvent() {
+        final long begin = System.nanoTime();
+        context.publishEvent(new TimingMeterEvent(MetricsName.acknowledge_time,
+                StreamConnectMeter.DEFAULT_PERCENTILES,
+                Duration.ofNanos(System.nanoTime() - begin),
+                basedTags,
+                MetricsTag.ACK_KIND,
+                MetricsTag.ACK_KIND_VALUE_COMMIT));
+    }
+
+    @Benchmark
+    public void measureTimingHandle() {
+        final long begin = System.nanoTime();
+        handles.tagged(MetricsTag.ACK_KIND, MetricsTag.ACK_KIND_VALUE_COMMIT)
+                .recordNanos(MetricsName.acknowledge_time, begin);
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.stream.process;
+
+import com.wl4g.streamconnect.config.ChannelInfo;
+import com.wl4g.streamconnect.config.StreamConnectConfiguration.ConnectorConfig;
+import com.wl4g.streamconnect.config.configurator.IStreamConnectConfigurator;
+import com.wl4g.streamconnect.coordinator.CachingChannelRegistry;
+import com.wl4g.streamconnect.coordinator.IStreamConnectCoordinator;
+import com.wl4g.streamconnect.stream.AbstractStream.MessageRecord;
+import com.wl4g.streamconnect.stream.source.SourceStream;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.wl4g.streamconnect.stream.process.ProcessStreamBenchmark.buildBenchmarkChannelInfo;
+import static com.wl4g.streamconnect.stream.process.ProcessStreamBenchmark.buildBenchmarkMessageRecord;
+
+/**
+ * The {@link ChannelMatchingBenchmark}, compares the per-channel matching of records with the
+ * tenant inverted index matching, with the channel count scaling from 10 to 10,000.
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+@State(Scope.Benchmark)
+@Threads(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ChannelMatchingBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    private int channelCount;
+
+    @Param({"500"})
+    private int batchSize;
+
+    private IStreamConnectConfigurator configurator;
+    private ConnectorConfig connectorConfig;
+    private List<ChannelInfo> channels;
+    private Map<String, List<ChannelInfo>> tenantIndex;
+    private List<MessageRecord<String, Object>> records;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.configurator = new IStreamConnectConfigurator() {
+            @Override
+            public List<? extends SourceStream.SourceStreamConfig> loadSourceConfigs(String connectorName) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public List<ChannelInfo> loadChannels(String connectorName,
+                                                  IStreamConnectCoordinator.ShardingInfo sharding) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        this.connectorConfig = new ConnectorConfig();
+        this.connectorConfig.setName(ProcessStreamBenchmark.CONNECTOR_NAME);
+
+        this.channels = new ArrayList<>(channelCount);
+        for (int i = 0; i < channelCount; i++) {
+            channels.add(buildBenchmarkChannelInfo("c" + i, "t" + i, false));
+        }
+        this.tenantIndex = CachingChannelRegistry.buildTenantIndex(channels);
+
+        this.records = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            records.add(buildBenchmarkMessageRecord(String.valueOf(i), "t" + (i % channelCount)));
+        }
+    }
+
+    @Benchmark
+    public void measureLinearMatching(Blackhole bh) {
+        bh.consume(ProcessStream.doMatchToChannelRecords(configurator, connectorConfig, channels, records));
+    }
+
+    @Benchmark
+    public void measureIndexMatching(Blackhole bh) {
+        bh.consume(ProcessStream.doIndexMatchToChannelRecords(tenantIndex, records));
+    }
+
+}
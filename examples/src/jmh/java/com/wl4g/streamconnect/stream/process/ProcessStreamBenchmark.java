@@ -0,0 +1,308 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.stream.process;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.wl4g.streamconnect.checkpoint.AbstractCheckpoint;
+import com.wl4g.streamconnect.checkpoint.ICheckpoint;
+import com.wl4g.streamconnect.config.ChannelInfo;
+import com.wl4g.streamconnect.config.StreamConnectConfiguration;
+import com.wl4g.streamconnect.config.StreamConnectConfiguration.ConnectorConfig;
+import com.wl4g.streamconnect.config.StreamConnectProperties;
+import com.wl4g.streamconnect.config.StreamConnectProperties.ConnectorProperties;
+import com.wl4g.streamconnect.config.StreamConnectProperties.DefinitionProperties;
+import com.wl4g.streamconnect.config.configurator.IStreamConnectConfigurator;
+import com.wl4g.streamconnect.config.configurator.IStreamConnectConfigurator.ConfiguratorProvider;
+import com.wl4g.streamconnect.coordinator.CachingChannelRegistry;
+import com.wl4g.streamconnect.coordinator.IStreamConnectCoordinator;
+import com.wl4g.streamconnect.coordinator.noop.NoOpStreamConnectCoordinator.NoOpCoordinatorProvider;
+import com.wl4g.streamconnect.coordinator.strategy.AverageShardingStrategy;
+import com.wl4g.streamconnect.meter.StreamConnectMeter;
+import com.wl4g.streamconnect.qos.AtMostAttemptsQoS;
+import com.wl4g.streamconnect.stream.AbstractStream;
+import com.wl4g.streamconnect.stream.AbstractStream.MessageRecord;
+import com.wl4g.streamconnect.stream.AbstractStream.StreamContext;
+import com.wl4g.streamconnect.stream.StreamConnectEngineBootstrap;
+import com.wl4g.streamconnect.stream.process.ProcessStream.ChannelRecord;
+import com.wl4g.streamconnect.stream.process.filter.TrueProcessFilter;
+import com.wl4g.streamconnect.stream.process.map.NoOpProcessMapper;
+import com.wl4g.streamconnect.stream.source.SourceStream;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+
+/**
+ * The {@link ProcessStreamBenchmark}, drives the {@link ProcessStream} with synthetic
+ * {@link MessageRecord}s, to measure the batch completion (e.g: -prof gc, -prof stack).
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+@State(Scope.Benchmark)
+@Threads(1) // Simulate the single source listener thread.
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ProcessStreamBenchmark {
+
+    public static final String CONNECTOR_NAME = "benchmark_connector";
+
+    @Param({"500"})
+    private int batchSize;
+
+    @Param({"50"})
+    private int channelCount;
+
+    private ProcessStream processStream;
+    private List<MessageRecord<String, Object>> records;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final List<ChannelInfo> channels = new ArrayList<>(channelCount);
+        for (int i = 0; i < channelCount; i++) {
+            // Mixed the sequence and non-sequence channels.
+            channels.add(buildBenchmarkChannelInfo("c" + i, "t" + i, i % 5 == 0));
+        }
+        this.records = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            records.add(buildBenchmarkMessageRecord(String.valueOf(i), "t" + (i % channelCount)));
+        }
+        this.processStream = buildBenchmarkProcessStream(channels);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        processStream.close();
+    }
+
+    @Benchmark
+    public void measureProcessBatch(Blackhole blackhole) {
+        blackhole.consume(processStream.process(records));
+    }
+
+    static ProcessStream buildBenchmarkProcessStream(List<ChannelInfo> channels) {
+        final TrueProcessFilter filter = new TrueProcessFilter();
+        filter.setName("benchmarkFilter");
+        final NoOpProcessMapper mapper = new NoOpProcessMapper();
+        mapper.setName("benchmarkMapper");
+        final AtMostAttemptsQoS qos = new AtMostAttemptsQoS();
+        qos.setName("benchmarkQoS");
+        final BenchmarkCheckpoint checkpoint = new BenchmarkCheckpoint();
+        checkpoint.setName("benchmarkCheckpoint");
+        final AverageShardingStrategy shardingStrategy = new AverageShardingStrategy();
+        shardingStrategy.setName("benchmarkSharding");
+        final NoOpCoordinatorProvider coordinatorProvider = new NoOpCoordinatorProvider();
+        coordinatorProvider.setName("benchmarkCoordinator");
+
+        final DefinitionProperties definitions = new DefinitionProperties();
+        definitions.setFilters(singletonList(filter));
+        definitions.setMappers(singletonList(mapper));
+        definitions.setQoss(singletonList(qos));
+        definitions.setCheckpoints(singletonList(checkpoint));
+        definitions.setShardingStrategies(singletonList(shardingStrategy));
+        definitions.setCoordinators(singletonList(coordinatorProvider));
+
+        final ConnectorProperties connector = new ConnectorProperties();
+        connector.setName(CONNECTOR_NAME);
+        connector.setProcesses(singletonList(filter.getName()));
+        connector.setQos(qos.getName());
+        connector.setCheckpoint(checkpoint.getName());
+
+        final StreamConnectProperties properties = new StreamConnectProperties();
+        properties.setDefinitions(definitions);
+        properties.setConfigurator(new BenchmarkConfiguratorProvider(channels));
+        properties.setCoordinator(coordinatorProvider.getName());
+        properties.setConnectors(singletonList(connector));
+
+        final Environment environment = new StandardEnvironment();
+        final StreamConnectMeter meter = new StreamConnectMeter(
+                new PrometheusMeterRegistry(PrometheusConfig.DEFAULT), "benchmark", 0);
+        final StreamConnectConfiguration config = new StreamConnectConfiguration(environment,
+                properties, event -> {
+        }, meter);
+
+        final CachingChannelRegistry registry = new CachingChannelRegistry(config);
+        registry.assign(CONNECTOR_NAME, channels);
+        final StreamConnectEngineBootstrap bootstrap = new StreamConnectEngineBootstrap(environment,
+                config, registry);
+
+        final ConnectorConfig connectorConfig = config.getRequiredConnectorConfig(CONNECTOR_NAME);
+        // The process chain conditions are merged by the channels changed events (as the registered connectors).
+        registry.addChangedListener(CONNECTOR_NAME, connectorConfig.getProcessChain()::onChannelsChanged);
+
+        final StreamContext context = new StreamContext(environment, config, connectorConfig, registry, bootstrap);
+        final SourceStream sourceStream = new SourceStream(context) {
+            @Override
+            public SourceStreamConfig getSourceStreamConfig() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            protected Object getInternalTask() {
+                throw new UnsupportedOperationException();
+            }
+        };
+        return sourceStream.getProcessStream();
+    }
+
+    static ChannelInfo buildBenchmarkChannelInfo(String channelId, String tenantId, boolean sequence) {
+        return ChannelInfo.builder()
+                .id(channelId)
+                .name(channelId)
+                .enable(true)
+                .tenantId(tenantId)
+                .settingsSpec(ChannelInfo.SettingsSpec
+                        .builder()
+                        .policySpec(ChannelInfo.PolicySpec
+                                .builder()
+                                .sequence(sequence)
+                                .rules(singletonList(ChannelInfo.RuleSpec
+                                        .builder()
+                                        .tenantId(tenantId)
+                                        .build()))
+                                .build())
+                        .build())
+                .build();
+    }
+
+    static MessageRecord<String, Object> buildBenchmarkMessageRecord(String key, String tenantId) {
+        final ObjectNode value = JsonNodeFactory.instance.objectNode();
+        value.put(AbstractStream.KEY_TENANT, tenantId);
+        value.put("id", key);
+        value.put("temperature", 26.5d);
+        final Map<String, Object> metadata = singletonMap(AbstractStream.KEY_TENANT, tenantId);
+        final long timestamp = System.currentTimeMillis();
+        return new MessageRecord<String, Object>() {
+            @Override
+            public Map<String, Object> getMetadata() {
+                return metadata;
+            }
+
+            @Override
+            public String getKey() {
+                return key;
+            }
+
+            @Override
+            public Object getValue() {
+                return value;
+            }
+
+            @Override
+            public long getTimestamp() {
+                return timestamp;
+            }
+        };
+    }
+
+    static class BenchmarkConfiguratorProvider extends ConfiguratorProvider {
+        private final List<ChannelInfo> channels;
+
+        BenchmarkConfiguratorProvider(List<ChannelInfo> channels) {
+            this.channels = channels;
+        }
+
+        @Override
+        public String getType() {
+            return "BENCHMARK_CONFIGURATOR";
+        }
+
+        @Override
+        public IStreamConnectConfigurator obtain(Environment environment,
+                                                 StreamConnectConfiguration config,
+                                                 StreamConnectMeter meter) {
+            return new IStreamConnectConfigurator() {
+                @Override
+                public List<? extends SourceStream.SourceStreamConfig> loadSourceConfigs(String connectorName) {
+                    return Collections.emptyList();
+                }
+
+                @Override
+                public List<ChannelInfo> loadChannels(String connectorName,
+                                                      IStreamConnectCoordinator.ShardingInfo sharding) {
+                    return channels;
+                }
+            };
+        }
+    }
+
+    /**
+     * The no-op checkpoint, which completes the writes immediately, so as to measure only the process stream.
+     */
+    static class BenchmarkCheckpoint extends AbstractCheckpoint {
+        static final CompletableFuture<?> COMPLETED = CompletableFuture.completedFuture(null);
+
+        @Override
+        public void init() {
+        }
+
+        @Override
+        public String getType() {
+            return "BENCHMARK_CHECKPOINT";
+        }
+
+        @Override
+        public CheckpointConfig getCheckpointConfig() {
+            return null;
+        }
+
+        @Override
+        public PointWriter createWriter(ConnectorConfig connectorConfig,
+                                        ChannelInfo channel,
+                                        CachingChannelRegistry registry) {
+            return new PointWriter() {
+                @Override
+                public void stop(long timeoutMs, boolean force) {
+                }
+
+                @Override
+                public WritePointResult writeAsync(ConnectorConfig connectorConfig,
+                                                   ChannelRecord record,
+                                                   int retryTimes) {
+                    return new WritePointResult(record, null, COMPLETED, retryTimes);
+                }
+
+                @Override
+                public void flush(Collection<WritePointResult> results) {
+                }
+            };
+        }
+
+        @Override
+        public PointReader createReader(ConnectorConfig connectorConfig,
+                                        ChannelInfo channel,
+                                        ICheckpoint.ReadPointListener listener) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+}
@@ -0,0 +1,81 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * The {@link AssignmentsBenchmark}, compares the legacy assignment of the CRC32 (encoded to the UTF-8 bytes
+ * and new CRC32 per call) with the allocation-free {@link Assignments} of the jump consistent hashing,
+ * e.g: run with {@code -prof gc} for the allocation rate.
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+@State(Scope.Benchmark)
+@Threads(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AssignmentsBenchmark {
+
+    @Param({"8", "36", "128"})
+    private int keyLength;
+
+    @Param({"100"})
+    private int parallelism;
+
+    private String[] keys;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final Random random = new Random(1024);
+        this.keys = new String[1024];
+        for (int i = 0; i < keys.length; i++) {
+            final char[] chars = new char[keyLength];
+            for (int j = 0; j < keyLength; j++) {
+                chars[j] = (char) ('a' + random.nextInt(26));
+            }
+            keys[i] = new String(chars);
+        }
+    }
+
+    @Benchmark
+    public void measureLegacyCrc32Assign(Blackhole bh) {
+        final byte[] bys = nextKey().getBytes(StandardCharsets.UTF_8);
+        final CRC32 crc32 = new CRC32();
+        crc32.update(bys, 0, bys.length);
+        bh.consume((int) Math.abs(Math.abs(crc32.getValue()) % parallelism));
+    }
+
+    @Benchmark
+    public void measureJumpConsistentAssign(Blackhole bh) {
+        bh.consume(Assignments.assign(nextKey(), parallelism));
+    }
+
+    private String nextKey() {
+        return keys[cursor++ & (keys.length - 1)];
+    }
+
+}
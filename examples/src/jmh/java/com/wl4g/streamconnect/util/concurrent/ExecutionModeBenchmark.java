@@ -0,0 +1,100 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.util.concurrent;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The {@link ExecutionModeBenchmark}, compares the platform threads pools with the virtual threads of the
+ * same concurrency limits, on the batch of blocking tasks (e.g: the blocking sink sends) of many connectors.
+ * <p>
+ * e.g: Run on JDK 21+ with {@code -prof gc} (memory) and {@code -prof perfnorm} (context-switches), the
+ * VIRTUAL is fallback to PLATFORM on the older JVM.
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+@State(Scope.Benchmark)
+@Threads(1) // Simulate the single source listener thread.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ExecutionModeBenchmark {
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    private ExecutionMode executionMode;
+
+    @Param({"20"})
+    private int connectorCount;
+
+    @Param({"50"})
+    private int poolSize; // Same as the default shared executor pool size of per connector.
+
+    @Param({"100"})
+    private int tasksPerConnector;
+
+    @Param({"100"})
+    private long blockingMicros;
+
+    private List<ThreadPoolExecutor> executors;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final ExecutionMode mode = executionMode.resolve();
+        this.executors = new ArrayList<>(connectorCount);
+        for (int i = 0; i < connectorCount; i++) {
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize,
+                    60_000L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                    mode.newThreadFactory("benchmark-connector" + i));
+            if (mode == ExecutionMode.PLATFORM) {
+                executor.prestartAllCoreThreads();
+            } else {
+                executor.allowCoreThreadTimeOut(true);
+            }
+            executors.add(executor);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executors.forEach(ThreadPoolExecutor::shutdownNow);
+    }
+
+    @Benchmark
+    public void measureBlockingTasks() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(connectorCount * tasksPerConnector);
+        final long blockingNanos = TimeUnit.MICROSECONDS.toNanos(blockingMicros);
+        for (int i = 0; i < tasksPerConnector; i++) {
+            for (ThreadPoolExecutor executor : executors) {
+                executor.execute(() -> {
+                    LockSupport.parkNanos(blockingNanos);
+                    latch.countDown();
+                });
+            }
+        }
+        latch.await();
+    }
+
+}
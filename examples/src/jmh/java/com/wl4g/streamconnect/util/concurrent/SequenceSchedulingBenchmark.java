@@ -0,0 +1,122 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.util.concurrent;
+
+import com.wl4g.streamconnect.util.Assignments;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link SequenceSchedulingBenchmark}, compares the isolation single thread executors (the key is fixed
+ * assigned by hash) with the {@link KeyAffineExecutor}, on the batch of the skewed (Zipfian) keys.
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+@State(Scope.Benchmark)
+@Threads(1) // Simulate the single source listener thread.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SequenceSchedulingBenchmark {
+
+    @Param({"0.0", "0.99", "1.2"})
+    private double zipfExponent;
+
+    @Param({"1000"})
+    private int keyCount;
+
+    @Param({"2000"})
+    private int batchSize;
+
+    @Param({"1000"})
+    private int taskTokens; // The simulated CPU work of per process task.
+
+    private List<ThreadPoolExecutor> isolationExecutors;
+    private KeyAffineExecutor keyAffineExecutor;
+    private String[] keys;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final int parallelism = Runtime.getRuntime().availableProcessors();
+        // Same as the default, the more isolation threads than processors.
+        this.isolationExecutors = new ArrayList<>(100);
+        for (int i = 0; i < 100; i++) {
+            isolationExecutors.add(new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(), new NamedThreadFactory("benchmark-isolationSeq")));
+        }
+        this.keyAffineExecutor = new KeyAffineExecutor("benchmark-keyAffineSeq", parallelism * 2, batchSize);
+        this.keys = buildZipfianKeys(new Random(1024), keyCount, zipfExponent, batchSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        isolationExecutors.forEach(ThreadPoolExecutor::shutdownNow);
+        keyAffineExecutor.close();
+    }
+
+    @Benchmark
+    public void measureIsolation() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(keys.length);
+        for (String key : keys) {
+            isolationExecutors.get(Assignments.assign(key, isolationExecutors.size()))
+                    .execute(() -> runTask(latch));
+        }
+        latch.await();
+    }
+
+    @Benchmark
+    public void measureKeyAffine() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(keys.length);
+        for (String key : keys) {
+            keyAffineExecutor.execute(key, () -> runTask(latch));
+        }
+        latch.await();
+    }
+
+    private void runTask(CountDownLatch latch) {
+        Blackhole.consumeCPU(taskTokens);
+        latch.countDown();
+    }
+
+    static String[] buildZipfianKeys(Random random, int keyCount, double exponent, int size) {
+        final double[] cumulative = new double[keyCount];
+        double sum = 0d;
+        for (int i = 0; i < keyCount; i++) {
+            sum += 1d / Math.pow(i + 1, exponent);
+            cumulative[i] = sum;
+        }
+        final String[] keys = new String[size];
+        for (int i = 0; i < size; i++) {
+            final double value = random.nextDouble() * sum;
+            int index = Arrays.binarySearch(cumulative, value);
+            index = index >= 0 ? index : -index - 1;
+            keys[i] = "key-" + Math.min(index, keyCount - 1);
+        }
+        return keys;
+    }
+
+}
@@ -40,6 +40,8 @@ public class ExpressionOperatorBenchmark {
 
     public static final ExpressionOperator.LogicalOperator condition5 = buildBenchmarkExpressionOperator();
 
+    public static final ExpressionOperator.CompiledOperator compiledCondition5 = condition5.compile();
+
     // ------------------------------------------------------------------------------------
     //            testCondition5(OR)
     //            /                \
@@ -104,4 +106,17 @@ public class ExpressionOperatorBenchmark {
         bh.consume(condition5.apply(inputJson));
     }
 
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void measureCompiledThroughput(Blackhole bh) {
+        bh.consume(compiledCondition5.test(inputJson));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void measureCompiledAvgTime(Blackhole bh) {
+        bh.consume(compiledCondition5.test(inputJson));
+    }
+
 }
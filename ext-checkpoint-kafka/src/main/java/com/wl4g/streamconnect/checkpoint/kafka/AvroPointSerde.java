@@ -0,0 +1,174 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.checkpoint.kafka;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.wl4g.streamconnect.checkpoint.ICheckpoint.PointSerde;
+import com.wl4g.streamconnect.checkpoint.serialize.JacksonPointSerde;
+import com.wl4g.streamconnect.exception.StreamConnectException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Objects.isNull;
+
+/**
+ * The {@link AvroPointSerde}, the avro binary format with the generic recursive JSON value schema, so
+ * that the arbitrary records can be written without the schema registry.
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+public class AvroPointSerde implements PointSerde {
+    public static final String TYPE_NAME = "AVRO";
+
+    public static final Schema JSON_VALUE_SCHEMA = new Schema.Parser().parse("{\"type\":\"record\"," +
+            "\"name\":\"JsonValue\",\"namespace\":\"com.wl4g.streamconnect.checkpoint\",\"fields\":[{\"name\":\"v\"," +
+            "\"type\":[\"null\",\"boolean\",\"long\",\"double\",\"string\",\"bytes\"," +
+            "{\"type\":\"array\",\"items\":\"JsonValue\"},{\"type\":\"map\",\"values\":\"JsonValue\"}]}]}");
+
+    private static final GenericDatumWriter<GenericRecord> WRITER = new GenericDatumWriter<>(JSON_VALUE_SCHEMA);
+    private static final GenericDatumReader<GenericRecord> READER = new GenericDatumReader<>(JSON_VALUE_SCHEMA);
+
+    private final ThreadLocal<BinaryEncoder> encoderLocal = new ThreadLocal<>();
+    private final ThreadLocal<BinaryDecoder> decoderLocal = new ThreadLocal<>();
+
+    @Override
+    public String getType() {
+        return TYPE_NAME;
+    }
+
+    @Override
+    public byte[] serialize(String topic, Map<String, Object> headers, Object data) {
+        if (isNull(data)) {
+            return null;
+        }
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+            final BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, encoderLocal.get());
+            encoderLocal.set(encoder);
+            WRITER.write(toAvro(JacksonPointSerde.toJsonNode(data)), encoder);
+            encoder.flush();
+            return out.toByteArray();
+        } catch (IOException ex) {
+            throw new StreamConnectException(String.format("Failed to serialize point record with %s of topic: %s",
+                    getType(), topic), ex);
+        }
+    }
+
+    @Override
+    public Object deserialize(String topic, Map<String, Object> headers, byte[] data) {
+        if (isNull(data)) {
+            return null;
+        }
+        try {
+            final BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(data, decoderLocal.get());
+            decoderLocal.set(decoder);
+            return fromAvro(READER.read(null, decoder));
+        } catch (IOException ex) {
+            throw new StreamConnectException(String.format("Failed to deserialize point record with %s of topic: %s",
+                    getType(), topic), ex);
+        }
+    }
+
+    static GenericRecord toAvro(JsonNode node) {
+        final GenericRecord record = new GenericData.Record(JSON_VALUE_SCHEMA);
+        if (isNull(node) || node.isNull() || node.isMissingNode()) {
+            record.put(0, null);
+        } else if (node.isBoolean()) {
+            record.put(0, node.booleanValue());
+        } else if (node.isIntegralNumber() && node.canConvertToLong()) {
+            record.put(0, node.longValue());
+        } else if (node.isNumber()) {
+            record.put(0, node.doubleValue());
+        } else if (node.isBinary()) {
+            try {
+                record.put(0, ByteBuffer.wrap(node.binaryValue()));
+            } catch (IOException ex) {
+                throw new StreamConnectException("Failed to read the binary node", ex);
+            }
+        } else if (node.isArray()) {
+            final List<GenericRecord> items = new ArrayList<>(node.size());
+            for (JsonNode item : node) {
+                items.add(toAvro(item));
+            }
+            record.put(0, items);
+        } else if (node.isObject()) {
+            final Map<String, GenericRecord> fields = new LinkedHashMap<>(Math.max(16, node.size() * 2));
+            final Iterator<Map.Entry<String, JsonNode>> it = node.fields();
+            while (it.hasNext()) {
+                final Map.Entry<String, JsonNode> field = it.next();
+                fields.put(field.getKey(), toAvro(field.getValue()));
+            }
+            record.put(0, fields);
+        } else {
+            record.put(0, node.asText());
+        }
+        return record;
+    }
+
+    @SuppressWarnings("unchecked")
+    static JsonNode fromAvro(GenericRecord record) {
+        final Object value = record.get(0);
+        final JsonNodeFactory factory = JsonNodeFactory.instance;
+        if (isNull(value)) {
+            return factory.nullNode();
+        } else if (value instanceof Boolean) {
+            return factory.booleanNode((Boolean) value);
+        } else if (value instanceof Long) {
+            return factory.numberNode((Long) value);
+        } else if (value instanceof Double) {
+            return factory.numberNode((Double) value);
+        } else if (value instanceof ByteBuffer) {
+            final ByteBuffer buffer = (ByteBuffer) value;
+            final byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return factory.binaryNode(bytes);
+        } else if (value instanceof List) {
+            final ArrayNode array = factory.arrayNode(((List<?>) value).size());
+            for (Object item : (List<?>) value) {
+                array.add(fromAvro((GenericRecord) item));
+            }
+            return array;
+        } else if (value instanceof Map) {
+            final ObjectNode object = factory.objectNode();
+            ((Map<CharSequence, GenericRecord>) value).forEach((k, v) -> object.set(k.toString(), fromAvro(v)));
+            return object;
+        }
+        return factory.textNode(value.toString());
+    }
+
+}
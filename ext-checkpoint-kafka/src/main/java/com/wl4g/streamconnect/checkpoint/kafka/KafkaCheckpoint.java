@@ -19,52 +19,64 @@ package com.wl4g.streamconnect.checkpoint.kafka;
 
 import com.wl4g.infra.common.lang.Assert2;
 import com.wl4g.streamconnect.checkpoint.AbstractCheckpoint;
+import com.wl4g.streamconnect.checkpoint.serialize.JsonPointSerde;
 import com.wl4g.streamconnect.config.ChannelInfo;
 import com.wl4g.streamconnect.config.StreamConnectConfiguration.ConnectorConfig;
 import com.wl4g.streamconnect.coordinator.CachingChannelRegistry;
 import com.wl4g.streamconnect.exception.StreamConnectException;
-import com.wl4g.streamconnect.meter.MeterEventHandler.CountMeterEvent;
-import com.wl4g.streamconnect.meter.MeterEventHandler.TimingMeterEvent;
-import com.wl4g.streamconnect.meter.StreamConnectMeter;
+import com.wl4g.streamconnect.meter.MeterHandles;
 import com.wl4g.streamconnect.meter.StreamConnectMeter.MetricsName;
 import com.wl4g.streamconnect.meter.StreamConnectMeter.MetricsTag;
+import com.wl4g.streamconnect.stream.AbstractStream.RawMessageRecord;
 import com.wl4g.streamconnect.stream.process.ProcessStream.ChannelRecord;
 import com.wl4g.streamconnect.stream.sink.SinkStream;
 import com.wl4g.streamconnect.stream.source.kafka.KafkaSourceStream.KafkaMessageRecord;
 import com.wl4g.streamconnect.util.ConcurrentKafkaProducerContainer;
 import com.wl4g.streamconnect.util.KafkaConsumerBuilder;
+import com.wl4g.streamconnect.util.KafkaProducerContainerPool;
+import com.wl4g.streamconnect.util.PartitionOffsetTracker;
 import lombok.Builder.Default;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.experimental.SuperBuilder;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
-import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
-import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.config.TopicConfig;
+import org.apache.kafka.common.header.Header;
 import org.apache.kafka.common.header.internals.RecordHeader;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
 import org.springframework.util.unit.DataSize;
 
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Comparator;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -74,10 +86,12 @@ import java.util.regex.Pattern;
 import static com.wl4g.infra.common.collection.CollectionUtils2.safeList;
 import static com.wl4g.infra.common.collection.CollectionUtils2.safeMap;
 import static com.wl4g.streamconnect.stream.AbstractStream.KEY_CHANNEL;
+import static com.wl4g.streamconnect.stream.AbstractStream.KEY_FORMAT;
 import static com.wl4g.streamconnect.stream.AbstractStream.KEY_SEQUENCE;
 import static com.wl4g.streamconnect.stream.AbstractStream.KEY_TENANT;
-import static com.wl4g.streamconnect.util.ConcurrentKafkaProducerContainer.buildDefaultAcknowledgedProducerContainer;
+import static com.wl4g.streamconnect.stream.AbstractStream.KEY_TIMESTAMP;
 import static java.lang.String.valueOf;
+import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static java.util.Objects.nonNull;
 import static java.util.Objects.requireNonNull;
@@ -112,6 +126,8 @@ public class KafkaCheckpoint extends AbstractCheckpoint {
     public static final String TYPE_NAME = "KAFKA_CHECKPOINT";
 
     private KafkaCheckpointConfig checkpointConfig;
+    // The write point producers are shared by all channels of the same checkpoint servers and settings.
+    private KafkaProducerContainerPool producerPool;
 
     @Override
     public String getType() {
@@ -119,8 +135,10 @@ public class KafkaCheckpoint extends AbstractCheckpoint {
     }
 
     @Override
-    public void init() {
-        // Ignore
+    public synchronized void init() {
+        if (producerPool == null) {
+            this.producerPool = new KafkaProducerContainerPool("checkpoint-".concat(getName()));
+        }
     }
 
     /**
@@ -132,6 +150,10 @@ public class KafkaCheckpoint extends AbstractCheckpoint {
                                     @NotNull CachingChannelRegistry registry) {
         return new PointWriter() {
             private final Map<String, ConcurrentKafkaProducerContainer> pointProducersMap = new ConcurrentHashMap<>();
+            private final PointSerde pointSerde = getCheckpointConfig().obtainPointSerde();
+            private final byte[] pointFormatHeader = pointSerde.getType().getBytes(StandardCharsets.UTF_8);
+            // The producers are shared across channels, so the gauges are tagged by checkpoint only.
+            private final List<String> gaugeTags = Arrays.asList(MetricsTag.CHECKPOINT, getName());
 
             @Override
             public synchronized void stop(long timeoutMs, boolean force) throws Exception {
@@ -143,7 +165,7 @@ public class KafkaCheckpoint extends AbstractCheckpoint {
                     return;
                 }
 
-                // Close of multi-producers corresponding to each channel.
+                // Release of shared multi-producers corresponding to each channel.
                 final Iterator<Map.Entry<String, ConcurrentKafkaProducerContainer>> it = pointProducersMap
                         .entrySet().iterator();
                 while (it.hasNext()) {
@@ -152,16 +174,16 @@ public class KafkaCheckpoint extends AbstractCheckpoint {
                     final ConcurrentKafkaProducerContainer container = entry.getValue();
                     try {
                         if (log.isInfoEnabled()) {
-                            log.info("{} :: {} :: Closing to write point producer...",
-                                    connectorConfig.getName(), channel.getId());
+                            log.info("{} :: {} :: Releasing to write point producer...",
+                                    connectorConfig.getName(), channelId);
                         }
-                        container.close();
+                        final boolean closed = getProducerPool().release(container);
                         if (log.isInfoEnabled()) {
-                            log.info("{} :: {} :: Closed to write point producer.",
-                                    connectorConfig.getName(), channel.getId());
+                            log.info("{} :: {} :: Released to write point producer, closed: {}",
+                                    connectorConfig.getName(), channelId, closed);
                         }
                     } catch (Throwable ex) {
-                        throw new StreamConnectException(String.format("%s :: Failed to close write point producers.",
+                        throw new StreamConnectException(String.format("%s :: Failed to release write point producers.",
                                 connectorConfig.getName()), ex);
                     } finally {
                         // The all producers corresponding to this channel are closed, remove it.
@@ -180,15 +202,23 @@ public class KafkaCheckpoint extends AbstractCheckpoint {
                                                int retryTimes) {
                 final ChannelInfo channel = record.getChannel();
                 final String key = record.getRecord().getKey();
-                final Object value = record.getRecord().getValue();
-
                 final Producer<String, Object> producer = determineKafkaProducer(channel, key);
                 final String topic = getCheckpointConfig().generateDlqTopic(channel.getId());
 
-                final ProducerRecord<String, Object> pr = new ProducerRecord<>(topic, key, value.toString());
+                // Forward the original bytes if the record value has not been mapped, avoid to re-serialize.
+                final byte[] rawValue = pointSerde instanceof JsonPointSerde
+                        ? RawMessageRecord.getUnchangedRawValue(record.getRecord()) : null;
+                final byte[] value = nonNull(rawValue) ? rawValue
+                        : pointSerde.serialize(topic, null, record.getRecord().getValue());
+
+                final ProducerRecord<String, Object> pr = new ProducerRecord<>(topic, key, value);
                 // Note: Hand down the channel metadata of each record to the downstream.
                 pr.headers().add(new RecordHeader(KEY_TENANT, valueOf(channel.getTenantId()).getBytes()));
+                pr.headers().add(new RecordHeader(KEY_FORMAT, pointFormatHeader));
                 pr.headers().add(new RecordHeader(KEY_CHANNEL, valueOf(channel.getId()).getBytes()));
+                // Note: Hand down the original timestamp for the end-to-end latency, the record timestamp of
+                // checkpoint is still the written time, so as not to be deleted early by the retention.
+                pr.headers().add(new RecordHeader(KEY_TIMESTAMP, valueOf(record.getRecord().getTimestamp()).getBytes()));
                 pr.headers().add(new RecordHeader(KEY_SEQUENCE, valueOf(channel.getSettingsSpec().getPolicySpec()
                         .isSequence()).getBytes()));
 
@@ -196,7 +226,17 @@ public class KafkaCheckpoint extends AbstractCheckpoint {
                     log.debug("{} :: {} :: Writing to point record : {}",
                             connectorConfig.getName(), channel.getId(), pr);
                 }
-                return new WritePointResult(record, producer, producer.send(pr), retryTimes);
+                // Notice: Completed by the producer callback (on the kafka producer I/O thread), so that the
+                // waiting side can be driven by completion instead of polling the future.
+                final CompletableFuture<RecordMetadata> future = new CompletableFuture<>();
+                producer.send(pr, (metadata, ex) -> {
+                    if (nonNull(ex)) {
+                        future.completeExceptionally(ex);
+                    } else {
+                        future.complete(metadata);
+                    }
+                });
+                return new WritePointResult(record, producer, future, retryTimes);
             }
 
             @SuppressWarnings("resource")
@@ -227,26 +267,41 @@ public class KafkaCheckpoint extends AbstractCheckpoint {
                     final Map<String, Object> mergedProps = new HashMap<>();
                     safeMap(getCheckpointConfig().getProducerProps()).forEach(mergedProps::putIfAbsent);
                     mergedProps.putIfAbsent(BOOTSTRAP_SERVERS_CONFIG, getCheckpointBootstrapServers(getCheckpointConfig(), channel));
-                    // TODO support protobuf,KafkaAvroSerializer(not arrow)?
                     mergedProps.putIfAbsent(KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
-                    mergedProps.putIfAbsent(VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
+                    // Must be 'ByteArraySerializer' for forwarding the original bytes.
+                    mergedProps.put(VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
 
-                    return new ConcurrentKafkaProducerContainer("checkpoint-".concat(channel.getId()), getCheckpointConfig().getParallelism(),
-                            null, mergedProps);
+                    // Acquire the producers shared by channels with the same servers and effective properties.
+                    return getProducerPool().acquire(getCheckpointConfig().getParallelism(), mergedProps);
                 });
             }
 
             @SuppressWarnings("unchecked")
             @Override
             public void flush(Collection<WritePointResult> results) {
-                safeList(results).parallelStream().forEach(result -> {
+                final ConcurrentKafkaProducerContainer container = pointProducersMap.get(channel.getId());
+                if (nonNull(container)) {
+                    container.publishGaugesIfNecessary(getEventPublisher(), gaugeTags);
+                }
+                // The linger mode relies on the producer batching (linger.ms/batch.size) and the send callbacks.
+                if (getCheckpointConfig().getFlushMode() == FlushMode.LINGER) {
+                    return;
+                }
+                // Flush each producer only once per batch, and only if it has pending writes of this batch.
+                final Set<Producer<String, Object>> producers = Collections.newSetFromMap(new IdentityHashMap<>(4));
+                for (WritePointResult result : safeList(results)) {
+                    if (nonNull(result.getInternalOperator()) && !result.getFuture().isDone()) {
+                        producers.add((Producer<String, Object>) result.getInternalOperator());
+                    }
+                }
+                for (Producer<String, Object> producer : producers) {
                     try {
-                        ((Producer<String, Object>) result.getInternalOperator()).flush();
+                        producer.flush();
                     } catch (Throwable ex) {
-                        log.error(String.format("%s :: Failed to flush write point record: %s",
-                                connectorConfig.getName(), result.getRecord()), ex);
+                        log.error(String.format("%s :: %s :: Failed to flush write point producer.",
+                                connectorConfig.getName(), channel.getId()), ex);
                     }
-                });
+                }
             }
         };
     }
@@ -260,7 +315,13 @@ public class KafkaCheckpoint extends AbstractCheckpoint {
         requireNonNull(listener, "listener must not be null");
 
         return new PointReader() {
-            private ConcurrentKafkaProducerContainer acknowledgeProducerContainer;
+            private final MeterHandles readMeterHandles = newMeterHandles(null,
+                    MetricsTag.CONNECTOR, connectorConfig.getName(), MetricsTag.CHANNEL, channel.getId());
+            private final MeterHandles ackMeterHandles = newMeterHandles(null,
+                    MetricsTag.CHECKPOINT, getName(), MetricsTag.CHANNEL, valueOf(channel.getId()));
+            // One tracker per consumer, and the completions are routed by the assigned partitions.
+            private final Map<Consumer<?, ?>, PartitionOffsetTracker> offsetTrackers = new ConcurrentHashMap<>();
+            private final Map<TopicPartition, PartitionOffsetTracker> partitionTrackers = new ConcurrentHashMap<>();
             private ConcurrentMessageListenerContainer<String, Object> consumerContainer;
 
             @Override
@@ -274,47 +335,41 @@ public class KafkaCheckpoint extends AbstractCheckpoint {
                 }
                 listener.setReader(this);
 
-                // Initial acknowledge producer container.
-                this.acknowledgeProducerContainer = buildDefaultAcknowledgedProducerContainer(channel.getId(),
-                        getCheckpointConfig().getBootstrapServers());
-
                 // Initial consumer container.
                 final String groupId = getCheckpointConfig().generateDlqConsumerGroupId(channel.getId());
+                final boolean preferAcknowledge = connectorConfig.getQos().supportRetry(connectorConfig)
+                        && connectorConfig.getQos().supportPreferAcknowledge(connectorConfig);
                 final String topic = getCheckpointConfig().generateDlqTopic(channel.getId());
                 final String checkpointServers = getCheckpointBootstrapServers(getCheckpointConfig(), channel);
 
                 final Map<String, Object> props = new HashMap<>();
                 safeMap(getCheckpointConfig().getConsumerProps()).forEach(props::putIfAbsent);
                 props.putIfAbsent(BOOTSTRAP_SERVERS_CONFIG, checkpointServers);
-                // TODO support protobuf,KafkaAvroSerializer(not arrow)?
                 props.putIfAbsent(KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
-                props.putIfAbsent(VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+                // Must be 'ByteArrayDeserializer' for deserialize by the format header, see: SmartJsonOrAvroDeserializer
+                props.put(VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
 
                 this.consumerContainer = new KafkaConsumerBuilder(props)
                         .buildContainer(Pattern.compile(topic),
                                 groupId,
                                 getCheckpointConfig().getParallelism(),
-                                (records, ack) -> {
+                                (records, ack, consumer) -> {
                                     final long readTimingBegin = System.nanoTime();
+                                    final PartitionOffsetTracker tracker = preferAcknowledge
+                                            ? obtainOffsetTracker(groupId, consumer) : null;
                                     try {
-                                        getEventPublisher().publishEvent(new CountMeterEvent(
-                                                MetricsName.checkpoint_read_success,
-                                                MetricsTag.CONNECTOR,
-                                                connectorConfig.getName(),
-                                                MetricsTag.CHANNEL,
-                                                channel.getId()));
-
-                                        listener.onMessage(KafkaMessageRecord.from(records), ack::acknowledge);
+                                        if (nonNull(tracker)) {
+                                            // Notice: Must be tracked before sink, the completions are asynchronous.
+                                            tracker.received(records);
+                                        }
+                                        readMeterHandles.increment(MetricsName.checkpoint_read_success);
+
+                                        listener.onMessage(toPointRecords(records), ack::acknowledge);
                                     } catch (Throwable ex) {
                                         log.error(String.format("%s :: %s :: Failed to read point records : %s",
                                                 connectorConfig.getName(), channel.getId(), records), ex);
 
-                                        getEventPublisher().publishEvent(new CountMeterEvent(
-                                                MetricsName.checkpoint_read_failure,
-                                                MetricsTag.CONNECTOR,
-                                                connectorConfig.getName(),
-                                                MetricsTag.CHANNEL,
-                                                channel.getId()));
+                                        readMeterHandles.increment(MetricsName.checkpoint_read_failure);
 
                                         // Commit directly if no quality of service is required.
                                         connectorConfig.getQos().acknowledgeIfFail(connectorConfig, ex, () -> {
@@ -325,16 +380,42 @@ public class KafkaCheckpoint extends AbstractCheckpoint {
                                             ack.acknowledge();
                                         });
                                     } finally {
-                                        getEventPublisher().publishEvent(new TimingMeterEvent(
-                                                MetricsName.checkpoint_read_time,
-                                                StreamConnectMeter.DEFAULT_PERCENTILES,
-                                                Duration.ofNanos(System.nanoTime() - readTimingBegin),
-                                                MetricsTag.CONNECTOR,
-                                                connectorConfig.getName(),
-                                                MetricsTag.CHANNEL,
-                                                channel.getId()));
+                                        if (nonNull(tracker)) {
+                                            commitOffsetsIfNecessary(tracker, consumer);
+                                        }
+                                        readMeterHandles.recordNanos(MetricsName.checkpoint_read_time, readTimingBegin);
                                     }
                                 });
+                this.consumerContainer.getContainerProperties().setConsumerRebalanceListener(
+                        new ConsumerAwareRebalanceListener() {
+                            @Override
+                            public void onPartitionsAssigned(Consumer<?, ?> consumer,
+                                                             Collection<TopicPartition> partitions) {
+                                if (preferAcknowledge) {
+                                    final PartitionOffsetTracker tracker = obtainOffsetTracker(groupId, consumer);
+                                    partitions.forEach(tp -> partitionTrackers.put(tp, tracker));
+                                }
+                            }
+
+                            @Override
+                            public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer,
+                                                                        Collection<TopicPartition> partitions) {
+                                final PartitionOffsetTracker tracker = offsetTrackers.get(consumer);
+                                if (nonNull(tracker)) {
+                                    partitions.forEach(tp -> partitionTrackers.remove(tp, tracker));
+                                    // Commit the low watermarks of the revoked partitions, the others will be re-consumed.
+                                    tracker.revoke(consumer, partitions);
+                                }
+                            }
+                        });
+                // Commit the completed offsets also while the consumer is idle (e.g: no more points).
+                KafkaConsumerBuilder.setIdleEventListener(consumerContainer,
+                        getCheckpointConfig().getOffsetCommitIntervalMs(), event -> {
+                            final PartitionOffsetTracker tracker = offsetTrackers.get(event.getConsumer());
+                            if (nonNull(tracker)) {
+                                commitOffsetsIfNecessary(tracker, event.getConsumer());
+                            }
+                        });
                 if (log.isInfoEnabled()) {
                     log.info("{} :: {} :: Starting kafka checkpoint read listener container ...",
                             connectorConfig.getName(), channel.getId());
@@ -351,7 +432,6 @@ public class KafkaCheckpoint extends AbstractCheckpoint {
                     } else { // graceful shutdown
                         consumerContainer.stop(latch::countDown);
                     }
-                    this.acknowledgeProducerContainer.close(Duration.ofMillis(timeout));
                     if (!latch.await(timeout, TimeUnit.MILLISECONDS)) {
                         throw new TimeoutException(String.format("Timeout close checkpoint reader for %sms", timeout));
                     }
@@ -404,69 +484,65 @@ public class KafkaCheckpoint extends AbstractCheckpoint {
             }
 
             /**
-             * After the maximum number of retries, there may still be records that failed to process.
-             * At this time, only the consecutively successful records starting from the earliest batch
-             * of offsets will be submitted, and the offsets of other failed records will not be committed,
-             * so as to strictly limit the processing failures that will not be submitted so that zero is not lost.
+             * The sent records are marked as completed, and the offsets are committed up to the low watermark
+             * of each partition (i.e. the consecutively completed from the earliest) by the consumer thread.
              *
              * @param sentResults completed sent results
              */
             @Override
             public void preferAutoAcknowledge(Collection<SinkStream.SinkResult> sentResults) {
-                // grouping and sorting.
-                final Map<TopicPartition, List<KafkaMessageRecord<String, Object>>> partitionRecords =
-                        new HashMap<>(sentResults.size());
-                for (SinkStream.SinkResult savepointResult : sentResults) {
-                    final KafkaMessageRecord<String, Object> record0 = (KafkaMessageRecord<String, Object>)
-                            savepointResult.getRecord();
-                    final TopicPartition topicPartition = new TopicPartition(record0.getTopic(), record0.getPartition());
-                    partitionRecords.computeIfAbsent(topicPartition, k -> new ArrayList<>()).add(record0);
+                preferAutoAcknowledge(sentResults, emptyList());
+            }
+
+            /**
+             * After the maximum number of retries, there may still be records that failed to sink. At this time,
+             * the given up records are also marked as completed (i.e. forced to be acknowledged and the failures
+             * are ignored), otherwise they hold the low watermarks of their partitions until restart.
+             *
+             * @param sentResults    completed sent results
+             * @param givenUpResults given up sent results (e.g: retries exhausted)
+             */
+            @Override
+            public void preferAutoAcknowledge(Collection<SinkStream.SinkResult> sentResults,
+                                              Collection<SinkStream.SinkResult> givenUpResults) {
+                completeOffsets(sentResults);
+                if (!givenUpResults.isEmpty()) {
+                    log.warn("{} :: {} :: Force to acknowledge the given up sinks of retries exhausted : {}",
+                            connectorConfig.getName(), channel.getId(), givenUpResults.size());
+                    addAcknowledgeCountMeter(MetricsName.acknowledge_failure, givenUpResults);
+                    completeOffsets(givenUpResults);
                 }
+            }
 
-                // Find the maximum offset that increments consecutively for each partition.
-                final Map<TopicPartition, OffsetAndMetadata> partitionOffsets = new HashMap<>();
-                for (Map.Entry<TopicPartition, List<KafkaMessageRecord<String, Object>>> entry : partitionRecords.entrySet()) {
-                    final TopicPartition topicPartition = entry.getKey();
-                    final List<KafkaMessageRecord<String, Object>> records = entry.getValue();
-                    // ASC sorting by offset.
-                    records.sort(Comparator.comparingLong(KafkaMessageRecord::getOffset));
-
-                    records.stream().mapToLong(KafkaMessageRecord::getOffset)
-                            .reduce((prev, curr) -> curr == prev + 1 ? curr : prev)
-                            .ifPresent(maxOffset -> partitionOffsets.put(topicPartition, new OffsetAndMetadata(maxOffset)));
+            private void completeOffsets(Collection<SinkStream.SinkResult> results) {
+                for (SinkStream.SinkResult sr : results) {
+                    final KafkaMessageRecord<String, Object> record = (KafkaMessageRecord<String, Object>) sr.getRecord();
+                    final TopicPartition partition = new TopicPartition(record.getTopic(), record.getPartition());
+                    // The revoked are not completed, and will be re-consumed by the new owner.
+                    final PartitionOffsetTracker tracker = partitionTrackers.get(partition);
+                    if (nonNull(tracker)) {
+                        tracker.completed(partition, record.getOffset());
+                    }
                 }
+            }
+
+            private PartitionOffsetTracker obtainOffsetTracker(String groupId,
+                                                               Consumer<?, ?> consumer) {
+                return offsetTrackers.computeIfAbsent(consumer, c -> new PartitionOffsetTracker(groupId,
+                        getCheckpointConfig().getOffsetCommitIntervalMs()));
+            }
 
-                // Acknowledge to source kafka broker.
+            private void commitOffsetsIfNecessary(PartitionOffsetTracker tracker,
+                                                  Consumer<?, ?> consumer) {
                 final long acknowledgeTimingBegin = System.nanoTime();
                 try {
-                    // see:org.apache.kafka.clients.consumer.internals.ConsumerCoordinator#onJoinComplete(int, String, String, ByteBuffer)
-                    // see:org.springframework.kafka.listener.KafkaMessageListenerContainer.ListenerConsumer#doSendOffsets(Producer, Map)
-                    if (log.isDebugEnabled()) {
-                        log.debug("{} :: Prefer acknowledging offsets to transaction. - : {}",
-                                channel.getId(), partitionOffsets);
-                    }
-                    this.acknowledgeProducerContainer.obtainFirstProducer().sendOffsetsToTransaction(partitionOffsets,
-                            new ConsumerGroupMetadata(channel.getId()));
-                    if (log.isDebugEnabled()) {
-                        log.debug("{} :: Prefer acknowledged offsets to transaction. - : {}",
-                                channel.getId(), partitionOffsets);
-                    }
+                    tracker.commitIfNecessary(consumer);
                 } catch (Throwable ex) {
-                    final String errmsg = String.format("%s :: Failed to prefer acknowledge offsets to transaction. - : %s",
-                            channel.getId(), partitionOffsets);
-                    log.error(errmsg, ex);
-                    throw new StreamConnectException(errmsg, ex);
+                    log.error(String.format("%s :: %s :: Failed to commit offsets of the low watermarks.",
+                            connectorConfig.getName(), channel.getId()), ex);
                 } finally {
-                    getEventPublisher().publishEvent(new TimingMeterEvent(
-                            MetricsName.acknowledge_time,
-                            StreamConnectMeter.DEFAULT_PERCENTILES,
-                            Duration.ofNanos(System.nanoTime() - acknowledgeTimingBegin),
-                            MetricsTag.CHECKPOINT,
-                            getName(),
-                            MetricsTag.CHANNEL,
-                            String.valueOf(channel.getId()),
-                            MetricsTag.ACK_KIND,
-                            MetricsTag.ACK_KIND_VALUE_SEND));
+                    ackMeterHandles.tagged(MetricsTag.ACK_KIND, MetricsTag.ACK_KIND_VALUE_SEND)
+                            .recordNanos(MetricsName.acknowledge_time, acknowledgeTimingBegin);
                 }
             }
 
@@ -480,16 +556,44 @@ public class KafkaCheckpoint extends AbstractCheckpoint {
                             return new TopicPartition(record.getTopic(), record.getPartition());
                         })
                         .distinct()
-                        .forEach(tp -> getEventPublisher().publishEvent(new CountMeterEvent(
-                                metrics,
-                                MetricsTag.CHECKPOINT,
-                                getName(),
-                                MetricsTag.CHANNEL,
-                                String.valueOf(channel.getId()))));
+                        .forEach(tp -> ackMeterHandles.increment(metrics));
             }
         };
     }
 
+    /**
+     * Wrap to the point records, the values are deserialized lazily by the format header of each record.
+     */
+    static List<KafkaMessageRecord<String, Object>> toPointRecords(List<ConsumerRecord<String, Object>> records) {
+        final List<KafkaMessageRecord<String, Object>> pointRecords = new ArrayList<>(safeList(records).size());
+        for (ConsumerRecord<String, Object> record : safeList(records)) {
+            final Header formatHeader = record.headers().lastHeader(KEY_FORMAT);
+            final String format = nonNull(formatHeader) ? new String(formatHeader.value(), StandardCharsets.UTF_8) : null;
+            final PointSerde pointSerde = SmartJsonOrAvroDeserializer.obtainPointSerde(format);
+            final long timestamp = getOriginalTimestamp(record);
+            if (pointSerde instanceof JsonPointSerde) {
+                // The JSON bytes are lazily materialized and can be forwarded unchanged.
+                pointRecords.add(new KafkaMessageRecord<>(record, null, timestamp));
+            } else {
+                pointRecords.add(new KafkaMessageRecord<>(record,
+                        data -> pointSerde.deserialize(record.topic(), null, data), timestamp));
+            }
+        }
+        return pointRecords;
+    }
+
+    static long getOriginalTimestamp(ConsumerRecord<String, Object> record) {
+        final Header timestampHeader = record.headers().lastHeader(KEY_TIMESTAMP);
+        if (nonNull(timestampHeader)) {
+            try {
+                return Long.parseLong(new String(timestampHeader.value(), StandardCharsets.UTF_8));
+            } catch (NumberFormatException ex) {
+                log.warn("Invalid original timestamp header of point record : {}", record);
+            }
+        }
+        return record.timestamp();
+    }
+
     static String getCheckpointBootstrapServers(KafkaCheckpointConfig checkpointConfig,
                                                 ChannelInfo channel) {
         // Determine to checkpoint store servers.
@@ -522,6 +626,10 @@ public class KafkaCheckpoint extends AbstractCheckpoint {
         @Default
         private @Min(1) long initTopicTimeoutMs = 60_000L;
         @Default
+        private @NotNull FlushMode flushMode = FlushMode.FLUSH;
+        @Default
+        private @Min(0) long offsetCommitIntervalMs = 1000L;
+        @Default
         private Map<String, Object> producerProps = new HashMap<String, Object>() {
             {
                 //put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, "");
@@ -533,7 +641,7 @@ public class KafkaCheckpoint extends AbstractCheckpoint {
                 put(ProducerConfig.RETRY_BACKOFF_MS_CONFIG, "6000");
                 put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "gzip"); // snappy|gzip|lz4|zstd|none
                 put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
-                put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
+                put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
                 //put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, KafkaAvroDeserializer.class.getName());
             }
         };
@@ -566,6 +674,7 @@ public class KafkaCheckpoint extends AbstractCheckpoint {
 
         @Override
         public void validate() {
+            super.validate();
             Assert2.hasTextOf(bootstrapServers, "bootstrapServers");
             Assert2.hasTextOf(topicPrefix, "topicPrefix");
             Assert2.isTrueOf(topicPartitions >= 1 && topicPartitions <= 5000, "topicPartitions >= 1 && topicPartitions <= 5000");
@@ -573,6 +682,8 @@ public class KafkaCheckpoint extends AbstractCheckpoint {
             Assert2.hasTextOf(groupIdPrefix, "bootstrapServers");
             Assert2.isTrueOf(parallelism >= 1 && parallelism <= 64, "parallelism >= 1 && parallelism <= 64");
             Assert2.isTrueOf(initTopicTimeoutMs >= 1, "initTopicTimeoutMs >= 1");
+            Assert2.notNullOf(flushMode, "flushMode");
+            Assert2.isTrueOf(offsetCommitIntervalMs >= 0, "offsetCommitIntervalMs >= 0");
 
             // Check for producer properties.
             //requireNonNull(producerProps.get(BOOTSTRAP_SERVERS_CONFIG), "bootstrap.servers");
@@ -583,6 +694,9 @@ public class KafkaCheckpoint extends AbstractCheckpoint {
             requireNonNull(producerProps.get(RETRIES_CONFIG), "retries");
             requireNonNull(producerProps.get(RETRY_BACKOFF_MS_CONFIG), "retry.backoff.ms");
             requireNonNull(producerProps.get(COMPRESSION_TYPE_CONFIG), "compression.type");
+            if (flushMode == FlushMode.LINGER) {
+                requireNonNull(producerProps.get(ProducerConfig.LINGER_MS_CONFIG), "linger.ms");
+            }
 
             // Check for consumer properties.
             requireNonNull(consumerProps.get(ConsumerConfig.GROUP_ID_CONFIG), "group.id");
@@ -611,4 +725,18 @@ public class KafkaCheckpoint extends AbstractCheckpoint {
         }
     }
 
+    public enum FlushMode {
+        /**
+         * Flush the producers of the written points explicitly at the end of each batch, each producer
+         * is flushed only once per batch.
+         */
+        FLUSH,
+
+        /**
+         * Never flush explicitly, the point records are sent by the producer batching (linger.ms/batch.size),
+         * and the batch completion is driven by the send callbacks.
+         */
+        LINGER
+    }
+
 }
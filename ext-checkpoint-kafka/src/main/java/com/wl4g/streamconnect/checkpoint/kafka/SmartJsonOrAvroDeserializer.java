@@ -17,37 +17,35 @@
 
 package com.wl4g.streamconnect.checkpoint.kafka;
 
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.wl4g.streamconnect.checkpoint.ICheckpoint.PointDeserializer;
+import com.wl4g.streamconnect.checkpoint.ICheckpoint.PointSerde;
+import com.wl4g.streamconnect.checkpoint.serialize.JsonPointSerde;
+import com.wl4g.streamconnect.framework.StreamConnectSpiFactory;
 
-import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
-import static com.wl4g.infra.common.serialize.JacksonUtils.parseToNode;
+import static com.wl4g.infra.common.collection.CollectionUtils2.safeMap;
+import static com.wl4g.streamconnect.stream.AbstractStream.KEY_FORMAT;
+import static org.apache.commons.lang3.StringUtils.isBlank;
 
 /**
- * The {@link SmartJsonOrAvroDeserializer}
+ * The {@link SmartJsonOrAvroDeserializer}, selects the {@link PointSerde} by the format header of each
+ * point record, and the records without format header (i.e. written by the earlier versions) are JSON.
  *
  * @author James Wong
  * @since v1.0
  **/
-public class SmartJsonOrAvroDeserializer implements PointDeserializer<ObjectNode> {
+public class SmartJsonOrAvroDeserializer implements PointDeserializer<Object> {
 
     @Override
-    public ObjectNode deserialize(String topic,
-                                  Map<String, ObjectNode> headers,
-                                  byte[] data) {
-        if (headers.containsKey("avro")) { // TODO
-            return deserializeWithAvro(data);
-        }
-        // Deserialize for json.
-        return (ObjectNode) parseToNode(new String(data, StandardCharsets.UTF_8));
+    public Object deserialize(String topic,
+                              Map<String, Object> headers,
+                              byte[] data) {
+        return obtainPointSerde((String) safeMap(headers).get(KEY_FORMAT)).deserialize(topic, headers, data);
     }
 
-    protected ObjectNode deserializeWithAvro(byte[] data) {
-        // TODO deserialize for avro
-        //AvroSchemaUtils.getSchema("")
-        return null;
+    public static PointSerde obtainPointSerde(String format) {
+        return StreamConnectSpiFactory.get(PointSerde.class, isBlank(format) ? JsonPointSerde.TYPE_NAME : format);
     }
 
 }
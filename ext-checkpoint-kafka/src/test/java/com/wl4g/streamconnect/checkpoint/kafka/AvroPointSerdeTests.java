@@ -0,0 +1,53 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.checkpoint.kafka;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+import static com.wl4g.infra.common.serialize.JacksonUtils.parseToNode;
+
+/**
+ * The {@link AvroPointSerdeTests}
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+public class AvroPointSerdeTests {
+
+    @Test
+    public void testAvroPointSerdeRoundTrip() {
+        final JsonNode node = parseToNode("{\"$$tenant\":\"t1001\",\"name\":\"Mary\",\"age\":18,\"score\":99.5,\"vip\":true," +
+                "\"address\":{\"city\":\"New York\",\"zipcode\":null},\"tags\":[\"a\",\"b\",1],\"empty\":{}}");
+        final AvroPointSerde serde = new AvroPointSerde();
+
+        final byte[] data = serde.serialize("test-topic", null, node);
+        final JsonNode result = (JsonNode) serde.deserialize("test-topic", null, data);
+
+        Assertions.assertEquals("t1001", result.get("$$tenant").textValue());
+        Assertions.assertEquals(18L, result.get("age").longValue());
+        Assertions.assertEquals(99.5d, result.get("score").doubleValue());
+        Assertions.assertTrue(result.get("vip").booleanValue());
+        Assertions.assertTrue(result.get("address").get("zipcode").isNull());
+        Assertions.assertEquals(3, result.get("tags").size());
+        Assertions.assertEquals(0, result.get("empty").size());
+        Assertions.assertTrue(data.length < node.toString().length());
+    }
+
+}
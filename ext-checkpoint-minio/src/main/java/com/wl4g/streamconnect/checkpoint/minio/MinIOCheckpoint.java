@@ -17,28 +17,80 @@
 
 package com.wl4g.streamconnect.checkpoint.minio;
 
+import com.wl4g.infra.common.lang.Assert2;
 import com.wl4g.streamconnect.checkpoint.AbstractCheckpoint;
+import com.wl4g.streamconnect.checkpoint.file.FilePointRecord;
+import com.wl4g.streamconnect.checkpoint.file.PointLogSegment.LogEntry;
+import com.wl4g.streamconnect.checkpoint.minio.SegmentCodec.Compression;
+import com.wl4g.streamconnect.checkpoint.minio.SegmentCodec.SegmentData;
+import com.wl4g.streamconnect.checkpoint.serialize.JsonPointSerde;
 import com.wl4g.streamconnect.config.ChannelInfo;
+import com.wl4g.streamconnect.config.ChannelInfo.CheckpointSpec;
 import com.wl4g.streamconnect.config.StreamConnectConfiguration.ConnectorConfig;
 import com.wl4g.streamconnect.coordinator.CachingChannelRegistry;
+import com.wl4g.streamconnect.exception.StreamConnectException;
+import com.wl4g.streamconnect.framework.StreamConnectSpiFactory;
+import com.wl4g.streamconnect.meter.MeterHandles;
+import com.wl4g.streamconnect.meter.StreamConnectMeter.MetricsName;
+import com.wl4g.streamconnect.meter.StreamConnectMeter.MetricsTag;
+import com.wl4g.streamconnect.stream.AbstractStream.RawMessageRecord;
+import com.wl4g.streamconnect.stream.process.ProcessStream.ChannelRecord;
+import com.wl4g.streamconnect.stream.sink.SinkStream;
+import com.wl4g.streamconnect.util.concurrent.NamedThreadFactory;
+import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import lombok.experimental.SuperBuilder;
+import lombok.extern.slf4j.Slf4j;
 
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.wl4g.streamconnect.stream.AbstractStream.KEY_CHANNEL;
+import static com.wl4g.streamconnect.stream.AbstractStream.KEY_FORMAT;
+import static com.wl4g.streamconnect.stream.AbstractStream.KEY_SEQUENCE;
+import static com.wl4g.streamconnect.stream.AbstractStream.KEY_TENANT;
+import static java.lang.String.format;
+import static java.lang.String.valueOf;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Objects.requireNonNull;
 
 /**
- * The {@link MinIOCheckpoint}
+ * The {@link MinIOCheckpoint}, the object store checkpoint, the point records of each channel are buffered
+ * into the compressed columnar segment objects, which are rolled by size, records or time (or the batch
+ * flush) and uploaded asynchronously (multipart for large segments), and committed to the manifest object
+ * of channel. The reader prefetches the upcoming committed segments in parallel.
  *
  * @author James Wong
  * @since v1.0
  **/
 @Getter
 @Setter
+@Slf4j
 public class MinIOCheckpoint extends AbstractCheckpoint {
     public static final String TYPE_NAME = "MINIO_CHECKPOINT";
 
     private MinIOCheckpointConfig checkpointConfig;
+    private ObjectStore objectStore;
+    private final Map<String, SegmentWriter> segmentWriters = new ConcurrentHashMap<>();
+    private ThreadPoolExecutor uploadExecutor;
+    private ThreadPoolExecutor prefetchExecutor;
+    private ScheduledThreadPoolExecutor roller;
 
     @Override
     public String getType() {
@@ -46,30 +98,354 @@ public class MinIOCheckpoint extends AbstractCheckpoint {
     }
 
     @Override
-    public void init() {
-        // Ignore
+    public synchronized void init() {
+        final MinIOCheckpointConfig config = getCheckpointConfig();
+        config.validate();
+        if (isNull(objectStore)) {
+            final MinIOObjectStore store = new MinIOObjectStore(config.getEndpoint(), config.getAccessKey(),
+                    config.getSecretKey(), config.getRegion(), config.getBucket());
+            store.initBucketIfNecessary();
+            this.objectStore = store;
+        }
+        if (isNull(uploadExecutor)) {
+            this.uploadExecutor = new ThreadPoolExecutor(config.getUploadConcurrency(), config.getUploadConcurrency(),
+                    60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    new NamedThreadFactory(getName().concat("-upload")));
+            this.uploadExecutor.allowCoreThreadTimeOut(true);
+            this.prefetchExecutor = new ThreadPoolExecutor(config.getPrefetchConcurrency(), config.getPrefetchConcurrency(),
+                    60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    new NamedThreadFactory(getName().concat("-prefetch")));
+            this.prefetchExecutor.allowCoreThreadTimeOut(true);
+
+            // Roll the segments by time, if there is no batch flush (e.g: the idle channel).
+            this.roller = new ScheduledThreadPoolExecutor(1, r -> {
+                final Thread t = new Thread(r, getName().concat("-roller"));
+                t.setDaemon(true);
+                return t;
+            });
+            final long rollCheckMs = Math.max(100L, config.getSegmentRollMs() / 4);
+            this.roller.scheduleWithFixedDelay(() -> {
+                final long now = System.currentTimeMillis();
+                segmentWriters.values().forEach(writer -> {
+                    try {
+                        writer.rollIfExpired(now);
+                    } catch (Throwable ex) {
+                        log.error(format("%s :: Failed to roll segment.", writer.getName()), ex);
+                    }
+                });
+            }, rollCheckMs, rollCheckMs, TimeUnit.MILLISECONDS);
+        }
     }
 
     @Override
     public PointWriter createWriter(@NotNull ConnectorConfig connectorConfig,
                                     @NotNull ChannelInfo channel,
                                     @NotNull CachingChannelRegistry registry) {
-        throw new UnsupportedOperationException();
+        requireNonNull(connectorConfig, "connectorConfig must not be null");
+        requireNonNull(channel, "channel must not be null");
+
+        return new PointWriter() {
+            private final PointSerde pointSerde = getCheckpointConfig().obtainPointSerde();
+
+            @Override
+            public void stop(long timeoutMs, boolean force) {
+                final SegmentWriter writer = segmentWriters.remove(getObjectPrefix(connectorConfig, channel));
+                if (nonNull(writer)) {
+                    writer.close(force ? 0L : timeoutMs);
+                }
+            }
+
+            @Override
+            public WritePointResult writeAsync(ConnectorConfig connectorConfig,
+                                               ChannelRecord record,
+                                               int retryTimes) {
+                final SegmentWriter writer = obtainSegmentWriter(connectorConfig, channel, pointSerde);
+                // Forward the original bytes if the record value has not been mapped, avoid to re-serialize.
+                final byte[] rawValue = pointSerde instanceof JsonPointSerde
+                        ? RawMessageRecord.getUnchangedRawValue(record.getRecord()) : null;
+                final byte[] value = nonNull(rawValue) ? rawValue
+                        : pointSerde.serialize(channel.getId(), null, record.getRecord().getValue());
+
+                if (log.isDebugEnabled()) {
+                    log.debug("{} :: {} :: Writing to point record : {}", connectorConfig.getName(),
+                            channel.getId(), record.getRecord().getKey());
+                }
+                // Notice: Completed after the segment has been uploaded and committed to the manifest.
+                return new WritePointResult(record, writer, writer.append(record.getRecord().getKey(),
+                        record.getRecord().getTimestamp(), value), retryTimes);
+            }
+
+            @Override
+            public void flush(Collection<WritePointResult> results) {
+                // Roll the whole batch into the segment, since the batch is waiting for it to be committed.
+                obtainSegmentWriter(connectorConfig, channel, pointSerde).roll();
+            }
+        };
     }
 
     @Override
     public PointReader createReader(@NotNull ConnectorConfig connectorConfig,
                                     @NotNull ChannelInfo channel,
                                     @NotNull ReadPointListener listener) {
-        throw new UnsupportedOperationException();
+        requireNonNull(connectorConfig, "connectorConfig must not be null");
+        requireNonNull(channel, "channel must not be null");
+        requireNonNull(listener, "listener must not be null");
+
+        return new PointReader() {
+            private final MeterHandles readMeterHandles = newMeterHandles(null,
+                    MetricsTag.CONNECTOR, connectorConfig.getName(), MetricsTag.CHANNEL, channel.getId());
+            private final MeterHandles ackMeterHandles = newMeterHandles(null,
+                    MetricsTag.CHECKPOINT, getName(), MetricsTag.CHANNEL, valueOf(channel.getId()));
+            private final Map<String, Map<String, Object>> metadataCache = new HashMap<>(4);
+            private SegmentReader segmentReader;
+            private Thread worker;
+            private volatile boolean running;
+            private volatile boolean paused;
+
+            @Override
+            public synchronized void start() {
+                if (nonNull(worker)) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("{} :: {} :: Skip to start checkpoint reader, because it has been started.",
+                                connectorConfig.getName(), channel.getId());
+                    }
+                    return;
+                }
+                listener.setReader(this);
+                final MinIOCheckpointConfig config = getCheckpointConfig();
+                this.segmentReader = new SegmentReader(getObjectPrefix(connectorConfig, channel), objectStore,
+                        getObjectPrefix(connectorConfig, channel),
+                        config.getPrefetchSegments(),
+                        config.getManifestRefreshMs(),
+                        config.getPartSize(),
+                        prefetchExecutor);
+                this.running = true;
+                this.worker = connectorConfig.getProcessConfig().getExecutionMode().newThread(this::tail,
+                        MinIOCheckpoint.class.getSimpleName().concat("-reader-").concat(channel.getId()));
+                this.worker.start();
+            }
+
+            @Override
+            public synchronized boolean stop(long timeout, boolean force) throws Exception {
+                if (isNull(worker)) {
+                    return true;
+                }
+                this.running = false;
+                worker.join(force ? 1L : Math.max(1L, timeout));
+                final boolean stopped = !worker.isAlive();
+                this.worker = null;
+                return stopped;
+            }
+
+            @Override
+            public void pause() {
+                this.paused = true;
+            }
+
+            @Override
+            public void resume() {
+                this.paused = false;
+            }
+
+            @Override
+            public boolean isRunning() {
+                return running && !paused;
+            }
+
+            @Override
+            public int getSubTaskCount() {
+                return 1;
+            }
+
+            @Override
+            public void preferAutoAcknowledge(Collection<SinkStream.SinkResult> sentResults) {
+                // Find the maximum offset that increments consecutively from the acknowledged offset.
+                final long[] offsets = sentResults.stream()
+                        .mapToLong(sr -> ((FilePointRecord) sr.getRecord()).getOffset())
+                        .sorted()
+                        .toArray();
+                final long nextOffset = segmentReader.getAcknowledgeableOffset(offsets);
+                final long acknowledgeTimingBegin = System.nanoTime();
+                try {
+                    segmentReader.commitAckedOffset(nextOffset);
+                } finally {
+                    ackMeterHandles.tagged(MetricsTag.ACK_KIND, MetricsTag.ACK_KIND_VALUE_COMMIT)
+                            .recordNanos(MetricsName.acknowledge_time, acknowledgeTimingBegin);
+                }
+            }
+
+            @Override
+            public void addAcknowledgeCountMeter(MetricsName metrics,
+                                                 Collection<SinkStream.SinkResult> sinkResults) {
+                ackMeterHandles.increment(metrics);
+            }
+
+            private void tail() {
+                final long pollIntervalNanos = TimeUnit.MILLISECONDS.toNanos(getCheckpointConfig().getReadPollIntervalMs());
+                if (log.isInfoEnabled()) {
+                    log.info("{} :: {} :: Reading segments from offset {}", connectorConfig.getName(),
+                            channel.getId(), segmentReader.getPosition());
+                }
+                try {
+                    while (running) {
+                        try {
+                            if (paused) {
+                                LockSupport.parkNanos(pollIntervalNanos);
+                                continue;
+                            }
+                            final SegmentData segment = segmentReader.poll();
+                            if (isNull(segment)) {
+                                LockSupport.parkNanos(pollIntervalNanos);
+                                continue;
+                            }
+                            onSegment(segment, segmentReader.getPosition());
+                        } catch (Throwable ex) {
+                            log.error(format("%s :: %s :: Failed to read segments from offset %s",
+                                    connectorConfig.getName(), channel.getId(), segmentReader.getPosition()), ex);
+                            LockSupport.parkNanos(pollIntervalNanos);
+                        }
+                    }
+                } finally {
+                    // Closed on the reader thread, since the prefetch window is not thread-safe.
+                    segmentReader.close();
+                }
+            }
+
+            private void onSegment(SegmentData segment, long nextPosition) {
+                final PointSerde pointSerde = obtainPointSerde(segment.getFormat());
+                final Map<String, Object> metadata = metadataCache.computeIfAbsent(segment.getFormat(), this::buildMetadata);
+                final List<FilePointRecord> records = new ArrayList<>(segment.getEntries().size());
+                for (LogEntry entry : segment.getEntries()) {
+                    records.add(new FilePointRecord(entry, pointSerde, metadata));
+                }
+                final Runnable ack = () -> segmentReader.commitAckedOffset(nextPosition);
+                final long readTimingBegin = System.nanoTime();
+                try {
+                    readMeterHandles.increment(MetricsName.checkpoint_read_success);
+
+                    listener.onMessage(records, ack);
+                } catch (Throwable ex) {
+                    log.error(format("%s :: %s :: Failed to read point records of segment %s",
+                            connectorConfig.getName(), channel.getId(), segment.getBaseOffset()), ex);
+
+                    readMeterHandles.increment(MetricsName.checkpoint_read_failure);
+
+                    // Commit directly if no quality of service is required.
+                    connectorConfig.getQos().acknowledgeIfFail(connectorConfig, ex, ack);
+                } finally {
+                    readMeterHandles.recordNanos(MetricsName.checkpoint_read_time, readTimingBegin);
+                }
+            }
+
+            private Map<String, Object> buildMetadata(String format) {
+                final Map<String, Object> metadata = new HashMap<>(4);
+                metadata.put(KEY_TENANT, channel.getTenantId());
+                metadata.put(KEY_CHANNEL, channel.getId());
+                metadata.put(KEY_SEQUENCE, valueOf(channel.getSettingsSpec().getPolicySpec().isSequence()));
+                metadata.put(KEY_FORMAT, format);
+                return unmodifiableMap(metadata);
+            }
+        };
+    }
+
+    SegmentWriter obtainSegmentWriter(ConnectorConfig connectorConfig,
+                                      ChannelInfo channel,
+                                      PointSerde pointSerde) {
+        final String prefix = getObjectPrefix(connectorConfig, channel);
+        return segmentWriters.computeIfAbsent(prefix, p -> {
+            final MinIOCheckpointConfig config = getCheckpointConfig();
+            final SegmentWriter writer = new SegmentWriter(p, objectStore, p, pointSerde.getType(),
+                    config.getCompression(),
+                    config.getSegmentBytes(),
+                    config.getSegmentMaxRecords(),
+                    config.getSegmentRollMs(),
+                    config.getPartSize(),
+                    config.getMaxInflightUploads(),
+                    uploadExecutor);
+            final CheckpointSpec checkpointSpec = channel.getSettingsSpec().getCheckpointSpec();
+            if (nonNull(checkpointSpec)) {
+                writer.updateRetention(checkpointSpec.getRetentionTime(), checkpointSpec.getRetentionBytes());
+            }
+            return writer;
+        });
     }
 
+    String getObjectPrefix(ConnectorConfig connectorConfig, ChannelInfo channel) {
+        return getCheckpointConfig().getObjectPrefix()
+                .concat(connectorConfig.getName()).concat("/")
+                .concat(channel.getId()).concat("/");
+    }
+
+    static PointSerde obtainPointSerde(String format) {
+        try {
+            return StreamConnectSpiFactory.get(PointSerde.class, format);
+        } catch (Throwable ex) {
+            throw new StreamConnectException(format("Unsupported point format %s", format), ex);
+        }
+    }
 
     @Getter
     @Setter
+    @SuperBuilder
     @NoArgsConstructor
     public static class MinIOCheckpointConfig extends CheckpointConfig {
+        private @NotBlank String endpoint;
+        private @NotBlank String accessKey;
+        private @NotBlank String secretKey;
+        private String region;
+        @Builder.Default
+        private @NotBlank String bucket = "streamconnect-checkpoint";
+        @Builder.Default
+        private @NotBlank String objectPrefix = "checkpoint/";
+        @Builder.Default
+        private @NotNull Compression compression = Compression.GZIP;
+        @Builder.Default
+        private @Min(1) int segmentBytes = 8 * 1024 * 1024;
+        @Builder.Default
+        private @Min(1) int segmentMaxRecords = 100_000;
+        @Builder.Default
+        private @Min(1) long segmentRollMs = 5000L;
+        /**
+         * The part size of the multipart upload, must be between 5MiB and 5GiB.
+         */
+        @Builder.Default
+        private @Min(MIN_PART_SIZE) long partSize = MIN_PART_SIZE;
+        @Builder.Default
+        private @Min(1) int uploadConcurrency = 4;
+        @Builder.Default
+        private @Min(1) int maxInflightUploads = 16;
+        @Builder.Default
+        private @Min(1) int prefetchSegments = 4;
+        @Builder.Default
+        private @Min(1) int prefetchConcurrency = 4;
+        @Builder.Default
+        private @Min(1) long manifestRefreshMs = 1000L;
+        @Builder.Default
+        private @Min(1) long readPollIntervalMs = 1000L;
+
+        @Override
+        public void validate() {
+            super.validate();
+            Assert2.hasTextOf(endpoint, "endpoint");
+            Assert2.hasTextOf(accessKey, "accessKey");
+            Assert2.hasTextOf(secretKey, "secretKey");
+            Assert2.hasTextOf(bucket, "bucket");
+            Assert2.hasTextOf(objectPrefix, "objectPrefix");
+            Assert2.notNullOf(compression, "compression");
+            Assert2.isTrueOf(segmentBytes > 0, "segmentBytes > 0");
+            Assert2.isTrueOf(segmentMaxRecords > 0, "segmentMaxRecords > 0");
+            Assert2.isTrueOf(segmentRollMs > 0, "segmentRollMs > 0");
+            Assert2.isTrueOf(partSize >= MIN_PART_SIZE && partSize <= MAX_PART_SIZE, "partSize >= 5MiB && partSize <= 5GiB");
+            Assert2.isTrueOf(uploadConcurrency > 0, "uploadConcurrency > 0");
+            Assert2.isTrueOf(maxInflightUploads > 0, "maxInflightUploads > 0");
+            Assert2.isTrueOf(prefetchSegments > 0, "prefetchSegments > 0");
+            Assert2.isTrueOf(prefetchConcurrency > 0, "prefetchConcurrency > 0");
+            Assert2.isTrueOf(manifestRefreshMs > 0, "manifestRefreshMs > 0");
+            Assert2.isTrueOf(readPollIntervalMs > 0, "readPollIntervalMs > 0");
+        }
 
+        public static final long MIN_PART_SIZE = 5 * 1024 * 1024L;
+        public static final long MAX_PART_SIZE = 5 * 1024 * 1024 * 1024L;
     }
 
 }
@@ -0,0 +1,197 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.checkpoint.minio;
+
+import com.wl4g.infra.common.lang.Assert2;
+import com.wl4g.streamconnect.exception.StreamConnectException;
+import io.minio.BucketExistsArgs;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.MakeBucketArgs;
+import io.minio.MinioAsyncClient;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import io.minio.errors.ErrorResponseException;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+import static java.lang.String.format;
+import static java.util.Collections.singletonMap;
+import static java.util.Objects.isNull;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+/**
+ * The {@link MinIOObjectStore}, the {@link ObjectStore} based on the MinIO async client, the large object is
+ * uploaded by the multipart upload of client with the part size.
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+@Getter
+@Slf4j
+public class MinIOObjectStore implements ObjectStore {
+    public static final String CONTENT_TYPE = "application/octet-stream";
+    public static final String NO_SUCH_KEY = "NoSuchKey";
+    public static final String PRECONDITION_FAILED = "PreconditionFailed";
+
+    private final MinioAsyncClient client;
+    private final String bucket;
+
+    public MinIOObjectStore(@NotBlank String endpoint,
+                            @NotBlank String accessKey,
+                            @NotBlank String secretKey,
+                            String region,
+                            @NotBlank String bucket) {
+        Assert2.hasTextOf(endpoint, "endpoint");
+        Assert2.hasTextOf(accessKey, "accessKey");
+        Assert2.hasTextOf(secretKey, "secretKey");
+        this.bucket = Assert2.hasTextOf(bucket, "bucket");
+        final MinioAsyncClient.Builder builder = MinioAsyncClient.builder()
+                .endpoint(endpoint)
+                .credentials(accessKey, secretKey);
+        if (isNotBlank(region)) {
+            builder.region(region);
+        }
+        this.client = builder.build();
+    }
+
+    public void initBucketIfNecessary() {
+        try {
+            if (!client.bucketExists(BucketExistsArgs.builder().bucket(bucket).build()).get()) {
+                client.makeBucket(MakeBucketArgs.builder().bucket(bucket).build()).get();
+                if (log.isInfoEnabled()) {
+                    log.info("Created checkpoint bucket : {}", bucket);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new StreamConnectException(format("Interrupted to init checkpoint bucket %s", bucket), ex);
+        } catch (Exception ex) {
+            throw new StreamConnectException(format("Failed to init checkpoint bucket %s", bucket), ex);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> putObject(@NotBlank String key,
+                                             @NotNull byte[] data,
+                                             long partSize) {
+        try {
+            return client.putObject(PutObjectArgs.builder()
+                            .bucket(bucket)
+                            .object(key)
+                            .stream(new ByteArrayInputStream(data), data.length, partSize)
+                            .contentType(CONTENT_TYPE)
+                            .build())
+                    .thenApply(response -> null);
+        } catch (Exception ex) {
+            final CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(ex);
+            return future;
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> putObjectIfMatch(@NotBlank String key,
+                                                      @NotNull byte[] data,
+                                                      long partSize,
+                                                      String etag) {
+        try {
+            return client.putObject(PutObjectArgs.builder()
+                            .bucket(bucket)
+                            .object(key)
+                            .stream(new ByteArrayInputStream(data), data.length, partSize)
+                            .contentType(CONTENT_TYPE)
+                            .headers(isNull(etag) ? singletonMap("If-None-Match", "*")
+                                    : singletonMap("If-Match", "\"".concat(etag).concat("\"")))
+                            .build())
+                    .handle((response, ex) -> {
+                        if (isNull(ex)) {
+                            return response.etag();
+                        }
+                        final Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+                        if (cause instanceof ErrorResponseException && PRECONDITION_FAILED.equals(((ErrorResponseException)
+                                cause).errorResponse().code())) {
+                            return null;
+                        }
+                        throw new CompletionException(cause);
+                    });
+        } catch (Exception ex) {
+            final CompletableFuture<String> future = new CompletableFuture<>();
+            future.completeExceptionally(ex);
+            return future;
+        }
+    }
+
+    @Override
+    public byte[] getObject(@NotBlank String key) {
+        final VersionedObject object = getVersionedObject(key);
+        return isNull(object) ? null : object.getData();
+    }
+
+    @Override
+    public VersionedObject getVersionedObject(@NotBlank String key) {
+        try (GetObjectResponse response = client.getObject(GetObjectArgs.builder()
+                .bucket(bucket)
+                .object(key)
+                .build()).get()) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+            final byte[] buffer = new byte[8192];
+            int n;
+            while ((n = response.read(buffer)) >= 0) {
+                out.write(buffer, 0, n);
+            }
+            // Notice: The entity tag is quoted in the response header, but unquoted of the upload response.
+            final String etag = response.headers().get("ETag");
+            return new VersionedObject(out.toByteArray(), isNull(etag) ? null : etag.replace("\"", ""));
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof ErrorResponseException && NO_SUCH_KEY.equals(((ErrorResponseException) ex
+                    .getCause()).errorResponse().code())) {
+                return null;
+            }
+            throw new StreamConnectException(format("Failed to get object %s/%s", bucket, key), ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new StreamConnectException(format("Interrupted to get object %s/%s", bucket, key), ex);
+        } catch (Exception ex) {
+            throw new StreamConnectException(format("Failed to get object %s/%s", bucket, key), ex);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> removeObject(@NotBlank String key) {
+        try {
+            return client.removeObject(RemoveObjectArgs.builder()
+                    .bucket(bucket)
+                    .object(key)
+                    .build());
+        } catch (Exception ex) {
+            final CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(ex);
+            return future;
+        }
+    }
+
+}
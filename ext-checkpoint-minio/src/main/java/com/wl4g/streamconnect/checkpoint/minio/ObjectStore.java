@@ -0,0 +1,77 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.checkpoint.minio;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The {@link ObjectStore}, the minimal S3 compatible object store operations of the checkpoint, so that it
+ * could be tested against the in-process stand-in instead of a real MinIO server.
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+public interface ObjectStore {
+
+    /**
+     * Upload the object asynchronously, which is uploaded by multipart if the data is larger than part size.
+     */
+    CompletableFuture<Void> putObject(@NotBlank String key,
+                                      @NotNull byte[] data,
+                                      long partSize);
+
+    /**
+     * Download the object.
+     *
+     * @return the object data, or null if not found.
+     */
+    byte[] getObject(@NotBlank String key);
+
+    /**
+     * Download the object with the entity tag, e.g: for the conditional upload of the manifest.
+     *
+     * @return the versioned object, or null if not found.
+     */
+    VersionedObject getVersionedObject(@NotBlank String key);
+
+    /**
+     * Upload the object only if it has not been modified since the entity tag was read, or only if it does not
+     * exist if the entity tag is null, i.e. the optimistic concurrency control of the concurrent writers.
+     *
+     * @return the future of the entity tag of uploaded object, or null if the precondition failed.
+     */
+    CompletableFuture<String> putObjectIfMatch(@NotBlank String key,
+                                               @NotNull byte[] data,
+                                               long partSize,
+                                               String etag);
+
+    CompletableFuture<Void> removeObject(@NotBlank String key);
+
+    @Getter
+    @AllArgsConstructor
+    class VersionedObject {
+        private final byte[] data;
+        private final String etag;
+    }
+
+}
@@ -0,0 +1,224 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.checkpoint.minio;
+
+import com.wl4g.streamconnect.checkpoint.file.PointLogSegment.LogEntry;
+import com.wl4g.streamconnect.exception.StreamConnectException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import javax.validation.constraints.NotNull;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static java.util.Objects.isNull;
+
+/**
+ * The {@link SegmentCodec}, the columnar layout of the checkpoint segment object, i.e. the timestamps (delta
+ * encoded), the keys and the values of all the records are stored column by column, which is friendly to the
+ * compression (e.g: the similar JSON values are adjacent).
+ * <p>
+ * The layout: magic(int) | version(byte) | compression(byte) | [compressed] baseOffset(long) | createTime(long) |
+ * format(utf) | count(int) | timestamps | key lengths | keys | value lengths | values
+ * </p>
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+public abstract class SegmentCodec {
+    public static final int MAGIC = 0x53435347;
+    public static final byte VERSION = 1;
+
+    public static byte[] encode(long baseOffset,
+                                long createTime,
+                                @NotNull String format,
+                                @NotNull List<String> keys,
+                                @NotNull long[] timestamps,
+                                @NotNull List<byte[]> values,
+                                @NotNull Compression compression) {
+        final int count = keys.size();
+        int estimatedBytes = 64;
+        for (byte[] value : values) {
+            estimatedBytes += isNull(value) ? 1 : value.length + 2;
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(compression == Compression.NONE
+                ? estimatedBytes : estimatedBytes / 4);
+        try {
+            final DataOutputStream header = new DataOutputStream(bytes);
+            header.writeInt(MAGIC);
+            header.writeByte(VERSION);
+            header.writeByte(compression.ordinal());
+            header.flush();
+
+            final OutputStream payloadOut = compression == Compression.GZIP ? new GZIPOutputStream(bytes, 8192) : bytes;
+            final DataOutputStream out = new DataOutputStream(payloadOut);
+            out.writeLong(baseOffset);
+            out.writeLong(createTime);
+            out.writeUTF(format);
+            out.writeInt(count);
+            long prevTimestamp = 0L;
+            for (int i = 0; i < count; i++) {
+                writeVarLong(out, zigzag(timestamps[i] - prevTimestamp));
+                prevTimestamp = timestamps[i];
+            }
+            final List<byte[]> keyBytes = new ArrayList<>(count);
+            for (String key : keys) {
+                final byte[] kb = isNull(key) ? null : key.getBytes(StandardCharsets.UTF_8);
+                keyBytes.add(kb);
+                writeVarLong(out, isNull(kb) ? 0 : kb.length + 1);
+            }
+            for (byte[] kb : keyBytes) {
+                if (!isNull(kb)) {
+                    out.write(kb);
+                }
+            }
+            for (byte[] value : values) {
+                writeVarLong(out, isNull(value) ? 0 : value.length + 1);
+            }
+            for (byte[] value : values) {
+                if (!isNull(value)) {
+                    out.write(value);
+                }
+            }
+            out.flush();
+            if (payloadOut instanceof GZIPOutputStream) {
+                ((GZIPOutputStream) payloadOut).finish();
+            }
+            return bytes.toByteArray();
+        } catch (IOException ex) {
+            throw new StreamConnectException(String.format("Failed to encode segment of base offset %s", baseOffset), ex);
+        }
+    }
+
+    public static SegmentData decode(@NotNull byte[] data) {
+        return decode(data, -1L);
+    }
+
+    /**
+     * Decode the segment, the entries are re-based at the committed base offset if specified (i.e. >= 0), because
+     * the segment may be re-based when committing to the manifest after the concurrent writers of the channel.
+     */
+    public static SegmentData decode(@NotNull byte[] data, long committedBaseOffset) {
+        try {
+            final DataInputStream header = new DataInputStream(new ByteArrayInputStream(data));
+            if (header.readInt() != MAGIC) {
+                throw new StreamConnectException("Invalid segment magic number.");
+            }
+            final byte version = header.readByte();
+            if (version != VERSION) {
+                throw new StreamConnectException(String.format("Unsupported segment version %s", version));
+            }
+            final Compression compression = Compression.values()[header.readByte()];
+            final InputStream payloadIn = new ByteArrayInputStream(data, 6, data.length - 6);
+            final DataInputStream in = new DataInputStream(compression == Compression.GZIP
+                    ? new GZIPInputStream(payloadIn, 8192) : payloadIn);
+
+            final long encodedBaseOffset = in.readLong();
+            final long baseOffset = committedBaseOffset >= 0 ? committedBaseOffset : encodedBaseOffset;
+            final long createTime = in.readLong();
+            final String format = in.readUTF();
+            final int count = in.readInt();
+            final long[] timestamps = new long[count];
+            long prevTimestamp = 0L;
+            for (int i = 0; i < count; i++) {
+                timestamps[i] = prevTimestamp + unzigzag(readVarLong(in));
+                prevTimestamp = timestamps[i];
+            }
+            final int[] keyLengths = new int[count];
+            for (int i = 0; i < count; i++) {
+                keyLengths[i] = (int) readVarLong(in) - 1;
+            }
+            final String[] keys = new String[count];
+            for (int i = 0; i < count; i++) {
+                if (keyLengths[i] >= 0) {
+                    final byte[] kb = new byte[keyLengths[i]];
+                    in.readFully(kb);
+                    keys[i] = new String(kb, StandardCharsets.UTF_8);
+                }
+            }
+            final int[] valueLengths = new int[count];
+            for (int i = 0; i < count; i++) {
+                valueLengths[i] = (int) readVarLong(in) - 1;
+            }
+            final List<LogEntry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                byte[] value = null;
+                if (valueLengths[i] >= 0) {
+                    value = new byte[valueLengths[i]];
+                    in.readFully(value);
+                }
+                entries.add(new LogEntry(baseOffset + i, timestamps[i], createTime, keys[i], format, value));
+            }
+            return new SegmentData(baseOffset, createTime, format, entries);
+        } catch (IOException ex) {
+            throw new StreamConnectException("Failed to decode segment.", ex);
+        }
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0L) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0L;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new StreamConnectException("Malformed segment variable length number.");
+    }
+
+    public enum Compression {
+        NONE, GZIP
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class SegmentData {
+        private final long baseOffset;
+        private final long createTime;
+        private final String format;
+        private final List<LogEntry> entries;
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.checkpoint.minio;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@link SegmentManifest}, the manifest object of the committed segments of a channel, the segment is
+ * visible to the readers only after it has been committed to the manifest.
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class SegmentManifest {
+    private long nextOffset;
+    private List<SegmentMeta> segments = new ArrayList<>();
+
+    public SegmentManifest copy() {
+        return new SegmentManifest(nextOffset, new ArrayList<>(segments));
+    }
+
+    @JsonIgnore
+    public long getTotalBytes() {
+        long total = 0L;
+        for (SegmentMeta segment : segments) {
+            total += segment.getBytes();
+        }
+        return total;
+    }
+
+    @Getter
+    @Setter
+    @ToString
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SegmentMeta {
+        private String key;
+        private long baseOffset;
+        private int count;
+        private long bytes;
+        private long createTime;
+
+        @JsonIgnore
+        public long getEndOffset() {
+            return baseOffset + count;
+        }
+    }
+
+}
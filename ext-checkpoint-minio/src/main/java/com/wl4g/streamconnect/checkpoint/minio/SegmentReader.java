@@ -0,0 +1,254 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.checkpoint.minio;
+
+import com.wl4g.infra.common.lang.Assert2;
+import com.wl4g.streamconnect.checkpoint.file.PointLogSegment.LogEntry;
+import com.wl4g.streamconnect.checkpoint.minio.SegmentCodec.SegmentData;
+import com.wl4g.streamconnect.checkpoint.minio.SegmentManifest.SegmentMeta;
+import com.wl4g.streamconnect.exception.StreamConnectException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import static java.lang.String.format;
+import static java.util.Objects.isNull;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The {@link SegmentReader}, reads the committed segments of a channel in order from the acknowledged
+ * offset, the upcoming segments are prefetched (downloaded and decoded) in parallel.
+ * <p>
+ * Notice: The {@link #poll()} must be called by only one thread.
+ * </p>
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+@Slf4j
+public class SegmentReader implements Closeable {
+    private final @Getter String name;
+    private final ObjectStore store;
+    private final String prefix;
+    private final int prefetchSegments;
+    private final long manifestRefreshMs;
+    private final long partSize;
+    private final Executor prefetchExecutor;
+    private final Deque<PrefetchSegment> window = new ArrayDeque<>();
+    private final Object ackLock = new Object();
+
+    // Written by the polling thread only, and read by the acknowledging threads.
+    private volatile List<SegmentMeta> manifestSegments = Collections.emptyList();
+    private long lastManifestLoadTime;
+    private @Getter long position;
+    private long scheduledOffset;
+    private volatile @Getter long ackedOffset;
+    private volatile boolean closed;
+
+    public SegmentReader(@NotBlank String name,
+                         @NotNull ObjectStore store,
+                         @NotBlank String prefix,
+                         int prefetchSegments,
+                         long manifestRefreshMs,
+                         long partSize,
+                         @NotNull Executor prefetchExecutor) {
+        this.name = Assert2.hasTextOf(name, "name");
+        this.store = requireNonNull(store, "store must not be null");
+        this.prefix = Assert2.hasTextOf(prefix, "prefix");
+        this.prefetchExecutor = requireNonNull(prefetchExecutor, "prefetchExecutor must not be null");
+        Assert2.isTrueOf(prefetchSegments > 0, "prefetchSegments > 0");
+        Assert2.isTrueOf(manifestRefreshMs > 0, "manifestRefreshMs > 0");
+        this.prefetchSegments = prefetchSegments;
+        this.manifestRefreshMs = manifestRefreshMs;
+        this.partSize = partSize;
+        this.ackedOffset = loadAckedOffset();
+        this.position = Math.max(ackedOffset, 0L);
+        this.scheduledOffset = position;
+    }
+
+    /**
+     * Poll the next committed segment in order, which records before the read position are skipped.
+     *
+     * @return the next segment, or null if there is no more committed segment at present.
+     */
+    public SegmentData poll() {
+        while (true) {
+            schedule();
+            final PrefetchSegment head = window.peek();
+            if (isNull(head)) {
+                return null;
+            }
+            final SegmentData data;
+            try {
+                data = head.getFuture().join();
+            } catch (CompletionException ex) {
+                // Re-schedule from the current position on the next poll.
+                window.forEach(ps -> ps.getFuture().cancel(false));
+                window.clear();
+                this.scheduledOffset = position;
+                throw new StreamConnectException(format("%s :: Failed to fetch segment %s", name,
+                        head.getMeta().getKey()), ex.getCause());
+            }
+            window.poll();
+            final long endOffset = head.getMeta().getEndOffset();
+            if (isNull(data)) {
+                log.warn("{} :: Skipped the segment {} which has been removed by the retention.", name,
+                        head.getMeta().getKey());
+                this.position = Math.max(position, endOffset);
+                continue;
+            }
+            final List<LogEntry> entries = new ArrayList<>(data.getEntries().size());
+            for (LogEntry entry : data.getEntries()) {
+                if (entry.getOffset() >= position) {
+                    entries.add(entry);
+                }
+            }
+            this.position = Math.max(position, endOffset);
+            if (entries.isEmpty()) {
+                continue;
+            }
+            return new SegmentData(data.getBaseOffset(), data.getCreateTime(), data.getFormat(), entries);
+        }
+    }
+
+    /**
+     * Persist the next offset to read (i.e. all the records before it have been acknowledged).
+     */
+    public void commitAckedOffset(long offset) {
+        synchronized (ackLock) {
+            if (offset <= ackedOffset) {
+                return;
+            }
+            try {
+                store.putObject(prefix.concat(SegmentWriter.ACK_OFFSET_OBJECT),
+                        String.valueOf(offset).getBytes(StandardCharsets.UTF_8), partSize).get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new StreamConnectException(format("%s :: Interrupted to commit acknowledge offset %s", name, offset), ex);
+            } catch (Exception ex) {
+                throw new StreamConnectException(format("%s :: Failed to commit acknowledge offset %s", name, offset), ex);
+            }
+            this.ackedOffset = offset;
+        }
+    }
+
+    /**
+     * Gets the offset that could be acknowledged, which is advanced from the acknowledged offset over the
+     * consecutive completed offsets, and the offsets that could never be read (i.e. of the segments removed
+     * by the retention or never committed of the failed uploads) are skipped, so that the records that have
+     * not been completed (e.g: given up) are never acknowledged.
+     *
+     * @param completedOffsets the completed offsets in ascending order.
+     * @return the next offset to read after acknowledged.
+     */
+    public long getAcknowledgeableOffset(long[] completedOffsets) {
+        final List<SegmentMeta> segments = this.manifestSegments;
+        long nextOffset = Math.max(ackedOffset, 0L);
+        int i = 0;
+        int s = 0;
+        while (true) {
+            while (s < segments.size() && segments.get(s).getEndOffset() <= nextOffset) {
+                ++s;
+            }
+            if (s < segments.size() && nextOffset < segments.get(s).getBaseOffset()) {
+                nextOffset = segments.get(s).getBaseOffset();
+            }
+            while (i < completedOffsets.length && completedOffsets[i] < nextOffset) {
+                ++i;
+            }
+            if (i >= completedOffsets.length || completedOffsets[i] != nextOffset) {
+                return nextOffset;
+            }
+            ++nextOffset;
+            ++i;
+        }
+    }
+
+    /**
+     * Cancel the prefetching segments and release the buffered, must be called by the polling thread
+     * or after it has exited.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        window.forEach(ps -> ps.getFuture().cancel(false));
+        window.clear();
+        this.scheduledOffset = position;
+    }
+
+    private long loadAckedOffset() {
+        final byte[] data = store.getObject(prefix.concat(SegmentWriter.ACK_OFFSET_OBJECT));
+        return isNull(data) ? -1L : Long.parseLong(new String(data, StandardCharsets.UTF_8).trim());
+    }
+
+    private void schedule() {
+        if (window.size() >= prefetchSegments) {
+            return;
+        }
+        scheduleFromManifest();
+        // Refresh the manifest if the known segments have been all scheduled.
+        final long now = System.currentTimeMillis();
+        if (window.size() < prefetchSegments && (window.isEmpty() || now - lastManifestLoadTime >= manifestRefreshMs)) {
+            this.manifestSegments = SegmentWriter.loadManifest(store, prefix).getSegments();
+            this.lastManifestLoadTime = now;
+            scheduleFromManifest();
+        }
+    }
+
+    private void scheduleFromManifest() {
+        for (SegmentMeta meta : manifestSegments) {
+            if (window.size() >= prefetchSegments) {
+                break;
+            }
+            if (meta.getEndOffset() <= scheduledOffset) {
+                continue;
+            }
+            window.offer(new PrefetchSegment(meta, CompletableFuture.supplyAsync(() -> {
+                if (closed) {
+                    throw new StreamConnectException(format("%s :: Cancelled to fetch segment %s of closed",
+                            name, meta.getKey()));
+                }
+                final byte[] data = store.getObject(meta.getKey());
+                // Notice: The segment may have been re-based when committing after the other writers of the channel.
+                return isNull(data) ? null : SegmentCodec.decode(data, meta.getBaseOffset());
+            }, prefetchExecutor)));
+            this.scheduledOffset = meta.getEndOffset();
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    static class PrefetchSegment {
+        private final SegmentMeta meta;
+        private final CompletableFuture<SegmentData> future;
+    }
+
+}
@@ -0,0 +1,469 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.checkpoint.minio;
+
+import com.wl4g.infra.common.lang.Assert2;
+import com.wl4g.streamconnect.checkpoint.minio.ObjectStore.VersionedObject;
+import com.wl4g.streamconnect.checkpoint.minio.SegmentCodec.Compression;
+import com.wl4g.streamconnect.checkpoint.minio.SegmentManifest.SegmentMeta;
+import com.wl4g.streamconnect.exception.StreamConnectException;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static com.wl4g.infra.common.serialize.JacksonUtils.parseJSON;
+import static com.wl4g.infra.common.serialize.JacksonUtils.toJSONString;
+import static java.lang.String.format;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The {@link SegmentWriter}, buffers the point records of a channel into the segment, which is rolled by
+ * the size, the records count or the time (or the batch flush), and uploaded asynchronously. The uploaded
+ * segments are committed to the manifest in order of sealing, and then the write futures of the records are
+ * completed. The channel may be written by the multiple writers (e.g: the pods of the consumer group), so the
+ * segment keys are unique per writer, and the manifest is committed by the conditional put of entity tag, which
+ * is reloaded on conflict and the segments are re-based after the offsets committed by the other writers.
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+@Slf4j
+public class SegmentWriter implements Closeable {
+    public static final String MANIFEST_OBJECT = "manifest.json";
+    public static final String ACK_OFFSET_OBJECT = "ack.offset";
+    public static final String SEGMENTS_PATH = "segments/";
+    public static final String SEGMENT_SUFFIX = ".seg";
+    public static final int MAX_COMMIT_ATTEMPTS = 16;
+
+    private final @Getter String name;
+    private final @Getter String writerId = UUID.randomUUID().toString().replace("-", "");
+    private final ObjectStore store;
+    private final String prefix;
+    private final String format;
+    private final Compression compression;
+    private final int segmentBytes;
+    private final int segmentMaxRecords;
+    private final long segmentRollMs;
+    private final long partSize;
+    private final Executor uploadExecutor;
+    private final Semaphore uploadPermits;
+    private final Set<CompletableFuture<SegmentMeta>> inflightUploads = ConcurrentHashMap.newKeySet();
+    private volatile long retentionTime = Long.MAX_VALUE;
+    private volatile long retentionBytes = Long.MAX_VALUE;
+
+    // Guarded by this.
+    private SegmentBuffer buffer;
+    private long nextOffset;
+    private long nextSealSeq;
+    private boolean closed;
+
+    // Guarded by manifestLock.
+    private final Object manifestLock = new Object();
+    private final TreeMap<Long, SealedSegment> uploadedSegments = new TreeMap<>();
+    private SegmentManifest manifest;
+    private String manifestETag;
+    private long nextCommitSeq;
+
+    public SegmentWriter(@NotBlank String name,
+                         @NotNull ObjectStore store,
+                         @NotBlank String prefix,
+                         @NotBlank String format,
+                         @NotNull Compression compression,
+                         int segmentBytes,
+                         int segmentMaxRecords,
+                         long segmentRollMs,
+                         long partSize,
+                         int maxInflightUploads,
+                         @NotNull Executor uploadExecutor) {
+        this.name = Assert2.hasTextOf(name, "name");
+        this.store = requireNonNull(store, "store must not be null");
+        this.prefix = Assert2.hasTextOf(prefix, "prefix");
+        this.format = Assert2.hasTextOf(format, "format");
+        this.compression = requireNonNull(compression, "compression must not be null");
+        this.uploadExecutor = requireNonNull(uploadExecutor, "uploadExecutor must not be null");
+        Assert2.isTrueOf(segmentBytes > 0, "segmentBytes > 0");
+        Assert2.isTrueOf(segmentMaxRecords > 0, "segmentMaxRecords > 0");
+        Assert2.isTrueOf(segmentRollMs > 0, "segmentRollMs > 0");
+        Assert2.isTrueOf(maxInflightUploads > 0, "maxInflightUploads > 0");
+        this.segmentBytes = segmentBytes;
+        this.segmentMaxRecords = segmentMaxRecords;
+        this.segmentRollMs = segmentRollMs;
+        this.partSize = partSize;
+        this.uploadPermits = new Semaphore(maxInflightUploads);
+
+        reloadManifest();
+        this.nextOffset = manifest.getNextOffset();
+        if (log.isInfoEnabled()) {
+            log.info("{} :: Loaded segment manifest with segments: {}, next offset: {}", name,
+                    manifest.getSegments().size(), nextOffset);
+        }
+    }
+
+    public static SegmentManifest loadManifest(ObjectStore store, String prefix) {
+        return parseManifest(store.getObject(prefix.concat(MANIFEST_OBJECT)));
+    }
+
+    private static SegmentManifest parseManifest(byte[] data) {
+        return isNull(data) ? new SegmentManifest() : parseJSON(new String(data, StandardCharsets.UTF_8),
+                SegmentManifest.class);
+    }
+
+    public void updateRetention(long retentionTime, long retentionBytes) {
+        Assert2.isTrueOf(retentionTime > 0, "retentionTime > 0");
+        Assert2.isTrueOf(retentionBytes > 0, "retentionBytes > 0");
+        this.retentionTime = retentionTime;
+        this.retentionBytes = retentionBytes;
+    }
+
+    /**
+     * Append the record into the current segment buffer.
+     *
+     * @return the future of the segment, which is completed after it has been committed to the manifest.
+     */
+    public CompletableFuture<SegmentMeta> append(String key, long timestamp, byte[] value) {
+        final SealedSegment sealed;
+        final CompletableFuture<SegmentMeta> future;
+        synchronized (this) {
+            if (closed) {
+                throw new StreamConnectException(format("%s :: The segment writer has been closed.", name));
+            }
+            if (isNull(buffer)) {
+                this.buffer = new SegmentBuffer(System.currentTimeMillis());
+            }
+            future = buffer.add(key, timestamp, value);
+            sealed = (buffer.getBytes() >= segmentBytes || buffer.getCount() >= segmentMaxRecords) ? seal() : null;
+        }
+        upload(sealed);
+        return future;
+    }
+
+    /**
+     * Roll the current segment buffer, e.g: flush of the writer batch.
+     */
+    public void roll() {
+        final SealedSegment sealed;
+        synchronized (this) {
+            sealed = seal();
+        }
+        upload(sealed);
+    }
+
+    public void rollIfExpired(long now) {
+        final SealedSegment sealed;
+        synchronized (this) {
+            sealed = (nonNull(buffer) && now - buffer.getCreateTime() >= segmentRollMs) ? seal() : null;
+        }
+        upload(sealed);
+    }
+
+    public SegmentManifest getManifest() {
+        synchronized (manifestLock) {
+            return manifest;
+        }
+    }
+
+    public int getInflightUploads() {
+        return inflightUploads.size();
+    }
+
+    public boolean awaitUploads(long timeoutMs) {
+        final CompletableFuture<?>[] uploads = inflightUploads.toArray(new CompletableFuture[0]);
+        try {
+            CompletableFuture.allOf(uploads).get(timeoutMs, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception ex) {
+            // The failures are completed to the write futures, only wait for them to be done here.
+            return Arrays.stream(uploads).allMatch(CompletableFuture::isDone);
+        }
+    }
+
+    public void close(long timeoutMs) {
+        final SealedSegment sealed;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            this.closed = true;
+            sealed = seal();
+        }
+        upload(sealed);
+        if (!awaitUploads(timeoutMs) && log.isWarnEnabled()) {
+            log.warn("{} :: Timeout to wait for the segment uploads, remaining : {}", name, inflightUploads.size());
+        }
+    }
+
+    @Override
+    public void close() {
+        close(Long.MAX_VALUE);
+    }
+
+    // Guarded by this.
+    private SealedSegment seal() {
+        if (isNull(buffer) || buffer.getCount() == 0) {
+            return null;
+        }
+        final SealedSegment sealed = new SealedSegment(nextSealSeq++, nextOffset, buffer);
+        this.nextOffset += buffer.getCount();
+        this.buffer = null;
+        return sealed;
+    }
+
+    private void upload(SealedSegment segment) {
+        if (isNull(segment)) {
+            return;
+        }
+        // Notice: Block the writing threads if too many uploads in-flight, i.e. the back pressure.
+        try {
+            uploadPermits.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            onUploaded(segment, ex);
+            return;
+        }
+        final String key = prefix.concat(SEGMENTS_PATH).concat(format("%020d-%s%s", segment.getBaseOffset(), writerId,
+                SEGMENT_SUFFIX));
+        final CompletableFuture<Void> future;
+        try {
+            future = CompletableFuture
+                    .supplyAsync(() -> segment.encode(format, compression), uploadExecutor)
+                    .thenCompose(data -> {
+                        segment.setMeta(new SegmentMeta(key, segment.getBaseOffset(), segment.getBuffer().getCount(),
+                                data.length, segment.getBuffer().getCreateTime()));
+                        return store.putObject(key, data, partSize);
+                    });
+        } catch (Throwable ex) { // e.g: The executor has been shutdown.
+            uploadPermits.release();
+            onUploaded(segment, ex);
+            return;
+        }
+        // Tracking until the segment is settled (committed or failed), which may be after the previous segments.
+        final CompletableFuture<SegmentMeta> settled = segment.getFuture();
+        inflightUploads.add(settled);
+        settled.whenComplete((r, ex) -> inflightUploads.remove(settled));
+        // Notice: The manifest is committed on the upload executor, instead of the I/O callback thread of client.
+        future.whenCompleteAsync((r, ex) -> {
+            uploadPermits.release();
+            onUploaded(segment, ex);
+        }, uploadExecutor);
+    }
+
+    /**
+     * Commit the uploaded segments to the manifest in order of sealing, the failed segments are skipped.
+     */
+    private void onUploaded(SealedSegment segment, Throwable error) {
+        final List<SealedSegment> committed = new ArrayList<>();
+        final List<SealedSegment> failed = new ArrayList<>();
+        final List<SegmentMeta> expired = new ArrayList<>();
+        Throwable commitError = null;
+        synchronized (manifestLock) {
+            segment.setError(error);
+            uploadedSegments.put(segment.getSeq(), segment);
+            SealedSegment next;
+            while (nonNull(next = uploadedSegments.remove(nextCommitSeq))) {
+                ++nextCommitSeq;
+                (isNull(next.getError()) ? committed : failed).add(next);
+            }
+            if (!committed.isEmpty()) {
+                try {
+                    expired.addAll(commitManifest(committed));
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    commitError = ex;
+                } catch (Throwable ex) {
+                    commitError = ex;
+                }
+            }
+        }
+        if (!committed.isEmpty() && isNull(commitError)) {
+            // The offsets may have been advanced by the other writers of the channel.
+            synchronized (this) {
+                this.nextOffset = Math.max(nextOffset, getManifest().getNextOffset());
+            }
+        }
+        for (SealedSegment s : failed) {
+            log.error(format("%s :: Failed to upload segment of base offset %s", name, s.getBaseOffset()), s.getError());
+            s.getFuture().completeExceptionally(s.getError());
+        }
+        if (nonNull(commitError)) {
+            log.error(format("%s :: Failed to commit segments manifest.", name), commitError);
+            for (SealedSegment s : committed) {
+                s.getFuture().completeExceptionally(commitError);
+            }
+            return;
+        }
+        for (SealedSegment s : committed) {
+            if (log.isDebugEnabled()) {
+                log.debug("{} :: Committed segment : {}", name, s.getMeta());
+            }
+            s.getFuture().complete(s.getMeta());
+        }
+        for (SegmentMeta meta : expired) {
+            store.removeObject(meta.getKey()).whenComplete((r, ex) -> {
+                if (nonNull(ex)) {
+                    log.warn("{} :: Failed to remove expired segment {}. reason : {}", name, meta.getKey(), ex.getMessage());
+                } else if (log.isInfoEnabled()) {
+                    log.info("{} :: Removed expired segment : {}", name, meta);
+                }
+            });
+        }
+    }
+
+    /**
+     * Commit the segments to the manifest by the conditional put, if the manifest has been modified by the other
+     * writers, reload it and re-base the segments after its next offset, then retry.
+     *
+     * @return the expired segments, which should be removed only after the manifest has been committed.
+     */
+    // Guarded by manifestLock.
+    private List<SegmentMeta> commitManifest(List<SealedSegment> segments) throws Exception {
+        for (int attempts = 1; ; attempts++) {
+            final SegmentManifest newManifest = manifest.copy();
+            final List<SegmentMeta> metas = new ArrayList<>(segments.size());
+            for (SealedSegment s : segments) {
+                final SegmentMeta meta = s.getMeta();
+                final SegmentMeta rebased = new SegmentMeta(meta.getKey(), Math.max(s.getBaseOffset(),
+                        newManifest.getNextOffset()), meta.getCount(), meta.getBytes(), meta.getCreateTime());
+                newManifest.getSegments().add(rebased);
+                newManifest.setNextOffset(rebased.getEndOffset());
+                metas.add(rebased);
+            }
+            final List<SegmentMeta> expired = applyRetention(newManifest, System.currentTimeMillis());
+            final String etag = store.putObjectIfMatch(prefix.concat(MANIFEST_OBJECT), toJSONString(newManifest)
+                    .getBytes(StandardCharsets.UTF_8), partSize, manifestETag).get();
+            if (nonNull(etag)) {
+                this.manifest = newManifest;
+                this.manifestETag = etag;
+                for (int i = 0; i < segments.size(); i++) {
+                    segments.get(i).setMeta(metas.get(i));
+                }
+                return expired;
+            }
+            if (attempts >= MAX_COMMIT_ATTEMPTS) {
+                throw new StreamConnectException(format("%s :: Failed to commit segments manifest after %s attempts, " +
+                        "it has been modified concurrently.", name, attempts));
+            }
+            if (log.isInfoEnabled()) {
+                log.info("{} :: The segments manifest has been modified concurrently, reload and retry: {}", name, attempts);
+            }
+            reloadManifest();
+        }
+    }
+
+    // Guarded by manifestLock.
+    private void reloadManifest() {
+        final VersionedObject object = store.getVersionedObject(prefix.concat(MANIFEST_OBJECT));
+        this.manifest = parseManifest(isNull(object) ? null : object.getData());
+        this.manifestETag = isNull(object) ? null : object.getEtag();
+    }
+
+    private List<SegmentMeta> applyRetention(SegmentManifest manifest, long now) {
+        final List<SegmentMeta> expired = new ArrayList<>();
+        long totalBytes = manifest.getTotalBytes();
+        final Iterator<SegmentMeta> it = manifest.getSegments().iterator();
+        while (it.hasNext()) {
+            final SegmentMeta meta = it.next();
+            if (now - meta.getCreateTime() <= retentionTime && totalBytes <= retentionBytes) {
+                break;
+            }
+            it.remove();
+            totalBytes -= meta.getBytes();
+            expired.add(meta);
+        }
+        return expired;
+    }
+
+    @Getter
+    static class SegmentBuffer {
+        private final long createTime;
+        private final CompletableFuture<SegmentMeta> future = new CompletableFuture<>();
+        private final List<String> keys = new ArrayList<>();
+        private final List<byte[]> values = new ArrayList<>();
+        private long[] timestamps = new long[64];
+        private int count;
+        private long bytes;
+
+        SegmentBuffer(long createTime) {
+            this.createTime = createTime;
+        }
+
+        CompletableFuture<SegmentMeta> add(String key, long timestamp, byte[] value) {
+            if (count == timestamps.length) {
+                this.timestamps = Arrays.copyOf(timestamps, count << 1);
+            }
+            keys.add(key);
+            values.add(value);
+            timestamps[count++] = timestamp;
+            this.bytes += (isNull(key) ? 0 : key.length()) + (isNull(value) ? 0 : value.length) + 8;
+            return future;
+        }
+    }
+
+    @Getter
+    static class SealedSegment {
+        private final long seq;
+        private final long baseOffset;
+        private final SegmentBuffer buffer;
+        private volatile SegmentMeta meta;
+        private volatile Throwable error;
+
+        SealedSegment(long seq, long baseOffset, SegmentBuffer buffer) {
+            this.seq = seq;
+            this.baseOffset = baseOffset;
+            this.buffer = buffer;
+        }
+
+        byte[] encode(String format, Compression compression) {
+            return SegmentCodec.encode(baseOffset, buffer.getCreateTime(), format, buffer.getKeys(),
+                    buffer.getTimestamps(), buffer.getValues(), compression);
+        }
+
+        CompletableFuture<SegmentMeta> getFuture() {
+            return buffer.getFuture();
+        }
+
+        void setMeta(SegmentMeta meta) {
+            this.meta = meta;
+        }
+
+        void setError(Throwable error) {
+            this.error = error;
+        }
+    }
+
+}
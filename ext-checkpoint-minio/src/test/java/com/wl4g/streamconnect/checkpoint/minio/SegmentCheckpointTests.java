@@ -0,0 +1,337 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.checkpoint.minio;
+
+import com.wl4g.streamconnect.checkpoint.file.PointLogSegment.LogEntry;
+import com.wl4g.streamconnect.checkpoint.minio.ObjectStore.VersionedObject;
+import com.wl4g.streamconnect.checkpoint.minio.SegmentCodec.Compression;
+import com.wl4g.streamconnect.checkpoint.minio.SegmentCodec.SegmentData;
+import com.wl4g.streamconnect.checkpoint.minio.SegmentManifest.SegmentMeta;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The {@link SegmentCheckpointTests}, against the in-process object store instead of a real MinIO server.
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+public class SegmentCheckpointTests {
+
+    static final String PREFIX = "checkpoint/connector_1/c1001/";
+    static final long PART_SIZE = 5 * 1024 * 1024L;
+
+    @Test
+    public void testCodecRoundTrip() {
+        final List<String> keys = Arrays.asList("k0", null, "k2");
+        final long[] timestamps = {1000L, 998L, 2000L};
+        final List<byte[]> values = Arrays.asList(value(0), value(1), null);
+        for (Compression compression : Compression.values()) {
+            final SegmentData data = SegmentCodec.decode(SegmentCodec.encode(100L, 12345L, "JSON",
+                    keys, timestamps, values, compression));
+            Assertions.assertEquals(100L, data.getBaseOffset());
+            Assertions.assertEquals(12345L, data.getCreateTime());
+            Assertions.assertEquals("JSON", data.getFormat());
+            Assertions.assertEquals(3, data.getEntries().size());
+            for (int i = 0; i < 3; i++) {
+                final LogEntry entry = data.getEntries().get(i);
+                Assertions.assertEquals(100L + i, entry.getOffset());
+                Assertions.assertEquals(timestamps[i], entry.getTimestamp());
+                Assertions.assertEquals(keys.get(i), entry.getKey());
+                Assertions.assertArrayEquals(values.get(i), entry.getValue());
+            }
+        }
+    }
+
+    @Test
+    public void testWriteAndPrefetchRead() throws Exception {
+        final InMemoryObjectStore store = new InMemoryObjectStore();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final SegmentWriter writer = newSegmentWriter(store, executor, 10);
+            final List<CompletableFuture<SegmentMeta>> futures = new ArrayList<>();
+            for (int i = 0; i < 35; i++) {
+                futures.add(writer.append("k" + i, 1000L + i, value(i)));
+            }
+            // The last partial segment is rolled by the batch flush.
+            writer.roll();
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+            Assertions.assertEquals(4, writer.getManifest().getSegments().size());
+            Assertions.assertEquals(35L, writer.getManifest().getNextOffset());
+            Assertions.assertEquals(30L, futures.get(34).get().getBaseOffset());
+
+            final SegmentReader reader = newSegmentReader(store, executor);
+            final List<LogEntry> entries = readAll(reader);
+            Assertions.assertEquals(35, entries.size());
+            for (int i = 0; i < 35; i++) {
+                Assertions.assertEquals(i, entries.get(i).getOffset());
+                Assertions.assertArrayEquals(value(i), entries.get(i).getValue());
+            }
+            Assertions.assertEquals(35L, reader.getPosition());
+
+            // Resumes from the manifest of the object store.
+            final SegmentWriter reopened = newSegmentWriter(store, executor, 10);
+            final CompletableFuture<SegmentMeta> future = reopened.append("k35", 2000L, value(35));
+            Assertions.assertFalse(future.isDone());
+            reopened.close(10_000L);
+            Assertions.assertEquals(35L, future.get().getBaseOffset());
+            Assertions.assertEquals(36L, reopened.getManifest().getNextOffset());
+            Assertions.assertEquals(35L, reader.poll().getEntries().get(0).getOffset());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailedUploadIsSkippedInOrder() throws Exception {
+        final InMemoryObjectStore store = new InMemoryObjectStore();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final SegmentWriter writer = newSegmentWriter(store, executor, 5);
+            store.failKeys.add(PREFIX.concat(SegmentWriter.SEGMENTS_PATH).concat(String.format("%020d-", 0)));
+            final List<CompletableFuture<SegmentMeta>> futures = new ArrayList<>();
+            for (int i = 0; i < 15; i++) {
+                futures.add(writer.append("k" + i, 1000L + i, value(i)));
+            }
+            Assertions.assertTrue(writer.awaitUploads(10_000L));
+            Assertions.assertTrue(futures.get(0).isCompletedExceptionally());
+            Assertions.assertEquals(5L, futures.get(5).get().getBaseOffset());
+            Assertions.assertEquals(10L, futures.get(10).get().getBaseOffset());
+            Assertions.assertEquals(2, writer.getManifest().getSegments().size());
+
+            // The failed segment is never visible to the reader.
+            final List<LogEntry> entries = readAll(newSegmentReader(store, executor));
+            Assertions.assertEquals(10, entries.size());
+            Assertions.assertEquals(5L, entries.get(0).getOffset());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testConcurrentWritersOfChannel() throws Exception {
+        final InMemoryObjectStore store = new InMemoryObjectStore();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            // e.g: The two pods of consumer group write to the same channel, both are loaded with the empty manifest.
+            final SegmentWriter writer1 = newSegmentWriter(store, executor, 5);
+            final SegmentWriter writer2 = newSegmentWriter(store, executor, 5);
+            Assertions.assertNotEquals(writer1.getWriterId(), writer2.getWriterId());
+            for (int i = 0; i < 10; i++) {
+                writer1.append("k" + i, 1000L + i, value(i));
+            }
+            Assertions.assertTrue(writer1.awaitUploads(10_000L));
+            final List<CompletableFuture<SegmentMeta>> futures = new ArrayList<>();
+            for (int i = 10; i < 20; i++) {
+                futures.add(writer2.append("k" + i, 1000L + i, value(i)));
+            }
+            Assertions.assertTrue(writer2.awaitUploads(10_000L));
+            // The segments of writer2 are re-based after the committed by writer1, instead of overwriting them.
+            Assertions.assertEquals(10L, futures.get(0).get().getBaseOffset());
+            Assertions.assertEquals(15L, futures.get(5).get().getBaseOffset());
+            final SegmentManifest manifest = SegmentWriter.loadManifest(store, PREFIX);
+            Assertions.assertEquals(4, manifest.getSegments().size());
+            Assertions.assertEquals(20L, manifest.getNextOffset());
+
+            final List<LogEntry> entries = readAll(newSegmentReader(store, executor));
+            Assertions.assertEquals(20, entries.size());
+            for (int i = 0; i < 20; i++) {
+                Assertions.assertEquals(i, entries.get(i).getOffset());
+                Assertions.assertArrayEquals(value(i), entries.get(i).getValue());
+            }
+            // The next segments of writer1 are appended after writer2.
+            final CompletableFuture<SegmentMeta> future = writer1.append("k20", 2000L, value(20));
+            writer1.roll();
+            Assertions.assertEquals(20L, future.get(10, TimeUnit.SECONDS).getBaseOffset());
+            Assertions.assertEquals(20L, readAll(newSegmentReader(store, executor)).get(20).getOffset());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testAcknowledgeableOffset() throws Exception {
+        final InMemoryObjectStore store = new InMemoryObjectStore();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final SegmentWriter writer = newSegmentWriter(store, executor, 5);
+            store.failKeys.add(PREFIX.concat(SegmentWriter.SEGMENTS_PATH).concat(String.format("%020d-", 5)));
+            for (int i = 0; i < 15; i++) {
+                writer.append("k" + i, 1000L + i, value(i));
+            }
+            Assertions.assertTrue(writer.awaitUploads(10_000L));
+
+            final SegmentReader reader = newSegmentReader(store, executor);
+            Assertions.assertEquals(10, readAll(reader).size());
+            // The given up offset 2 is held, even though the later offsets have been completed.
+            Assertions.assertEquals(2L, reader.getAcknowledgeableOffset(new long[]{0, 1, 3, 4, 10}));
+            // The never visible offsets of the failed segment are skipped.
+            Assertions.assertEquals(12L, reader.getAcknowledgeableOffset(new long[]{0, 1, 2, 3, 4, 10, 11, 13}));
+
+            reader.commitAckedOffset(12L);
+            // Never advanced from the first completed offset over the unacknowledged.
+            Assertions.assertEquals(12L, reader.getAcknowledgeableOffset(new long[]{13, 14}));
+            Assertions.assertEquals(15L, reader.getAcknowledgeableOffset(new long[]{12, 13, 14}));
+            reader.close();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testMultipartUploadAndRetention() throws Exception {
+        final InMemoryObjectStore store = new InMemoryObjectStore();
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final SegmentWriter writer = new SegmentWriter("test", store, PREFIX, "JSON", Compression.NONE,
+                    Integer.MAX_VALUE, 1, 60_000L, PART_SIZE, 4, executor);
+            writer.append("k0", 1000L, new byte[(int) (PART_SIZE * 2 + 1)]).get(10, TimeUnit.SECONDS);
+            Assertions.assertEquals(3, store.uploadedParts.get());
+
+            writer.updateRetention(Long.MAX_VALUE, PART_SIZE * 3);
+            writer.append("k1", 1001L, new byte[(int) PART_SIZE]).get(10, TimeUnit.SECONDS);
+            // The oldest segment is expired by the retention bytes.
+            Assertions.assertEquals(1, writer.getManifest().getSegments().size());
+            Assertions.assertEquals(1L, writer.getManifest().getSegments().get(0).getBaseOffset());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCommitAckedOffset() throws Exception {
+        final InMemoryObjectStore store = new InMemoryObjectStore();
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final SegmentWriter writer = newSegmentWriter(store, executor, 10);
+            for (int i = 0; i < 20; i++) {
+                writer.append("k" + i, 1000L + i, value(i));
+            }
+            Assertions.assertTrue(writer.awaitUploads(10_000L));
+
+            final SegmentReader reader = newSegmentReader(store, executor);
+            Assertions.assertEquals(-1L, reader.getAckedOffset());
+            reader.commitAckedOffset(12L);
+            reader.commitAckedOffset(8L); // Ignored the regression.
+            Assertions.assertEquals(12L, reader.getAckedOffset());
+
+            // Resumes from the acknowledged offset, the records before it are skipped.
+            final SegmentReader resumed = newSegmentReader(store, executor);
+            Assertions.assertEquals(12L, resumed.getAckedOffset());
+            final List<LogEntry> entries = readAll(resumed);
+            Assertions.assertEquals(8, entries.size());
+            Assertions.assertEquals(12L, entries.get(0).getOffset());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    static SegmentWriter newSegmentWriter(ObjectStore store, ExecutorService executor, int segmentMaxRecords) {
+        return new SegmentWriter("test", store, PREFIX, "JSON", Compression.GZIP, 1024 * 1024,
+                segmentMaxRecords, 60_000L, PART_SIZE, 2, executor);
+    }
+
+    static SegmentReader newSegmentReader(ObjectStore store, ExecutorService executor) {
+        return new SegmentReader("test", store, PREFIX, 3, 1000L, PART_SIZE, executor);
+    }
+
+    static List<LogEntry> readAll(SegmentReader reader) {
+        final List<LogEntry> entries = new ArrayList<>();
+        SegmentData data;
+        while ((data = reader.poll()) != null) {
+            entries.addAll(data.getEntries());
+        }
+        return entries;
+    }
+
+    static byte[] value(int i) {
+        return ("{\"id\":" + i + "}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The in-process S3 compatible stand-in, which counts the multipart parts and could inject failures.
+     */
+    static class InMemoryObjectStore implements ObjectStore {
+        final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+        final AtomicInteger uploadedParts = new AtomicInteger();
+        final Map<String, String> etags = new ConcurrentHashMap<>();
+        final Set<String> failKeys = ConcurrentHashMap.newKeySet();
+        final AtomicInteger versions = new AtomicInteger();
+
+        @Override
+        public CompletableFuture<Void> putObject(String key, byte[] data, long partSize) {
+            return CompletableFuture.runAsync(() -> {
+                if (failKeys.stream().anyMatch(key::startsWith)) {
+                    throw new IllegalStateException("Injected failure of " + key);
+                }
+                if (key.endsWith(SegmentWriter.SEGMENT_SUFFIX)) {
+                    uploadedParts.addAndGet((int) Math.max(1L, (data.length + partSize - 1) / partSize));
+                }
+                synchronized (this) {
+                    objects.put(key, data.clone());
+                    etags.put(key, String.valueOf(versions.incrementAndGet()));
+                }
+            });
+        }
+
+        @Override
+        public synchronized CompletableFuture<String> putObjectIfMatch(String key, byte[] data, long partSize, String etag) {
+            if (!Objects.equals(etag, etags.get(key))) {
+                return CompletableFuture.completedFuture(null);
+            }
+            final String newETag = String.valueOf(versions.incrementAndGet());
+            objects.put(key, data.clone());
+            etags.put(key, newETag);
+            return CompletableFuture.completedFuture(newETag);
+        }
+
+        @Override
+        public byte[] getObject(String key) {
+            final byte[] data = objects.get(key);
+            return data == null ? null : data.clone();
+        }
+
+        @Override
+        public synchronized VersionedObject getVersionedObject(String key) {
+            final byte[] data = objects.get(key);
+            return data == null ? null : new VersionedObject(data.clone(), etags.get(key));
+        }
+
+        @Override
+        public synchronized CompletableFuture<Void> removeObject(String key) {
+            objects.remove(key);
+            etags.remove(key);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+}
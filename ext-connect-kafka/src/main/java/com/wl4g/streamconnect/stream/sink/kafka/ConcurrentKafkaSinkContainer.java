@@ -20,13 +20,22 @@ package com.wl4g.streamconnect.stream.sink.kafka;
 import com.wl4g.streamconnect.config.ChannelInfo;
 import com.wl4g.streamconnect.stream.sink.kafka.KafkaSinkStream.KafkaSinkStreamConfig;
 import com.wl4g.streamconnect.util.ConcurrentKafkaProducerContainer;
+import com.wl4g.streamconnect.util.KafkaProducerContainerPool;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
 
 /**
- * The {@link ConcurrentKafkaSinkContainer}
+ * The {@link ConcurrentKafkaSinkContainer}, the sink producers are shared by all the channels (of all connectors)
+ * which sink to the same cluster with the equivalent producer properties, the sequence records are still routed
+ * by the key hash within the shared producers. Notice: the channels with the different 'client.id' (e.g: for the
+ * broker quotas) have the different effective properties, and therefore are not shared.
  *
  * @author James Wong
  * @since v1.0
@@ -34,10 +43,71 @@ import javax.validation.constraints.NotNull;
 @Getter
 @Slf4j
 public class ConcurrentKafkaSinkContainer extends ConcurrentKafkaProducerContainer {
+    private static final KafkaProducerContainerPool SHARED_POOL = new KafkaProducerContainerPool("sink");
+
+    public ConcurrentKafkaSinkContainer(@NotBlank String name,
+                                        @Min(1) int parallelism,
+                                        @NotNull Map<String, Object> producerProps) {
+        super(name, parallelism, null, producerProps);
+    }
+
+    /**
+     * Acquire the shared sink producers of the channel, which must be released by {@link #release} on stopped.
+     */
+    public static ConcurrentKafkaSinkContainer acquire(@NotNull ChannelInfo channel,
+                                                       @NotNull KafkaSinkStreamConfig sinkStreamConfig) {
+        requireNonNull(channel, "channel must not be null");
+        requireNonNull(sinkStreamConfig, "sinkStreamConfig must not be null");
+        final ConcurrentKafkaSinkContainer container = (ConcurrentKafkaSinkContainer) SHARED_POOL.acquire(
+                sinkStreamConfig.getParallelism(), sinkStreamConfig.getProducerProps(),
+                name -> new ConcurrentKafkaSinkContainer(name, sinkStreamConfig.getParallelism(),
+                        sinkStreamConfig.getProducerProps()));
+        if (log.isInfoEnabled()) {
+            log.info("{} :: Acquired the shared sink producers of channel, refCount: {}", channel.getId(),
+                    SHARED_POOL.getRefCount(container));
+        }
+        return container;
+    }
+
+    /**
+     * Re-acquire the shared sink producers of the changed producer properties, and release the old ones.
+     */
+    public static ConcurrentKafkaSinkContainer reacquire(@NotNull ChannelInfo channel,
+                                                         @NotNull ConcurrentKafkaSinkContainer container,
+                                                         @Min(1) int parallelism,
+                                                         @NotNull Map<String, Object> newProducerProps) {
+        requireNonNull(channel, "channel must not be null");
+        final ConcurrentKafkaSinkContainer reacquired = (ConcurrentKafkaSinkContainer) SHARED_POOL.reacquire(
+                container, parallelism, newProducerProps, name -> new ConcurrentKafkaSinkContainer(name,
+                        parallelism, newProducerProps));
+        if (log.isInfoEnabled()) {
+            log.info("{} :: Re-acquired the shared sink producers of channel, refCount: {}", channel.getId(),
+                    SHARED_POOL.getRefCount(reacquired));
+        }
+        return reacquired;
+    }
+
+    /**
+     * Release the shared sink producers, which are closed when the last channel released.
+     *
+     * @return true if the producers have been closed.
+     */
+    public static boolean release(@NotNull ConcurrentKafkaSinkContainer container) {
+        return SHARED_POOL.release(container);
+    }
 
-    public ConcurrentKafkaSinkContainer(@NotNull ChannelInfo channel,
-                                        @NotNull KafkaSinkStreamConfig sinkStreamConfig) {
-        super("sink-".concat(channel.getId()), sinkStreamConfig.getParallelism(),
-                null, sinkStreamConfig.getProducerProps());
+    /**
+     * The shared sink producers must never be reset in place, which would affect the other channels,
+     * see {@link #reacquire}.
+     */
+    @Override
+    public void reset(@NotNull Map<String, Object> newProducerProps) {
+        throw new UnsupportedOperationException("The shared sink producers could not be reset in place, " +
+                "please re-acquire by the changed producer properties.");
     }
+
+    public static KafkaProducerContainerPool getSharedPool() {
+        return SHARED_POOL;
+    }
+
 }
@@ -17,6 +17,7 @@
 
 package com.wl4g.streamconnect.stream.sink.kafka;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.util.concurrent.SettableFuture;
 import com.wl4g.infra.common.lang.Assert2;
 import com.wl4g.streamconnect.config.ChannelInfo;
@@ -38,14 +39,16 @@ import org.apache.kafka.common.serialization.StringSerializer;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Future;
+import java.util.concurrent.CompletableFuture;
 
 import static com.wl4g.infra.common.collection.CollectionUtils2.safeMap;
 import static com.wl4g.streamconnect.stream.AbstractStream.BaseStreamConfig.getStreamProviderTypeName;
+import static java.util.Objects.nonNull;
 import static java.util.Objects.requireNonNull;
 
 /**
@@ -60,7 +63,10 @@ public class KafkaSinkStream extends SinkStream {
 
     private final KafkaSinkStreamConfig sinkStreamConfig;
     private final List<String> basedMetricsTags;
-    private final ConcurrentKafkaSinkContainer internalTask;
+    private final List<String> producerMetricsTags;
+    // Swapped by re-acquiring, the shared producers are never reset in place.
+    private volatile ConcurrentKafkaSinkContainer internalTask;
+    private boolean released; // Guarded by this.
 
     public KafkaSinkStream(@NotNull final StreamContext context,
                            @NotNull final KafkaSinkStreamConfig sinkStreamConfig,
@@ -75,8 +81,40 @@ public class KafkaSinkStream extends SinkStream {
                 StreamConnectMeter.MetricsTag.QOS, sinkStreamConfig.getQos(),
                 StreamConnectMeter.MetricsTag.CHANNEL, getChannel().getId());
 
-        // Create to kafka producers.
-        this.internalTask = new ConcurrentKafkaSinkContainer(channel, getSinkStreamConfig());
+        // The producers are shared across channels, so the producer gauges are tagged by connector only.
+        this.producerMetricsTags = Arrays.asList(
+                StreamConnectMeter.MetricsTag.CONNECTOR, getConnectorConfig().getName());
+
+        // Acquire to shared kafka producers.
+        this.internalTask = ConcurrentKafkaSinkContainer.acquire(channel, getSinkStreamConfig());
+    }
+
+    /**
+     * Reset to the producers of the changed producer properties, which detaches the channel from the
+     * current shared producers (i.e. the other channels are unaffected) and re-acquires by the new key.
+     */
+    public synchronized void reset(@NotNull Map<String, Object> newProducerProps) {
+        requireNonNull(newProducerProps, "newProducerProps must not be null");
+        Assert2.isTrueOf(!released, "!released");
+        final Map<String, Object> mergedProps = new HashMap<>(sinkStreamConfig.getProducerProps());
+        newProducerProps.forEach((key, value) -> {
+            if (nonNull(value)) {
+                mergedProps.put(key, value);
+            }
+        });
+        this.internalTask = ConcurrentKafkaSinkContainer.reacquire(getChannel(), internalTask,
+                sinkStreamConfig.getParallelism(), mergedProps);
+        sinkStreamConfig.setProducerProps(mergedProps);
+    }
+
+    /**
+     * Release the shared producers of the channel, which are closed when the last channel released.
+     */
+    public synchronized void release() {
+        if (!released) {
+            this.released = true;
+            ConcurrentKafkaSinkContainer.release(internalTask);
+        }
     }
 
     @Override
@@ -97,7 +135,12 @@ public class KafkaSinkStream extends SinkStream {
     public SinkResult doSink(MessageRecord<String, Object> processedRecord,
                              int retryTimes) {
         final String key = processedRecord.getKey();
-        final Object value = processedRecord.getValue();
+        // Forward the original JSON text if the value has not been mapped, otherwise the materialized tree
+        // (e.g: the binary checkpoint formats) is written as JSON text.
+        final byte[] rawValue = RawMessageRecord.getUnchangedRawValue(processedRecord);
+        final Object value = nonNull(rawValue) ? new String(rawValue, StandardCharsets.UTF_8)
+                : (processedRecord.getValue() instanceof JsonNode ? processedRecord.getValue().toString()
+                : processedRecord.getValue());
         //final String tenantId = (String) safeMap(processedRecord.getMetadata()).get(KEY_TENANT);
         //final String channelId = (String) safeMap(processedRecord.getMetadata()).get(KEY_CHANNEL);
         final boolean isSequence = Boolean.parseBoolean((String) safeMap(processedRecord.getMetadata()).get(KEY_SEQUENCE));
@@ -113,7 +156,16 @@ public class KafkaSinkStream extends SinkStream {
         //return new SinkResult(processedRecord, future, retryTimes);
 
         final Producer<String, Object> producer = internalTask.obtainDetermineProducer(key, isSequence);
-        final Future<RecordMetadata> future = producer.send(new ProducerRecord<>(sinkStreamConfig.getTopic(), key, value));
+        // Completed by the producer I/O thread, so that the sink result can be settled without blocking.
+        final CompletableFuture<RecordMetadata> future = new CompletableFuture<>();
+        producer.send(new ProducerRecord<>(sinkStreamConfig.getTopic(), key, value), (metadata, ex) -> {
+            if (nonNull(ex)) {
+                future.completeExceptionally(ex);
+            } else {
+                future.complete(metadata);
+            }
+        });
+        internalTask.publishGaugesIfNecessary(getEventPublisher(), producerMetricsTags);
         return new SinkResult(processedRecord, future, retryTimes);
     }
 
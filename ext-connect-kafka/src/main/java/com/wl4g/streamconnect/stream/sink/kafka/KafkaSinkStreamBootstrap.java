@@ -29,6 +29,7 @@ import java.util.Map;
 import static com.wl4g.infra.common.collection.CollectionUtils2.safeList;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 
 /**
  * The {@link KafkaSinkStreamBootstrap}
@@ -39,6 +40,8 @@ import static java.util.stream.Collectors.toList;
 @Getter
 @Slf4j
 public class KafkaSinkStreamBootstrap extends StreamBootstrap<KafkaSinkStream> {
+    public static final String PRODUCER_TOPIC_METRICS_GROUP = "producer-topic-metrics";
+    public static final String PRODUCER_TOPIC_METRICS_TAG = "topic";
 
     public KafkaSinkStreamBootstrap(KafkaSinkStream sinkStream,
                                     ConcurrentKafkaSinkContainer internalTask) {
@@ -52,8 +55,12 @@ public class KafkaSinkStreamBootstrap extends StreamBootstrap<KafkaSinkStream> {
 
     @Override
     public boolean stop(long timeoutMs, boolean force) throws Exception {
-        getRequiredInternalTask().close();
-        getStream().close();
+        try {
+            getStream().close();
+        } finally {
+            // The shared producers are closed only when the last channel released.
+            getStream().release();
+        }
         return !isRunning();
     }
 
@@ -79,38 +86,54 @@ public class KafkaSinkStreamBootstrap extends StreamBootstrap<KafkaSinkStream> {
         return getStream().getPointReader().isRunning();
     }
 
+    /**
+     * Detect by the partitions metadata of the channel topic, rather than flushing the shared producers,
+     * which would wait for the records of all the other channels.
+     */
     @Override
     public boolean isHealthy() {
         try {
             if (isRunning()) {
-                safeList(getRequiredInternalTask().getProducerFactories())
-                        .forEach(kf -> kf.createProducer().flush());
-                return true;
+                return !safeList(getRequiredInternalTask().obtainFirstProducer()
+                        .partitionsFor(getStream().getSinkStreamConfig().getTopic())).isEmpty();
             }
         } catch (Throwable ex) {
             if (log.isDebugEnabled()) {
-                log.debug("Failed to flush detect health.", ex);
+                log.debug("Failed to detect health by the partitions of topic.", ex);
             }
         }
         return false;
     }
 
+    /**
+     * The shared producers are not the sub tasks of the channel, see {@link #scaling}.
+     */
     @Override
     public int getSubTaskCount() {
-        return safeList(getRequiredInternalTask().getProducerFactories()).size();
+        return getStream().getPointReader().getSubTaskCount();
     }
 
+    /**
+     * The metrics of the channel topic of each shared producer, so that are not duplicated by the other channels.
+     */
     public List<Map<MetricName, ? extends Metric>> metrics() {
+        final String topic = getStream().getSinkStreamConfig().getTopic();
         return safeList(getRequiredInternalTask().getProducerFactories())
                 .stream()
-                .map(kf -> kf.createProducer().metrics())
+                .map(kf -> kf.createProducer().metrics()
+                        .entrySet()
+                        .stream()
+                        .filter(e -> PRODUCER_TOPIC_METRICS_GROUP.equals(e.getKey().group())
+                                && topic.equals(e.getKey().tags().get(PRODUCER_TOPIC_METRICS_TAG)))
+                        .collect(toMap(Map.Entry::getKey, Map.Entry::getValue)))
                 .collect(toList());
     }
 
+    /**
+     * The current producers of the channel, which may have been re-acquired by {@link KafkaSinkStream#reset}.
+     */
     private ConcurrentKafkaSinkContainer getRequiredInternalTask() {
-        return (ConcurrentKafkaSinkContainer) requireNonNull(getInternalTask(),
-                "internalTask");
+        return requireNonNull(getStream().getInternalTask(), "internalTask");
     }
 
 }
-
@@ -17,21 +17,26 @@
 
 package com.wl4g.streamconnect.stream.source.kafka;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.wl4g.infra.common.lang.Assert2;
+import com.wl4g.streamconnect.checkpoint.WritePointAccumulator;
 import com.wl4g.streamconnect.checkpoint.ICheckpoint.PointWriter;
 import com.wl4g.streamconnect.checkpoint.ICheckpoint.WritePointResult;
 import com.wl4g.streamconnect.coordinator.CachingChannelRegistry;
 import com.wl4g.streamconnect.exception.StreamConnectException;
-import com.wl4g.streamconnect.meter.MeterEventHandler.CountMeterEvent;
-import com.wl4g.streamconnect.meter.MeterEventHandler.TimingMeterEvent;
-import com.wl4g.streamconnect.meter.StreamConnectMeter;
+import com.wl4g.streamconnect.meter.MeterEventHandler.GaugeMeterEvent;
+import com.wl4g.streamconnect.meter.StageLatencyRecorder;
+import com.wl4g.streamconnect.meter.StageLatencyRecorder.Stage;
 import com.wl4g.streamconnect.meter.StreamConnectMeter.MetricsName;
 import com.wl4g.streamconnect.meter.StreamConnectMeter.MetricsTag;
 import com.wl4g.streamconnect.stream.source.SourceStream;
 import com.wl4g.streamconnect.util.ConcurrentKafkaProducerContainer;
 import com.wl4g.streamconnect.util.KafkaConsumerBuilder;
-import com.wl4g.streamconnect.util.KafkaConsumerBuilder.ObjectNodeDeserializer;
 import com.wl4g.streamconnect.util.KafkaUtil;
+import com.wl4g.streamconnect.util.PartitionOffsetTracker;
+import com.wl4g.streamconnect.util.concurrent.NamedThreadFactory;
+import com.wl4g.streamconnect.util.concurrent.WatermarkBackpressure;
+import com.wl4g.streamconnect.util.json.JsonStreamingUtil;
 import lombok.Builder.Default;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -40,26 +45,25 @@ import lombok.ToString;
 import lombok.experimental.SuperBuilder;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.IterableUtils;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
-import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
-import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
-import org.springframework.kafka.listener.BatchAcknowledgingMessageListener;
+import org.springframework.kafka.listener.BatchAcknowledgingConsumerAwareMessageListener;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
 import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
 import org.springframework.kafka.support.Acknowledgment;
 
 import javax.validation.constraints.NotNull;
 import java.io.IOException;
-import java.time.Duration;
-import java.util.ArrayList;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -67,18 +71,26 @@ import java.util.Objects;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 
 import static com.wl4g.infra.common.collection.CollectionUtils2.safeList;
 import static com.wl4g.streamconnect.stream.AbstractStream.BaseStreamConfig.getStreamProviderTypeName;
-import static com.wl4g.streamconnect.util.ConcurrentKafkaProducerContainer.buildDefaultAcknowledgedProducerContainer;
-import static java.lang.Math.max;
+import static java.util.Collections.emptyList;
 import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toList;
 import static org.apache.kafka.clients.consumer.ConsumerConfig.ALLOW_AUTO_CREATE_TOPICS_CONFIG;
-import static org.apache.kafka.clients.consumer.ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG;
 import static org.apache.kafka.clients.consumer.ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG;
 import static org.apache.kafka.clients.consumer.ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG;
 import static org.apache.kafka.clients.consumer.ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG;
@@ -92,12 +104,20 @@ import static org.apache.kafka.clients.consumer.ConsumerConfig.VALUE_DESERIALIZE
 @Getter
 @Slf4j
 public class KafkaSourceStream extends SourceStream
-        implements BatchAcknowledgingMessageListener<String, Object> {
+        implements BatchAcknowledgingConsumerAwareMessageListener<String, Object> {
 
     private final KafkaSourceStreamConfig sourceStreamConfig;
     private final List<String> basedMetricsTags;
+    private final Map<Consumer<?, ?>, PartitionOffsetTracker> offsetTrackers = new ConcurrentHashMap<>();
+    private final WatermarkBackpressure backpressure;
+    private final Map<Consumer<?, ?>, ExecutorService> dispatchers = new ConcurrentHashMap<>();
+    // The write point retries are handed off to it by the shared QoS retry timer, since the writing may block.
+    private final ThreadPoolExecutor retryExecutor;
+    // The acknowledgments of the dispatched batches, which are handed off to the listener thread of the consumer.
+    private final Map<Consumer<?, ?>, Queue<Acknowledgment>> dispatchedAcks = new ConcurrentHashMap<>();
+    private final Set<TopicPartition> pausedPartitions = ConcurrentHashMap.newKeySet();
+    private final AtomicLong lastGaugeTime = new AtomicLong();
     private final ConcurrentMessageListenerContainer<String, Object> internalTask;
-    private final ConcurrentKafkaProducerContainer acknowledgeProducerContainer;
 
     public KafkaSourceStream(@NotNull final StreamContext context,
                              @NotNull final KafkaSourceStreamConfig sourceStreamConfig) {
@@ -110,19 +130,52 @@ public class KafkaSourceStream extends SourceStream
                 MetricsTag.TOPIC, sourceStreamConfig.getTopicPattern(),
                 MetricsTag.GROUP_ID, sourceStreamConfig.getGroupId());
 
+        // Initial the backpressure of dispatched backlog, if disabled, the records are processed on listener thread.
+        this.backpressure = sourceStreamConfig.getBacklogHighWatermark() > 0
+                ? new WatermarkBackpressure(sourceStreamConfig.getBacklogHighWatermark(),
+                sourceStreamConfig.getBacklogLowWatermark(), this::pauseAssignedPartitions,
+                this::resumePausedPartitions) : null;
+
+        this.retryExecutor = new ThreadPoolExecutor(sourceStreamConfig.getParallelism(),
+                sourceStreamConfig.getParallelism(), 60_000L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), // Bounded by the write points of the in-flight batches.
+                new NamedThreadFactory("kafkaSource-retry"));
+        this.retryExecutor.allowCoreThreadTimeOut(true);
+
         // Initial internal consumers.
         this.internalTask = createInternalTask();
-
-        // Initial acknowledge producer container.
-        this.acknowledgeProducerContainer = buildDefaultAcknowledgedProducerContainer(getSourceStreamConfig().getName(),
-                (String) getSourceStreamConfig().getConsumerProps().get(BOOTSTRAP_SERVERS_CONFIG));
     }
 
     protected ConcurrentMessageListenerContainer<String, Object> createInternalTask() {
-        return new KafkaConsumerBuilder(sourceStreamConfig.getConsumerProps())
+        final ConcurrentMessageListenerContainer<String, Object> container = new KafkaConsumerBuilder(
+                sourceStreamConfig.getConsumerProps())
                 .buildContainer(Pattern.compile(sourceStreamConfig.getTopicPattern()),
                         sourceStreamConfig.getGroupId(),
                         sourceStreamConfig.getParallelism(), this);
+        container.getContainerProperties().setConsumerRebalanceListener(new ConsumerAwareRebalanceListener() {
+            @Override
+            public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer,
+                                                        Collection<TopicPartition> partitions) {
+                // Settle the dispatched batches before committed, so as not to be re-consumed by the new owners.
+                awaitDispatched(consumer);
+                acknowledgeDispatched(consumer);
+                // Commit the low watermarks of the revoked partitions, the others will be re-consumed.
+                final PartitionOffsetTracker offsetTracker = offsetTrackers.get(consumer);
+                if (nonNull(offsetTracker)) {
+                    offsetTracker.revoke(consumer, partitions);
+                }
+            }
+        });
+        // Commit the completed offsets also while the consumer is idle (e.g: no more records or paused).
+        KafkaConsumerBuilder.setIdleEventListener(container, sourceStreamConfig.getOffsetCommitIntervalMs(), event -> {
+            acknowledgeDispatched(event.getConsumer());
+            final PartitionOffsetTracker offsetTracker = offsetTrackers.get(event.getConsumer());
+            if (nonNull(offsetTracker)) {
+                commitOffsetsIfNecessary(offsetTracker, event.getConsumer());
+            }
+            publishGaugesIfNecessary();
+        });
+        return container;
     }
 
     @Override
@@ -138,8 +191,21 @@ public class KafkaSourceStream extends SourceStream
 
     @Override
     public void close() throws IOException {
+        dispatchers.values().forEach(dispatcher -> {
+            try {
+                dispatcher.shutdown();
+            } catch (Throwable ex) {
+                log.error(String.format("%s :: %s :: Failed to close dispatcher %s.", getConnectorConfig().getName(),
+                        sourceStreamConfig.getGroupId(), dispatcher), ex);
+            }
+        });
+        try {
+            retryExecutor.shutdown();
+        } catch (Throwable ex) {
+            log.error(String.format("%s :: %s :: Failed to close retry executor %s.", getConnectorConfig().getName(),
+                    sourceStreamConfig.getGroupId(), retryExecutor), ex);
+        }
         super.close();
-        this.acknowledgeProducerContainer.close();
     }
 
     @Override
@@ -149,14 +215,96 @@ public class KafkaSourceStream extends SourceStream
 
     @Override
     public void onMessage(List<ConsumerRecord<String, Object>> records,
-                          Acknowledgment ack) {
+                          Acknowledgment ack,
+                          Consumer<?, ?> consumer) {
+        // One tracker per consumer, since the committed state is confined to the consumer thread.
+        final PartitionOffsetTracker offsetTracker = isPreferAcknowledge() ? obtainOffsetTracker(consumer) : null;
+        try {
+            if (nonNull(offsetTracker)) {
+                offsetTracker.received(records);
+            }
+            if (isNull(backpressure)) {
+                dispatch(records, ack, offsetTracker);
+            } else {
+                dispatchAsync(records, ack, offsetTracker, consumer);
+            }
+        } finally {
+            // Notice: Must be committed on the listener thread, since the kafka consumer is not thread-safe.
+            acknowledgeDispatched(consumer);
+            if (nonNull(offsetTracker)) {
+                commitOffsetsIfNecessary(offsetTracker, consumer);
+            }
+            publishGaugesIfNecessary();
+        }
+    }
+
+    /**
+     * Hand off the batch to the dispatcher of this consumer, so that the listener thread returns to
+     * poll (heartbeat) immediately, instead of blocking on the process executors queue when it's full.
+     * The batches of each consumer are still processed and acknowledged in order, and the assigned
+     * partitions are paused once the dispatched backlog reaches the high watermark, and resumed
+     * after it has been fallen back to the low watermark. The acknowledgments of the dispatched
+     * batches are handed off to the listener thread, and the completed offsets are committed by it
+     * after the next poll or on the idle of consumer.
+     */
+    private void dispatchAsync(List<ConsumerRecord<String, Object>> records,
+                               Acknowledgment ack,
+                               PartitionOffsetTracker offsetTracker,
+                               Consumer<?, ?> consumer) {
+        final int size = records.size();
+        final Queue<Acknowledgment> acks = dispatchedAcks.computeIfAbsent(consumer, c -> new ConcurrentLinkedQueue<>());
+        backpressure.acquire(size);
+        try {
+            obtainDispatcher(consumer).execute(() -> {
+                try {
+                    dispatch(records, () -> acks.offer(ack), offsetTracker);
+                } finally {
+                    backpressure.release(size);
+                }
+            });
+        } catch (Throwable ex) { // e.g: The dispatcher has been shutdown.
+            backpressure.release(size);
+            log.error(String.format("%s :: %s :: Failed to dispatch message, it will be re-consumed. - %s",
+                    getConnectorConfig().getName(), sourceStreamConfig.getGroupId(), records), ex);
+            seekToFirstOffsets(records, consumer);
+        }
+    }
+
+    /**
+     * Seek back to the first offsets of the batch per partition, so that the batch is re-consumed by the next
+     * poll, must be called on the listener thread of the consumer. Notice: The re-consumed offsets are still
+     * pending in the offsets tracker, and the later batches are not acknowledged before them.
+     */
+    private void seekToFirstOffsets(List<ConsumerRecord<String, Object>> records,
+                                    Consumer<?, ?> consumer) {
+        final Map<TopicPartition, Long> firstOffsets = new HashMap<>();
+        for (ConsumerRecord<String, Object> record : records) {
+            firstOffsets.merge(new TopicPartition(record.topic(), record.partition()), record.offset(), Math::min);
+        }
+        firstOffsets.forEach((partition, offset) -> {
+            try {
+                consumer.seek(partition, offset);
+            } catch (Throwable ex) { // e.g: The partition has been revoked.
+                log.error(String.format("%s :: %s :: Failed to seek back to %s of %s.", getConnectorConfig().getName(),
+                        sourceStreamConfig.getGroupId(), offset, partition), ex);
+            }
+        });
+    }
+
+    private void dispatch(List<ConsumerRecord<String, Object>> records,
+                          Acknowledgment ack,
+                          PartitionOffsetTracker offsetTracker) {
         final long sourceConsumedTimingBegin = System.nanoTime();
         try {
-            getEventPublisher().publishEvent(new CountMeterEvent(
-                    MetricsName.source_records,
-                    getBasedMeterTags()));
+            getMeterHandles().increment(MetricsName.source_records);
 
-            process(KafkaMessageRecord.from(records), ack);
+            final StageLatencyRecorder recorder = getStageLatencyRecorder();
+            if (recorder.isEnabled()) {
+                for (ConsumerRecord<String, Object> record : records) {
+                    recorder.recordSinceTimestamp(Stage.SOURCE_POLL, null, record.timestamp());
+                }
+            }
+            process(KafkaMessageRecord.from(records), ack, offsetTracker);
         } catch (Throwable ex) {
             log.error(String.format("%s :: %s :: Failed to process message. - %s",
                     getConnectorConfig().getName(), sourceStreamConfig.getGroupId(), records), ex);
@@ -166,24 +314,130 @@ public class KafkaSourceStream extends SourceStream
                 if (log.isDebugEnabled()) {
                     log.debug("{} :: Retry to process. - {}", getConnectorConfig().getName(), records);
                 }
-                ack.acknowledge();
+                acknowledge(KafkaMessageRecord.from(records), ack, offsetTracker);
             });
         } finally {
-            getEventPublisher().publishEvent(new TimingMeterEvent(
-                    MetricsName.source_records_time,
-                    StreamConnectMeter.DEFAULT_PERCENTILES,
-                    Duration.ofNanos(System.nanoTime() - sourceConsumedTimingBegin),
-                    getBasedMeterTags()));
+            getMeterHandles().recordNanos(MetricsName.source_records_time, sourceConsumedTimingBegin);
+        }
+    }
+
+    private PartitionOffsetTracker obtainOffsetTracker(Consumer<?, ?> consumer) {
+        return offsetTrackers.computeIfAbsent(consumer, c -> new PartitionOffsetTracker(
+                sourceStreamConfig.getGroupId(), sourceStreamConfig.getOffsetCommitIntervalMs()));
+    }
+
+    private ExecutorService obtainDispatcher(Consumer<?, ?> consumer) {
+        // One single thread dispatcher per consumer, so as to keep the batches in order of each partition.
+        return dispatchers.computeIfAbsent(consumer, c -> new ThreadPoolExecutor(1, 1,
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), // Bounded by the backpressure watermarks.
+                new NamedThreadFactory("kafkaSource-dispatcher")));
+    }
+
+    /**
+     * Acknowledge the settled batches of the dispatcher, must be called on the listener thread of the consumer.
+     */
+    private void acknowledgeDispatched(Consumer<?, ?> consumer) {
+        final Queue<Acknowledgment> acks = dispatchedAcks.get(consumer);
+        if (isNull(acks)) {
+            return;
+        }
+        Acknowledgment ack;
+        while (nonNull(ack = acks.poll())) {
+            try {
+                ack.acknowledge();
+            } catch (Throwable ex) {
+                log.error(String.format("%s :: %s :: Failed to acknowledge dispatched batch.",
+                        getConnectorConfig().getName(), sourceStreamConfig.getGroupId()), ex);
+            }
         }
     }
 
+    /**
+     * Wait for the dispatched batches of the consumer to be settled, e.g: before the partitions revoked.
+     */
+    private void awaitDispatched(Consumer<?, ?> consumer) {
+        final ExecutorService dispatcher = dispatchers.get(consumer);
+        if (isNull(dispatcher) || dispatcher.isShutdown()) {
+            return;
+        }
+        try {
+            // The dispatcher is single thread, so all the batches before this barrier are settled.
+            dispatcher.submit(() -> {
+            }).get(sourceStreamConfig.getBacklogDrainTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException ex) {
+            log.warn("{} :: {} :: Timeout to await dispatched batches settled of {}ms, the unsettled will be re-consumed.",
+                    getConnectorConfig().getName(), sourceStreamConfig.getGroupId(),
+                    sourceStreamConfig.getBacklogDrainTimeoutMs());
+        } catch (ExecutionException ex) {
+            log.error(String.format("%s :: %s :: Failed to await dispatched batches settled.",
+                    getConnectorConfig().getName(), sourceStreamConfig.getGroupId()), ex);
+        }
+    }
+
+    private void pauseAssignedPartitions() {
+        final Collection<TopicPartition> assignedPartitions = internalTask.getAssignedPartitions();
+        if (isNull(assignedPartitions)) {
+            return;
+        }
+        for (TopicPartition tp : assignedPartitions) {
+            if (pausedPartitions.add(tp)) {
+                internalTask.pausePartition(tp);
+            }
+        }
+        if (log.isInfoEnabled()) {
+            log.info("{} :: {} :: Paused partitions {} of backlog {} reached high watermark.",
+                    getConnectorConfig().getName(), sourceStreamConfig.getGroupId(), pausedPartitions,
+                    backpressure.getBacklog());
+        }
+    }
+
+    private void resumePausedPartitions() {
+        for (Iterator<TopicPartition> it = pausedPartitions.iterator(); it.hasNext(); ) {
+            final TopicPartition tp = it.next();
+            it.remove();
+            internalTask.resumePartition(tp);
+        }
+        if (log.isInfoEnabled()) {
+            log.info("{} :: {} :: Resumed partitions of backlog {} fallen to low watermark.",
+                    getConnectorConfig().getName(), sourceStreamConfig.getGroupId(), backpressure.getBacklog());
+        }
+    }
+
+    /**
+     * Publish the backlog depth gauges, at most once per gauge interval.
+     */
+    private void publishGaugesIfNecessary() {
+        final long now = System.currentTimeMillis();
+        final long last = lastGaugeTime.get();
+        if (now - last < ConcurrentKafkaProducerContainer.DEFAULT_GAUGE_INTERVAL_MS
+                || !lastGaugeTime.compareAndSet(last, now)) {
+            return;
+        }
+        if (nonNull(backpressure)) {
+            getEventPublisher().publishEvent(new GaugeMeterEvent(MetricsName.source_backlog_records,
+                    basedMetricsTags, backpressure.getBacklog()));
+            getEventPublisher().publishEvent(new GaugeMeterEvent(MetricsName.source_paused_partitions,
+                    basedMetricsTags, pausedPartitions.size()));
+        }
+        getEventPublisher().publishEvent(new GaugeMeterEvent(MetricsName.process_queued_tasks,
+                basedMetricsTags, getProcessStream().getQueuedTaskCount()));
+    }
+
     private void process(List<? extends MessageRecord<String, Object>> records,
-                         Acknowledgment ack) {
+                         Acknowledgment ack,
+                         PartitionOffsetTracker offsetTracker) {
         final Queue<WritePointResult> writePointResults = getProcessStream().process(records);
 
         // If the sent result set is empty, it means there are no
         // matching records and you can submit it directly.
         if (isNull(writePointResults) || writePointResults.isEmpty()) {
+            if (nonNull(offsetTracker)) {
+                preferAutoAcknowledge(records, emptyList(), offsetTracker);
+                return;
+            }
             try {
                 if (log.isDebugEnabled()) {
                     log.debug("{} :: {} :: Sink is disabled, skip sent acknowledge... records : {}",
@@ -212,61 +466,34 @@ public class KafkaSourceStream extends SourceStream
         // of COPY traffic may be generated before processing, that is, bandwidth is wasted from Kafka broker to this Pod Kafka consumer.
         //
         if (getConnectorConfig().getQos().supportRetry(getConnectorConfig())) {
-            final int initSize = writePointResults.size();
-            final Set<WritePointResult> completedResults = new HashSet<>(writePointResults.size());
-            for (int i = 0; !writePointResults.isEmpty(); i++) {
-                final WritePointResult wpr = writePointResults.poll();
-
-                // Notice: is done is not necessarily successful, both exception and cancellation will be done.
-                if (wpr.getFuture().isDone()) {
-                    Object rm;
-                    try {
-                        rm = wpr.getFuture().get();
-                        completedResults.add(wpr);
-
-                        if (log.isDebugEnabled()) {
-                            log.debug("{} :: {} :: Processed record metadata : {}",
-                                    getConnectorConfig().getName(), sourceStreamConfig.getGroupId(), rm);
-                        }
-                        getEventPublisher().publishEvent(new CountMeterEvent(
-                                MetricsName.checkpoint_write_success,
-                                getBasedMeterTags()));
-
-                    } catch (InterruptedException | CancellationException | ExecutionException ex) {
-                        log.error("{} :: {} :: Unable not to getting process result.",
-                                getConnectorConfig().getName(), sourceStreamConfig.getGroupId(), ex);
-
-                        getEventPublisher().publishEvent(new CountMeterEvent(
-                                MetricsName.checkpoint_write_failure,
-                                getBasedMeterTags()));
-
-                        if (ex instanceof ExecutionException) {
-                            getConnectorConfig().getQos().retryIfFail(getConnectorConfig(),
-                                    wpr.getRetryTimes(), () -> {
-                                        if (log.isDebugEnabled()) {
-                                            log.debug("{} :: Retrying to savepoint : {}", getConnectorConfig().getName(), wpr);
-                                        }
-                                        final PointWriter pointWriter = getProcessStream().obtainChannelPointWriter(wpr.getRecord().getChannel());
-                                        writePointResults.offer(pointWriter.writeAsync(getConnectorConfig(), wpr.getRecord(),
-                                                wpr.getRetryTimes() + 1));
-                                    });
-                        }
-                    }
-                }
-
-                // Batch flush according to write point results size.
-                final int completedSize = completedResults.size();
-                if (completedSize == initSize || i % max(completedSize / 4, 128) == 0) {
-                    getProcessStream().flushWritePoints(completedResults);
+            // Notice: The write points are completed by the callbacks (e.g: kafka producer I/O thread) into the
+            // per-batch accumulator, and the failed writes are re-written on the QoS retry timer, so that this
+            // listener thread only needs to park until all of this batch settled, instead of spin-polling.
+            final WritePointAccumulator accumulator = new WritePointAccumulator(writePointResults.size());
+            writePointResults.forEach(wpr -> trackWritePoint(wpr, accumulator));
+            try {
+                if (!accumulator.await(sourceStreamConfig.getWritePointTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                    // The unsettled (e.g: still retrying) are not acknowledged, and will be re-consumed,
+                    // so the pending retries must be stopped, otherwise the points are written repeatedly.
+                    accumulator.cancel();
+                    throw new StreamConnectException(String.format("%s :: %s :: Timeout to wait for write points " +
+                                    "of %sms, remaining : %s", getConnectorConfig().getName(),
+                            sourceStreamConfig.getGroupId(), sourceStreamConfig.getWritePointTimeoutMs(),
+                            accumulator.getPendingCount()));
                 }
-
-                Thread.yield(); // May give up the CPU
+            } catch (InterruptedException ex) {
+                accumulator.cancel();
+                Thread.currentThread().interrupt();
+                throw new StreamConnectException(String.format("%s :: %s :: Interrupted while waiting for write " +
+                                "points, remaining : %s", getConnectorConfig().getName(), sourceStreamConfig.getGroupId(),
+                        accumulator.getPendingCount()), ex);
             }
+            final Queue<WritePointResult> completedResults = accumulator.getCompleted();
 
             // e.g: According to the records of each partition, only submit the part of
             // this batch that has been successively successful from the earliest.
-            if (getConnectorConfig().getQos().supportPreferAcknowledge(getConnectorConfig())) {
-                preferAutoAcknowledge(completedResults);
+            if (nonNull(offsetTracker)) {
+                preferAutoAcknowledge(records, accumulator.getGivenUp(), offsetTracker);
             } else {
                 // After the maximum retries, there may still be records of processing failures.
                 // At this time, the ack commit is forced and the failures are ignored.
@@ -287,22 +514,17 @@ public class KafkaSourceStream extends SourceStream
                             sourceStreamConfig.getGroupId(), ack), ex);
                     postAcknowledgeCountMeter(MetricsName.acknowledge_failure, completedResults);
                 } finally {
-                    getEventPublisher().publishEvent(new TimingMeterEvent(
-                            MetricsName.acknowledge_time,
-                            StreamConnectMeter.DEFAULT_PERCENTILES,
-                            Duration.ofNanos(System.nanoTime() - acknowledgeTimingBegin),
-                            getBasedMeterTags(),
-                            MetricsTag.ACK_KIND,
-                            MetricsTag.ACK_KIND_VALUE_COMMIT));
+                    getMeterHandles().tagged(MetricsTag.ACK_KIND, MetricsTag.ACK_KIND_VALUE_COMMIT)
+                            .recordNanos(MetricsName.acknowledge_time, acknowledgeTimingBegin);
                 }
             }
 
-            // Release the memory objects.
-            completedResults.clear();
         }
         // If retry is not supported, it means that the SLA requirements
         // are low and data losses are allowed and commit it directly.
-        else {
+        else if (nonNull(offsetTracker)) { // e.g: The QoS has been changed since received.
+            preferAutoAcknowledge(records, emptyList(), offsetTracker);
+        } else {
             final long acknowledgeTimingBegin = System.nanoTime();
             try {
                 if (log.isDebugEnabled()) {
@@ -320,21 +542,75 @@ public class KafkaSourceStream extends SourceStream
                         getConnectorConfig().getName(), sourceStreamConfig.getGroupId(), ack), ex);
                 postAcknowledgeCountMeter(MetricsName.acknowledge_failure, writePointResults);
             } finally {
-                getEventPublisher().publishEvent(new TimingMeterEvent(
-                        MetricsName.acknowledge_time,
-                        StreamConnectMeter.DEFAULT_PERCENTILES,
-                        Duration.ofNanos(System.nanoTime() - acknowledgeTimingBegin),
-                        getBasedMeterTags(),
-                        MetricsTag.ACK_KIND,
-                        MetricsTag.ACK_KIND_VALUE_COMMIT));
+                getMeterHandles().tagged(MetricsTag.ACK_KIND, MetricsTag.ACK_KIND_VALUE_COMMIT)
+                        .recordNanos(MetricsName.acknowledge_time, acknowledgeTimingBegin);
             }
         }
 
-        getEventPublisher().publishEvent(new TimingMeterEvent(
-                MetricsName.checkpoint_write_time,
-                StreamConnectMeter.DEFAULT_PERCENTILES,
-                Duration.ofNanos(System.nanoTime() - writePointTimingBegin),
-                getBasedMeterTags()));
+        getMeterHandles().recordNanos(MetricsName.checkpoint_write_time, writePointTimingBegin);
+    }
+
+    private void trackWritePoint(WritePointResult wpr,
+                                 WritePointAccumulator accumulator) {
+        wpr.whenComplete((rm, ex) -> {
+            // Notice: Must always be settled to the accumulator, otherwise the listener thread waits until timeout.
+            try {
+                onWritePointCompleted(wpr, rm, ex, accumulator);
+            } catch (Throwable th) {
+                log.error(String.format("%s :: %s :: Failed to settle write point, give up it. - %s",
+                        getConnectorConfig().getName(), sourceStreamConfig.getGroupId(), wpr), th);
+                accumulator.giveUp(wpr);
+            }
+        });
+    }
+
+    private void onWritePointCompleted(WritePointResult wpr,
+                                       Object rm,
+                                       Throwable ex,
+                                       WritePointAccumulator accumulator) {
+        if (isNull(ex)) {
+            if (log.isDebugEnabled()) {
+                log.debug("{} :: {} :: Processed record metadata : {}",
+                        getConnectorConfig().getName(), sourceStreamConfig.getGroupId(), rm);
+            }
+            getMeterHandles().increment(MetricsName.checkpoint_write_success);
+            getProcessStream().recordWritePointLatency(wpr);
+            accumulator.complete(wpr);
+            return;
+        }
+        log.error("{} :: {} :: Unable not to getting process result.",
+                getConnectorConfig().getName(), sourceStreamConfig.getGroupId(), ex);
+
+        getMeterHandles().increment(MetricsName.checkpoint_write_failure);
+
+        if (ex instanceof CancellationException || accumulator.isCancelled()) {
+            accumulator.giveUp(wpr);
+            return;
+        }
+        // Notice: The re-writing may block (e.g: the producer buffer is full), so it's handed off to the retry
+        // executor of this stream, instead of being run on the shared QoS retry timer.
+        final boolean scheduled = getConnectorConfig().getQos().scheduleRetryIfFail(getConnectorConfig(),
+                wpr.getRetryTimes(), retryExecutor, () -> {
+                    if (accumulator.isCancelled()) { // e.g: Timeout, the batch will be re-consumed.
+                        accumulator.giveUp(wpr);
+                        return;
+                    }
+                    if (log.isDebugEnabled()) {
+                        log.debug("{} :: Retrying to savepoint : {}", getConnectorConfig().getName(), wpr);
+                    }
+                    try {
+                        final PointWriter pointWriter = getProcessStream().obtainChannelPointWriter(wpr.getRecord().getChannel());
+                        trackWritePoint(pointWriter.writeAsync(getConnectorConfig(), wpr.getRecord(),
+                                wpr.getRetryTimes() + 1), accumulator);
+                    } catch (Throwable th) {
+                        log.error(String.format("%s :: Failed to retry savepoint : %s",
+                                getConnectorConfig().getName(), wpr), th);
+                        accumulator.giveUp(wpr);
+                    }
+                });
+        if (!scheduled) {
+            accumulator.giveUp(wpr);
+        }
     }
 
     private void postAcknowledgeCountMeter(MetricsName metrics,
@@ -354,73 +630,80 @@ public class KafkaSourceStream extends SourceStream
                 })
                 .filter(Objects::nonNull)
                 .distinct()
-                .forEach(tp -> getEventPublisher().publishEvent(new CountMeterEvent(
-                        metrics, getBasedMeterTags())));
+                .forEach(tp -> getMeterHandles().increment(metrics));
     }
 
     /**
-     * After the maximum number of retries, there may still be records that failed to process.
-     * At this time, only the consecutively successful records starting from the earliest batch
-     * of offsets will be submitted, and the offsets of other failed records will not be committed,
-     * so as to strictly limit the processing failures that will not be submitted so that zero is not lost.
+     * Acknowledge the batch regardless of success or failure, in the prefer acknowledge mode, all the commits
+     * must go through the offsets tracker, otherwise the committed offsets may be moved backwards by it.
+     */
+    private void acknowledge(List<? extends MessageRecord<String, Object>> records,
+                             Acknowledgment ack,
+                             PartitionOffsetTracker offsetTracker) {
+        if (nonNull(offsetTracker)) {
+            preferAutoAcknowledge(records, emptyList(), offsetTracker);
+        } else {
+            ack.acknowledge();
+        }
+    }
+
+    /**
+     * After the maximum number of retries, there may still be records that failed to process. At this time,
+     * the records of this batch are all marked as completed (i.e. the given up are forced to be acknowledged
+     * and the failures are ignored, as the batch commit), and the offsets are committed up to the low watermark
+     * of each partition (i.e. the consecutively completed from the earliest), so that the batches completed out
+     * of order (e.g: dispatched concurrently) are not committed before the earlier batches.
      *
-     * @param completedResults completed sent results
+     * @param records        the records of this batch
+     * @param givenUpResults the given up write point results (e.g: retries exhausted)
+     * @param offsetTracker  the offsets tracker of the consumer of this batch
+     */
+    private void preferAutoAcknowledge(List<? extends MessageRecord<String, Object>> records,
+                                       Collection<WritePointResult> givenUpResults,
+                                       PartitionOffsetTracker offsetTracker) {
+        if (!givenUpResults.isEmpty()) {
+            log.warn("{} :: {} :: Force to acknowledge the given up write points of retries exhausted : {}",
+                    getConnectorConfig().getName(), sourceStreamConfig.getGroupId(), givenUpResults.size());
+            postAcknowledgeCountMeter(MetricsName.acknowledge_failure, givenUpResults);
+        }
+        for (MessageRecord<String, Object> r : records) {
+            final KafkaMessageRecord<String, Object> record = toKafkaMessageRecord(r);
+            if (nonNull(record)) {
+                offsetTracker.completed(new TopicPartition(record.getTopic(), record.getPartition()), record.getOffset());
+            }
+        }
+    }
+
+    /**
+     * Commit the committable offsets of the low watermarks to source kafka broker if necessary.
      */
-    private void preferAutoAcknowledge(Set<WritePointResult> completedResults) {
-        // grouping and sorting.
-        final Map<TopicPartition, List<KafkaMessageRecord<String, Object>>> partitionRecords =
-                new HashMap<>(completedResults.size());
-        for (WritePointResult writePointResult : completedResults) {
-            final KafkaMessageRecord<String, Object> _record = (KafkaMessageRecord<String, Object>) writePointResult
-                    .getRecord().getRecord();
-            final TopicPartition topicPartition = new TopicPartition(_record.getTopic(), _record.getPartition());
-            partitionRecords.computeIfAbsent(topicPartition, k -> new ArrayList<>()).add(_record);
-        }
-
-        // Find the maximum offset that increments consecutively for each partition.
-        final Map<TopicPartition, OffsetAndMetadata> partitionOffsets = new HashMap<>();
-        for (Entry<TopicPartition, List<KafkaMessageRecord<String, Object>>> entry : partitionRecords.entrySet()) {
-            final TopicPartition topicPartition = entry.getKey();
-            final List<KafkaMessageRecord<String, Object>> records = entry.getValue();
-            // ASC sorting by offset.
-            records.sort(Comparator.comparingLong(KafkaMessageRecord::getOffset));
-
-            records.stream().mapToLong(KafkaMessageRecord::getOffset)
-                    .reduce((prev, curr) -> curr == prev + 1 ? curr : prev)
-                    .ifPresent(maxOffset -> {
-                        partitionOffsets.put(topicPartition, new OffsetAndMetadata(maxOffset));
-                    });
-        }
-
-        // Acknowledge to source kafka broker.
+    private void commitOffsetsIfNecessary(PartitionOffsetTracker offsetTracker,
+                                          Consumer<?, ?> consumer) {
         final long acknowledgeTimingBegin = System.nanoTime();
         try {
-            // see:org.apache.kafka.clients.consumer.internals.ConsumerCoordinator#onJoinComplete(int, String, String, ByteBuffer)
-            // see:org.springframework.kafka.listener.KafkaMessageListenerContainer.ListenerConsumer#doSendOffsets(Producer, Map)
-            if (log.isDebugEnabled()) {
-                log.debug("{} :: Prefer acknowledging offsets to transaction. - : {}",
-                        sourceStreamConfig.getGroupId(), partitionOffsets);
-            }
-            this.acknowledgeProducerContainer.obtainFirstProducer().sendOffsetsToTransaction(partitionOffsets,
-                    new ConsumerGroupMetadata(sourceStreamConfig.getGroupId()));
-            if (log.isDebugEnabled()) {
-                log.debug("{} :: Prefer acknowledged offsets to transaction. - : {}",
-                        sourceStreamConfig.getGroupId(), partitionOffsets);
-            }
+            offsetTracker.commitIfNecessary(consumer);
         } catch (Throwable ex) {
-            final String errmsg = String.format("%s :: Failed to prefer acknowledge offsets to transaction. - : %s",
-                    sourceStreamConfig.getGroupId(), partitionOffsets);
-            log.error(errmsg, ex);
-            throw new StreamConnectException(errmsg, ex);
+            log.error(String.format("%s :: %s :: Failed to commit offsets of the low watermarks.",
+                    getConnectorConfig().getName(), sourceStreamConfig.getGroupId()), ex);
         } finally {
-            getEventPublisher().publishEvent(new TimingMeterEvent(
-                    MetricsName.acknowledge_time,
-                    StreamConnectMeter.DEFAULT_PERCENTILES,
-                    Duration.ofNanos(System.nanoTime() - acknowledgeTimingBegin),
-                    getBasedMeterTags(),
-                    MetricsTag.ACK_KIND,
-                    MetricsTag.ACK_KIND_VALUE_SEND));
+            getMeterHandles().tagged(MetricsTag.ACK_KIND, MetricsTag.ACK_KIND_VALUE_SEND)
+                    .recordNanos(MetricsName.acknowledge_time, acknowledgeTimingBegin);
+        }
+    }
+
+    private boolean isPreferAcknowledge() {
+        return getConnectorConfig().getQos().supportRetry(getConnectorConfig())
+                && getConnectorConfig().getQos().supportPreferAcknowledge(getConnectorConfig());
+    }
+
+    @SuppressWarnings("unchecked")
+    static KafkaMessageRecord<String, Object> toKafkaMessageRecord(MessageRecord<String, Object> record) {
+        if (record instanceof KafkaMessageRecord) {
+            return (KafkaMessageRecord<String, Object>) record;
+        } else if (record instanceof DelegateMessageRecord) {
+            return toKafkaMessageRecord(((DelegateMessageRecord<String, Object>) record).getOriginal());
         }
+        return null;
     }
 
     @Getter
@@ -433,6 +716,11 @@ public class KafkaSourceStream extends SourceStream
 
         private String topicPattern;
         private @Default Map<String, Object> consumerProps = new HashMap<>();
+        private @Default long offsetCommitIntervalMs = 1000L; // The interval of prefer acknowledge commits.
+        private @Default long backlogHighWatermark = 0L; // The dispatched records to pause, 0 means processed on listener thread.
+        private @Default long backlogLowWatermark = -1L; // The dispatched records to resume, -1 means half of the high.
+        private @Default long backlogDrainTimeoutMs = 30_000L; // The max wait of dispatched settled before revoked.
+        private @Default long writePointTimeoutMs = 120_000L; // The max wait of the write points of a batch settled.
 
         @Override
         public String getType() {
@@ -447,6 +735,16 @@ public class KafkaSourceStream extends SourceStream
             DEFAULT_CONSUMER_PROPS.forEach((key, value) -> consumerProps.putIfAbsent(key, value));
 
             Assert2.hasTextOf(topicPattern, "topicPattern");
+            Assert2.isTrueOf(offsetCommitIntervalMs >= 0, "offsetCommitIntervalMs >= 0");
+            Assert2.isTrueOf(writePointTimeoutMs > 0, "writePointTimeoutMs > 0");
+            if (backlogHighWatermark > 0) {
+                if (backlogLowWatermark < 0) {
+                    this.backlogLowWatermark = backlogHighWatermark / 2;
+                }
+                Assert2.isTrueOf(backlogLowWatermark >= 0 && backlogLowWatermark < backlogHighWatermark,
+                        "0 <= backlogLowWatermark < backlogHighWatermark");
+                Assert2.isTrueOf(backlogDrainTimeoutMs > 0, "backlogDrainTimeoutMs > 0");
+            }
             requireNonNull(getConsumerProps().get(ConsumerConfig.GROUP_ID_CONFIG),
                     "'group.id' must not be null");
             requireNonNull(consumerProps.get(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG),
@@ -456,14 +754,15 @@ public class KafkaSourceStream extends SourceStream
         }
 
         private void optimizeProperties() {
-            // The filter message handler is internally hardcoded to use JsonNode.
+            // The value is kept as the raw bytes, which is lazily materialized to JsonNode only when required
+            // by the filters or mappers, see: KafkaMessageRecord.
             final String oldKeyDeserializer = (String) getConsumerProps().get(KEY_DESERIALIZER_CLASS_CONFIG);
             getConsumerProps().put(KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
             log.info("Optimized source '{}' from '{}' to '{}' of groupId: '{}'", KEY_DESERIALIZER_CLASS_CONFIG,
                     oldKeyDeserializer, getConsumerProps().get(KEY_DESERIALIZER_CLASS_CONFIG), getGroupId());
 
             final String oldValueDeserializer = (String) getConsumerProps().get(VALUE_DESERIALIZER_CLASS_CONFIG);
-            getConsumerProps().put(VALUE_DESERIALIZER_CLASS_CONFIG, ObjectNodeDeserializer.class.getName());
+            getConsumerProps().put(VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
             log.info("Optimized source '{}' from '{}' to '{}' of groupId: '{}'", VALUE_DESERIALIZER_CLASS_CONFIG,
                     oldValueDeserializer, getConsumerProps().get(VALUE_DESERIALIZER_CLASS_CONFIG), getGroupId());
 
@@ -506,18 +805,43 @@ public class KafkaSourceStream extends SourceStream
                 put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, 500);
                 put(ConsumerConfig.FETCH_MAX_BYTES_CONFIG, 50 * 1024 * 1024);
                 put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
-                // Must be 'ObjectDeserializer' for filter message handler.
-                put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ObjectNodeDeserializer.class.getName());
+                // Must be 'ByteArrayDeserializer' for lazy materialize the value, see: KafkaMessageRecord.
+                put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
             }
         };
     }
 
-    public static class KafkaMessageRecord<K, V> implements MessageRecord<K, V> {
+    /**
+     * The kafka message record, if the value is raw bytes, it's materialized to the {@link com.fasterxml.jackson.databind.JsonNode}
+     * lazily on the first {@link #getValue()}, and the top level fields (e.g: tenant) are read by streaming parse.
+     * The non JSON raw bytes (e.g: the binary checkpoint formats) are materialized by the specified decoder.
+     */
+    public static class KafkaMessageRecord<K, V> implements RawMessageRecord<K, V> {
         private final ConsumerRecord<K, V> record;
+        private final Function<byte[], V> binaryDecoder;
+        private final long timestamp;
         private volatile Map<String, V> _metadata;
+        private volatile V _value;
+        private volatile Entry<String, String> _rawTextField;
 
         public KafkaMessageRecord(ConsumerRecord<K, V> record) {
+            this(record, null);
+        }
+
+        public KafkaMessageRecord(ConsumerRecord<K, V> record,
+                                  Function<byte[], V> binaryDecoder) {
+            this(record, binaryDecoder, record.timestamp());
+        }
+
+        /**
+         * @param timestamp the timestamp of the original record, e.g: the source record of the checkpoint point.
+         */
+        public KafkaMessageRecord(ConsumerRecord<K, V> record,
+                                  Function<byte[], V> binaryDecoder,
+                                  long timestamp) {
             this.record = record;
+            this.binaryDecoder = binaryDecoder;
+            this.timestamp = timestamp;
         }
 
         @SuppressWarnings("unchecked")
@@ -538,14 +862,56 @@ public class KafkaSourceStream extends SourceStream
             return record.key();
         }
 
+        @SuppressWarnings("unchecked")
         @Override
         public V getValue() {
-            return record.value();
+            if (!(record.value() instanceof byte[])) {
+                return record.value();
+            }
+            if (isNull(_value)) {
+                synchronized (this) {
+                    if (isNull(_value)) {
+                        _value = nonNull(binaryDecoder) ? binaryDecoder.apply((byte[]) record.value())
+                                : (V) JsonStreamingUtil.readTree((byte[]) record.value());
+                    }
+                }
+            }
+            return _value;
+        }
+
+        @Override
+        public byte[] getRawValue() {
+            // The non JSON bytes could not be forwarded as the original value.
+            return isNull(binaryDecoder) && record.value() instanceof byte[] ? (byte[]) record.value() : null;
+        }
+
+        @Override
+        public boolean isValueMaterialized() {
+            return !(record.value() instanceof byte[]) || nonNull(_value);
+        }
+
+        @Override
+        public String getRawTextField(String fieldName) {
+            // Cached the last field, since it's usually read repeatedly for the same field (e.g: tenant)
+            final Entry<String, String> rawTextField = this._rawTextField;
+            if (nonNull(rawTextField) && rawTextField.getKey().equals(fieldName)) {
+                return rawTextField.getValue();
+            }
+            final String value;
+            if (nonNull(binaryDecoder)) {
+                final Object node = getValue();
+                value = node instanceof JsonNode && nonNull(((JsonNode) node).get(fieldName))
+                        ? ((JsonNode) node).get(fieldName).textValue() : null;
+            } else {
+                value = JsonStreamingUtil.readTopLevelTextField(getRawValue(), fieldName);
+            }
+            this._rawTextField = new SimpleImmutableEntry<>(fieldName, value);
+            return value;
         }
 
         @Override
         public long getTimestamp() {
-            return record.timestamp();
+            return timestamp;
         }
 
         public String getTopic() {
@@ -20,11 +20,25 @@ package com.wl4g.streamconnect.util;
 import com.google.common.base.Preconditions;
 import com.wl4g.infra.common.lang.Assert2;
 import com.wl4g.streamconnect.exception.StreamConnectException;
+import com.wl4g.streamconnect.meter.MeterEventHandler.GaugeMeterEvent;
+import com.wl4g.streamconnect.meter.StreamConnectMeter.MetricsName;
+import com.wl4g.streamconnect.meter.StreamConnectMeter.MetricsTag;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.Callback;
 import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 
 import javax.validation.constraints.Min;
@@ -34,34 +48,39 @@ import javax.validation.constraints.Null;
 import java.io.Closeable;
 import java.io.IOException;
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Stream;
+import java.util.concurrent.atomic.AtomicLong;
 
-import static com.wl4g.infra.common.collection.CollectionUtils2.safeList;
 import static java.lang.String.valueOf;
-import static java.util.Collections.synchronizedList;
+import static java.util.Collections.unmodifiableList;
 import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
-import static org.apache.commons.collections.ListUtils.unmodifiableList;
-import static org.apache.commons.lang3.RandomUtils.nextInt;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import static org.apache.kafka.clients.producer.ProducerConfig.BOOTSTRAP_SERVERS_CONFIG;
 import static org.apache.kafka.clients.producer.ProducerConfig.CLIENT_ID_CONFIG;
 
 /**
- * The {@link ConcurrentKafkaProducerContainer}
+ * The {@link ConcurrentKafkaProducerContainer}, the sharded pool of N kafka producers, the producer is
+ * determined by the key hash for the sequence channels (i.e. keep order of same key), otherwise the producer
+ * with least in-flight records is selected. It supports online scaling up and down (the removed producers
+ * are drained before closing), and exports the per-producer in-flight and buffer gauges.
  *
  * @author James Wong
  * @since v1.0
  **/
 @Slf4j
 public class ConcurrentKafkaProducerContainer implements Closeable {
+    public static final Duration DEFAULT_DRAIN_TIMEOUT = Duration.ofSeconds(30);
+    public static final long DEFAULT_GAUGE_INTERVAL_MS = 10_000L;
 
     /**
      * for solved problem example:
@@ -89,7 +108,10 @@ public class ConcurrentKafkaProducerContainer implements Closeable {
     private final int parallelism;
     private final String transactionIdPrefix;
     private final Map<String, Object> producerProps;
-    private List<DefaultKafkaProducerFactory<String, Object>> producerFactories;
+    private final AtomicInteger selectCursor = new AtomicInteger(0);
+    private final AtomicLong lastGaugeTime = new AtomicLong(0L);
+    // Copy on write, the selection of producers is lock-free.
+    private volatile ProducerSlot[] slots;
 
     public ConcurrentKafkaProducerContainer(@NotBlank String name,
                                             @Min(1) int parallelism,
@@ -104,23 +126,31 @@ public class ConcurrentKafkaProducerContainer implements Closeable {
     }
 
     public List<DefaultKafkaProducerFactory<String, Object>> getProducerFactories() {
-        return unmodifiableList(safeList(producerFactories));
+        return unmodifiableList(Arrays.stream(slots)
+                .map(ProducerSlot::getFactory)
+                .collect(toList()));
+    }
+
+    public List<ProducerSlot> getProducerSlots() {
+        return unmodifiableList(Arrays.asList(slots));
     }
 
     public int size() {
-        return getProducerFactories().size();
+        return slots.length;
     }
 
     public synchronized void init() {
         // Initializing kafka producer factories if necessary.
-        if (isNull(producerFactories)) {
+        if (isNull(slots)) {
             if (log.isInfoEnabled()) {
                 log.info("{} :: Initializing kafka producer factories with parallelism: {}, producerPropsSupplier: {}",
                         name, parallelism, producerProps);
             }
-            this.producerFactories = synchronizedList(Stream.of(parallelism)
-                    .map(i -> buildProducerFactory(producerProps, i))
-                    .collect(toList()));
+            final ProducerSlot[] newSlots = new ProducerSlot[parallelism];
+            for (int i = 0; i < parallelism; i++) {
+                newSlots[i] = new ProducerSlot(i, buildProducerFactory(producerProps, i));
+            }
+            this.slots = newSlots;
             if (log.isInfoEnabled()) {
                 log.info("{} :: Initialized kafka producer factories with parallelism: {}, producerPropsSupplier: {}",
                         name, parallelism, producerProps);
@@ -155,30 +185,78 @@ public class ConcurrentKafkaProducerContainer implements Closeable {
         return factory;
     }
 
-    // TODO should lock in scaling
-    public synchronized void scaling(@Min(1) int parallelism) {
+    public void scaling(@Min(1) int parallelism) {
+        scaling(parallelism, DEFAULT_DRAIN_TIMEOUT);
+    }
+
+    /**
+     * Scaling the producers online. When scaling down, the removed producers no longer accept new records,
+     * and are drained (i.e. waiting for the in-flight records to be completed) before closing.
+     * Notice: The key hash assignment of sequence channels is changed by scaling.
+     */
+    public synchronized void scaling(@Min(1) int parallelism,
+                                     @NotNull Duration drainTimeout) {
         Preconditions.checkArgument(parallelism >= 1, "required is parallelism >= 1");
+        requireNonNull(drainTimeout, "drainTimeout must not be null");
 
-        // Scaling producer factories instance if necessary.
-        if (parallelism > producerFactories.size()) {
-            final int beforeParallelism = producerFactories.size();
-            if (parallelism > beforeParallelism) {
-                final int delta = parallelism - beforeParallelism;
-                if (log.isInfoEnabled()) {
-                    log.info("{} :: Scaling kafka producer factories with parallelism: {}, delta: {}",
-                            name, parallelism, delta);
-                }
-                for (int i = 0; i < delta; i++) {
-                    producerFactories.add(buildProducerFactory(producerProps, beforeParallelism + i));
-                }
-                if (log.isInfoEnabled()) {
-                    log.info("{} :: Scaled kafka producer factories with parallelism: {}",
-                            name, parallelism);
-                }
+        final ProducerSlot[] current = slots;
+        if (parallelism > current.length) {
+            final int delta = parallelism - current.length;
+            if (log.isInfoEnabled()) {
+                log.info("{} :: Scaling up kafka producer factories with parallelism: {}, delta: {}",
+                        name, parallelism, delta);
+            }
+            final ProducerSlot[] newSlots = Arrays.copyOf(current, parallelism);
+            for (int i = current.length; i < parallelism; i++) {
+                newSlots[i] = new ProducerSlot(i, buildProducerFactory(producerProps, i));
+            }
+            this.slots = newSlots;
+            if (log.isInfoEnabled()) {
+                log.info("{} :: Scaled up kafka producer factories with parallelism: {}", name, parallelism);
+            }
+        } else if (parallelism < current.length) {
+            if (log.isInfoEnabled()) {
+                log.info("{} :: Scaling down kafka producer factories with parallelism: {}, delta: {}",
+                        name, parallelism, current.length - parallelism);
+            }
+            // Stop the selection of removed producers firstly, and then drain them.
+            this.slots = Arrays.copyOf(current, parallelism);
+            final long deadline = System.nanoTime() + drainTimeout.toNanos();
+            for (int i = parallelism; i < current.length; i++) {
+                drainAndDestroy(current[i], deadline);
+            }
+            if (log.isInfoEnabled()) {
+                log.info("{} :: Scaled down kafka producer factories with parallelism: {}", name, parallelism);
+            }
+        }
+    }
+
+    private void drainAndDestroy(ProducerSlot slot, long deadlineNanos) {
+        try {
+            if (slot.getInflight() > 0) {
+                slot.getFactory().createProducer().flush();
             }
-        } else if (parallelism < producerFactories.size()) {
-            // TODO Scaling down producer instances has not yet been implemented!
-            log.warn("{} :: Scaling down producer instances has not yet been implemented!", name);
+            while (slot.getInflight() > 0 && System.nanoTime() - deadlineNanos < 0L) {
+                Thread.sleep(10L);
+            }
+            if (slot.getInflight() > 0) {
+                log.warn("{} :: Timeout to drain kafka producer of index: {}, in-flight: {}", name,
+                        slot.getIndex(), slot.getInflight());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable ex) {
+            log.warn(String.format("%s :: Failed to drain kafka producer of index: %s", name, slot.getIndex()), ex);
+        }
+        try {
+            slot.getFactory().setPhysicalCloseTimeout((int) Math.max(1L, TimeUnit.NANOSECONDS
+                    .toSeconds(deadlineNanos - System.nanoTime())));
+            slot.getFactory().destroy();
+            if (log.isInfoEnabled()) {
+                log.info("{} :: Closed drained kafka producer of index: {}", name, slot.getIndex());
+            }
+        } catch (Throwable ex) {
+            log.error(String.format("%s :: Failed to close kafka producer factory of index: %s", name, slot.getIndex()), ex);
         }
     }
 
@@ -195,9 +273,10 @@ public class ConcurrentKafkaProducerContainer implements Closeable {
             isChanged = true;
         }
         // Check for other properties.
-        final Map<String, Object> changedProps = oldProducerProps
+        final Map<String, Object> changedProps = newProducerProps
                 .entrySet()
                 .stream()
+                .filter(e -> nonNull(e.getValue()))
                 .filter(e -> !StringUtils.equals(valueOf(oldProducerProps.get(e.getKey())),
                         valueOf(e.getValue())))
                 .collect(toMap(Map.Entry::getKey, Map.Entry::getValue));
@@ -207,12 +286,12 @@ public class ConcurrentKafkaProducerContainer implements Closeable {
         // Resetting producer if changed.
         if (isChanged) {
             this.producerProps.putAll(changedProps);
-            for (DefaultKafkaProducerFactory<String, Object> producerFactory : producerFactories) {
+            for (ProducerSlot slot : slots) {
                 if (log.isInfoEnabled()) {
                     log.info("{} :: Resetting kafka producer factory with changed properties: {}", name, changedProps);
                 }
-                producerFactory.updateConfigs(changedProps);
-                producerFactory.reset();
+                slot.getFactory().updateConfigs(changedProps);
+                slot.getFactory().reset();
                 if (log.isInfoEnabled()) {
                     log.info("{} :: Resetted kafka producer factory with changed properties: {}", name, changedProps);
                 }
@@ -221,35 +300,80 @@ public class ConcurrentKafkaProducerContainer implements Closeable {
     }
 
     public Producer<String, Object> obtainFirstProducer() {
-        if (producerFactories.isEmpty()) {
+        final ProducerSlot[] current = slots;
+        if (current.length == 0) {
             throw new StreamConnectException("The producer factory instances is empty " +
                     "and has been validated during initialization. This error should not occur.");
         }
-        return producerFactories.get(0).createProducer(); // Get or create producer.
+        return current[0].getFactory().createProducer(); // Get or create producer.
     }
 
-    public Producer<String, Object> obtainDetermineProducer(@NotNull String key,
+    /**
+     * Determine the producer, by the key hash if sequence (i.e. keep order of same key), otherwise by the
+     * least in-flight records. The returned producer tracks the in-flight records of its sends.
+     */
+    public Producer<String, Object> obtainDetermineProducer(@Null String key,
                                                             boolean isSequence) {
-        requireNonNull(key, "key must not be null");
-
-        DefaultKafkaProducerFactory<String, Object> producerFactory = producerFactories
-                .get(nextInt(0, producerFactories.size()));
+        final ProducerSlot[] current = slots;
+        if (current.length == 0) {
+            throw new StreamConnectException(String.format("%s :: Could not get producer factory for key: %s", name, key));
+        }
+        final ProducerSlot slot;
         if (isSequence) {
-            //final String key = valueOf(channel.getId());
-            final int index = Assignments.assign(key, producerFactories.size());
-            producerFactory = producerFactories.get(index);
+            requireNonNull(key, "key must not be null");
+            slot = current[Assignments.assign(key, current.length)];
             if (log.isDebugEnabled()) {
-                log.debug("{} :: Determined to producer factory of index: {}", name, index);
+                log.debug("{} :: Determined to producer factory of index: {}", name, slot.getIndex());
             }
-        }
-        if (isNull(producerFactory)) {
-            throw new StreamConnectException(String.format("%s :: Could not get producer factory for key: %s", name, key));
+        } else {
+            slot = selectLeastInflight(current);
         }
         if (log.isDebugEnabled()) {
             log.debug("{} :: Using producer factory for key: {}", name, key);
         }
+        return slot.getProducer();
+    }
 
-        return producerFactory.createProducer(); // Get or create producer.
+    private ProducerSlot selectLeastInflight(ProducerSlot[] current) {
+        final int size = current.length;
+        if (size == 1) {
+            return current[0];
+        }
+        // Start from the rotating cursor, so that the producers with same in-flight are used in turn.
+        final int start = (selectCursor.getAndIncrement() & Integer.MAX_VALUE) % size;
+        ProducerSlot selected = current[start];
+        long minInflight = selected.getInflight();
+        for (int i = 1; i < size && minInflight > 0; i++) {
+            final ProducerSlot slot = current[(start + i) % size];
+            final long inflight = slot.getInflight();
+            if (inflight < minInflight) {
+                selected = slot;
+                minInflight = inflight;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Publish the in-flight and buffer gauges of each producer, at most once per gauge interval.
+     */
+    public void publishGaugesIfNecessary(@NotNull ApplicationEventPublisher publisher,
+                                         @Null List<String> tags) {
+        final long now = System.currentTimeMillis();
+        final long last = lastGaugeTime.get();
+        if (now - last < DEFAULT_GAUGE_INTERVAL_MS || !lastGaugeTime.compareAndSet(last, now)) {
+            return;
+        }
+        for (ProducerSlot slot : slots) {
+            final String producerTag = name.concat("-").concat(valueOf(slot.getIndex()));
+            publisher.publishEvent(new GaugeMeterEvent(MetricsName.producer_inflight, tags,
+                    slot.getInflight(), MetricsTag.PRODUCER, producerTag));
+            final double bufferAvailableBytes = slot.getBufferAvailableBytes();
+            if (bufferAvailableBytes >= 0) {
+                publisher.publishEvent(new GaugeMeterEvent(MetricsName.producer_buffer_available_bytes, tags,
+                        bufferAvailableBytes, MetricsTag.PRODUCER, producerTag));
+            }
+        }
     }
 
     @Override
@@ -258,11 +382,10 @@ public class ConcurrentKafkaProducerContainer implements Closeable {
     }
 
     public synchronized void close(@NotNull Duration timeout) throws IOException {
-        final Iterator<DefaultKafkaProducerFactory<String, Object>> it =
-                safeList(producerFactories).iterator();
-        while (it.hasNext()) {
+        final ProducerSlot[] current = slots;
+        for (ProducerSlot slot : current) {
             try {
-                final DefaultKafkaProducerFactory<String, Object> factory = it.next();
+                final DefaultKafkaProducerFactory<String, Object> factory = slot.getFactory();
                 factory.setPhysicalCloseTimeout((int) timeout.getSeconds());
                 if (log.isInfoEnabled()) {
                     log.info("{} :: Closing kafka producer factory : {}", name, factory);
@@ -271,11 +394,11 @@ public class ConcurrentKafkaProducerContainer implements Closeable {
                 if (log.isInfoEnabled()) {
                     log.info("{} :: Closed kafka producer factories.", name);
                 }
-                it.remove();
             } catch (Throwable ex) {
                 log.error("{} :: Failed to close kafka producer factory.", name, ex);
             }
         }
+        this.slots = new ProducerSlot[0];
     }
 
     public static ConcurrentKafkaProducerContainer buildDefaultAcknowledgedProducerContainer(
@@ -295,4 +418,141 @@ public class ConcurrentKafkaProducerContainer implements Closeable {
         return new ConcurrentKafkaProducerContainer(name, 1, transactionIdPrefix, props);
     }
 
+    /**
+     * The producer of pool, which tracks the in-flight records (i.e. sent but not completed).
+     */
+    public static class ProducerSlot {
+        private final @Getter int index;
+        private final @Getter DefaultKafkaProducerFactory<String, Object> factory;
+        private final @Getter Producer<String, Object> producer;
+        final AtomicLong inflight = new AtomicLong(0L);
+
+        ProducerSlot(int index, DefaultKafkaProducerFactory<String, Object> factory) {
+            this.index = index;
+            this.factory = requireNonNull(factory, "factory must not be null");
+            this.producer = new InflightTrackingProducer(this);
+        }
+
+        public long getInflight() {
+            return inflight.get();
+        }
+
+        /**
+         * @return the available bytes of producer buffer memory, or -1 if unknown.
+         */
+        public double getBufferAvailableBytes() {
+            try {
+                for (Map.Entry<MetricName, ? extends Metric> entry : factory.createProducer().metrics().entrySet()) {
+                    if ("buffer-available-bytes".equals(entry.getKey().name())
+                            && "producer-metrics".equals(entry.getKey().group())) {
+                        final Object value = entry.getValue().metricValue();
+                        return value instanceof Number ? ((Number) value).doubleValue() : -1d;
+                    }
+                }
+            } catch (Throwable ex) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Failed to get producer buffer metrics.", ex);
+                }
+            }
+            return -1d;
+        }
+    }
+
+    /**
+     * The delegating producer, which counts the in-flight records of the slot until the send completed.
+     * Notice: The delegate is obtained from the factory for each call, so as to follow the factory resetting.
+     */
+    static class InflightTrackingProducer implements Producer<String, Object> {
+        private final ProducerSlot slot;
+
+        InflightTrackingProducer(ProducerSlot slot) {
+            this.slot = slot;
+        }
+
+        private Producer<String, Object> delegate() {
+            return slot.getFactory().createProducer();
+        }
+
+        @Override
+        public Future<RecordMetadata> send(ProducerRecord<String, Object> record) {
+            return send(record, null);
+        }
+
+        @Override
+        public Future<RecordMetadata> send(ProducerRecord<String, Object> record, Callback callback) {
+            final AtomicLong inflight = slot.inflight;
+            inflight.incrementAndGet();
+            try {
+                return delegate().send(record, (metadata, ex) -> {
+                    inflight.decrementAndGet();
+                    if (nonNull(callback)) {
+                        callback.onCompletion(metadata, ex);
+                    }
+                });
+            } catch (RuntimeException ex) {
+                // The callback is not invoked if thrown directly (e.g: serialization or interrupted).
+                inflight.decrementAndGet();
+                throw ex;
+            }
+        }
+
+        @Override
+        public void initTransactions() {
+            delegate().initTransactions();
+        }
+
+        @Override
+        public void beginTransaction() {
+            delegate().beginTransaction();
+        }
+
+        @SuppressWarnings("deprecation")
+        @Override
+        public void sendOffsetsToTransaction(Map<TopicPartition, OffsetAndMetadata> offsets,
+                                             String consumerGroupId) {
+            delegate().sendOffsetsToTransaction(offsets, consumerGroupId);
+        }
+
+        @Override
+        public void sendOffsetsToTransaction(Map<TopicPartition, OffsetAndMetadata> offsets,
+                                             ConsumerGroupMetadata groupMetadata) {
+            delegate().sendOffsetsToTransaction(offsets, groupMetadata);
+        }
+
+        @Override
+        public void commitTransaction() {
+            delegate().commitTransaction();
+        }
+
+        @Override
+        public void abortTransaction() {
+            delegate().abortTransaction();
+        }
+
+        @Override
+        public void flush() {
+            delegate().flush();
+        }
+
+        @Override
+        public List<PartitionInfo> partitionsFor(String topic) {
+            return delegate().partitionsFor(topic);
+        }
+
+        @Override
+        public Map<MetricName, ? extends Metric> metrics() {
+            return delegate().metrics();
+        }
+
+        @Override
+        public void close() {
+            delegate().close();
+        }
+
+        @Override
+        public void close(Duration timeout) {
+            delegate().close(timeout);
+        }
+    }
+
 }
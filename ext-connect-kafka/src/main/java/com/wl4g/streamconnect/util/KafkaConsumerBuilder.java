@@ -24,9 +24,12 @@ import org.apache.kafka.common.errors.SerializationException;
 import org.apache.kafka.common.serialization.Deserializer;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.BatchAcknowledgingConsumerAwareMessageListener;
 import org.springframework.kafka.listener.BatchAcknowledgingMessageListener;
+import org.springframework.kafka.listener.BatchMessageListener;
 import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
 import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.ListenerContainerIdleEvent;
 
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
@@ -49,6 +52,8 @@ import static java.util.Objects.requireNonNull;
  **/
 @Getter
 public class KafkaConsumerBuilder {
+    public static final long MIN_IDLE_EVENT_INTERVAL_MS = 1000L;
+
     private final Map<String, Object> consumerProps;
     private final ConcurrentKafkaListenerContainerFactory<String, Object> factory;
 
@@ -73,6 +78,26 @@ public class KafkaConsumerBuilder {
             final @NotBlank String groupId,
             final @Min(1) int concurrency,
             final @NotNull BatchAcknowledgingMessageListener<String, Object> listener) {
+        return doBuildContainer(topicPattern, groupId, concurrency, listener);
+    }
+
+    /**
+     * Build the container of consumer aware listener, e.g: the offsets are committed by the listener itself
+     * on the consumer thread, see: {@link PartitionOffsetTracker}
+     */
+    public ConcurrentMessageListenerContainer<String, Object> buildContainer(
+            final @NotNull Pattern topicPattern,
+            final @NotBlank String groupId,
+            final @Min(1) int concurrency,
+            final @NotNull BatchAcknowledgingConsumerAwareMessageListener<String, Object> listener) {
+        return doBuildContainer(topicPattern, groupId, concurrency, listener);
+    }
+
+    private ConcurrentMessageListenerContainer<String, Object> doBuildContainer(
+            final @NotNull Pattern topicPattern,
+            final @NotBlank String groupId,
+            final @Min(1) int concurrency,
+            final @NotNull BatchMessageListener<String, Object> listener) {
         notNullOf(topicPattern, "topicPattern");
         notNullOf(listener, "listener");
         Assert2.isTrueOf(concurrency >= 1, "concurrency must be greater than or equal to 1");
@@ -94,6 +119,26 @@ public class KafkaConsumerBuilder {
         return container;
     }
 
+    /**
+     * Listen the idle events of the consumers of the container, which are published on the consumer thread at
+     * most once per interval while no records are polled (e.g: the topic is idle, or the partitions are paused),
+     * so that the listener could operate the consumer, e.g: commit the completed offsets.
+     * Notice: The container is not a bean, so the publisher is only used for the idle events.
+     */
+    public static void setIdleEventListener(@NotNull ConcurrentMessageListenerContainer<?, ?> container,
+                                            @Min(0) long idleEventIntervalMs,
+                                            @NotNull java.util.function.Consumer<ListenerContainerIdleEvent> listener) {
+        notNullOf(container, "container");
+        notNullOf(listener, "listener");
+        container.getContainerProperties().setIdleEventInterval(Math.max(idleEventIntervalMs,
+                MIN_IDLE_EVENT_INTERVAL_MS));
+        container.setApplicationEventPublisher(event -> {
+            if (event instanceof ListenerContainerIdleEvent) {
+                listener.accept((ListenerContainerIdleEvent) event);
+            }
+        });
+    }
+
     private ConcurrentKafkaListenerContainerFactory<String, Object> buildKafkaListenerContainerFactory() {
         final ConcurrentKafkaListenerContainerFactory<String, Object> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
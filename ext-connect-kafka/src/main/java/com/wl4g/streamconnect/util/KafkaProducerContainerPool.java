@@ -0,0 +1,190 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.util;
+
+import com.wl4g.infra.common.lang.Assert2;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Objects.requireNonNull;
+import static org.apache.kafka.clients.producer.ProducerConfig.BOOTSTRAP_SERVERS_CONFIG;
+
+/**
+ * The {@link KafkaProducerContainerPool}, the reference counted pool of {@link ConcurrentKafkaProducerContainer},
+ * keyed by the effective producer properties (including the bootstrap servers) and parallelism, so that the
+ * channels writing to the same cluster with the same settings share the producers (i.e: buffer memory, I/O
+ * threads and metadata), and the number of producers grows with the number of distinct clusters rather than
+ * the number of channels.
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+@Slf4j
+public class KafkaProducerContainerPool implements Closeable {
+    private final String name;
+    private final AtomicInteger index = new AtomicInteger(0);
+    // Guarded by this.
+    private final Map<String, PooledContainer> pooled = new HashMap<>();
+    private final Map<ConcurrentKafkaProducerContainer, PooledContainer> reversed = new IdentityHashMap<>();
+
+    public KafkaProducerContainerPool(@NotBlank String name) {
+        this.name = Assert2.hasTextOf(name, "name");
+    }
+
+    public ConcurrentKafkaProducerContainer acquire(@Min(1) int parallelism,
+                                                    @NotNull Map<String, Object> producerProps) {
+        return acquire(parallelism, producerProps, containerName ->
+                new ConcurrentKafkaProducerContainer(containerName, parallelism, null, producerProps));
+    }
+
+    /**
+     * Acquire the shared container of the effective producer properties, the container is created
+     * on the first acquire, and every acquire must be paired with a {@link #release}.
+     */
+    public synchronized ConcurrentKafkaProducerContainer acquire(@Min(1) int parallelism,
+                                                                 @NotNull Map<String, Object> producerProps,
+                                                                 @NotNull Function<String, ConcurrentKafkaProducerContainer> builder) {
+        requireNonNull(builder, "builder must not be null");
+        final String poolKey = buildPoolKey(parallelism, producerProps);
+        PooledContainer entry = pooled.get(poolKey);
+        if (isNull(entry)) {
+            final String containerName = name.concat("-shared-").concat(String.valueOf(index.incrementAndGet()));
+            final ConcurrentKafkaProducerContainer container = requireNonNull(builder.apply(containerName),
+                    "Built producer container must not be null");
+            entry = new PooledContainer(poolKey, container);
+            pooled.put(poolKey, entry);
+            reversed.put(container, entry);
+            if (log.isInfoEnabled()) {
+                log.info("{} :: Created shared producer container {} of servers: {}", name, containerName,
+                        producerProps.get(BOOTSTRAP_SERVERS_CONFIG));
+            }
+        }
+        ++entry.refCount;
+        return entry.container;
+    }
+
+    /**
+     * Release the shared container, it will be closed when the last reference is released.
+     *
+     * @return true if the container has been closed.
+     */
+    public boolean release(@NotNull ConcurrentKafkaProducerContainer container) {
+        requireNonNull(container, "container must not be null");
+        synchronized (this) {
+            final PooledContainer entry = reversed.get(container);
+            if (isNull(entry)) {
+                log.warn("{} :: Skip to release the unknown producer container.", name);
+                return false;
+            }
+            if (--entry.refCount > 0) {
+                return false;
+            }
+            pooled.remove(entry.poolKey);
+            reversed.remove(container);
+        }
+        // Closing may take a long time to flush, it should not block the other channels acquiring.
+        closeQuietly(container);
+        return true;
+    }
+
+    /**
+     * Re-acquire the shared container of the new effective producer properties, instead of resetting the
+     * shared container in place (which would affect the other holders and break its pool key), and then
+     * release the old one.
+     *
+     * @return the re-acquired container, which is the old one if the effective properties are unchanged.
+     */
+    public ConcurrentKafkaProducerContainer reacquire(@NotNull ConcurrentKafkaProducerContainer container,
+                                                      @Min(1) int parallelism,
+                                                      @NotNull Map<String, Object> newProducerProps,
+                                                      @NotNull Function<String, ConcurrentKafkaProducerContainer> builder) {
+        requireNonNull(container, "container must not be null");
+        synchronized (this) {
+            final PooledContainer entry = reversed.get(container);
+            if (nonNull(entry) && entry.poolKey.equals(buildPoolKey(parallelism, newProducerProps))) {
+                return container;
+            }
+        }
+        final ConcurrentKafkaProducerContainer acquired = acquire(parallelism, newProducerProps, builder);
+        release(container);
+        return acquired;
+    }
+
+    public synchronized int size() {
+        return pooled.size();
+    }
+
+    public synchronized int getRefCount(@NotNull ConcurrentKafkaProducerContainer container) {
+        final PooledContainer entry = reversed.get(container);
+        return isNull(entry) ? 0 : entry.refCount;
+    }
+
+    @Override
+    public void close() {
+        final List<ConcurrentKafkaProducerContainer> containers;
+        synchronized (this) {
+            containers = new ArrayList<>(reversed.keySet());
+            pooled.clear();
+            reversed.clear();
+        }
+        containers.forEach(this::closeQuietly);
+    }
+
+    private void closeQuietly(ConcurrentKafkaProducerContainer container) {
+        try {
+            if (log.isInfoEnabled()) {
+                log.info("{} :: Closing shared producer container ...", name);
+            }
+            container.close();
+        } catch (Throwable ex) {
+            log.error(String.format("%s :: Failed to close shared producer container.", name), ex);
+        }
+    }
+
+    static String buildPoolKey(int parallelism, Map<String, Object> producerProps) {
+        requireNonNull(producerProps, "producerProps must not be null");
+        // Sorted, so that the same effective properties of any order map to the same key.
+        return parallelism + "@" + new TreeMap<>(producerProps);
+    }
+
+    private static class PooledContainer {
+        private final String poolKey;
+        private final ConcurrentKafkaProducerContainer container;
+        private int refCount;
+
+        private PooledContainer(String poolKey, ConcurrentKafkaProducerContainer container) {
+            this.poolKey = poolKey;
+            this.container = container;
+        }
+    }
+
+}
@@ -0,0 +1,283 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.util;
+
+import com.wl4g.infra.common.lang.Assert2;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.wl4g.infra.common.collection.CollectionUtils2.safeList;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The {@link PartitionOffsetTracker}, tracks the out of order completions of the consumed records per partition,
+ * and exposes the committable low watermark (i.e. the next offset to consume after all the earlier records have
+ * been completed) of each partition in O(1). The offsets are committed asynchronously on the consumer thread at
+ * most once per interval, and synchronously on partitions revoked, so as to be at-least-once without sorting the
+ * offsets of every batch. Notice: The records given up by the QoS (e.g: retries exhausted) must also be completed,
+ * otherwise they hold the watermark of their partition (and are re-consumed since then after restart or rebalance),
+ * and the pending offsets after them are accumulated without bound. The tracker must be owned by a single
+ * consumer (i.e. one tracker per consumer of the concurrent container), since the commit state is confined to
+ * the consumer thread, and only the partitions assigned to the consumer are committed.
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+@Slf4j
+public class PartitionOffsetTracker {
+    private final String name;
+    private final long commitIntervalMs;
+    private final Map<TopicPartition, OffsetWatermark> watermarks = new ConcurrentHashMap<>();
+    // Only accessed by the thread of the owner consumer, which also invokes the callbacks of the async commits.
+    private final Map<TopicPartition, Long> committedOffsets = new HashMap<>();
+    private final Map<TopicPartition, Long> committingOffsets = new HashMap<>();
+    private long lastCommitTime;
+
+    public PartitionOffsetTracker(@NotBlank String name,
+                                  @Min(0) long commitIntervalMs) {
+        this.name = Assert2.hasTextOf(name, "name");
+        Assert2.isTrueOf(commitIntervalMs >= 0, "commitIntervalMs >= 0");
+        this.commitIntervalMs = commitIntervalMs;
+    }
+
+    /**
+     * Track the consumed records (in order of offset per partition), must be called on the consumer thread
+     * before any of them are completed.
+     */
+    public void received(@NotNull List<? extends ConsumerRecord<?, ?>> records) {
+        for (ConsumerRecord<?, ?> record : safeList(records)) {
+            received(new TopicPartition(record.topic(), record.partition()), record.offset());
+        }
+    }
+
+    public void received(@NotNull TopicPartition partition, long offset) {
+        watermarks.computeIfAbsent(partition, tp -> new OffsetWatermark()).received(offset);
+    }
+
+    /**
+     * Complete the record, it may be called on any thread and in any order.
+     */
+    public void completed(@NotNull TopicPartition partition, long offset) {
+        final OffsetWatermark watermark = watermarks.get(partition);
+        if (nonNull(watermark)) {
+            watermark.completed(offset);
+        }
+    }
+
+    /**
+     * Gets the committable offsets which have been advanced since last commit (succeeded or in-flight).
+     */
+    public Map<TopicPartition, OffsetAndMetadata> getCommittableOffsets() {
+        return getCommittableOffsets(true);
+    }
+
+    private Map<TopicPartition, OffsetAndMetadata> getCommittableOffsets(boolean excludeCommitting) {
+        final Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>(watermarks.size());
+        watermarks.forEach((partition, watermark) -> {
+            final long committable = watermark.getCommittableOffset();
+            final Long committed = committedOffsets.get(partition);
+            final Long committing = excludeCommitting ? committingOffsets.get(partition) : null;
+            if (committable >= 0 && (isNull(committed) || committable > committed)
+                    && (isNull(committing) || committable > committing)) {
+                offsets.put(partition, new OffsetAndMetadata(committable));
+            }
+        });
+        return offsets;
+    }
+
+    public long getCommittableOffset(@NotNull TopicPartition partition) {
+        final OffsetWatermark watermark = watermarks.get(partition);
+        return isNull(watermark) ? -1L : watermark.getCommittableOffset();
+    }
+
+    public long getPendingCount(@NotNull TopicPartition partition) {
+        final OffsetWatermark watermark = watermarks.get(partition);
+        return isNull(watermark) ? 0L : watermark.getPendingCount();
+    }
+
+    /**
+     * Commit asynchronously the advanced offsets of the assigned partitions if the interval elapsed, must be
+     * called on the thread of the owner consumer (e.g: after each poll, or on the idle of the consumer).
+     */
+    public void commitIfNecessary(@NotNull Consumer<?, ?> consumer) {
+        requireNonNull(consumer, "consumer must not be null");
+        final long now = System.currentTimeMillis();
+        if (now - lastCommitTime < commitIntervalMs) {
+            return;
+        }
+        lastCommitTime = now;
+        final Map<TopicPartition, OffsetAndMetadata> offsets = getCommittableOffsets();
+        offsets.keySet().retainAll(consumer.assignment());
+        if (offsets.isEmpty()) {
+            return;
+        }
+        // Marks as committing, so that the same offsets are not committed repeatedly while in-flight, and they
+        // are marked as committed only on success, otherwise committed again (e.g: even if the partition idle).
+        offsets.forEach((partition, offset) -> committingOffsets.put(partition, offset.offset()));
+        if (log.isDebugEnabled()) {
+            log.debug("{} :: Committing offsets : {}", name, offsets);
+        }
+        consumer.commitAsync(offsets, (committed, ex) -> {
+            offsets.forEach((partition, offset) -> {
+                committingOffsets.remove(partition, offset.offset());
+                // The revoked partitions are no longer tracked.
+                if (isNull(ex) && watermarks.containsKey(partition)) {
+                    committedOffsets.merge(partition, offset.offset(), Math::max);
+                }
+            });
+            if (nonNull(ex)) {
+                log.warn("{} :: Failed to commit offsets : {}, reason : {}", name, offsets, ex.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Commit synchronously the advanced offsets of the revoked partitions and stop tracking them, must be
+     * called on the consumer thread (e.g: before the partitions are revoked).
+     */
+    public void revoke(@NotNull Consumer<?, ?> consumer,
+                       @NotNull Collection<TopicPartition> partitions) {
+        requireNonNull(consumer, "consumer must not be null");
+        // Including the in-flight, since they may be failed after the partitions revoked.
+        final Map<TopicPartition, OffsetAndMetadata> offsets = getCommittableOffsets(false);
+        offsets.keySet().retainAll(partitions);
+        try {
+            if (!offsets.isEmpty()) {
+                consumer.commitSync(offsets);
+                if (log.isInfoEnabled()) {
+                    log.info("{} :: Committed offsets of revoked partitions : {}", name, offsets);
+                }
+            }
+        } catch (Throwable ex) {
+            log.error(String.format("%s :: Failed to commit offsets of revoked partitions : %s", name, offsets), ex);
+        } finally {
+            for (TopicPartition partition : partitions) {
+                watermarks.remove(partition);
+                committedOffsets.remove(partition);
+                committingOffsets.remove(partition);
+            }
+        }
+    }
+
+    /**
+     * The offsets watermark of a partition, the pending (i.e. received but not yet completed) offsets are
+     * tracked by a ring of bitset words, and the never received offsets (e.g: the gaps of the compacted or
+     * transactional topics) are not pending, so that the watermark is advanced over them.
+     */
+    static class OffsetWatermark {
+        private long[] words = new long[16];
+        private int headWord; // The ring index of the word of the base offset.
+        private int wordCount;
+        private long baseOffset = -1L; // The first offset of the head word, multiple of 64.
+        private long nextOffset = -1L; // The highest received offset + 1.
+        private long pendingCount;
+        private volatile long watermark = -1L;
+
+        synchronized void received(long offset) {
+            if (baseOffset < 0) {
+                this.baseOffset = offset & ~63L;
+                this.nextOffset = offset;
+                this.watermark = offset;
+            }
+            // Ignore the re-consumed offsets (e.g: seek back).
+            if (offset < nextOffset) {
+                return;
+            }
+            final long wordOffset = (offset - baseOffset) >>> 6;
+            while (wordCount <= wordOffset) {
+                if (wordCount == words.length) {
+                    grow();
+                }
+                words[(headWord + wordCount) & (words.length - 1)] = 0L;
+                ++wordCount;
+            }
+            words[(headWord + (int) wordOffset) & (words.length - 1)] |= 1L << (offset & 63);
+            if (pendingCount++ == 0) {
+                // There was no pending offsets, so the watermark was the next offset.
+                this.watermark = offset;
+            }
+            this.nextOffset = offset + 1;
+        }
+
+        synchronized void completed(long offset) {
+            if (offset < watermark || offset >= nextOffset) {
+                return;
+            }
+            final int index = (headWord + (int) ((offset - baseOffset) >>> 6)) & (words.length - 1);
+            final long bit = 1L << (offset & 63);
+            if ((words[index] & bit) == 0) {
+                return; // Completed repeatedly or never received.
+            }
+            words[index] &= ~bit;
+            --pendingCount;
+            if (offset == watermark) {
+                advance();
+            }
+        }
+
+        long getCommittableOffset() {
+            return watermark;
+        }
+
+        synchronized long getPendingCount() {
+            return pendingCount;
+        }
+
+        private void advance() {
+            if (pendingCount == 0) {
+                // Release all words, the next received offset starts from a new word.
+                this.watermark = nextOffset;
+                this.baseOffset = nextOffset & ~63L;
+                this.headWord = 0;
+                this.wordCount = 0;
+                return;
+            }
+            // Drop the words passed entirely, and find the lowest pending offset.
+            while (words[headWord] == 0L) {
+                headWord = (headWord + 1) & (words.length - 1);
+                --wordCount;
+                baseOffset += 64;
+            }
+            this.watermark = baseOffset + Long.numberOfTrailingZeros(words[headWord]);
+        }
+
+        private void grow() {
+            final long[] newWords = new long[words.length << 1];
+            for (int i = 0; i < wordCount; i++) {
+                newWords[i] = words[(headWord + i) & (words.length - 1)];
+            }
+            this.words = newWords;
+            this.headWord = 0;
+        }
+    }
+
+}
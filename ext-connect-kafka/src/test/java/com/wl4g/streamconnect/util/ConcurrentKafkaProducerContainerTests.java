@@ -0,0 +1,110 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.util;
+
+import com.wl4g.streamconnect.util.ConcurrentKafkaProducerContainer.ProducerSlot;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The {@link ConcurrentKafkaProducerContainerTests}
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+public class ConcurrentKafkaProducerContainerTests {
+
+    @Test
+    public void testCreateProducersOfParallelism() throws Exception {
+        try (ConcurrentKafkaProducerContainer container = buildContainer(8)) {
+            Assertions.assertEquals(8, container.size());
+            Assertions.assertEquals(8, container.getProducerFactories().size());
+            Assertions.assertEquals(8, new HashSet<>(container.getProducerFactories()).size());
+        }
+    }
+
+    @Test
+    public void testDetermineProducerByKeyHashIfSequence() throws Exception {
+        try (ConcurrentKafkaProducerContainer container = buildContainer(4)) {
+            final Producer<String, Object> producer = container.obtainDetermineProducer("key-1", true);
+            for (int i = 0; i < 10; i++) {
+                Assertions.assertSame(producer, container.obtainDetermineProducer("key-1", true));
+            }
+            Assertions.assertSame(container.getProducerSlots().get(Assignments.assign("key-1", 4)).getProducer(),
+                    producer);
+        }
+    }
+
+    @Test
+    public void testDetermineProducerByLeastInflight() throws Exception {
+        try (ConcurrentKafkaProducerContainer container = buildContainer(4)) {
+            // The producers with same in-flight are used in turn.
+            final Set<Producer<String, Object>> used = new HashSet<>();
+            for (int i = 0; i < 4; i++) {
+                used.add(container.obtainDetermineProducer("k" + i, false));
+            }
+            Assertions.assertEquals(4, used.size());
+
+            for (ProducerSlot slot : container.getProducerSlots()) {
+                slot.inflight.set(100L + slot.getIndex());
+            }
+            final ProducerSlot idle = container.getProducerSlots().get(2);
+            idle.inflight.set(3L);
+            for (int i = 0; i < 10; i++) {
+                Assertions.assertSame(idle.getProducer(), container.obtainDetermineProducer("k" + i, false));
+            }
+        }
+    }
+
+    @Test
+    public void testScalingUpAndDown() throws Exception {
+        try (ConcurrentKafkaProducerContainer container = buildContainer(2)) {
+            final ProducerSlot first = container.getProducerSlots().get(0);
+            container.scaling(6);
+            Assertions.assertEquals(6, container.size());
+            Assertions.assertSame(first, container.getProducerSlots().get(0));
+
+            container.scaling(3, Duration.ofSeconds(5));
+            Assertions.assertEquals(3, container.size());
+            Assertions.assertSame(first, container.getProducerSlots().get(0));
+            for (int i = 0; i < 20; i++) {
+                final Producer<String, Object> producer = container.obtainDetermineProducer("k" + i, i % 2 == 0);
+                Assertions.assertTrue(container.getProducerSlots().stream().anyMatch(s -> s.getProducer() == producer));
+            }
+        }
+    }
+
+    static ConcurrentKafkaProducerContainer buildContainer(int parallelism) {
+        final Map<String, Object> props = new HashMap<>();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092");
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
+        return new ConcurrentKafkaProducerContainer("test", parallelism, null, props);
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.util;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The {@link KafkaProducerContainerPoolTests}
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+public class KafkaProducerContainerPoolTests {
+
+    @Test
+    public void testSharedByEffectivePropsWithRefCount() {
+        try (KafkaProducerContainerPool pool = new KafkaProducerContainerPool("test")) {
+            final Map<String, Object> props1 = buildProps("localhost:9092");
+            // The same effective properties in a different order.
+            final Map<String, Object> props2 = new TreeMap<>(buildProps("localhost:9092"));
+
+            final ConcurrentKafkaProducerContainer c1 = pool.acquire(2, props1);
+            final ConcurrentKafkaProducerContainer c2 = pool.acquire(2, props2);
+            Assertions.assertSame(c1, c2);
+            Assertions.assertEquals(1, pool.size());
+            Assertions.assertEquals(2, pool.getRefCount(c1));
+
+            // The other cluster or parallelism is not shared.
+            final ConcurrentKafkaProducerContainer c3 = pool.acquire(2, buildProps("localhost:9093"));
+            final ConcurrentKafkaProducerContainer c4 = pool.acquire(4, props1);
+            Assertions.assertNotSame(c1, c3);
+            Assertions.assertNotSame(c1, c4);
+            Assertions.assertEquals(3, pool.size());
+
+            Assertions.assertFalse(pool.release(c1));
+            Assertions.assertEquals(2, c1.size());
+            Assertions.assertTrue(pool.release(c2));
+            Assertions.assertEquals(0, c1.size());
+            Assertions.assertEquals(0, pool.getRefCount(c1));
+            Assertions.assertEquals(2, pool.size());
+
+            // The released container is not reused.
+            Assertions.assertNotSame(c1, pool.acquire(2, props1));
+            Assertions.assertFalse(pool.release(c1));
+        }
+    }
+
+    @Test
+    public void testReacquireDetachesFromShared() {
+        try (KafkaProducerContainerPool pool = new KafkaProducerContainerPool("test")) {
+            final Map<String, Object> props = buildProps("localhost:9092");
+            final ConcurrentKafkaProducerContainer c1 = pool.acquire(2, props);
+            final ConcurrentKafkaProducerContainer c2 = pool.acquire(2, props);
+
+            // Unchanged the effective properties.
+            Assertions.assertSame(c1, pool.reacquire(c1, 2, new TreeMap<>(props), name ->
+                    new ConcurrentKafkaProducerContainer(name, 2, null, props)));
+            Assertions.assertEquals(2, pool.getRefCount(c1));
+
+            // The other holder of the shared container is unaffected.
+            final Map<String, Object> newProps = buildProps("localhost:9093");
+            final ConcurrentKafkaProducerContainer c3 = pool.reacquire(c2, 2, newProps, name ->
+                    new ConcurrentKafkaProducerContainer(name, 2, null, newProps));
+            Assertions.assertNotSame(c1, c3);
+            Assertions.assertEquals(1, pool.getRefCount(c1));
+            Assertions.assertEquals(2, c1.size());
+            Assertions.assertEquals(1, pool.getRefCount(c3));
+            Assertions.assertSame(c3, pool.acquire(2, newProps));
+            Assertions.assertEquals(2, pool.size());
+        }
+    }
+
+    static Map<String, Object> buildProps(String servers) {
+        final Map<String, Object> props = new LinkedHashMap<>();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, servers);
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
+        return props;
+    }
+
+}
@@ -0,0 +1,188 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.util;
+
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetCommitCallback;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.RetriableCommitFailedException;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+
+/**
+ * The {@link PartitionOffsetTrackerTests}
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+public class PartitionOffsetTrackerTests {
+
+    static final TopicPartition TP0 = new TopicPartition("test_topic", 0);
+    static final TopicPartition TP1 = new TopicPartition("test_topic", 1);
+
+    @Test
+    public void testOutOfOrderCompletedWatermark() {
+        final PartitionOffsetTracker tracker = new PartitionOffsetTracker("test", 0L);
+        for (long offset = 100; offset < 110; offset++) {
+            tracker.received(TP0, offset);
+        }
+        Assertions.assertEquals(100L, tracker.getCommittableOffset(TP0));
+
+        tracker.completed(TP0, 103);
+        tracker.completed(TP0, 101);
+        Assertions.assertEquals(100L, tracker.getCommittableOffset(TP0));
+
+        tracker.completed(TP0, 100);
+        Assertions.assertEquals(102L, tracker.getCommittableOffset(TP0));
+
+        tracker.completed(TP0, 102);
+        Assertions.assertEquals(104L, tracker.getCommittableOffset(TP0));
+        Assertions.assertEquals(6L, tracker.getPendingCount(TP0));
+
+        for (long offset = 109; offset >= 104; offset--) {
+            tracker.completed(TP0, offset);
+        }
+        Assertions.assertEquals(110L, tracker.getCommittableOffset(TP0));
+        Assertions.assertEquals(0L, tracker.getPendingCount(TP0));
+    }
+
+    @Test
+    public void testGapsAndRepeatedCompleted() {
+        final PartitionOffsetTracker tracker = new PartitionOffsetTracker("test", 0L);
+        // e.g: The compacted topic or the transaction markers.
+        tracker.received(TP0, 10);
+        tracker.received(TP0, 15);
+        tracker.received(TP0, 200);
+
+        tracker.completed(TP0, 15);
+        tracker.completed(TP0, 15);
+        tracker.completed(TP0, 12); // Never received.
+        Assertions.assertEquals(10L, tracker.getCommittableOffset(TP0));
+        Assertions.assertEquals(2L, tracker.getPendingCount(TP0));
+
+        tracker.completed(TP0, 10);
+        Assertions.assertEquals(200L, tracker.getCommittableOffset(TP0));
+
+        tracker.completed(TP0, 200);
+        Assertions.assertEquals(201L, tracker.getCommittableOffset(TP0));
+
+        // The re-consumed offsets are ignored.
+        tracker.received(TP0, 150);
+        Assertions.assertEquals(0L, tracker.getPendingCount(TP0));
+        Assertions.assertEquals(201L, tracker.getCommittableOffset(TP0));
+    }
+
+    @Test
+    public void testGrowBeyondInitialWords() {
+        final PartitionOffsetTracker tracker = new PartitionOffsetTracker("test", 0L);
+        final int count = 10_000;
+        for (long offset = 30; offset < 30 + count; offset++) {
+            tracker.received(TP0, offset);
+        }
+        // Complete all except the first, the watermark must be held back.
+        for (long offset = 31; offset < 30 + count; offset++) {
+            tracker.completed(TP0, offset);
+        }
+        Assertions.assertEquals(30L, tracker.getCommittableOffset(TP0));
+        Assertions.assertEquals(1L, tracker.getPendingCount(TP0));
+
+        tracker.completed(TP0, 30);
+        Assertions.assertEquals(30L + count, tracker.getCommittableOffset(TP0));
+
+        // Continue to receive after the all words released.
+        tracker.received(TP0, 30L + count);
+        Assertions.assertEquals(30L + count, tracker.getCommittableOffset(TP0));
+        tracker.completed(TP0, 30L + count);
+        Assertions.assertEquals(31L + count, tracker.getCommittableOffset(TP0));
+    }
+
+    @Test
+    public void testCommittableOnlyAdvancedPartitions() {
+        final PartitionOffsetTracker tracker = new PartitionOffsetTracker("test", 0L);
+        tracker.received(TP0, 0);
+        tracker.received(TP1, 0);
+        tracker.completed(TP0, 0);
+
+        final Map<TopicPartition, OffsetAndMetadata> offsets = tracker.getCommittableOffsets();
+        Assertions.assertEquals(2, offsets.size());
+        Assertions.assertEquals(1L, offsets.get(TP0).offset());
+        Assertions.assertEquals(0L, offsets.get(TP1).offset());
+        Assertions.assertEquals(-1L, tracker.getCommittableOffset(new TopicPartition("test_topic", 2)));
+    }
+
+    @Test
+    public void testCommitOnlyAssignedPartitions() {
+        final MockConsumer<String, Object> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        consumer.assign(Collections.singletonList(TP0));
+        final PartitionOffsetTracker tracker = new PartitionOffsetTracker("test", 0L);
+        tracker.received(TP0, 0);
+        tracker.received(TP1, 0);
+        tracker.completed(TP0, 0);
+        tracker.completed(TP1, 0);
+
+        tracker.commitIfNecessary(consumer);
+        final Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(new HashSet<>(Arrays.asList(TP0, TP1)));
+        Assertions.assertEquals(1L, committed.get(TP0).offset());
+        Assertions.assertNull(committed.get(TP1));
+
+        // Committed on revoked, and no longer tracked.
+        tracker.received(TP0, 1);
+        tracker.completed(TP0, 1);
+        tracker.revoke(consumer, Collections.singletonList(TP0));
+        Assertions.assertEquals(2L, consumer.committed(Collections.singleton(TP0)).get(TP0).offset());
+        Assertions.assertEquals(-1L, tracker.getCommittableOffset(TP0));
+    }
+
+    @Test
+    public void testRecommitAfterFailed() {
+        final boolean[] failing = {true};
+        final MockConsumer<String, Object> consumer = new MockConsumer<String, Object>(OffsetResetStrategy.EARLIEST) {
+            @Override
+            public synchronized void commitAsync(Map<TopicPartition, OffsetAndMetadata> offsets,
+                                                 OffsetCommitCallback callback) {
+                if (failing[0]) {
+                    callback.onComplete(offsets, new RetriableCommitFailedException("test"));
+                    return;
+                }
+                super.commitAsync(offsets, callback);
+            }
+        };
+        consumer.assign(Collections.singletonList(TP0));
+        final PartitionOffsetTracker tracker = new PartitionOffsetTracker("test", 0L);
+        tracker.received(TP0, 0);
+        tracker.completed(TP0, 0);
+
+        tracker.commitIfNecessary(consumer);
+        Assertions.assertNull(consumer.committed(Collections.singleton(TP0)).get(TP0));
+        // The failed are committed again, even if there are no more records.
+        Assertions.assertEquals(1L, tracker.getCommittableOffsets().get(TP0).offset());
+
+        failing[0] = false;
+        tracker.commitIfNecessary(consumer);
+        Assertions.assertEquals(1L, consumer.committed(Collections.singleton(TP0)).get(TP0).offset());
+        Assertions.assertTrue(tracker.getCommittableOffsets().isEmpty());
+    }
+
+}
@@ -30,7 +30,7 @@ import org.apache.rocketmq.client.producer.DefaultMQProducer;
 import java.io.Closeable;
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Stream;
+import java.util.stream.IntStream;
 
 import static com.wl4g.infra.common.collection.CollectionUtils2.safeList;
 import static java.util.Objects.isNull;
@@ -58,8 +58,9 @@ public class ConcurrentRocketMQSinkContainer implements Closeable {
         this.channel = requireNonNull(channel, "channel must not be null");
 
         // Create to RocketMQ producers.
-        this.producers = Stream.of(sinkStreamConfig.getParallelism())
-                .map(this::buildRocketMQProducer)
+        // Notice: Must be the range of parallelism, instead of the stream of single element.
+        this.producers = IntStream.range(0, sinkStreamConfig.getParallelism())
+                .mapToObj(this::buildRocketMQProducer)
                 .collect(toList());
     }
 
@@ -20,8 +20,10 @@ package com.wl4g.streamconnect.stream.sink.rocketmq;
 import com.google.common.util.concurrent.SettableFuture;
 import com.wl4g.infra.common.lang.Assert2;
 import com.wl4g.streamconnect.config.ChannelInfo;
+import com.wl4g.streamconnect.exception.StreamConnectException;
 import com.wl4g.streamconnect.meter.StreamConnectMeter;
 import com.wl4g.streamconnect.stream.sink.SinkStream;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -29,20 +31,30 @@ import lombok.Setter;
 import lombok.ToString;
 import lombok.experimental.SuperBuilder;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.rocketmq.client.producer.DefaultMQProducer;
 import org.apache.rocketmq.client.producer.SendCallback;
 import org.apache.rocketmq.client.producer.SendResult;
 import org.apache.rocketmq.common.message.Message;
+import org.apache.rocketmq.common.message.MessageConst;
 import org.apache.rocketmq.remoting.common.RemotingHelper;
 
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Null;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static com.wl4g.infra.common.collection.CollectionUtils2.safeMap;
 import static com.wl4g.streamconnect.stream.AbstractStream.BaseStreamConfig.getStreamProviderTypeName;
 import static java.lang.String.valueOf;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 import static java.util.Objects.requireNonNull;
 
 /**
@@ -55,6 +67,9 @@ import static java.util.Objects.requireNonNull;
 @Slf4j
 public class RocketMQSinkStream extends SinkStream {
 
+    // The hex length of unique id, refer to {@link org.apache.rocketmq.common.message.MessageClientIDSetter}.
+    static final int UNIQ_ID_LENGTH = 32;
+
     private final RocketMQSinkStreamConfig sinkStreamConfig;
     private final List<String> basedMetricsTags;
     private final ConcurrentRocketMQSinkContainer internalTask;
@@ -91,12 +106,10 @@ public class RocketMQSinkStream extends SinkStream {
     public SinkResult doSink(MessageRecord<String, Object> processedRecord,
                              int retryTimes) {
         final String key = processedRecord.getKey();
-        final Object value = processedRecord.getValue();
         final String channelId = (String) safeMap(processedRecord.getMetadata()).get(KEY_CHANNEL);
         final boolean isSequence = Boolean.parseBoolean((String) safeMap(processedRecord.getMetadata()).get(KEY_SEQUENCE));
         try {
-            final Message msg = new Message(sinkStreamConfig.getTopic(), sinkStreamConfig.getTag(),
-                    key, valueOf(value).getBytes(RemotingHelper.DEFAULT_CHARSET));
+            final Message msg = buildMessage(processedRecord);
             final SettableFuture<Object> future = SettableFuture.create();
             internalTask.determineRocketMQProducer(isSequence, key, channelId)
                     .send(msg, new SendCallback() {
@@ -116,6 +129,155 @@ public class RocketMQSinkStream extends SinkStream {
         }
     }
 
+    /**
+     * Sink the batch by {@link DefaultMQProducer#send(Collection, SendCallback)}, the records are grouped by the
+     * determined producer (the sequence records by the key hash), and split into the batches limited by the
+     * {@link RocketMQSinkStreamConfig#getMaxBatchSize()} and {@link RocketMQSinkStreamConfig#getMaxMessageSize()}.
+     * Each batch succeeds or fails as a whole, and the result is mapped to each record of it, so that the records
+     * of the failed batches are retried one by one.
+     */
+    @Override
+    protected List<SinkResult> doSinkBatch(List<? extends MessageRecord<String, Object>> processedRecords,
+                                           int retryTimes) {
+        if (!sinkStreamConfig.isEnableBatch() || processedRecords.size() <= 1) {
+            return super.doSinkBatch(processedRecords, retryTimes);
+        }
+        final List<SinkResult> results = new ArrayList<>(processedRecords.size());
+        final Map<DefaultMQProducer, List<PendingMessage>> grouped = new IdentityHashMap<>(4);
+        // The non-sequence records of this batch are sent by the same random producer.
+        DefaultMQProducer nonSequenceProducer = null;
+        for (MessageRecord<String, Object> record : processedRecords) {
+            final String key = record.getKey();
+            final String channelId = (String) safeMap(record.getMetadata()).get(KEY_CHANNEL);
+            final boolean isSequence = Boolean.parseBoolean((String) safeMap(record.getMetadata()).get(KEY_SEQUENCE));
+            final SettableFuture<Object> future = SettableFuture.create();
+            results.add(new SinkResult(record, future, retryTimes));
+            final DefaultMQProducer producer;
+            if (isSequence) {
+                producer = internalTask.determineRocketMQProducer(true, key, channelId);
+            } else {
+                if (nonSequenceProducer == null) {
+                    nonSequenceProducer = internalTask.determineRocketMQProducer(false, key, channelId);
+                }
+                producer = nonSequenceProducer;
+            }
+            try {
+                grouped.computeIfAbsent(producer, p -> new ArrayList<>())
+                        .add(new PendingMessage(buildMessage(record), future));
+            } catch (Exception ex) {
+                future.setException(ex);
+            }
+        }
+        final String name = getConnectorConfig().getName().concat(" :: ").concat(getChannel().getId());
+        grouped.forEach((producer, pendings) -> splitBatches(pendings, sinkStreamConfig.getMaxBatchSize(),
+                sinkStreamConfig.getMaxMessageSize()).forEach(batch -> sendBatch(name, producer, batch)));
+        return results;
+    }
+
+    /**
+     * Split the messages in order into the batches of at most max size and max bytes, the message larger than
+     * the max bytes is sent as a single batch (i.e. rejected by the producer validation and retried one by one).
+     */
+    static List<List<PendingMessage>> splitBatches(List<PendingMessage> pendings,
+                                                   int maxBatchSize,
+                                                   int maxBatchBytes) {
+        final List<List<PendingMessage>> batches = new ArrayList<>();
+        int from = 0;
+        while (from < pendings.size()) {
+            int to = from;
+            long batchBytes = 0L;
+            while (to < pendings.size() && (to - from) < maxBatchSize) {
+                final int messageBytes = estimateMessageSize(pendings.get(to).getMessage());
+                if (to > from && batchBytes + messageBytes > maxBatchBytes) {
+                    break;
+                }
+                batchBytes += messageBytes;
+                ++to;
+            }
+            batches.add(pendings.subList(from, to));
+            from = to;
+        }
+        return batches;
+    }
+
+    /**
+     * Send the batch asynchronously, the result is mapped to each record of the batch by the callback of the
+     * producer (or the failure of sending), so that the sink results are settled without blocking.
+     */
+    static void sendBatch(String name,
+                          DefaultMQProducer producer,
+                          List<PendingMessage> batch) {
+        final List<Message> messages = new ArrayList<>(batch.size());
+        for (PendingMessage pending : batch) {
+            messages.add(pending.getMessage());
+        }
+        try {
+            producer.send(messages, new SendCallback() {
+                @Override
+                public void onSuccess(SendResult sendResult) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("{} :: Sent batch of {} messages, result: {}", name, messages.size(), sendResult);
+                    }
+                    batch.forEach(pending -> pending.getFuture().set(sendResult));
+                }
+
+                @Override
+                public void onException(Throwable ex) {
+                    failBatch(name, batch, ex);
+                }
+            });
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            failBatch(name, batch, ex);
+        } catch (Throwable ex) {
+            failBatch(name, batch, ex);
+        }
+    }
+
+    private static void failBatch(String name,
+                                  List<PendingMessage> batch,
+                                  Throwable ex) {
+        final StreamConnectException cause = new StreamConnectException(String.format(
+                "%s :: Failed to send batch of %s messages to RocketMQ", name, batch.size()), ex);
+        batch.forEach(pending -> pending.getFuture().setException(cause));
+    }
+
+    private Message buildMessage(MessageRecord<String, Object> processedRecord) throws UnsupportedEncodingException {
+        // Forward the original bytes if the value has not been mapped.
+        final byte[] rawValue = RawMessageRecord.getUnchangedRawValue(processedRecord);
+        return new Message(sinkStreamConfig.getTopic(), sinkStreamConfig.getTag(),
+                processedRecord.getKey(), nonNull(rawValue) ? rawValue
+                : valueOf(processedRecord.getValue()).getBytes(RemotingHelper.DEFAULT_CHARSET));
+    }
+
+    /**
+     * The estimated encoded bytes of message in batch, refer to
+     * {@link org.apache.rocketmq.common.message.MessageDecoder#encodeMessage}.
+     */
+    static int estimateMessageSize(Message msg) {
+        // The fixed header (i.e: total size, magic code, body crc, flag, body length and properties length).
+        int size = 22 + msg.getBody().length;
+        if (nonNull(msg.getProperties())) {
+            for (Map.Entry<String, String> entry : msg.getProperties().entrySet()) {
+                // The separators of name-value and properties.
+                size += entry.getKey().getBytes(StandardCharsets.UTF_8).length
+                        + entry.getValue().getBytes(StandardCharsets.UTF_8).length + 2;
+            }
+        }
+        // The unique id property is set to each message in batching.
+        if (isNull(msg.getProperty(MessageConst.PROPERTY_UNIQ_CLIENT_MESSAGE_ID_KEYIDX))) {
+            size += MessageConst.PROPERTY_UNIQ_CLIENT_MESSAGE_ID_KEYIDX.length() + UNIQ_ID_LENGTH + 2;
+        }
+        return size;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    static class PendingMessage {
+        private final Message message;
+        private final SettableFuture<Object> future;
+    }
+
     @Getter
     @Setter
     @SuperBuilder
@@ -138,6 +300,8 @@ public class RocketMQSinkStream extends SinkStream {
         private @Builder.Default int retryTimesWhenSendAsyncFailed = 2;
         private @Builder.Default boolean retryAnotherBrokerWhenNotStoreOK = false;
         private @Builder.Default int maxMessageSize = 1024 * 1024 * 4; // 4M
+        private @Builder.Default boolean enableBatch = true;
+        private @Builder.Default int maxBatchSize = 128;
 
         @Override
         public String getType() {
@@ -154,6 +318,7 @@ public class RocketMQSinkStream extends SinkStream {
             Assert2.isTrueOf(retryTimesWhenSendFailed > 0, "retryTimesWhenSendFailed > 0");
             Assert2.isTrueOf(retryTimesWhenSendAsyncFailed > 0, "retryTimesWhenSendAsyncFailed > 0");
             Assert2.isTrueOf(maxMessageSize > 0, "maxMessageSize > 0");
+            Assert2.isTrueOf(maxBatchSize > 0, "maxBatchSize > 0");
         }
     }
 
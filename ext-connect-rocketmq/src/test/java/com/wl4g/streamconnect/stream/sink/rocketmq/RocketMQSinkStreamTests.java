@@ -0,0 +1,129 @@
+/*
+ *  Copyright (C) 2023 ~ 2035 the original authors WL4G (James Wong).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.wl4g.streamconnect.stream.sink.rocketmq;
+
+import com.google.common.util.concurrent.SettableFuture;
+import com.wl4g.streamconnect.stream.sink.rocketmq.RocketMQSinkStream.PendingMessage;
+import org.apache.rocketmq.client.exception.MQClientException;
+import org.apache.rocketmq.client.producer.DefaultMQProducer;
+import org.apache.rocketmq.client.producer.SendCallback;
+import org.apache.rocketmq.client.producer.SendResult;
+import org.apache.rocketmq.client.producer.SendStatus;
+import org.apache.rocketmq.common.message.Message;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * The {@link RocketMQSinkStreamTests}
+ *
+ * @author James Wong
+ * @since v1.0
+ **/
+public class RocketMQSinkStreamTests {
+
+    @Test
+    public void testEstimateMessageSizeOfBytes() {
+        final Message ascii = new Message("topic", "tag", "key", "v".getBytes(StandardCharsets.UTF_8));
+        final Message unicode = new Message("topic", "标签", "key", "v".getBytes(StandardCharsets.UTF_8));
+        // The multi-bytes characters are counted by the encoded bytes.
+        Assertions.assertEquals(RocketMQSinkStream.estimateMessageSize(ascii) + 3,
+                RocketMQSinkStream.estimateMessageSize(unicode));
+    }
+
+    @Test
+    public void testSplitBatches() {
+        final List<PendingMessage> pendings = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            pendings.add(newPending(i == 7 ? 4096 : 100));
+        }
+        final int messageBytes = RocketMQSinkStream.estimateMessageSize(pendings.get(0).getMessage());
+
+        // Limited by the max batch size.
+        final List<List<PendingMessage>> bySize = RocketMQSinkStream.splitBatches(pendings.subList(0, 7), 3,
+                Integer.MAX_VALUE);
+        Assertions.assertEquals(3, bySize.size());
+        Assertions.assertEquals(3, bySize.get(0).size());
+        Assertions.assertEquals(1, bySize.get(2).size());
+
+        // Limited by the max batch bytes, and the larger message is sent as a single batch.
+        final List<List<PendingMessage>> byBytes = RocketMQSinkStream.splitBatches(pendings, 128,
+                messageBytes * 4);
+        Assertions.assertEquals(4, byBytes.size());
+        Assertions.assertEquals(4, byBytes.get(0).size());
+        Assertions.assertEquals(3, byBytes.get(1).size());
+        Assertions.assertEquals(1, byBytes.get(2).size());
+        Assertions.assertSame(pendings.get(7), byBytes.get(2).get(0));
+        Assertions.assertEquals(2, byBytes.get(3).size());
+    }
+
+    @Test
+    public void testSendBatchMapsResults() throws Exception {
+        final List<SendCallback> callbacks = new ArrayList<>();
+        final DefaultMQProducer producer = new DefaultMQProducer() {
+            @Override
+            public void send(Collection<Message> msgs, SendCallback sendCallback) throws MQClientException {
+                if (msgs.size() > 2) {
+                    throw new MQClientException("The batch is too large", null);
+                }
+                callbacks.add(sendCallback);
+            }
+        };
+        final List<PendingMessage> pendings = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            pendings.add(newPending(100));
+        }
+        final List<List<PendingMessage>> batches = RocketMQSinkStream.splitBatches(pendings, 2, Integer.MAX_VALUE);
+        batches.forEach(batch -> RocketMQSinkStream.sendBatch("test", producer, batch));
+        Assertions.assertEquals(4, callbacks.size());
+        pendings.forEach(pending -> Assertions.assertFalse(pending.getFuture().isDone()));
+
+        final SendResult sendResult = new SendResult();
+        sendResult.setSendStatus(SendStatus.SEND_OK);
+        callbacks.get(0).onSuccess(sendResult);
+        callbacks.get(1).onException(new IllegalStateException("Broker busy"));
+        callbacks.get(2).onSuccess(sendResult);
+
+        // Only the records of the failed batch are failed, the in-flight are never settled.
+        Assertions.assertSame(sendResult, pendings.get(0).getFuture().get());
+        Assertions.assertSame(sendResult, pendings.get(1).getFuture().get());
+        Assertions.assertThrows(ExecutionException.class, () -> pendings.get(2).getFuture().get());
+        Assertions.assertThrows(ExecutionException.class, () -> pendings.get(3).getFuture().get());
+        Assertions.assertSame(sendResult, pendings.get(5).getFuture().get());
+        Assertions.assertFalse(pendings.get(6).getFuture().isDone());
+
+        // The rejected of sending is failed synchronously.
+        final List<PendingMessage> rejected = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            rejected.add(newPending(100));
+        }
+        RocketMQSinkStream.sendBatch("test", producer, rejected);
+        Assertions.assertEquals(4, callbacks.size());
+        rejected.forEach(pending -> Assertions.assertThrows(ExecutionException.class, () -> pending.getFuture().get()));
+    }
+
+    static PendingMessage newPending(int bodyBytes) {
+        return new PendingMessage(new Message("topic", "tag", "key", new byte[bodyBytes]), SettableFuture.create());
+    }
+
+}